@@ -0,0 +1,101 @@
+package gengine.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import gengine.GameManager;
+import gengine.Map;
+
+/**
+ * This class builds the maps the benchmarks run on. The maps are made of
+ * Map marks like the built in maps, so they go through GameManager.getMap
+ * like any other map.
+ *
+ * @version 0.3
+ */
+final class Arenas {
+    private Arenas() {}
+
+    /**
+     * Returns a walled square arena holding the given number of enemies
+     * on every other tile. The player is walled into the top left corner,
+     * so enemies never reach it and every tick does the same kind of work.
+     *
+     * @param enemies - number of enemies
+     * @return marks of the arena
+     */
+    static char[][] enemies(int enemies) {
+        int side = (int) Math.ceil(Math.sqrt(enemies * 2.0)) + 4;
+        char[][] marks = new char[side][side];
+        int placed = 0;
+        for(int row = 0; row < side; row++) {
+            for(int col = 0; col < side; col++) {
+                if(row == 0 || col == 0 || row == side - 1 || col == side - 1) {
+                    marks[row][col] = 'x';
+                }
+                else if(row <= 2 && col <= 2) {
+                    marks[row][col] = row == 1 && col == 1 ? 'P' : 'x';
+                }
+                else if((row + col) % 2 == 0 && placed < enemies) {
+                    marks[row][col] = 'e';
+                    placed++;
+                }
+                else {
+                    marks[row][col] = '-';
+                }
+            }
+        }
+        return marks;
+    }
+
+    /**
+     * Returns a walled square map with random walls, enemies and
+     * collectables inside, and the player in the middle.
+     *
+     * @param side - width and height of the map in tiles
+     * @param seed - seed of the random content
+     * @return marks of the map
+     */
+    static char[][] random(int side, long seed) {
+        Random random = new Random(seed);
+        char[][] marks = new char[side][side];
+        for(int row = 0; row < side; row++) {
+            for(int col = 0; col < side; col++) {
+                double r = random.nextDouble();
+                if(row == 0 || col == 0 || row == side - 1 || col == side - 1 || r < 0.2) {
+                    marks[row][col] = 'x';
+                }
+                else if(r < 0.22) {
+                    marks[row][col] = 'e';
+                }
+                else if(r < 0.23) {
+                    marks[row][col] = 'o';
+                }
+                else {
+                    marks[row][col] = '-';
+                }
+            }
+        }
+        marks[side / 2][side / 2] = 'P';
+        return marks;
+    }
+
+    /**
+     * Returns a game manager with the given map loaded, ready to be updated.
+     *
+     * @param marks - marks of the map
+     * @param parallelism - threads used for the decide phase, see GameManager.setParallelism
+     * @return the game manager
+     */
+    static GameManager load(char[][] marks, int parallelism) {
+        GameManager manager = new GameManager();
+        manager.setSeed(1);
+        manager.setParallelism(parallelism);
+        List<Map> maps = new ArrayList<>();
+        maps.add(new Map(marks));
+        manager.setMaps(maps);
+        manager.setCurrentMap(0);
+        manager.getMap();
+        return manager;
+    }
+}
@@ -0,0 +1,83 @@
+package gengine.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import gengine.GameManager;
+import gengine.gameobject.GameObject;
+import gengine.gameobject.MovableObject;
+import gengine.gameobject.ObjectType;
+import gengine.gameobject.SpatialGrid;
+
+/**
+ * This benchmark measures the latency of single collision queries made
+ * by enemies during an update. Every call queries from the next enemy,
+ * so the queries go all over the map like they do in the game.
+ *
+ * @version 0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int entities;
+
+    private GameManager manager;
+    private SpatialGrid grid;
+    private MovableObject[] enemies;
+    private List<GameObject> out;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = Arenas.load(Arenas.enemies(entities), 1);
+        grid = manager.getGrid();
+        List<MovableObject> found = new ArrayList<>();
+        for(GameObject o : manager.getEntities().asList()) {
+            if(o.getType() == ObjectType.ENEMY) {
+                found.add((MovableObject) o);
+            }
+        }
+        enemies = found.toArray(new MovableObject[0]);
+        out = new ArrayList<>();
+    }
+
+    private MovableObject nextEnemy() {
+        MovableObject e = enemies[next];
+        next = next + 1 == enemies.length ? 0 : next + 1;
+        return e;
+    }
+
+    /**
+     * Objects overlapping the area of an enemy, as used by collides.
+     */
+    @Benchmark
+    public List<GameObject> query() {
+        MovableObject e = nextEnemy();
+        return grid.query(e.getX(), e.getY(), e.getWidth(), e.getHeight(), e, out);
+    }
+
+    /**
+     * Free directions around an enemy.
+     */
+    @Benchmark
+    public void canMove(Blackhole bh) {
+        MovableObject e = nextEnemy();
+        bh.consume(e.canMove(manager.getEntities().asList()));
+    }
+
+    /**
+     * Object hit by an enemy moving one step in its direction.
+     */
+    @Benchmark
+    public GameObject collides() {
+        MovableObject e = nextEnemy();
+        return e.collides(e.getDirection(), manager.getEntities().asList(), manager.getStepTime());
+    }
+}
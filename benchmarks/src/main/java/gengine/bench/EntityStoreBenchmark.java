@@ -0,0 +1,99 @@
+package gengine.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import gengine.gameobject.*;
+
+/**
+ * This benchmark compares the update loop over a plain List of game
+ * objects with the same loop over an EntityStore. Both models run on a
+ * walled arena filled with enemies, updated one object at a time.
+ *
+ * @version 0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityStoreBenchmark {
+    private static final long STEP = 1000000000L / 60;
+
+    @Param({"100", "1000", "10000"})
+    public int entities;
+
+    // Where the objects are kept, a plain List or an EntityStore
+    @Param({"list", "store"})
+    public String model;
+
+    private List<GameObject> objects;
+    private EntityStore store;
+    private SpatialGrid grid;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int side = (int) Math.ceil(Math.sqrt(entities * 2.0)) + 2;
+        List<GameObject> blocks = new ArrayList<>();
+        objects = new ArrayList<>();
+        int placed = 0;
+        for(int row = 0; row < side; row++) {
+            for(int col = 0; col < side; col++) {
+                if(row == 0 || col == 0 || row == side - 1 || col == side - 1) {
+                    GameObject block = new GameObject(32 * col, 32 * row, 32, 32);
+                    block.setType(ObjectType.BLOCK);
+                    objects.add(block);
+                    blocks.add(block);
+                }
+                else if((row + col) % 2 == 0 && placed < entities) {
+                    Enemy enemy = new Enemy(32 * col, 32 * row, 32, 32);
+                    enemy.setSpeed(2.0);
+                    objects.add(enemy);
+                    placed++;
+                }
+            }
+        }
+
+        grid = new SpatialGrid(new TileLayer(0, 0, 32, side, side, blocks));
+        for(GameObject o : objects) {
+            grid.add(o);
+        }
+        if(model.equals("store")) {
+            store = new EntityStore(objects.size());
+            for(GameObject o : objects) {
+                store.add(o);
+            }
+            objects = store.asList();
+        }
+    }
+
+    /**
+     * One update of every object but the walls.
+     */
+    @Benchmark
+    public void tick() {
+        if(store != null) {
+            store.savePositions();
+            for(int i = 0; i < store.size(); i++) {
+                if(store.getType(i) != ObjectType.BLOCK) {
+                    GameObject o = store.get(i);
+                    o.update(objects, STEP);
+                    grid.update(o);
+                }
+            }
+        }
+        else {
+            for(GameObject o : objects) {
+                o.savePosition();
+            }
+            for(GameObject o : objects) {
+                if(o.getType() != ObjectType.BLOCK) {
+                    o.update(objects, STEP);
+                    grid.update(o);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package gengine.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import gengine.GameManager;
+import gengine.gameobject.EntityStore;
+
+/**
+ * This benchmark measures loading a map through GameManager.getMap, which
+ * creates the objects of the map and builds its spatial grid.
+ *
+ * @version 0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapLoadBenchmark {
+    // Width and height of the map in tiles
+    @Param({"20", "128", "512"})
+    public int size;
+
+    private GameManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = Arenas.load(Arenas.random(size, 1), 1);
+    }
+
+    /**
+     * One load of the current map.
+     */
+    @Benchmark
+    public EntityStore getMap() {
+        manager.getMap();
+        return manager.getEntities();
+    }
+}
@@ -0,0 +1,41 @@
+package gengine.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import gengine.GameManager;
+import gengine.graphics.RenderSnapshot;
+
+/**
+ * This benchmark measures how long copying the game state for drawing
+ * takes. Only the view of the camera is copied, so the time should stay
+ * about the same no matter how many enemies there are.
+ *
+ * @version 0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderPrepBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int entities;
+
+    private GameManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = Arenas.load(Arenas.enemies(entities), 1);
+        manager.updateGame(manager.getStepTime());
+    }
+
+    /**
+     * One snapshot, published and taken back like the drawing thread does.
+     */
+    @Benchmark
+    public RenderSnapshot publishSnapshot() {
+        manager.publishSnapshot();
+        return manager.getSnapshot();
+    }
+}
@@ -0,0 +1,50 @@
+package gengine.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import gengine.GameManager;
+
+/**
+ * This benchmark measures how many full updates per second GameManager
+ * runs with a growing number of enemies. Run with the GC profiler
+ * (-prof gc) the gc.alloc.rate.norm result is the allocation per update.
+ *
+ * @version 0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int entities;
+
+    // Threads of the decide phase, 0 for the common pool like the game uses
+    @Param({"0"})
+    public int parallelism;
+
+    private GameManager manager;
+    private long step;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = Arenas.load(Arenas.enemies(entities), parallelism);
+        step = manager.getStepTime();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.setParallelism(1);
+    }
+
+    /**
+     * One full update: decide, commit, events and spawns.
+     */
+    @Benchmark
+    public long tick() {
+        manager.updateGame(step);
+        return manager.getTick();
+    }
+}
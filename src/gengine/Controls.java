@@ -2,63 +2,55 @@ package gengine;
 
 import javafx.scene.Scene;
 import javafx.event.*;
+import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import gengine.gameobject.Player;
-import java.util.Set;
-import java.util.HashSet;
+import gengine.log.Log;
+import gengine.log.Logger;
+import gengine.profile.TickProfiler;
 /**
  * This is the class for player controls.
  * By default it sets two EventHandler objects for
  * OnKeyPressed and OnKeyReleased, both containing basic four direction movement
  * and P for pausing the game and SPACE for special action. The latter two do nothing
- * at this point. 
+ * at this point.
+ * Key events are not handled in the JavaFX thread. They are put into an
+ * InputQueue and handled when GameManager polls the controls at the start
+ * of an update, so the player never changes in the middle of an update, a
+ * key press reaches the game at the next update and the input of every
+ * update can be recorded. Pressed keys are kept in a bitset indexed by
+ * the ordinal of their KeyCode. While the profiler of the game manager is
+ * enabled, the time every key event waited for its update is counted in it.
  *
  * @author Lauri Pirttimaki
  * @version 0.2
  */
-public class Controls {
-    private Player player;
-    private Set<String> input; //List that holds information on keys that are being pressed. 
+public class Controls implements InputSource {
+    private static final Logger LOG = Log.getLogger("input");
+    private static final KeyCode[] KEYS = KeyCode.values();
+    private static final int PRESSED = 1; // Lowest bit of a queued event, the KeyCode ordinal is above it
+
+    private final GameManager manager;
+    private final InputQueue events;
+    private final long[] pressed; // Keys being pressed, game loop thread only
+    private Direction direction;
     /**
      * The default constructor. Takes two parameters which are used.
+     * The controls become the input source of the game manager.
      *
      * @param scene - the scene where event handlers are set
      * @param manager - the game manager in use.
      */
     public Controls(Scene scene, GameManager manager) {
-        input = new HashSet<>();
-        player = manager.getPlayer();
+        this.manager = manager;
+        events = new InputQueue(1024);
+        pressed = new long[(KEYS.length + 63) / 64];
+        direction = Direction.NONE;
+        manager.setInput(this);
         scene.setOnKeyPressed(
             new EventHandler<KeyEvent>() {
                 public void handle(KeyEvent e) {
-                    String code = e.getCode().toString();
-                    addKey(code);
-                    switch(code) {
-                        case "UP":
-                            player.setDirection(Direction.UP);
-                            player.setMoving(true);
-                            break;
-                        case "RIGHT":
-                            player.setDirection(Direction.RIGHT);
-                            player.setMoving(true);
-                            break;
-                        case "DOWN":
-                            player.setDirection(Direction.DOWN);
-                            player.setMoving(true);
-                            break;
-                        case "LEFT":
-                            player.setDirection(Direction.LEFT);
-                            player.setMoving(true);
-                            break;
-                        case "P": // Key for Pause, implemented if time allows
-                            // manager.PauseGame() or something.
-                            break;
-                        case "SPACE": // Key for Player Action, implemented if time allows
-                            // manager.player().doSomething() maybe.
-                            break;
-                        default:
-                            break;    
-                    }
+                    events.offer(e.getCode().ordinal() << 1 | PRESSED, System.nanoTime());
                 }
             }
         );
@@ -66,71 +58,128 @@ public class Controls {
         scene.setOnKeyReleased(
             new EventHandler<KeyEvent>() {
                 public void handle(KeyEvent e) {
-                    String code = e.getCode().toString();
-                    releaseKey(code);
-                    if(code.equals("UP") || code.equals("RIGHT") 
-                            || code.equals("DOWN") || code.equals("LEFT")) {
-                                if(!isMoving()){
-                                    System.out.println("Stopped moving");
-                                    player.setDirection(Direction.NONE);
-                                    player.setMoving(false);
-                                }
-                    }
-                    else if(code.equals("P")) {
-                    }
-                    else if(code.equals("R")) {
-                        // Game Reset has been disabled until proper map handling is implemented.
-                        // manager.resetGame();
-                    }
-                    else if(code.equals("SPACE")) {
-                    }
-                    else {
-
-                    }
+                    events.offer(e.getCode().ordinal() << 1, System.nanoTime());
                 }
             }
         );
     }
     /**
-     * This method adds a key as String to a list.
+     * Method handles the key events queued since the previous update and
+     * applies the direction of the pressed keys to the player.
+     *
+     * @param player - the player of the current map
+     * @param tick - number of the update about to run
+     */
+    @Override
+    public void poll(Player player, long tick) {
+        TickProfiler profiler = manager.getProfiler();
+        boolean profiling = profiler.isEnabled();
+        int event;
+        while((event = events.poll()) != InputQueue.EMPTY) {
+            if(profiling) {
+                profiler.recordInputLatency(System.nanoTime() - events.getPolledTime());
+            }
+            KeyCode code = KEYS[event >>> 1];
+            if((event & PRESSED) != 0) {
+                keyPressed(code);
+            }
+            else {
+                keyReleased(code);
+            }
+        }
+        player.setDirection(direction);
+        player.setMoving(direction != Direction.NONE);
+    }
+
+    /**
+     * Method handles a pressed key.
+     *
+     * @param code - the key pressed
+     */
+    private void keyPressed(KeyCode code) {
+        addKey(code);
+        switch(code) {
+            case UP:
+                direction = Direction.UP;
+                break;
+            case RIGHT:
+                direction = Direction.RIGHT;
+                break;
+            case DOWN:
+                direction = Direction.DOWN;
+                break;
+            case LEFT:
+                direction = Direction.LEFT;
+                break;
+            case P: // Key for Pause, implemented if time allows
+                // manager.PauseGame() or something.
+                break;
+            case SPACE: // Key for Player Action, implemented if time allows
+                // manager.player().doSomething() maybe.
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Method handles a released key.
+     *
+     * @param code - the key released
+     */
+    private void keyReleased(KeyCode code) {
+        releaseKey(code);
+        if(code == KeyCode.UP || code == KeyCode.RIGHT
+                || code == KeyCode.DOWN || code == KeyCode.LEFT) {
+                    if(!isMoving()){
+                        LOG.debug("Stopped moving");
+                        direction = Direction.NONE;
+                    }
+        }
+        else if(code == KeyCode.R) {
+            // Game Reset has been disabled until proper map handling is implemented.
+            // manager.resetGame();
+        }
+    }
+
+    /**
+     * This method marks a key as pressed.
      *
      * @param code - the key code pressed
-     * @return true if key code was added to the list
+     * @return true if key was not pressed before
      */
-    public boolean addKey(String code) {
-        System.out.println(code + " pressed.");
-        return input.add(code);
+    public boolean addKey(KeyCode code) {
+        int i = code.ordinal();
+        long bit = 1L << i;
+        boolean added = (pressed[i >>> 6] & bit) == 0;
+        pressed[i >>> 6] |= bit;
+        return added;
     }
 
     /**
-     * This method removes a key from the list of inputs.
+     * This method marks a key as released.
      *
      * @param code - the key code released
-     * @return true if key was succesfully removed from the list
+     * @return true if key was pressed before
      */
-    public boolean releaseKey(String code) {
-        System.out.println(code + " released.");
-        return input.remove(code);
+    public boolean releaseKey(KeyCode code) {
+        int i = code.ordinal();
+        long bit = 1L << i;
+        boolean removed = (pressed[i >>> 6] & bit) != 0;
+        pressed[i >>> 6] &= ~bit;
+        return removed;
     }
 
     /**
-     * This method checks if a certain key code is pressed
+     * This method checks if a certain key code is pressed. Called from the
+     * game loop thread only.
      *
-     * @param code - the key code wanted 
-     * @return true if key code was found from the input list
+     * @param code - the key code wanted
+     * @return true if key is being pressed
      */
-    public boolean isKeyPressed(String code) {
-        /*
-        // This is debug code
-        // ------------------
-        if(input.contains(code)) {
-            System.out.println(code + " is still pressed.");
-        }
-        else {
-            System.out.println(code + " is not pressed.");
-        }*/
-        
-        return input.contains(code);
+    public boolean isKeyPressed(KeyCode code) {
+        int i = code.ordinal();
+        return (pressed[i >>> 6] & 1L << i) != 0;
     }
 
     /**
@@ -139,16 +188,16 @@ public class Controls {
      * @return true if player is still on the move, false if not.
      */
     public boolean isMoving() {
-        Direction d = player.getDirection();
+        Direction d = direction;
         // Check that you have correct key and direction combo.
-        if(isKeyPressed("UP") && d == Direction.UP 
-            || isKeyPressed("DOWN") && d == Direction.DOWN 
-            || isKeyPressed("RIGHT") && d == Direction.RIGHT
-            || isKeyPressed("LEFT") && d == Direction.LEFT) {
+        if(isKeyPressed(KeyCode.UP) && d == Direction.UP
+            || isKeyPressed(KeyCode.DOWN) && d == Direction.DOWN
+            || isKeyPressed(KeyCode.RIGHT) && d == Direction.RIGHT
+            || isKeyPressed(KeyCode.LEFT) && d == Direction.LEFT) {
                 return true;
         }
         else {
             return false;
         }
     }
-}
\ No newline at end of file
+}
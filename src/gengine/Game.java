@@ -2,6 +2,8 @@ package gengine;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Paths;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.stage.Stage;
@@ -13,7 +15,18 @@ import javafx.scene.Scene;
 import javafx.scene.Group;
 import javafx.scene.control.Label;
 import javafx.scene.paint.*;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.animation.AnimationTimer;
+import gengine.graphics.ProfileOverlay;
+import gengine.graphics.RenderSnapshot;
+import gengine.graphics.Renderer;
+import gengine.map.DefaultMaps;
+import gengine.map.MapFile;
+import gengine.profile.TickProfiler;
+import gengine.replay.ReplayRecorder;
+import gengine.log.Log;
+import gengine.log.Logger;
 
 /**
  * This is the class where graphics are handled.
@@ -23,6 +36,8 @@ import javafx.animation.AnimationTimer;
  * @version 0.2
  */
 public class Game extends Application {
+    private static final Logger LOG = Log.getLogger("game");
+
     String gameTitle;
     GameManager manager;
     Image playerImg;
@@ -33,57 +48,21 @@ public class Game extends Application {
     Scene scene;
     Group root;
     Canvas canvas;
+    Renderer renderer;
+    String recordPath;       // Input is recorded here when given with --record=FILE
+    ReplayRecorder recorder;
+    boolean profile;         // Profiler enabled from the start with --profile
+    boolean showProfile;     // Profiler overlay toggled with F3
+    ProfileOverlay overlay;
 
-    char[][] map = {
-        {'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x'},
-        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x', '-', '-', '-', 'x'},
-        {'x', '-', '-', 'e', '-', '-', '-', '-', '-', '-', 'o', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', 'x', '-', '-', '-', 'x', 'x', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', 'e', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', 'P', '-', '-', 'x', 'x', 'x', 'x', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', 's', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', 'x', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', 'x', '-', '-', '-', 'x', 'x', 'x', 'x', 'x', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', 'o', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x', 'x'},
-        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x'}
-        };
-
-    char[][] map2 = {
-        {'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x'},
-        {'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', 'x', '-', 'P', 'x'},
-        {'x', '-', '-', 'x', '-', '-', '-', '-', '-', 'e', '-', 'x', '-', '-', '-', '-', 'x', '-', '-', 'x'},
-        {'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', 'x', 'x', '-', 'x'},
-        {'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', 'x', 'x', '-', '-', 'x', 'x', '-', '-', '-', 'x', 'x', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', 'x', '-', '-', '-', '-', 'x'},
-        {'x', 'x', 'x', 'x', '-', 'x', 'x', '-', '-', '-', '-', '-', 'x', '-', 'x', 'x', 'x', 'x', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', 'x', '-', '-', 'x'},
-        {'x', '-', 'x', '-', 'x', '-', 'x', 'x', 'x', 'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', 'x', '-', 'x', '-', 'x', '-', '-', 'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', 'x', '-', 'x', '-', 'x', 's', '-', 'x', '-', '-', 'x', 'x', 'x', 'x', '-', 'x', 'x', 'x'},
-        {'x', '-', 'x', '-', 'x', 'x', 'x', '-', '-', 'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', 'x', '-', '-', '-', 'x', 'x', '-', 'x', '-', 'x', 'x', '-', '-', '-', '-', '-', '-', 'x'},
-        {'x', '-', 'x', '-', '-', '-', 'x', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', 'x', 'x', '-', 'x'},
-        {'x', '-', 'x', '-', 'x', 'x', 'x', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', 'x'},
-        {'x', '-', '-', '-', 'x', '-', '-', '-', '-', 'x', 'x', 'x', 'x', 'x', '-', 'x', '-', '-', '-', 'x'},
-        {'x', '-', 'x', 'x', 'x', '-', '-', 'e', '-', 'x', '-', 'x', '-', '-', '-', 'x', '-', 'x', '-', 'x'},
-        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x'},
-        {'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x'}
-        };
-    
     List<Map> maps;
+    MapFile world; // Map streamed instead of the maps, if it is too big to load at once
     List<Image> images;
 
-    // Dimensions for 20x20 grid + status bar at top
+    // Map files with more tiles than this are streamed
+    final int MAX_LOADED_TILES = 128 * 128;
+
+    // Window size, fits a 20x20 grid + status bar at top. Bigger maps scroll with the camera
     final int WINDOW_WIDTH = 640;
     final int WINDOW_HEIGHT = 672;
     /**
@@ -92,16 +71,19 @@ public class Game extends Application {
     public Game() {
         gameTitle = "Gengine 0.3";
         manager = new GameManager();
-        maps = new ArrayList<>();
-        maps.add(new Map(map));
-        maps.add(new Map(map2));
+        maps = DefaultMaps.create();
     }
 
     /**
      * Method which is called before start method. 
      * Used to preload files before they are used. 
+     * Map files given as command line arguments replace the built in maps.
      */
     public void init() {
+        List<String> files = new ArrayList<>(getParameters().getUnnamed());
+        profile = files.remove("--profile");
+        loadMaps(files);
+        recordPath = getParameters().getNamed().get("record");
         playerImg = new Image("img/hero.png");
         enemyImg = new Image("img/monster.png");
         blockImg = new Image("img/stoneBlock.png");
@@ -109,9 +91,39 @@ public class Game extends Application {
         stairsImg = new Image("img/stairs.png");
     }
 
+    /**
+     * Method loads maps from map files. Files which can't be read are
+     * skipped and the built in maps are kept if none could be read.
+     * The first map bigger than MAX_LOADED_TILES is streamed and played first.
+     *
+     * @param files - paths of the map files
+     */
+    public void loadMaps(List<String> files) {
+        List<Map> loaded = new ArrayList<>();
+        for(String file : files) {
+            try {
+                MapFile f = MapFile.open(Paths.get(file));
+                if((long) f.getWidth() * f.getHeight() <= MAX_LOADED_TILES) {
+                    loaded.add(f.toMap());
+                }
+                else if(world == null) {
+                    world = f;
+                }
+            }
+            catch(IOException e) {
+                LOG.warn("Could not load map " + file + ": " + e.getMessage());
+            }
+        }
+        if(!loaded.isEmpty()) {
+            maps = loaded;
+        }
+    }
+
     /**
      * The method where all is set up for the game.
      * Also starts and handles the "repaint loop".
+     * F3 shows and hides the profiler overlay, and the profiler can also be
+     * read and switched on through JMX.
      * 
      * @param stage - the top level container for JavaFX objects.
      */
@@ -130,17 +142,40 @@ public class Game extends Application {
         images.add(stairsImg);
 
         canvas = new Canvas(WINDOW_WIDTH, WINDOW_HEIGHT);
-        manager.setImages(images);
+        renderer = new Renderer(images);
         manager.setMaps(maps);
         manager.setCurrentMap(0);
-        manager.getMap();
+        if(world != null) {
+            manager.loadWorld(world);
+        }
+        else {
+            manager.getMap();
+        }
         manager.getPlayer().setSpeed(5.0);
-        manager.setControls(scene);
+        manager.getCamera().setViewport(WINDOW_WIDTH, WINDOW_HEIGHT);
+        new Controls(scene, manager);
+        TickProfiler profiler = manager.getProfiler();
+        profiler.register();
+        profiler.setEnabled(profile);
+        overlay = new ProfileOverlay();
+        scene.addEventHandler(KeyEvent.KEY_PRESSED, e -> {
+            if(e.getCode() == KeyCode.F3) {
+                showProfile = !showProfile;
+                profiler.setEnabled(profile || showProfile);
+            }
+        });
+        if(recordPath != null) {
+            try {
+                recorder = new ReplayRecorder(manager, manager.getInput(), Paths.get(recordPath), 60);
+                manager.setInput(recorder);
+            }
+            catch(IOException e) {
+                LOG.warn("Could not record to " + recordPath + ": " + e.getMessage());
+            }
+        }
 
         gc = canvas.getGraphicsContext2D();
         
-        // Try to paint the player center of the screen
-        // manager.getPlayer().draw(gc);
         root.getChildren().add(canvas);
 
         stage.show();
@@ -152,19 +187,36 @@ public class Game extends Application {
             public void handle(long currentNanoTime) {
                 // Clear the canvas
                 gc.clearRect(0, 0, WINDOW_WIDTH, WINDOW_HEIGHT);
-                // Draw the player on the canvas
-                manager.draw(gc);
+                // Draw the latest game state, between its two latest positions
+                RenderSnapshot snapshot = manager.getSnapshot();
+                renderer.draw(gc, snapshot, snapshot.getInterpolation(currentNanoTime));
+                if(profiler.isEnabled()) {
+                    profiler.frameRendered();
+                }
+                if(showProfile) {
+                    overlay.draw(gc, profiler.getReport());
+                }
             }
         }.start();
     }
 
     /**
      * This method handles proper closing by stopping game loop.
+     * A recording is finished after the game loop has stopped.
      */
     public void stop(){
         if(!manager.gameOver()){
             manager.setGameOver(true);
         }
+        if(recorder != null) {
+            try {
+                manager.join(1000);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            recorder.close();
+        }
         Platform.exit();
     }
 }
\ No newline at end of file
@@ -1,49 +1,135 @@
 package gengine;
 
-import java.util.Observable;
-import java.util.Observer;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Random;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.Image;
-import javafx.scene.Scene;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import gengine.ai.AiScheduler;
 import gengine.gameobject.*;
+import gengine.event.EventBus;
+import gengine.event.EventType;
+import gengine.event.GameEvent;
+import gengine.map.ChunkFactory;
+import gengine.map.ChunkStreamer;
+import gengine.map.MapConverter;
+import gengine.map.MapFile;
+import gengine.random.RandomStream;
+import gengine.random.WorldRandom;
+import gengine.graphics.Camera;
+import gengine.graphics.ChunkCopies;
+import gengine.graphics.RenderSnapshot;
+import gengine.graphics.SnapshotBuffer;
+import gengine.path.PathService;
+import gengine.profile.Phase;
+import gengine.profile.TickProfiler;
+import gengine.log.Log;
+import gengine.log.Logger;
 
 /**
  * This is the manager class where overall logic of the game is handled.
+ * It does not depend on JavaFX. Input comes from an InputSource and the
+ * game state is handed to drawing as RenderSnapshots, so the same game
+ * runs in a window or headless.
  *
  * @author Lauri Pirttimaki
  * @version 0.3
  */
-public class GameManager extends Thread implements Observer{
+public class GameManager extends Thread {
+    private static final Logger LOG = Log.getLogger("game");
+
     private boolean gameOver;
     private int score;
     
     private Player player;
-    private Controls controls;
-    private List<GameObject> objects;
+    private InputSource input;
+    private EntityStore entities;
+    private List<GameObject> objects; // List view of entities
+    private EntityQueue changes;      // Objects added and removed at the end of an update
+    private WorldRandom random;       // Random streams of the objects of the current map
+
+    // Streamed maps
+    private ChunkStreamer streamer;
+    private int chunkRadius;
+    private long chunkBudget;
+    private boolean deterministicStreaming;
+    private SpatialGrid grid;
+    private List<GameObject> unloading; // Objects on unloaded chunks, parked at the end of the update
     
     private long previousTime;
     private long currentTime;
 
+    // Fixed timestep settings
+    private int tickRate;
+    private int maxCatchUpSteps;
+    private long maxFrameTime;
+    private long tickTime; // Time when the latest simulated state was current
+    private long tick;
+
+    private SnapshotBuffer snapshots;
+    private Camera camera;
+    private List<GameObject> inView;
+    private int[] inViewIndexes;
+    private int storedBlocks; // Walls kept in the store as well as the tile layer
+    private ChunkCopies chunkCopies; // Sprite ids of the chunks drawn, copied for drawing
+
+    // Events posted during an update, drained at its end
+    private EventBus events;
+    private int scoreGained;
+    private List<GameObject> touching;
+
+    // Parallel decide phase
+    private static final int DECIDE_BATCH = 256;
+    private int parallelism;
+    private volatile ForkJoinPool pool;
+    private int[] deciders;
+    private long[] decideTimes;   // Time each of the deciders decides for
+    private AiScheduler scheduler; // Picks the enemies deciding in an update
+    private long seed;
+
+    private TickProfiler profiler; // Times the updates while enabled
+    private PathService paths;     // Enemies find their way to the player with it
+    private EntityPools pools;     // Objects of past levels and despawned objects for reuse
+
     private double startX;
     private double startY;
 
     private List<Map> maps;
     private Map currentMap;
 
-    private List<Image> images;
-
     /**
      * The default constructor.
      * Sets up gameOver, player and list of other game objects.
      */
     public GameManager() {
+        super("game-loop");
         setGameOver(false);
         setScore(0);
-        objects = new ArrayList<>();
+        entities = new EntityStore();
+        objects = entities.asList();
+        changes = new EntityQueue();
         player = new Player();
+        snapshots = new SnapshotBuffer();
+        camera = new Camera(640, 672);
+        inView = new ArrayList<>();
+        inViewIndexes = new int[64];
+        events = new EventBus();
+        touching = new ArrayList<>();
+        unloading = new ArrayList<>();
+        subscribeEvents();
+        deciders = new int[64];
+        decideTimes = new long[64];
+        scheduler = new AiScheduler();
+        profiler = new TickProfiler();
+        paths = new PathService();
+        pools = new EntityPools();
+        setParallelism(0);
+        setSeed(System.nanoTime());
+        setTickRate(60);
+        setMaxCatchUpSteps(5);
+        setMaxFrameTime(250000000L);
+        chunkRadius = -1;
+        chunkBudget = -1;
     }
 
     /** 
@@ -60,22 +146,7 @@ public class GameManager extends Thread implements Observer{
             setCurrentMap(0);
         }
         getMap();
-    }
-
-    /**
-     * Method sets the list containing all the images
-     *
-     * @param list - list of Image objects used
-     */
-    public void setImages(List<Image> list) {
-        images = list;
-    }
-
-    /**
-     * Metohd returns all the images used in a List
-     */
-    public List<Image> getImages() {
-        return images;
+        events.post(EventType.LEVEL_CHANGE, null, null, maps.indexOf(currentMap));
     }
 
     /**
@@ -160,15 +231,22 @@ public class GameManager extends Thread implements Observer{
     }
 
     /**
-     * Method sets the Controls object. Takes a Scene where we want control
-     * as parameter.
+     * Method sets where the input of the player comes from. The source is
+     * polled at the start of every update.
      *
-     * @param scene - controllable Scene
+     * @param source - the InputSource, null for none
      */
-    public void setControls(Scene scene) {
-        controls = new Controls(scene, this);
+    public void setInput(InputSource source) {
+        input = source;
     }
 
+    /**
+     * Returns where the input of the player comes from.
+     *
+     * @return the InputSource or null
+     */
+    public InputSource getInput() { return input; }
+
     /**
      * Returns gameOver attribute.
      *
@@ -235,6 +313,140 @@ public class GameManager extends Thread implements Observer{
      */
     public long getCurrentTime() { return currentTime; }
 
+    /**
+     * Sets how many times per second the game logic is updated.
+     * Value is kept between 1 and 1000.
+     *
+     * @param hz - updates per second
+     */
+    public void setTickRate(int hz) {
+        tickRate = Math.max(1, Math.min(hz, 1000));
+    }
+
+    /**
+     * Sets how many updates can be run in a row to catch up when the
+     * game loop has fallen behind. At least one update is always allowed.
+     *
+     * @param steps - maximum number of updates per loop round
+     */
+    public void setMaxCatchUpSteps(int steps) {
+        maxCatchUpSteps = Math.max(1, steps);
+    }
+
+    /**
+     * Sets the longest time counted for a single loop round. Longer
+     * stalls are cut to this so the game loop won't try to simulate
+     * all of the lost time at once.
+     *
+     * @param nanos - maximum frame time in nanoseconds
+     */
+    public void setMaxFrameTime(long nanos) {
+        maxFrameTime = Math.max(1, nanos);
+    }
+
+    /**
+     * Sets how many threads enemies use for deciding their moves.
+     * 0 uses the common ForkJoinPool, 1 decides in the game loop thread
+     * and larger values create a pool of that many threads. The outcome of
+     * an update is the same with any number of threads. Should be set before
+     * the game loop is started.
+     *
+     * @param threads - number of threads, 0 for the common pool
+     */
+    public synchronized void setParallelism(int threads) {
+        if(pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        parallelism = Math.max(threads, 0);
+        if(parallelism > 1) {
+            pool = new ForkJoinPool(parallelism);
+        }
+    }
+
+    /**
+     * Sets the seed for random numbers used by the map and enemies.
+     * Takes effect on the next map load. Two games with the same seed
+     * and the same input play out the same way.
+     *
+     * @param s - the seed
+     */
+    public void setSeed(long s) {
+        seed = s;
+    }
+
+    /**
+     * Returns the number of threads used for the decide phase.
+     *
+     * @return parallelism, 0 for the common pool
+     */
+    public int getParallelism() { return parallelism; }
+
+    /**
+     * Returns the seed for random numbers.
+     *
+     * @return the seed
+     */
+    public long getSeed() { return seed; }
+
+    /**
+     * Returns the random numbers of the current map. Objects needing
+     * random numbers take their own stream from it.
+     *
+     * @return WorldRandom of the current map
+     */
+    public WorldRandom getRandom() { return random; }
+
+    /**
+     * Method returns a checksum of the game state: the objects of the
+     * current map, the score, the health of the player and the update count.
+     * Two runs with the same seed, maps and input have the same checksum
+     * after every update, so comparing checksums finds where they diverge.
+     *
+     * @return 64-bit checksum
+     */
+    public long getStateChecksum() {
+        long h = entities.checksum();
+        h = (h ^ score) * 0x100000001B3L;
+        h = (h ^ player.getHealth()) * 0x100000001B3L;
+        return (h ^ tick) * 0x100000001B3L;
+    }
+
+    /**
+     * Returns the number of updates per second.
+     *
+     * @return tick rate in hertz
+     */
+    public int getTickRate() { return tickRate; }
+
+    /**
+     * Returns the maximum number of updates run in a row.
+     *
+     * @return maximum catch up steps
+     */
+    public int getMaxCatchUpSteps() { return maxCatchUpSteps; }
+
+    /**
+     * Returns the longest time counted for a single loop round.
+     *
+     * @return maximum frame time in nanoseconds
+     */
+    public long getMaxFrameTime() { return maxFrameTime; }
+
+    /**
+     * Returns the length of a single update.
+     *
+     * @return fixed time step in nanoseconds
+     */
+    public long getStepTime() { return 1000000000L / tickRate; }
+
+    /**
+     * Returns the number of updates run so far.
+     *
+     * @return update count
+     */
+    public long getTick() { return tick; }
+
     /**
      * Returns the substraction of currentTime and previousTime.
      *
@@ -243,143 +455,739 @@ public class GameManager extends Thread implements Observer{
     public long getDeltaTime() { return (long) ((getCurrentTime() - getPreviousTime()) / 1000000); }
 
     /**
-     * Method adds gameManager as observer to all non-BLOCK objects.
+     * Method connects all non-BLOCK objects to the event bus of gameManager.
      *
      * @param objects - all related objects
      */
-    public void addObservers(List<GameObject> objects) {
+    public void connectEvents(List<GameObject> objects) {
         for( GameObject o : objects ) {
             if(o.getType() != ObjectType.BLOCK) {
-                o.deleteObservers();
-                o.addObserver(this);
+                o.setEventBus(events);
             }
         }
     }
 
+    /**
+     * Method subscribes gameManager to the events it handles:
+     *      PICKUP - value of the collectable is added to score and it is
+     *               removed from the map
+     *      PORTAL_ENTER - the next level is loaded
+     */
+    private void subscribeEvents() {
+        events.subscribe(EventType.PICKUP, this::onPickUp);
+        events.subscribe(EventType.PORTAL_ENTER, e -> nextLevel());
+    }
+
+    /**
+     * Method handles a picked up collectable. Score is only collected here
+     * and added once after all the events of the update are handled.
+     *
+     * @param e - the PICKUP event
+     */
+    private void onPickUp(GameEvent e) {
+        scoreGained += e.getValue();
+        despawn(e.getSource());
+    }
+
+    /**
+     * Method adds a game object to the current map. The object is added at
+     * the end of the update, so it can be called at any point of it.
+     *
+     * @param o - the object to add
+     */
+    public void spawn(GameObject o) {
+        if(o.getType() != ObjectType.BLOCK) {
+            o.setEventBus(events);
+        }
+        changes.add(o);
+    }
+
+    /**
+     * Method removes a game object from the current map. The object is
+     * removed at the end of the update, so it can be called at any point of it.
+     * Pooled objects then go back to their pool and must not be used anymore.
+     *
+     * @param o - the object to remove
+     */
+    public void despawn(GameObject o) {
+        changes.remove(o);
+    }
+
+    /**
+     * Method creates the object of a map mark other than a wall from the
+     * pools and adds it to the current map at the end of the update. Objects despawned go back
+     * to the pools, so spawning and despawning often doesn't allocate.
+     *
+     * @param mark - the map mark, like 'e' for an enemy
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @return the new object or null if the mark is an empty tile
+     */
+    public GameObject spawn(char mark, double x, double y) {
+        GameObject o = createObject(mark, x, y);
+        if(o != null) {
+            spawn(o);
+        }
+        return o;
+    }
+
+    /**
+     * Returns the event bus of the game.
+     *
+     * @return EventBus used by all game objects
+     */
+    public EventBus getEvents() { return events; }
+
     /**
      * Method that creates and places map objects according to the current map.
-     * images given represent Map marks in following order:
-     *  1. P (player)
-     *  2. x (wall)
-     *  3. e (enemy)
-     *  4. o (collectable)
-     *  5. s (portal to next level)
+     * Sprite ids given to the objects of Map marks are in following order:
+     *  0. P (player)
+     *  1. x (wall)
+     *  2. e (enemy)
+     *  3. o (collectable)
+     *  4. s (portal to next level)
      */
     public void getMap() {
         Map map = currentMap;
-        objects = new ArrayList<>();
+        closeWorld();
+        pools.releaseAll(entities);
+        entities = new EntityStore();
+        objects = entities.asList();
+        changes.clear();
+        unloading.clear();
+        List<GameObject> blocks = new ArrayList<>();
+        random = new WorldRandom(seed + maps.indexOf(map));
         char [][] mapCoords = map.coordinates;
-        System.out.println("Map |  " + mapCoords.length);
-        System.out.println("Map -- " + mapCoords[0].length);
+        LOG.debug(() -> "Map " + mapCoords[0].length + "x" + mapCoords.length);
         for(int i = 0; i < mapCoords.length; i++) {
             for(int j = 0; j < mapCoords[0].length; j++) {
-                if(mapCoords[i][j] == 'P'){   // Player
-                    player = new Player(0 + (32 * j), 32 + (32 * i), 32, 32);
-                    player.setSprite(getImages().get(0));
-                    setStartX(player.getX());
-                    setStartY(player.getY());
-                    objects.add(player);
+                if(mapCoords[i][j] == 'x'){  // Blocks, obstacles
+                    GameObject tile = createBlock(pools.acquireTile(), 0 + (32 * j), 32 + (32 * i), 32);
+                    entities.add(tile);
+                    blocks.add(tile);
                 }
-                else if(mapCoords[i][j] == 'x'){  // Blocks, obstacles
-                    GameObject tile = new GameObject(0 + (32 * j), 32 + (32 * i), 32, 32);
-                    tile.setSprite(getImages().get(1));
-                    tile.setType(ObjectType.BLOCK);
-                    objects.add(tile);
+                else {
+                    GameObject tile = createObject(mapCoords[i][j], 0 + (32 * j), 32 + (32 * i));
+                    if(tile != null) {
+                        entities.add(tile);
+                    }
                 }
-                else  if(mapCoords[i][j] == 'e'){ // Enemies
-                    Enemy tile = new Enemy(0 + (32 * j), 32 + (32 * i), 32, 32);
-                    Random rand = new Random();
-                    tile.setSpeed(rand.nextDouble() * 2.5 + 1.0);
-                    tile.setSprite(getImages().get(2));
-                    objects.add(tile);
+            }
+        }
+        storedBlocks = blocks.size();
+        // Walls never move, so they go to the static layer of the grid
+        grid = new SpatialGrid(new TileLayer(0, 32, 32, mapCoords[0].length, mapCoords.length, blocks));
+        paths.setTiles(grid.getTiles());
+        for(GameObject o : objects) {
+            grid.add(o);
+        }
+        connectEvents(objects);
+        LOG.debug(() -> "Pools after loading: " + pools);
+    }
+
+    /**
+     * Method starts a map streamed from a map file. Only the chunks around
+     * the player are loaded, see ChunkStreamer. The player is placed on the
+     * first player spawn of the map, or the top left corner if there is none.
+     * Other objects are placed when their chunk is loaded for the first time.
+     *
+     * @param file - the map file
+     */
+    public void loadWorld(MapFile file) {
+        closeWorld();
+        pools.releaseAll(entities);
+        entities = new EntityStore();
+        objects = entities.asList();
+        changes.clear();
+        unloading.clear();
+        random = new WorldRandom(seed);
+        storedBlocks = 0;
+        streamer = new ChunkStreamer(file, 0, 32, 32, new ChunkFactory() {
+            @Override
+            public GameObject createBlock(double x, double y, double size) {
+                // Called from the loading thread, so not from the pools
+                return GameManager.createBlock(new GameObject(), x, y, size);
+            }
+
+            @Override
+            public void spawn(byte type, double x, double y) {
+                if(type != MapFile.PLAYER) {
+                    GameObject o = createObject(MapConverter.toMark(type), x, y);
+                    if(o != null) {
+                        addObject(o);
+                    }
                 }
-                else  if(mapCoords[i][j] == 'o'){ // Collectables
-                    Collectable tile = new Collectable(0 + (32 * j), 32 + (32 * i), 32, 32);
-                    tile.collectType = Collectable.Type.SCORE;
-                    tile.setValue(100);
-                    tile.setSprite(getImages().get(3));
-                    objects.add(tile);
+            }
+
+            @Override
+            public void restore(GameObject o) {
+                addObject(o);
+            }
+        });
+        if(chunkRadius >= 0) {
+            streamer.setRadius(chunkRadius);
+        }
+        if(chunkBudget >= 0) {
+            streamer.setMemoryBudget(chunkBudget);
+        }
+        streamer.setDeterministic(deterministicStreaming);
+        grid = new SpatialGrid(streamer.getTiles());
+        paths.setTiles(grid.getTiles());
+
+        int start = streamer.findSpawn(MapFile.PLAYER);
+        double x = start >= 0 ? 32 * file.getSpawnCol(start) : 0;
+        double y = start >= 0 ? 32 + 32 * file.getSpawnRow(start) : 32;
+        addObject(createObject('P', x, y));
+        streamer.loadAround(x, y);
+    }
+
+    /**
+     * Method stops streaming the current map, if it is streamed.
+     */
+    private void closeWorld() {
+        if(streamer != null) {
+            streamer.shutdown();
+            streamer = null;
+        }
+    }
+
+    /**
+     * Sets how many chunks around the player are kept loaded on streamed maps.
+     *
+     * @param chunks - radius in chunks
+     */
+    public void setChunkRadius(int chunks) {
+        chunkRadius = Math.max(chunks, 0);
+        if(streamer != null) {
+            streamer.setRadius(chunkRadius);
+        }
+    }
+
+    /**
+     * Sets how much memory loaded chunks of streamed maps may take.
+     *
+     * @param bytes - memory budget in bytes
+     */
+    public void setChunkMemoryBudget(long bytes) {
+        chunkBudget = Math.max(bytes, 0);
+        if(streamer != null) {
+            streamer.setMemoryBudget(chunkBudget);
+        }
+    }
+
+    /**
+     * Sets whether the chunks of streamed maps are installed on a fixed
+     * update after they are asked for, see ChunkStreamer.setDeterministic.
+     * Turned on while recording and replaying, so a streamed map plays out
+     * the same way however fast its chunks load.
+     *
+     * @param on - true for deterministic installs
+     */
+    public void setDeterministicStreaming(boolean on) {
+        deterministicStreaming = on;
+        if(streamer != null) {
+            streamer.setDeterministic(on);
+        }
+    }
+
+    /**
+     * Returns whether the chunks of streamed maps are installed deterministically.
+     *
+     * @return true if installs are deterministic
+     */
+    public boolean isDeterministicStreaming() { return deterministicStreaming; }
+
+    /**
+     * Returns the streamer of the current map.
+     *
+     * @return ChunkStreamer or null if the map is not streamed
+     */
+    public ChunkStreamer getStreamer() { return streamer; }
+
+    /**
+     * Method creates a wall.
+     *
+     * @param tile - a new or pooled object made into the wall
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @param size - width and height of the wall
+     * @return the wall
+     */
+    private static GameObject createBlock(GameObject tile, double x, double y, double size) {
+        place(tile, x, y, size, size);
+        tile.setSpriteId(1);
+        tile.setType(ObjectType.BLOCK);
+        return tile;
+    }
+
+    /**
+     * Method moves an object taken from a pool to its place.
+     *
+     * @param o - the object
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @param w - width
+     * @param h - height
+     * @return the object
+     */
+    private static <T extends GameObject> T place(T o, double x, double y, double w, double h) {
+        o.setX(x);
+        o.setY(y);
+        o.setWidth(w);
+        o.setHeight(h);
+        o.savePosition();
+        return o;
+    }
+
+    /**
+     * Method creates the object of a map mark other than a wall. Creating
+     * the player also sets the starting coordinates. Other objects are
+     * taken from the pools.
+     *
+     * @param mark - the map mark
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @return the new object or null if the mark is an empty tile
+     */
+    private GameObject createObject(char mark, double x, double y) {
+        if(mark == 'P'){   // Player
+            player = new Player((int) x, (int) y, 32, 32);
+            player.setSpriteId(0);
+            setStartX(player.getX());
+            setStartY(player.getY());
+            return player;
+        }
+        else  if(mark == 'e'){ // Enemies
+            Enemy tile = place(pools.acquireEnemy(), (int) x, (int) y, 32, 32);
+            // Stream of the spawn point, the same however the map is loaded
+            RandomStream r = random.stream((long) x, (long) y);
+            tile.setRandom(r);
+            tile.setPaths(paths);
+            tile.randomizeDirection();
+            tile.setSpeed(r.nextDouble() * 2.5 + 1.0);
+            tile.setSpriteId(2);
+            return tile;
+        }
+        else  if(mark == 'o'){ // Collectables
+            Collectable tile = place(pools.acquireCollectable(), (int) x, (int) y, 32, 32);
+            tile.collectType = Collectable.Type.SCORE;
+            tile.setValue(100);
+            tile.setSpriteId(3);
+            return tile;
+        }
+        else  if(mark == 's'){ // Stairs to next level
+            GameObject tile = place(pools.acquireTile(), x, y, 32, 32);
+            tile.setType(ObjectType.PORTAL);
+            tile.setSpriteId(4);
+            return tile;
+        }
+        return null;
+    }
+
+    /**
+     * Method adds an object to the current map right away. Must not be
+     * called while objects are being updated, use spawn then.
+     *
+     * @param o - the object to add
+     */
+    private void addObject(GameObject o) {
+        entities.add(o);
+        grid.add(o);
+        if(o.getType() != ObjectType.BLOCK) {
+            o.setEventBus(events);
+        }
+    }
+
+    /**
+     * Method returns whether the chunk at given coordinates is loaded.
+     * Always true for maps which are not streamed.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @return true if loaded
+     */
+    private boolean isLoadedAt(double x, double y) {
+        if(streamer == null) {
+            return true;
+        }
+        TileLayer tiles = streamer.getTiles();
+        return tiles.isLoaded(tiles.chunkOf(tiles.colOf(x), tiles.rowOf(y)));
+    }
+
+    /**
+     * Returns the store holding the objects of the current map.
+     *
+     * @return EntityStore of the current map
+     */
+    public EntityStore getEntities() { return entities; }
+
+    /**
+     * Returns the spatial grid of the current map.
+     *
+     * @return grid used for collision queries
+     */
+    public SpatialGrid getGrid() { return grid; }
+
+    
+
+    /**
+     * Method copies the state of the objects into a RenderSnapshot and hands
+     * it over to drawing. Called by the game loop after updating, and must
+     * not be called from other threads while the loop is running.
+     * The camera is moved after the player, and only the objects and wall
+     * chunks in its view are copied. They are found through the spatial
+     * grid, so the work depends on the size of the view, not the map.
+     */
+    public void publishSnapshot() {
+        RenderSnapshot snapshot = snapshots.getWriteBuffer();
+        snapshot.begin(tick, tickTime, getStepTime());
+        EntityStore e = entities;
+        if(grid == null) {
+            for(int i = 0; i < e.size(); i++) {
+                snapshot.add(e.getPreviousX(i), e.getPreviousY(i), e.getX(i), e.getY(i),
+                    e.getWidth(i), e.getHeight(i), e.getSpriteId(i), e.isVisible(i));
+            }
+            snapshots.publish();
+            return;
+        }
+
+        TileLayer tiles = grid.getTiles();
+        double size = tiles.getTileSize();
+        double maxX = tiles.getOriginX() + tiles.getCols() * size;
+        double maxY = tiles.getOriginY() + tiles.getRows() * size;
+        // The status bar above the map is part of the view
+        camera.follow(player.getPreviousX() + player.getWidth() / 2, player.getPreviousY() + player.getHeight() / 2,
+            0, 0, maxX, maxY);
+        double previousCameraX = camera.getX();
+        double previousCameraY = camera.getY();
+        camera.follow(player.getX() + player.getWidth() / 2, player.getY() + player.getHeight() / 2,
+            0, 0, maxX, maxY);
+        snapshot.setCamera(previousCameraX, previousCameraY, camera.getX(), camera.getY(),
+            camera.getZoom(), camera.getViewportWidth(), camera.getViewportHeight());
+
+        // One tile of margin covers objects moving into view during the update
+        double left = camera.getViewX() - size;
+        double top = camera.getViewY() - size;
+        double width = camera.getViewWidth() + 2 * size;
+        double height = camera.getViewHeight() + 2 * size;
+
+        grid.query(left, top, width, height, null, inView);
+        int count = 0;
+        for(int k = 0; k < inView.size(); k++) {
+            GameObject o = inView.get(k);
+            if(o.getType() != ObjectType.BLOCK && o.getStore() == e
+                    && Bounds.intersects(left, top, width, height, o.getX(), o.getY(), o.getWidth(), o.getHeight())) {
+                if(count == inViewIndexes.length) {
+                    inViewIndexes = Arrays.copyOf(inViewIndexes, count * 2);
                 }
-                else  if(mapCoords[i][j] == 's'){ // Stairs to next level
-                    GameObject tile = new GameObject(0 + (32 * j), 32 + (32 * i), 32, 32);
-                    tile.setType(ObjectType.PORTAL);
-                    tile.setSprite(getImages().get(4));
-                    objects.add(tile);
+                inViewIndexes[count++] = o.getIndex();
+            }
+        }
+        inView.clear();
+        // Draw in store order like before culling, so overlapping objects stay in the same order
+        Arrays.sort(inViewIndexes, 0, count);
+        for(int k = 0; k < count; k++) {
+            int i = inViewIndexes[k];
+            snapshot.add(e.getPreviousX(i), e.getPreviousY(i), e.getX(i), e.getY(i),
+                e.getWidth(i), e.getHeight(i), e.getSpriteId(i), e.isVisible(i));
+        }
+        snapshot.setCulled(Math.max(e.size() - storedBlocks - count, 0));
+
+        snapshot.setTiles(tiles);
+        if(chunkCopies == null || chunkCopies.getTiles() != tiles) {
+            chunkCopies = new ChunkCopies(tiles);
+        }
+        chunkCopies.begin();
+        int chunkSize = tiles.getChunkSize();
+        int minChunkCol = tiles.colOf(left) / chunkSize;
+        int maxChunkCol = tiles.colOf(left + width) / chunkSize;
+        int minChunkRow = tiles.rowOf(top) / chunkSize;
+        int maxChunkRow = tiles.rowOf(top + height) / chunkSize;
+        for(int r = minChunkRow; r <= maxChunkRow; r++) {
+            for(int c = minChunkCol; c <= maxChunkCol; c++) {
+                int chunk = r * tiles.getChunkCols() + c;
+                if(tiles.isLoaded(chunk)) {
+                    snapshot.addChunk(chunk, chunkCopies.get(chunk));
                 }
             }
         }
-        addObservers(objects);
+        snapshots.publish();
     }
 
-    
+    /**
+     * Method sets the profiler timing the updates.
+     *
+     * @param p - the TickProfiler, not null
+     */
+    public void setProfiler(TickProfiler p) {
+        profiler = p;
+    }
 
     /**
-     * Root drawing method for game objects.
-     * It calls draw method from all the objects.
+     * Returns the profiler timing the updates. It is disabled until
+     * enabled with setEnabled.
      *
-     * @param  gc - object used for drawing to canvas.
+     * @return the TickProfiler
      */
-    public void draw(GraphicsContext gc) {
-        for(GameObject o : objects) {
-            o.draw(gc);
-        }
+    public TickProfiler getProfiler() { return profiler; }
+
+    /**
+     * Returns the pathfinding of the current map. Its field radius and
+     * chase range can be changed between updates.
+     *
+     * @return the PathService
+     */
+    public PathService getPaths() { return paths; }
+
+    /**
+     * Returns the scheduler picking the enemies deciding in an update. Its
+     * distances, period and budget can be changed between updates.
+     *
+     * @return the AiScheduler
+     */
+    public AiScheduler getScheduler() { return scheduler; }
+
+    /**
+     * Returns the object pools, with their hit and miss counts.
+     *
+     * @return the EntityPools
+     */
+    public EntityPools getPools() { return pools; }
+
+    /**
+     * Returns the camera deciding which part of the map is drawn.
+     *
+     * @return the Camera
+     */
+    public Camera getCamera() { return camera; }
+
+    /**
+     * Returns the latest game state published for drawing. Meant to be
+     * called from the drawing thread only.
+     *
+     * @return latest RenderSnapshot
+     */
+    public RenderSnapshot getSnapshot() {
+        return snapshots.acquire();
     }
 
     /**
      * This method starts the game loop.
      */
     public void startGame() {
-        System.out.println("Starting game loop..");
+        LOG.info("Starting game loop..");
         setCurrentTime();
         setPreviousTime();
+        tickTime = getCurrentTime();
+        publishSnapshot();
         this.start();
     }
 
     /**
-     * The observing update method. When collectable is picked up its
-     * value is added to score and then it is remove from the list of objects.
+     * Method is the master method for game logic handling. Calls for
+     * all the other update methods in objects and tracks state of the game.
+     * Input is polled before anything else is updated.
+     * The update has two phases:
+     *      1. decide - enemies work out their moves against the state left by
+     *         the previous update. Nothing they read changes during this phase,
+     *         so it runs in parallel. The AiScheduler picks which enemies
+     *         decide, by their distance from the player.
+     *      2. commit - objects apply their changes one at a time in slot order.
+     *         Objects without a decide phase run their normal update here,
+     *         enemies left out by the scheduler stay where they are.
+     * After that the events of the update are handled and objects spawned
+     * and despawned during the update are added to and removed from the map.
+     * While the profiler is enabled every phase is timed.
      *
-     * @param o - Observable object
-     * @param arg - notify argument of Observable object
+     * @param delta - length of the update in nanoseconds
      */
-    @Override
-    public void update(Observable o, Object arg) {
-        System.out.println(o.getClass().toString());
-        if(o.getClass().toString().contains("Collectable")){
-            Collectable collectable = (Collectable) o;
-            setScore(getScore() + collectable.getValue());
+    public void updateGame(long delta) {
+        TickProfiler p = profiler;
+        boolean profiling = p.isEnabled();
+        if(profiling) {
+            p.beginTick();
+        }
+        if(input != null) {
+            input.poll(player, tick);
+        }
+        if(profiling) {
+            p.mark(Phase.INPUT);
+        }
+        if(streamer != null) {
+            streamer.update(player.getX(), player.getY());
+        }
+        if(profiling) {
+            p.mark(Phase.STREAMING);
+        }
+        EntityStore e = entities;
+        e.savePositions();
+        events.setTick(tick);
+
+        // The field towards the player is searched again only when the player changes tile
+        paths.setTarget(player.getHealth() > 0 ? player : null);
+        paths.update();
+        int count = 0;
+        for(int i = 0; i < e.size(); i++) {
+            if(e.getType(i) == ObjectType.ENEMY && e.get(i) instanceof MovableObject
+                    && isLoadedAt(e.getX(i), e.getY(i))) {
+                if(count == deciders.length) {
+                    deciders = Arrays.copyOf(deciders, count * 2);
+                    decideTimes = Arrays.copyOf(decideTimes, count * 2);
+                }
+                deciders[count++] = i;
+            }
+        }
+        count = scheduler.schedule(e, deciders, count, decideTimes,
+            player.getX() + player.getWidth() / 2, player.getY() + player.getHeight() / 2, delta);
+        decide(count);
+        if(profiling) {
+            p.mark(Phase.AI);
+        }
 
-            // Delete picked up object from the map
-            new Thread() {
-                public void run() {
-                    synchronized(objects) {
-                        objects.remove(collectable);
+        int next = 0;
+        for(int i = 0; i < e.size(); i++) {
+            if(e.getType(i) != ObjectType.BLOCK) {
+                GameObject o = e.get(i);
+                if(!isLoadedAt(e.getPreviousX(i), e.getPreviousY(i))) {
+                    // Objects on unloaded chunks of a streamed map wait for their walls off the map
+                    if(o != player) {
+                        unloading.add(o);
+                    }
+                }
+                else {
+                    if(e.getType(i) == ObjectType.ENEMY && o instanceof MovableObject) {
+                        // Enemies the scheduler left out this update stay where they are
+                        if(next < count && deciders[next] == i) {
+                            ((MovableObject) o).commit(objects, decideTimes[next++]);
+                        }
+                    }
+                    else {
+                        o.update(objects, delta);  // checkc collision in here
                     }
+                    grid.update(o);
                 }
-            }.start();
+            }
+            setGameOver(isGameOver());
+        }
+        player.setVisible(player.getHealth() > 0);
+        if(profiling) {
+            p.mark(Phase.COLLISION);
+        }
+        checkPortals();
+        dispatchEvents();
+        changes.apply(entities, grid, pools);
+        parkUnloaded();
+        tick++;
+        if(profiling) {
+            p.mark(Phase.EVENTS);
+            p.endTick(entities);
+        }
+    }
 
-            System.out.println("Score: " + getScore());
+    /**
+     * Method posts a PORTAL_ENTER event if the player is touching a portal.
+     * Portals are solid, so the player ends up next to one instead of on it.
+     */
+    private void checkPortals() {
+        if(grid == null || player.getHealth() <= 0) {
+            return;
         }
-        else if(o.getClass().toString().contains("Portal")) {
-            nextLevel();
+        double x = player.getX();
+        double y = player.getY();
+        double w = player.getWidth();
+        double h = player.getHeight();
+        grid.query(x, y, w, h, player, touching);
+        for(int i = 0; i < touching.size(); i++) {
+            GameObject o = touching.get(i);
+            if(o.getType() == ObjectType.PORTAL
+                    && (Bounds.intersects(x - 0.5, y, w + 1.0, h, o.getX(), o.getY(), o.getWidth(), o.getHeight())
+                    || Bounds.intersects(x, y - 0.5, w, h + 1.0, o.getX(), o.getY(), o.getWidth(), o.getHeight()))) {
+                events.post(EventType.PORTAL_ENTER, o, player, 0);
+                break;
+            }
         }
+        touching.clear();
     }
 
     /**
-     * Method is the master method for game logic handling. Calls for
-     * all the other update methods in objects and tracks state of the game.
+     * Method takes the objects found on unloaded chunks during the update
+     * off the map and parks them with their chunk, so the updates only go
+     * through the objects of loaded chunks.
+     */
+    private void parkUnloaded() {
+        for(int k = 0; k < unloading.size(); k++) {
+            GameObject o = unloading.get(k);
+            // Objects despawned during the update are gone already
+            if(streamer != null && entities.remove(o)) {
+                grid.remove(o);
+                streamer.park(o);
+            }
+        }
+        unloading.clear();
+    }
+
+    /**
+     * Method drains the events posted during the update and adds the score
+     * collected from them.
+     */
+    private void dispatchEvents() {
+        scoreGained = 0;
+        events.drain();
+        if(scoreGained != 0) {
+            setScore(getScore() + scoreGained);
+            LOG.info(() -> "Score: " + getScore());
+        }
+    }
+    /**
+     * Method runs the decide phase for the first count objects in deciders,
+     * each for its time in decideTimes. Small batches are decided in the
+     * calling thread.
      *
-     * @param delta - time between frames
+     * @param count - number of objects deciding
      */
-    public void updateGame(long delta) {
-        for(GameObject o : objects) {
-            if(o.getType() != ObjectType.BLOCK) {
-                o.update(objects, delta);  // checkc collision in here
-                o.updateSpriteCoords();
+    private void decide(int count) {
+        if(parallelism == 1 || count <= DECIDE_BATCH) {
+            for(int k = 0; k < count; k++) {
+                ((MovableObject) entities.get(deciders[k])).decide(objects, decideTimes[k]);
             }
-            setGameOver(isGameOver());
+        }
+        else {
+            ForkJoinPool p = pool;
+            if(p == null) {
+                p = ForkJoinPool.commonPool();
+            }
+            p.invoke(new DecideTask(0, count));
         }
     }
+
+    /**
+     * Task deciding a range of the deciders in parallel.
+     */
+    private class DecideTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        DecideTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= DECIDE_BATCH) {
+                for(int k = from; k < to; k++) {
+                    ((MovableObject) entities.get(deciders[k])).decide(objects, decideTimes[k]);
+                }
+            }
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new DecideTask(from, middle), new DecideTask(middle, to));
+            }
+        }
+    }
+
     /**
      * Method checks whether any game ending conditions are met.
      * Currently checks if player has any health left.
@@ -397,25 +1205,56 @@ public class GameManager extends Thread implements Observer{
 
     /**
      * This method is the main game loop.
-     * Calls for updateGame method frequently.
+     * Elapsed time is collected and the game is updated in fixed steps of
+     * getStepTime, so movement does not depend on how long the thread sleeps.
+     * At most maxCatchUpSteps updates are run per round and time beyond
+     * that is dropped, which keeps a slow machine from falling further and
+     * further behind.
      */
     public void run() {
         try {
+            long step;
+            long accumulator = 0;
+            setCurrentTime();
             setPreviousTime();
             while(!gameOver()) {
+                step = getStepTime();
                 setCurrentTime();
-                synchronized(objects) {
-                    updateGame(getDeltaTime()); // check collision, move, actions, ... , update sprites
+                long frameTime = Math.min(getCurrentTime() - getPreviousTime(), getMaxFrameTime());
+                setPreviousTime();
+                accumulator += frameTime;
+
+                int steps = 0;
+                while(accumulator >= step && steps < getMaxCatchUpSteps()) {
+                    updateGame(step); // check collision, move, actions, ...
+                    accumulator -= step;
+                    steps++;
+                }
+                if(accumulator >= step) {
+                    // Still behind after catching up, skip the rest
+                    accumulator %= step;
                 }
-                Thread.sleep(16);
-                setPreviousTime(); 
+                if(steps > 0) {
+                    tickTime = getCurrentTime() - accumulator;
+                    if(profiler.isEnabled()) {
+                        long start = System.nanoTime();
+                        publishSnapshot();
+                        profiler.record(Phase.RENDER_PREP, System.nanoTime() - start);
+                    }
+                    else {
+                        publishSnapshot();
+                    }
+                }
+
+                long sleepTime = step - accumulator;
+                Thread.sleep(sleepTime / 1000000, (int) (sleepTime % 1000000));
             }
-            System.out.println("- - - - -");
-            System.out.println("GAME OVER");
-            System.out.println("- - - - -");
+            setParallelism(1);
+            closeWorld();
+            LOG.info("GAME OVER");
         }
         catch (InterruptedException e){ 
-            e.printStackTrace();
+            LOG.error("Game loop interrupted", e);
         }
     }
 
@@ -0,0 +1,208 @@
+package gengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.io.IOException;
+import java.nio.file.Paths;
+import gengine.map.DefaultMaps;
+import gengine.map.MapFile;
+import gengine.profile.TickProfiler;
+import gengine.replay.ReplayFile;
+import gengine.replay.ReplayPlayer;
+import gengine.replay.ReplayRecorder;
+import gengine.log.Log;
+import gengine.log.Logger;
+
+/**
+ * This class runs the game without a window. The player is steered by a
+ * ScriptedInput and the world is updated in fixed steps as fast as the
+ * CPU allows, without sleeping or drawing. At the end the number of
+ * updates per second is printed. Runs with the same arguments play out
+ * the same way, so they can be used for measuring and for comparing
+ * changes to the game logic.
+ *
+ * The input can be recorded to a replay file, and a recording, also one
+ * made while playing in a window, can be played back instead of the
+ * scripted input. Playing back compares the checksums of the recording
+ * with the game state and tells the first update where they differ.
+ *
+ * Usage: java gengine.HeadlessRunner [options] [ticks] [seed] [threads] [map files...]
+ *      --record=FILE   record the input to FILE
+ *      --replay=FILE   play back FILE, its seed, tick rate and length are used
+ *      --checksum=N    updates between checksums when recording, 60 by default
+ *      --profile       time the updates and print a profile of the whole run
+ *
+ * @version 0.3
+ */
+public class HeadlessRunner {
+    private static final Logger LOG = Log.getLogger("game");
+
+    // Map files with more tiles than this are streamed, like in Game
+    private static final int MAX_LOADED_TILES = 128 * 128;
+    // Updates between turns of the scripted player
+    private static final int TURN_INTERVAL = 30;
+
+    private final GameManager manager;
+
+    /**
+     * The constructor taking the game manager to run as parameter.
+     * The map of the manager must be loaded before running.
+     *
+     * @param manager - the game manager
+     */
+    public HeadlessRunner(GameManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Method runs the given number of updates. The world keeps going after
+     * the player has died, so every run does the same amount of work.
+     *
+     * @param ticks - number of updates to run
+     */
+    public void run(long ticks) {
+        long step = manager.getStepTime();
+        for(long i = 0; i < ticks; i++) {
+            manager.updateGame(step);
+        }
+    }
+
+    /**
+     * Runs the game headless.
+     *
+     * @param args - options, number of updates, seed, threads and map files
+     */
+    public static void main(String[] args) {
+        String record = null;
+        String replay = null;
+        int checksumInterval = 60;
+        boolean profile = false;
+        List<String> values = new ArrayList<>();
+        for(String arg : args) {
+            if(arg.startsWith("--record=")) {
+                record = arg.substring(9);
+            }
+            else if(arg.startsWith("--replay=")) {
+                replay = arg.substring(9);
+            }
+            else if(arg.startsWith("--checksum=")) {
+                checksumInterval = Integer.parseInt(arg.substring(11));
+            }
+            else if(arg.equals("--profile")) {
+                profile = true;
+            }
+            else {
+                values.add(arg);
+            }
+        }
+        long ticks = values.size() > 0 ? Long.parseLong(values.get(0)) : 100000;
+        long seed = values.size() > 1 ? Long.parseLong(values.get(1)) : 1;
+        int threads = values.size() > 2 ? Integer.parseInt(values.get(2)) : 0;
+
+        ReplayFile recording = null;
+        if(replay != null) {
+            try {
+                recording = ReplayFile.open(Paths.get(replay));
+            }
+            catch(IOException e) {
+                LOG.warn("Could not load replay " + replay + ": " + e.getMessage());
+                return;
+            }
+            seed = recording.getSeed();
+            ticks = recording.getLength();
+        }
+
+        List<Map> maps = new ArrayList<>();
+        MapFile world = null;
+        for(int i = 3; i < values.size(); i++) {
+            try {
+                MapFile f = MapFile.open(Paths.get(values.get(i)));
+                if((long) f.getWidth() * f.getHeight() <= MAX_LOADED_TILES) {
+                    maps.add(f.toMap());
+                }
+                else if(world == null) {
+                    world = f;
+                }
+            }
+            catch(IOException e) {
+                LOG.warn("Could not load map " + values.get(i) + ": " + e.getMessage());
+            }
+        }
+        if(maps.isEmpty()) {
+            maps = DefaultMaps.create();
+        }
+
+        GameManager manager = new GameManager();
+        manager.setSeed(seed);
+        manager.setParallelism(threads);
+        if(recording != null) {
+            manager.setTickRate(recording.getTickRate());
+        }
+        manager.setMaps(maps);
+        manager.setCurrentMap(0);
+        if(world != null) {
+            manager.loadWorld(world);
+        }
+        else {
+            manager.getMap();
+        }
+        manager.getPlayer().setSpeed(5.0);
+
+        ReplayPlayer player = null;
+        ReplayRecorder recorder = null;
+        InputSource input = new ScriptedInput(seed, TURN_INTERVAL);
+        if(recording != null) {
+            player = new ReplayPlayer(recording, manager);
+            input = player;
+        }
+        if(record != null) {
+            try {
+                recorder = new ReplayRecorder(manager, input, Paths.get(record), checksumInterval);
+                input = recorder;
+            }
+            catch(IOException e) {
+                LOG.warn("Could not record to " + record + ": " + e.getMessage());
+            }
+        }
+        manager.setInput(input);
+        TickProfiler profiler = manager.getProfiler();
+        profiler.setWindow(Long.MAX_VALUE);
+        profiler.setEnabled(profile);
+
+        HeadlessRunner runner = new HeadlessRunner(manager);
+        long start = System.nanoTime();
+        runner.run(ticks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if(player != null) {
+            player.finish();
+        }
+        if(recorder != null) {
+            recorder.close();
+        }
+        manager.setParallelism(1);
+        if(manager.getStreamer() != null) {
+            manager.getStreamer().shutdown();
+        }
+
+        Log.flush();
+        System.out.printf("%d ticks in %.3f s | %.1f ticks/s | %.1fx real time%n",
+            ticks, seconds, ticks / seconds, ticks / seconds / manager.getTickRate());
+        System.out.println("Objects " + manager.getEntities().size() + " | score " + manager.getScore()
+            + " | health " + manager.getPlayer().getHealth() + (manager.gameOver() ? " | game over" : ""));
+        if(profile) {
+            System.out.println(profiler.publish(manager.getEntities()));
+            System.out.println("Pools " + manager.getPools() + " | events posted " + manager.getEvents().getPosted()
+                + " allocated " + manager.getEvents().getAllocated());
+        }
+        if(player != null) {
+            if(player.getMismatchTick() < 0) {
+                System.out.println("Replay matched " + player.getChecked() + " checksums");
+            }
+            else {
+                System.out.printf("Replay diverged before tick %d: expected %016x, got %016x%n",
+                    player.getMismatchTick(), player.getExpectedChecksum(), player.getActualChecksum());
+                System.exit(1);
+            }
+        }
+    }
+}
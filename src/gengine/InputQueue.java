@@ -0,0 +1,112 @@
+package gengine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is a lock-free queue handing input events from one thread to
+ * another, like key events from the JavaFX thread to the game loop. It is
+ * a ring of ints with a time stamp for each, and works for exactly one
+ * thread offering and one thread polling. Neither thread ever waits for
+ * the other: publishing the tail after writing an event makes the event
+ * visible to the polling thread, and publishing the head after reading
+ * frees its slot for the offering thread.
+ *
+ * Events must not be negative, as EMPTY is returned for an empty queue.
+ *
+ * @version 0.3
+ */
+public class InputQueue {
+    public static final int EMPTY = -1;
+
+    private final int[] events;
+    private final long[] times;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next slot to poll, written by the polling thread
+    private final AtomicLong tail = new AtomicLong(); // Next slot to offer, written by the offering thread
+
+    // Offering thread only
+    private long headCache;
+    private long dropped;
+
+    // Polling thread only
+    private long polledTime;
+
+    /**
+     * The constructor taking the capacity as parameter. It is rounded up
+     * to a power of two.
+     *
+     * @param capacity - number of events there is room for
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        events = new int[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Method adds an event to the queue. Called by the offering thread only.
+     * If the queue is full the event is dropped, which only happens when the
+     * polling thread has stopped polling for a long time.
+     *
+     * @param event - the event, not negative
+     * @param time - System.nanoTime of the event
+     * @return true if the event was added
+     */
+    public boolean offer(int event, long time) {
+        long t = tail.get();
+        if(t - headCache == events.length) {
+            headCache = head.get();
+            if(t - headCache == events.length) {
+                dropped++;
+                return false;
+            }
+        }
+        int i = (int) t & mask;
+        events[i] = event;
+        times[i] = time;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Method takes the oldest event from the queue. Called by the polling
+     * thread only.
+     *
+     * @return the event or EMPTY if there is none
+     */
+    public int poll() {
+        long h = head.get();
+        if(h == tail.get()) {
+            return EMPTY;
+        }
+        int i = (int) h & mask;
+        int event = events[i];
+        polledTime = times[i];
+        head.lazySet(h + 1);
+        return event;
+    }
+
+    /**
+     * Returns the time stamp of the event returned by the latest poll.
+     * Called by the polling thread only.
+     *
+     * @return System.nanoTime of the event
+     */
+    public long getPolledTime() { return polledTime; }
+
+    /**
+     * Returns the number of events waiting in the queue.
+     *
+     * @return event count
+     */
+    public int size() { return (int) (tail.get() - head.get()); }
+
+    /**
+     * Returns the number of events dropped because the queue was full.
+     * Called by the offering thread only.
+     *
+     * @return dropped event count
+     */
+    public long getDropped() { return dropped; }
+}
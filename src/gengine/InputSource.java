@@ -0,0 +1,21 @@
+package gengine;
+
+import gengine.gameobject.Player;
+
+/**
+ * This is the interface for feeding input to the game. GameManager polls
+ * its input source at the start of every update, in the game loop thread,
+ * so the player can be steered by a keyboard, a script or a recording
+ * without the game knowing which one it is.
+ *
+ * @version 0.3
+ */
+public interface InputSource {
+    /**
+     * Method applies the input of an update to the player.
+     *
+     * @param player - the player of the current map
+     * @param tick - number of the update about to run
+     */
+    void poll(Player player, long tick);
+}
@@ -0,0 +1,26 @@
+package gengine;
+
+/**
+ * This is the class for a map level. The map is a grid of marks, one
+ * character per tile, row by row:
+ *      x - wall
+ *      P - player
+ *      e - enemy
+ *      o - collectable
+ *      s - portal to next level
+ * Any other mark is an empty tile.
+ *
+ * @version 0.3
+ */
+public class Map {
+    public char[][] coordinates;
+
+    /**
+     * The constructor taking the marks of the map as parameter.
+     *
+     * @param c - marks of the map, row by row
+     */
+    public Map(char[][] c) {
+        coordinates = c;
+    }
+}
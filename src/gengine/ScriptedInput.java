@@ -0,0 +1,46 @@
+package gengine;
+
+import gengine.gameobject.Player;
+import gengine.random.RandomStream;
+
+/**
+ * This is an input source steering the player without a keyboard. Every
+ * few updates the player turns to a random direction, or stops now and
+ * then, picked from a seeded generator. The same seed gives the same
+ * input on every run, so headless runs can be repeated and compared.
+ *
+ * @version 0.3
+ */
+public class ScriptedInput implements InputSource {
+    private static final Direction[] TURNS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT, Direction.NONE};
+
+    private final RandomStream random;
+    private final int interval;
+
+    /**
+     * The constructor taking the seed and how often the player turns.
+     *
+     * @param seed - seed of the random directions
+     * @param interval - number of updates between turns
+     */
+    public ScriptedInput(long seed, int interval) {
+        random = new RandomStream(seed);
+        this.interval = Math.max(interval, 1);
+    }
+
+    /**
+     * Method turns the player on every interval:th update.
+     *
+     * @param player - the player of the current map
+     * @param tick - number of the update about to run
+     */
+    @Override
+    public void poll(Player player, long tick) {
+        if(tick % interval != 0) {
+            return;
+        }
+        Direction d = TURNS[random.nextInt(TURNS.length)];
+        player.setDirection(d);
+        player.setMoving(d != Direction.NONE);
+    }
+}
@@ -0,0 +1,240 @@
+package gengine.ai;
+
+import java.util.Arrays;
+import gengine.gameobject.EntityStore;
+import gengine.gameobject.MovableObject;
+
+/**
+ * This decides which enemies work out their moves in an update, so that the
+ * cost of the decide phase doesn't grow with every enemy on the map. The
+ * enemies are given a level of detail by their distance from the player:
+ *      near    - within nearDistance, around the view, decide every update
+ *      far     - decide every farPeriod updates, for all the time waited
+ *      dormant - beyond dormantDistance, don't decide and don't wait
+ *
+ * An enemy entering the far tier, when it is new or leaves the near or the
+ * dormant area, is given a phase from its slot and first decides 1 to
+ * farPeriod updates later, as if it had waited for the rest of the period.
+ * Enemies spawned far away together so decide in different updates, about
+ * count / farPeriod of them in each, instead of all in the same one.
+ *
+ * At most budget far enemies decide in one update, and the ones due over
+ * the budget wait for the next updates, taken round the slots so every
+ * enemy gets its turn. The budget is counted in decides and not in time,
+ * so which enemies decide is the same on every run and replays stay
+ * deterministic.
+ *
+ * A far enemy moves the distance of all the updates it waited at once. The
+ * time waited is capped at two periods, so an enemy held back for long by
+ * the budget or by an unloaded chunk loses the rest instead of jumping.
+ *
+ * Used by the game loop thread only.
+ *
+ * @version 0.3
+ */
+public class AiScheduler {
+    public static final double DEFAULT_NEAR_DISTANCE = 512.0;     // 16 tiles
+    public static final double DEFAULT_DORMANT_DISTANCE = 3072.0; // 96 tiles
+    public static final int DEFAULT_FAR_PERIOD = 8;
+    public static final int DEFAULT_BUDGET = 4096;
+
+    private double nearDistance;
+    private double dormantDistance;
+    private int farPeriod;
+    private int budget;
+
+    private int[] due;     // Far candidates due this update
+    private int cursor;    // Slot the budget goes round from
+
+    // Counts of the latest update
+    private int near;
+    private int far;
+    private int dormant;
+    private int deferred;
+
+    /**
+     * The default constructor with the default distances, period and budget.
+     */
+    public AiScheduler() {
+        nearDistance = DEFAULT_NEAR_DISTANCE;
+        dormantDistance = DEFAULT_DORMANT_DISTANCE;
+        farPeriod = DEFAULT_FAR_PERIOD;
+        budget = DEFAULT_BUDGET;
+        due = new int[64];
+    }
+
+    /**
+     * Method picks the objects deciding in this update. The candidates are
+     * the slots of the objects which could decide, and the ones deciding are
+     * moved to the front in slot order, with the time each decides for in
+     * deltas.
+     *
+     * @param e - the objects of the game
+     * @param candidates - slots of MovableObjects in ascending order
+     * @param count - number of candidates
+     * @param deltas - time each object decides for, as long as candidates
+     * @param x - x coordinate of the player centre
+     * @param y - y coordinate of the player centre
+     * @param delta - length of the update in nanoseconds
+     * @return number of objects deciding
+     */
+    public int schedule(EntityStore e, int[] candidates, int count, long[] deltas, double x, double y, long delta) {
+        near = 0;
+        far = 0;
+        dormant = 0;
+        int dueCount = 0;
+        long period = (long) farPeriod * delta;
+        for(int k = 0; k < count; k++) {
+            int i = candidates[k];
+            MovableObject o = (MovableObject) e.get(i);
+            double d = Math.max(Math.abs(e.getX(i) + e.getWidth(i) / 2 - x), Math.abs(e.getY(i) + e.getHeight(i) / 2 - y));
+            long wait = o.getWaitTime();
+            long waited = Math.min(Math.max(wait, 0) + delta, 2 * period);
+            // Objects deciding get the time to decide for, waiting ones -1
+            if(d <= nearDistance) {
+                near++;
+                o.setWaitTime(-1);
+                deltas[k] = waited;
+            }
+            else if(d <= dormantDistance) {
+                far++;
+                if(wait < 0) {
+                    // Entering the far tier, the slot gives the update of the first decide
+                    waited = (i % farPeriod + 1) * delta;
+                }
+                if(waited >= period) {
+                    o.setWaitTime(0);
+                    deltas[k] = waited;
+                    if(dueCount == due.length) {
+                        due = Arrays.copyOf(due, dueCount * 2);
+                    }
+                    due[dueCount++] = k;
+                }
+                else {
+                    o.setWaitTime(waited);
+                    deltas[k] = -1;
+                }
+            }
+            else {
+                dormant++;
+                o.setWaitTime(-1);
+                deltas[k] = -1;
+            }
+        }
+
+        // Due far objects over the budget wait, starting after the last one picked
+        deferred = Math.max(dueCount - budget, 0);
+        if(deferred > 0) {
+            int start = 0;
+            while(start < dueCount && candidates[due[start]] < cursor) {
+                start++;
+            }
+            for(int n = budget; n < dueCount; n++) {
+                int k = due[(start + n) % dueCount];
+                ((MovableObject) e.get(candidates[k])).setWaitTime(deltas[k]);
+                deltas[k] = -1;
+            }
+            cursor = candidates[due[(start + budget) % dueCount]];
+        }
+
+        int deciding = 0;
+        for(int k = 0; k < count; k++) {
+            if(deltas[k] >= 0) {
+                candidates[deciding] = candidates[k];
+                deltas[deciding++] = deltas[k];
+            }
+        }
+        return deciding;
+    }
+
+    /**
+     * Method sets the distance within which objects decide every update.
+     * It should cover the view, so nothing on screen moves in steps.
+     *
+     * @param distance - distance from the player in world units
+     */
+    public void setNearDistance(double distance) {
+        nearDistance = Math.max(distance, 0.0);
+    }
+
+    /**
+     * Returns the distance within which objects decide every update.
+     *
+     * @return distance from the player in world units
+     */
+    public double getNearDistance() { return nearDistance; }
+
+    /**
+     * Method sets the distance beyond which objects don't decide at all.
+     *
+     * @param distance - distance from the player in world units
+     */
+    public void setDormantDistance(double distance) {
+        dormantDistance = Math.max(distance, 0.0);
+    }
+
+    /**
+     * Returns the distance beyond which objects don't decide at all.
+     *
+     * @return distance from the player in world units
+     */
+    public double getDormantDistance() { return dormantDistance; }
+
+    /**
+     * Method sets how many updates far objects wait between decides.
+     *
+     * @param updates - updates per decide, 1 for every update
+     */
+    public void setFarPeriod(int updates) {
+        farPeriod = Math.max(updates, 1);
+    }
+
+    /**
+     * Returns how many updates far objects wait between decides.
+     *
+     * @return updates per decide
+     */
+    public int getFarPeriod() { return farPeriod; }
+
+    /**
+     * Method sets how many far objects may decide in one update.
+     *
+     * @param decides - far decides per update
+     */
+    public void setBudget(int decides) {
+        budget = Math.max(decides, 1);
+    }
+
+    /**
+     * Returns how many far objects may decide in one update.
+     *
+     * @return far decides per update
+     */
+    public int getBudget() { return budget; }
+
+    /**
+     * Returns the number of near objects in the latest update.
+     *
+     * @return near count
+     */
+    public int getNearCount() { return near; }
+    /**
+     * Returns the number of far objects in the latest update, deciding or not.
+     *
+     * @return far count
+     */
+    public int getFarCount() { return far; }
+    /**
+     * Returns the number of dormant objects in the latest update.
+     *
+     * @return dormant count
+     */
+    public int getDormantCount() { return dormant; }
+    /**
+     * Returns the number of far objects due in the latest update which had
+     * to wait because of the budget.
+     *
+     * @return deferred count
+     */
+    public int getDeferredCount() { return deferred; }
+}
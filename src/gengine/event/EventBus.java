@@ -0,0 +1,175 @@
+package gengine.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import gengine.gameobject.GameObject;
+
+/**
+ * This is the bus for game events. Events posted during an update are
+ * written into a preallocated ring buffer of reusable GameEvent objects and
+ * nothing is dispatched right away. When the update is done the bus is
+ * drained once and every event is handed to the listeners of its type in
+ * the order the events were posted. The GameEvents of the ring are the pool
+ * of events: posting reuses one, and new ones are only made when the ring
+ * grows, which getAllocated tells.
+ *
+ * The bus is not thread safe. Events are posted and drained by the game
+ * loop thread only.
+ *
+ * @version 0.3
+ */
+public class EventBus {
+    private static final EventType[] TYPES = EventType.values();
+
+    private GameEvent[] ring;
+    private int head;  // Next event to dispatch
+    private int count; // Events waiting
+    private long tick;
+    private final List<List<EventListener>> listeners;
+    private long posted;
+    private int allocated; // GameEvents made, the ones of the ring so far
+
+    /**
+     * The default constructor. Reserves room for 256 events.
+     */
+    public EventBus() {
+        this(256);
+    }
+
+    /**
+     * The constructor taking the initial capacity as parameter.
+     * Capacity is rounded up to a power of two.
+     *
+     * @param capacity - number of events there is room for at first
+     */
+    public EventBus(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        ring = new GameEvent[size];
+        for(int i = 0; i < size; i++) {
+            ring[i] = new GameEvent();
+        }
+        allocated = size;
+        listeners = new ArrayList<>(TYPES.length);
+        for(int i = 0; i < TYPES.length; i++) {
+            listeners.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Method adds a listener for events of given type.
+     *
+     * @param type - type of the events
+     * @param listener - the listener
+     */
+    public void subscribe(EventType type, EventListener listener) {
+        listeners.get(type.ordinal()).add(listener);
+    }
+
+    /**
+     * Method removes a listener from events of given type.
+     *
+     * @param type - type of the events
+     * @param listener - the listener
+     */
+    public void unsubscribe(EventType type, EventListener listener) {
+        listeners.get(type.ordinal()).remove(listener);
+    }
+
+    /**
+     * Sets the number of the update stored in posted events.
+     *
+     * @param t - update number
+     */
+    public void setTick(long t) {
+        tick = t;
+    }
+
+    /**
+     * Method records an event to be dispatched on the next drain.
+     * If the ring is full it is doubled, so no events are lost.
+     *
+     * @param type - type of the event
+     * @param source - object the event is about
+     * @param target - other object taking part, may be null
+     * @param value - number value of the event
+     */
+    public void post(EventType type, GameObject source, GameObject target, int value) {
+        if(count == ring.length) {
+            grow();
+        }
+        ring[(head + count) & (ring.length - 1)].set(type, source, target, value, tick);
+        count++;
+        posted++;
+    }
+
+    /**
+     * Method dispatches all waiting events to their listeners. Events posted
+     * by the listeners are dispatched during the same drain.
+     *
+     * @return number of events dispatched
+     */
+    public int drain() {
+        int dispatched = 0;
+        while(count > 0) {
+            // The slot stays taken until its listeners are done, so events
+            // they post can't overwrite it
+            GameEvent e = ring[head];
+            List<EventListener> list = listeners.get(e.getType().ordinal());
+            for(int i = 0; i < list.size(); i++) {
+                list.get(i).onEvent(e);
+            }
+            e.clear();
+            head = (head + 1) & (ring.length - 1);
+            count--;
+            dispatched++;
+        }
+        return dispatched;
+    }
+
+    /**
+     * Method throws away all waiting events without dispatching them.
+     */
+    public void clear() {
+        while(count > 0) {
+            ring[head].clear();
+            head = (head + 1) & (ring.length - 1);
+            count--;
+        }
+    }
+
+    /**
+     * Returns the number of events waiting to be dispatched.
+     *
+     * @return waiting event count
+     */
+    public int size() { return count; }
+
+    /**
+     * Returns the number of events posted, every one of them a reused
+     * GameEvent of the ring.
+     *
+     * @return posted event count
+     */
+    public long getPosted() { return posted; }
+
+    /**
+     * Returns the number of GameEvents made, for the ring at first and
+     * whenever it has grown.
+     *
+     * @return allocated event count
+     */
+    public int getAllocated() { return allocated; }
+
+    private void grow() {
+        GameEvent[] bigger = new GameEvent[ring.length * 2];
+        for(int i = 0; i < count; i++) {
+            bigger[i] = ring[(head + i) & (ring.length - 1)];
+        }
+        for(int i = count; i < bigger.length; i++) {
+            bigger[i] = new GameEvent();
+        }
+        allocated += bigger.length - count;
+        ring = bigger;
+        head = 0;
+    }
+}
@@ -0,0 +1,15 @@
+package gengine.event;
+
+/**
+ * This is the interface for objects listening to game events of a type.
+ *
+ * @version 0.3
+ */
+public interface EventListener {
+    /**
+     * Called for every event of the subscribed type when the bus is drained.
+     *
+     * @param e - the event, only valid during the call
+     */
+    void onEvent(GameEvent e);
+}
@@ -0,0 +1,14 @@
+package gengine.event;
+
+/**
+ * This is the enumerator for the types of game events.
+ * Current types are: PICKUP, PORTAL_ENTER, DAMAGE and LEVEL_CHANGE.
+ *
+ * @version 0.3
+ */
+public enum EventType {
+    PICKUP,
+    PORTAL_ENTER,
+    DAMAGE,
+    LEVEL_CHANGE
+}
@@ -0,0 +1,80 @@
+package gengine.event;
+
+import gengine.gameobject.GameObject;
+
+/**
+ * This is a single game event. Events are kept in the ring buffer of
+ * EventBus and reused, so a listener must not keep a reference to an
+ * event after it has returned. Copy the values instead.
+ *
+ * The meaning of source, target and value depends on the type:
+ *      PICKUP - collectable picked up, the object picking it up, score value
+ *      PORTAL_ENTER - portal entered, the object entering it, 0
+ *      DAMAGE - object causing damage, object damaged, amount of damage
+ *      LEVEL_CHANGE - null, null, index of the new map
+ *
+ * @version 0.3
+ */
+public class GameEvent {
+    private EventType type;
+    private GameObject source;
+    private GameObject target;
+    private int value;
+    private long tick;
+
+    /**
+     * Sets all the values of the event.
+     *
+     * @param type - type of the event
+     * @param source - object the event is about
+     * @param target - other object taking part, may be null
+     * @param value - number value of the event
+     * @param tick - number of the update the event happened in
+     */
+    void set(EventType type, GameObject source, GameObject target, int value, long tick) {
+        this.type = type;
+        this.source = source;
+        this.target = target;
+        this.value = value;
+        this.tick = tick;
+    }
+
+    /**
+     * Clears the object references so drained events don't keep objects alive.
+     */
+    void clear() {
+        source = null;
+        target = null;
+    }
+
+    /**
+     * Returns the type of the event.
+     *
+     * @return event type
+     */
+    public EventType getType() { return type; }
+    /**
+     * Returns the object the event is about.
+     *
+     * @return source object, may be null
+     */
+    public GameObject getSource() { return source; }
+    /**
+     * Returns the other object taking part in the event.
+     *
+     * @return target object, may be null
+     */
+    public GameObject getTarget() { return target; }
+    /**
+     * Returns the number value of the event.
+     *
+     * @return event value
+     */
+    public int getValue() { return value; }
+    /**
+     * Returns the number of the update the event happened in.
+     *
+     * @return update number
+     */
+    public long getTick() { return tick; }
+}
@@ -0,0 +1,147 @@
+package gengine.gameobject;
+
+/**
+ * This is a mutable axis aligned rectangle used as the "hit box" of game objects.
+ * Unlike an immutable rectangle it can be filled again and again, so the
+ * collision code does not need to create new objects on every check.
+ * The static methods do the same tests on plain coordinates.
+ *
+ * @version 0.3
+ */
+public class Bounds {
+    private double x;
+    private double y;
+    private double width;
+    private double height;
+
+    /**
+     * The default constructor. Creates empty bounds at 0,0.
+     */
+    public Bounds() {
+        set(0, 0, 0, 0);
+    }
+
+    /**
+     * The constructor taking coordinates and size as parameters.
+     *
+     * @param x - the x coordinate
+     * @param y - the y coordinate
+     * @param w - the width
+     * @param h - the height
+     */
+    public Bounds(double x, double y, double w, double h) {
+        set(x, y, w, h);
+    }
+
+    /**
+     * Sets the coordinates and size of the bounds.
+     *
+     * @param x - the x coordinate
+     * @param y - the y coordinate
+     * @param w - the width
+     * @param h - the height
+     * @return these bounds
+     */
+    public Bounds set(double x, double y, double w, double h) {
+        this.x = x;
+        this.y = y;
+        width = w;
+        height = h;
+        return this;
+    }
+
+    /**
+     * Returns x coordinate of the left edge.
+     *
+     * @return minimum x coordinate
+     */
+    public double getMinX() { return x; }
+    /**
+     * Returns y coordinate of the top edge.
+     *
+     * @return minimum y coordinate
+     */
+    public double getMinY() { return y; }
+    /**
+     * Returns x coordinate of the right edge.
+     *
+     * @return maximum x coordinate
+     */
+    public double getMaxX() { return x + width; }
+    /**
+     * Returns y coordinate of the bottom edge.
+     *
+     * @return maximum y coordinate
+     */
+    public double getMaxY() { return y + height; }
+    /**
+     * Returns the width.
+     *
+     * @return width of the bounds
+     */
+    public double getWidth() { return width; }
+    /**
+     * Returns the height.
+     *
+     * @return height of the bounds
+     */
+    public double getHeight() { return height; }
+
+    /**
+     * Method returns whether these bounds overlap with other bounds.
+     * Rectangles only touching each other with their edges do not overlap.
+     *
+     * @param b - the other bounds
+     * @return true if the bounds overlap
+     */
+    public boolean intersects(Bounds b) {
+        return intersects(x, y, width, height, b.x, b.y, b.width, b.height);
+    }
+
+    /**
+     * Method returns whether given coordinates are within the bounds.
+     * Points on the edges are within the bounds.
+     *
+     * @param px - x coordinate
+     * @param py - y coordinate
+     * @return true if the point is within the bounds
+     */
+    public boolean contains(double px, double py) {
+        return contains(x, y, width, height, px, py);
+    }
+
+    /**
+     * Method returns whether two rectangles overlap. Rectangles only
+     * touching each other with their edges do not overlap.
+     *
+     * @param ax - x coordinate of the first rectangle
+     * @param ay - y coordinate of the first rectangle
+     * @param aw - width of the first rectangle
+     * @param ah - height of the first rectangle
+     * @param bx - x coordinate of the second rectangle
+     * @param by - y coordinate of the second rectangle
+     * @param bw - width of the second rectangle
+     * @param bh - height of the second rectangle
+     * @return true if the rectangles overlap
+     */
+    public static boolean intersects(double ax, double ay, double aw, double ah,
+                                     double bx, double by, double bw, double bh) {
+        return bx + bw > ax && by + bh > ay && bx < ax + aw && by < ay + ah;
+    }
+
+    /**
+     * Method returns whether a point is within a rectangle.
+     * Points on the edges are within the rectangle.
+     *
+     * @param x - x coordinate of the rectangle
+     * @param y - y coordinate of the rectangle
+     * @param w - width of the rectangle
+     * @param h - height of the rectangle
+     * @param px - x coordinate of the point
+     * @param py - y coordinate of the point
+     * @return true if the point is within the rectangle
+     */
+    public static boolean contains(double x, double y, double w, double h, double px, double py) {
+        return px >= x && px <= x + w && py >= y && py <= y + h;
+    }
+}
@@ -1,5 +1,9 @@
 package gengine.gameobject;
 
+import gengine.event.EventType;
+import gengine.log.Log;
+import gengine.log.Logger;
+
 /**
  * This is the base class for collectable objects.
  * It has value which represents the score points at this point,
@@ -10,6 +14,8 @@ package gengine.gameobject;
  * @version 0.2
  */
 public class Collectable extends GameObject{
+    private static final Logger LOG = Log.getLogger("objects");
+
     public static enum Type {
         SCORE,
         POWERUP,
@@ -58,13 +64,26 @@ public class Collectable extends GameObject{
 
     /**
      * Method changes state of pickedUP attribute to true and
-     * notifies observers of object.
+     * posts a PICKUP event with the value of object.
      */
     public void pickUp() {
-        System.out.println(this + " was picked up!");
+        pickUp(null);
+    }
+
+    /**
+     * Method changes state of pickedUP attribute to true and
+     * posts a PICKUP event with the value of object. An object already
+     * picked up can't be picked up again.
+     *
+     * @param by - object picking this up, may be null
+     */
+    public void pickUp(GameObject by) {
+        if(pickedUp) {
+            return;
+        }
+        LOG.debug(() -> this + " was picked up!");
         pickedUp = true;
-        setChanged();
-        notifyObservers("was picked up");
+        post(EventType.PICKUP, by, value);
     }
     /**
      * Returns value of object.
@@ -79,4 +98,17 @@ public class Collectable extends GameObject{
      * @return true if object is picked up.
      */
     public boolean isPickedUp() { return pickedUp; }
+
+    /**
+     * Method puts the collectable back to the state of a new one, not
+     * picked up and without a value.
+     */
+    @Override
+    protected void reset() {
+        super.reset();
+        setType(ObjectType.COLLECTABLE);
+        collectType = Type.NONE;
+        pickedUp = false;
+        value = 0;
+    }
 }
\ No newline at end of file
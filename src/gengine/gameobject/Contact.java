@@ -0,0 +1,102 @@
+package gengine.gameobject;
+
+/**
+ * This is the result of sweeping a moving object along its movement, see
+ * MovableObject.sweep. It tells the first object the movement runs into,
+ * when during the movement it happens, the normal of the hit side and
+ * where the moving object stops. A movement which hits nothing has no
+ * object, time 1 and stops at the end of the movement.
+ *
+ * Every moving object fills the same contact again on every sweep, so it
+ * should be read right away and not kept.
+ *
+ * @version 0.3
+ */
+public class Contact {
+    private GameObject object;
+    private double time;
+    private int normalX;
+    private int normalY;
+    private double x;
+    private double y;
+
+    /**
+     * Method sets a contact with an object.
+     *
+     * @param o - the object hit
+     * @param t - time of impact from 0 to 1
+     * @param nx - x of the normal of the hit side, -1, 0 or 1
+     * @param ny - y of the normal of the hit side, -1, 0 or 1
+     * @param stopX - x coordinate where the moving object stops
+     * @param stopY - y coordinate where the moving object stops
+     * @return this contact
+     */
+    public Contact set(GameObject o, double t, int nx, int ny, double stopX, double stopY) {
+        object = o;
+        time = t;
+        normalX = nx;
+        normalY = ny;
+        x = stopX;
+        y = stopY;
+        return this;
+    }
+
+    /**
+     * Method sets a movement which hits nothing.
+     *
+     * @param endX - x coordinate at the end of the movement
+     * @param endY - y coordinate at the end of the movement
+     * @return this contact
+     */
+    public Contact miss(double endX, double endY) {
+        return set(null, 1.0, 0, 0, endX, endY);
+    }
+
+    /**
+     * Returns whether the movement hits something.
+     *
+     * @return true if there is an object
+     */
+    public boolean isHit() { return object != null; }
+    /**
+     * Returns the object hit first.
+     *
+     * @return the object or null if nothing is hit
+     */
+    public GameObject getObject() { return object; }
+    /**
+     * Returns the time of impact as a part of the movement, 0 when the
+     * objects already touch and 1 when nothing is hit.
+     *
+     * @return time from 0 to 1
+     */
+    public double getTime() { return time; }
+    /**
+     * Returns x of the normal of the hit side, pointing back towards the
+     * moving object.
+     *
+     * @return -1, 0 or 1
+     */
+    public int getNormalX() { return normalX; }
+    /**
+     * Returns y of the normal of the hit side, pointing back towards the
+     * moving object.
+     *
+     * @return -1, 0 or 1
+     */
+    public int getNormalY() { return normalY; }
+    /**
+     * Returns x coordinate where the moving object stops, next to the
+     * object hit or at the end of the movement.
+     *
+     * @return x coordinate
+     */
+    public double getX() { return x; }
+    /**
+     * Returns y coordinate where the moving object stops, next to the
+     * object hit or at the end of the movement.
+     *
+     * @return y coordinate
+     */
+    public double getY() { return y; }
+}
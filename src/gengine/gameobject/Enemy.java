@@ -1,31 +1,58 @@
 package gengine.gameobject;
 
 import gengine.Direction;
+import gengine.event.EventType;
 import java.util.List;
-import java.util.Random;
+import gengine.path.FlowField;
+import gengine.path.PathService;
+import gengine.random.RandomStream;
 
 /**
  * This is the base class for moving enemy object which is constantly on the move.
  * When colliding with other non-player related objects it randomly heads
  * to other direction.
+ * Given a PathService the enemy chases its target: near the target it
+ * follows the shared flow field towards it, farther away a path of its own,
+ * and out of the chase range it wanders like before.
  *
  * @author Lauri Pirttimaki
  * @version 0.2
  */
 public class Enemy extends MovableObject{
+    private static final int REPATH_DISTANCE = 8; // Tiles the target may move from the end of a path
+    private static final int RETRY_DECIDES = 30;  // Decides to wait after a failed search
+    private static final double ALIGNED = 1e-6;
+
+    private RandomStream random;
+    private Player target; // Player hit while deciding, damaged when committing
+
+    private PathService paths;
+    private double alignment; // Distance to line up with the tile, set by chase
+
+    // Path of its own while out of reach of the flow field
+    private int[] path;
+    private int pathIndex;
+    private int pathGoalCol;
+    private int pathGoalRow;
+    private int pathWait;
+
     /**
      * Default constructor. Sets objectType to ENEMY and randomizes
-     * the initial direction.
+     * the initial direction. Until setRandom is called, random numbers
+     * come from a stream seeded with the coordinates of the enemy.
      */
     public Enemy() {
         super();
         this.setType(ObjectType.ENEMY);
+        random = new RandomStream(0);
         randomizeDirection();
     }
 
     /**
      * Default constructor. Sets objectType to ENEMY and randomizes
      * the initial direction. Takes the coordinates and dimensions as parameters.
+     * Until setRandom is called, random numbers come from a stream seeded
+     * with the coordinates of the enemy.
      *
      * @param x - x coordinate
      * @param y - y coordinate
@@ -35,9 +62,55 @@ public class Enemy extends MovableObject{
     public Enemy(int x, int y, int w, int h) {
         super(x, y, w, h);
         this.setType(ObjectType.ENEMY);
+        random = new RandomStream(((long) x << 32) ^ y);
         randomizeDirection();
     }
 
+    /**
+     * Sets the random numbers used for picking directions. Every enemy
+     * has its own stream, so enemies deciding in parallel don't share
+     * a generator and their movement is the same on every run.
+     *
+     * @param r - the RandomStream of the enemy
+     */
+    public void setRandom(RandomStream r) {
+        random = r;
+    }
+
+    /**
+     * Sets the pathfinding used for chasing its target. The first search
+     * for a path of its own waits a random number of decides, so enemies
+     * added together don't all search in the same update.
+     *
+     * @param paths - the PathService of the map, null to only wander
+     */
+    public void setPaths(PathService paths) {
+        this.paths = paths;
+        path = null;
+        pathWait = random.nextInt(RETRY_DECIDES);
+    }
+
+    /**
+     * Returns the pathfinding used for chasing.
+     *
+     * @return the PathService or null
+     */
+    public PathService getPaths() { return paths; }
+
+    /**
+     * Method puts the enemy back to the state of a new one. The random
+     * numbers are kept until setRandom is called.
+     */
+    @Override
+    protected void reset() {
+        super.reset();
+        setType(ObjectType.ENEMY);
+        target = null;
+        paths = null;
+        path = null;
+        pathWait = 0;
+    }
+
     /**
      * Method handles logic. When hit with a non-player related object it turns
      * to a random other direction and proceeds its movement. If hit with player object, reduce its health by one.
@@ -47,53 +120,266 @@ public class Enemy extends MovableObject{
      */
     @Override
     public void update(List<GameObject> objects, long delta) {
-        GameObject hitObj = null;
+        decide(objects, delta);
+        commit(objects, delta);
+    }
+
+    /**
+     * Method works out the next move without moving. Only the enemy itself is
+     * changed, so enemies can decide in parallel.
+     *      1. turn towards the target when chasing, and check which
+     *         directions are available
+     *      2. sweep along the movement for the first object on the way
+     *      3. if it is a non-player object, stop next to it and pick
+     *         a new random direction
+     *      4. if it is the player, remember it for commit and move on
+     *         until the next wall
+     *
+     * @param objects - all related objects
+     * @param delta - time between frames
+     */
+    @Override
+    public void decide(List<GameObject> objects, long delta) {
+        double distance = getSpeed() * delta / SPEED_TIME;
+        double x = getX();
+        double y = getY();
+        Direction chase = chase(x, y);
+        if(chase != null) {
+            setDirection(chase);
+            distance = Math.min(distance, alignment);
+        }
+        Direction d = getDirection();
         //Check which directions are available
         setMovableDirections(canMove(objects));
-        move(getDirection(), delta);
-       
-        hitObj = collides(getDirection(), objects, delta);
-        if(hitObj != null && hitObj.getType() != ObjectType.PLAYER){
+
+        target = null;
+        Contact c = sweep(d, x, y, distance, objects);
+        GameObject hitObj = c.getObject();
+        if(hitObj != null && hitObj.getType() == ObjectType.PLAYER) {
+            target = (Player) hitObj;
+            c = sweepWalls(d, x, y, distance);
+            hitObj = c.getObject();
+        }
+        if(hitObj != null) {
             //randomize next direction
-            setMovableDirections(canMove(objects));
-            moveNextTo(hitObj);
+            setMovableDirections(d, false);
+            randomizeDirection();
+        }
+        setNextPosition(c.getX(), c.getY());
+    }
+
+    /**
+     * Method moves the enemy to the decided position and damages the player
+     * if it was hit. If another object has moved into the way after deciding,
+     * the enemy stays where it is and picks a new direction instead.
+     *
+     * @param objects - all related objects
+     * @param delta - time between frames
+     */
+    @Override
+    public void commit(List<GameObject> objects, long delta) {
+        if(isBlockedAt(getNextX(), getNextY())) {
+            setMovableDirections(getDirection(), false);
             randomizeDirection();
         }
-        else if(hitObj.getClass().toString().equals("Player")) {
-            Player player = (Player) hitObj;
-            if(player.getHealth() > 0) {
-                player.setHealth(hitObj.getHealth() - 1);
+        else {
+            setX(getNextX());
+            setY(getNextY());
+        }
+
+        if(target != null) {
+            if(target.getHealth() > 0) {
+                target.setHealth(target.getHealth() - 1);
+                post(EventType.DAMAGE, target, 1);
+            }
+            target = null;
+        }
+    }
+
+    /**
+     * Method checks whether moving to the given position would make the enemy
+     * overlap with a collidable non-player object it doesn't overlap already.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @return true if the position is taken
+     */
+    private boolean isBlockedAt(double x, double y) {
+        if(getGrid() == null || (x == getX() && y == getY())) {
+            return false;
+        }
+        if(entersWall(x, y)) {
+            return true;
+        }
+        for(GameObject o : findNearbyDynamic(x, y)) {
+            if(o.isCollidable() && o.getType() != ObjectType.PLAYER
+                    && o.intersects(x, y, getWidth(), getHeight())
+                    && !o.intersects(getX(), getY(), getWidth(), getHeight())) {
+                return true;
             }
         }
+        return false;
     }
 
+    /**
+     * Returns the random numbers of the enemy.
+     *
+     * @return the RandomStream of the enemy
+     */
+    public RandomStream getRandom() { return random; }
+
     /**
      * Method randomizes a free direction for enemy object.
      * It also sets isMoving to true in case it already wasn't it.
+     * One random number picks among the free directions, and when none
+     * is free the direction is kept.
      */
     public void randomizeDirection() {
-        boolean dirFound = false;
-        Random rand = new Random();
-        while(!dirFound) {
-            int i = rand.nextInt(4);
+        int free = 0;
+        for(int i = 0; i < 4; i++) {
             if(getMovableDirection(i)) {
-                if(i == 0) {
-                    setDirection(Direction.UP);
-                }
-                else if(i == 1) {
-                    setDirection(Direction.DOWN);
-                }
-                else if(i == 2) {
-                    setDirection(Direction.LEFT);
-                }
-                else if(i == 3) {
-                    setDirection(Direction.RIGHT);
+                free++;
+            }
+        }
+        if(free > 0) {
+            int pick = random.nextInt(free);
+            for(int i = 0; i < 4; i++) {
+                if(getMovableDirection(i) && pick-- == 0) {
+                    if(i == 0) {
+                        setDirection(Direction.UP);
+                    }
+                    else if(i == 1) {
+                        setDirection(Direction.DOWN);
+                    }
+                    else if(i == 2) {
+                        setDirection(Direction.LEFT);
+                    }
+                    else {
+                        setDirection(Direction.RIGHT);
+                    }
+                    break;
                 }
-                dirFound = true;
             }
         }
         if(!isMoving()) {
             setMoving(true);
         }
     }
+
+    /**
+     * Method picks the direction towards the target of the paths. Within
+     * the reach of the flow field of the target the field is followed,
+     * within the chase range a path of its own. Before turning into the
+     * next tile the enemy lines up with it, so it doesn't catch on the
+     * corners of walls, and alignment is set to the distance left to line up.
+     * Otherwise alignment is one tile, so an enemy deciding seldom and
+     * moving far at once doesn't step over a tile of its path.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @return direction to go or null if the enemy doesn't chase
+     */
+    private Direction chase(double x, double y) {
+        GameObject goal = paths != null ? paths.getTarget() : null;
+        if(goal == null || paths.getTiles() == null) {
+            return null;
+        }
+        TileLayer tiles = paths.getTiles();
+        int col = paths.colOf(this);
+        int row = paths.rowOf(this);
+        int goalCol = paths.colOf(goal);
+        int goalRow = paths.rowOf(goal);
+        FlowField field = paths.getField(goal);
+        Direction next;
+        if(field != null && field.covers(col, row)) {
+            path = null;
+            next = field.getDirection(col, row);
+        }
+        else if(Math.max(Math.abs(goalCol - col), Math.abs(goalRow - row)) <= paths.getChaseRange()) {
+            next = follow(tiles, col, row, goalCol, goalRow);
+        }
+        else {
+            path = null;
+            next = null;
+        }
+        double size = tiles.getTileSize();
+        alignment = size;
+        if(next == Direction.NONE) {
+            // On the tile of the target, head straight for it
+            double dx = goal.getX() - x;
+            double dy = goal.getY() - y;
+            if(dx == 0 && dy == 0) {
+                return null;
+            }
+            if(Math.abs(dx) >= Math.abs(dy)) {
+                return dx < 0 ? Direction.LEFT : Direction.RIGHT;
+            }
+            return dy < 0 ? Direction.UP : Direction.DOWN;
+        }
+        if(next == null) {
+            return null;
+        }
+        if(next == Direction.LEFT || next == Direction.RIGHT) {
+            double tileY = tiles.getOriginY() + row * size + (size - getHeight()) / 2;
+            if(Math.abs(y - tileY) > ALIGNED) {
+                alignment = Math.abs(y - tileY);
+                return y > tileY ? Direction.UP : Direction.DOWN;
+            }
+        }
+        else {
+            double tileX = tiles.getOriginX() + col * size + (size - getWidth()) / 2;
+            if(Math.abs(x - tileX) > ALIGNED) {
+                alignment = Math.abs(x - tileX);
+                return x > tileX ? Direction.LEFT : Direction.RIGHT;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Method follows the path of its own towards the target, searching a
+     * new one when there is none or the target has moved away from its end.
+     * Diagonal parts of the path are walked one horizontal and one vertical
+     * step at a time. After a failed search, or when the enemy has been
+     * pushed off the path, it waits a while before searching again.
+     *
+     * @return direction to the next tile or null if there is no path
+     */
+    private Direction follow(TileLayer tiles, int col, int row, int goalCol, int goalRow) {
+        if(path != null && Math.max(Math.abs(goalCol - pathGoalCol), Math.abs(goalRow - pathGoalRow)) > REPATH_DISTANCE) {
+            path = null;
+        }
+        if(path == null) {
+            if(pathWait > 0) {
+                pathWait--;
+                return null;
+            }
+            path = paths.findPath(col, row, goalCol, goalRow);
+            if(path == null) {
+                pathWait = RETRY_DECIDES;
+                return null;
+            }
+            pathIndex = 0;
+            pathGoalCol = goalCol;
+            pathGoalRow = goalRow;
+        }
+        while(pathIndex < path.length && path[pathIndex] == col && path[pathIndex + 1] == row) {
+            pathIndex += 2;
+        }
+        if(pathIndex >= path.length) {
+            path = null;
+            return null;
+        }
+        int dc = Integer.signum(path[pathIndex] - col);
+        int dr = Integer.signum(path[pathIndex + 1] - row);
+        if(dc != 0 && !tiles.isSolid(col + dc, row)) {
+            return dc < 0 ? Direction.LEFT : Direction.RIGHT;
+        }
+        if(dr != 0 && !tiles.isSolid(col, row + dr)) {
+            return dr < 0 ? Direction.UP : Direction.DOWN;
+        }
+        path = null;
+        pathWait = RETRY_DECIDES;
+        return null;
+    }
 }
\ No newline at end of file
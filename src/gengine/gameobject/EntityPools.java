@@ -0,0 +1,141 @@
+package gengine.gameobject;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * These are the object pools of a game, one for each type of object that
+ * comes and goes: walls and portals, which are plain GameObjects, enemies
+ * and collectables. GameManager takes the objects of a level from the pools
+ * and gives them back when the level is left or an object is despawned, so
+ * the next level or spawn reuses them.
+ *
+ * The player is not pooled, there is only one of it.
+ *
+ * Used by the game loop thread only.
+ *
+ * @version 0.3
+ */
+public class EntityPools {
+    public static final int DEFAULT_MAX_SIZE = 65536;
+
+    private final ObjectPool<GameObject> tiles;
+    private final ObjectPool<Enemy> enemies;
+    private final ObjectPool<Collectable> collectables;
+
+    /**
+     * The default constructor. Every pool keeps DEFAULT_MAX_SIZE objects
+     * at most.
+     */
+    public EntityPools() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * The constructor taking the size of the pools as parameter.
+     *
+     * @param maxSize - number of free objects every pool keeps at most
+     */
+    public EntityPools(int maxSize) {
+        tiles = new ObjectPool<>("tiles", GameObject::new, maxSize);
+        enemies = new ObjectPool<>("enemies", Enemy::new, maxSize);
+        collectables = new ObjectPool<>("collectables", Collectable::new, maxSize);
+    }
+
+    /**
+     * Returns a plain game object, for a wall or a portal.
+     *
+     * @return the GameObject
+     */
+    public GameObject acquireTile() {
+        return tiles.acquire();
+    }
+
+    /**
+     * Returns an enemy.
+     *
+     * @return the Enemy
+     */
+    public Enemy acquireEnemy() {
+        return enemies.acquire();
+    }
+
+    /**
+     * Returns a collectable.
+     *
+     * @return the Collectable
+     */
+    public Collectable acquireCollectable() {
+        return collectables.acquire();
+    }
+
+    /**
+     * Method gives an object back to its pool. Objects of other classes,
+     * like the player, are left alone.
+     *
+     * @param o - the object, already removed from its store and grid
+     * @return true if the object was pooled
+     */
+    public boolean release(GameObject o) {
+        Class<?> c = o.getClass();
+        if(c == GameObject.class) {
+            return tiles.release(o);
+        }
+        else if(c == Enemy.class) {
+            return enemies.release((Enemy) o);
+        }
+        else if(c == Collectable.class) {
+            return collectables.release((Collectable) o);
+        }
+        return false;
+    }
+
+    /**
+     * Method removes every object from a store and gives the pooled ones
+     * back. Used when a level is left, so its grid is thrown away as well.
+     *
+     * @param store - the store of the level
+     * @return number of objects pooled
+     */
+    public int releaseAll(EntityStore store) {
+        int released = 0;
+        for(int i = store.size() - 1; i >= 0; i--) {
+            GameObject o = store.get(i);
+            store.remove(o);
+            if(release(o)) {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Returns the pools, for reading their metrics.
+     *
+     * @return the ObjectPools
+     */
+    public List<ObjectPool<?>> getPools() {
+        return Arrays.asList(tiles, enemies, collectables);
+    }
+
+    /**
+     * Method sets the metrics of every pool back to zero.
+     */
+    public void resetMetrics() {
+        for(ObjectPool<?> p : getPools()) {
+            p.resetMetrics();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for(ObjectPool<?> p : getPools()) {
+            if(sb.length() > 0) {
+                sb.append(" | ");
+            }
+            sb.append(p);
+        }
+        return sb.toString();
+    }
+}
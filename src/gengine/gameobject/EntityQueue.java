@@ -0,0 +1,124 @@
+package gengine.gameobject;
+
+import java.util.Arrays;
+
+/**
+ * This is a queue of deferred changes to the objects of a map. Adding and
+ * removing objects while the objects are being updated would change the
+ * store under the update, so the changes are recorded here instead and
+ * applied together at a fixed point of the update, in the order they were
+ * made.
+ *
+ * The queue is not thread safe. It is used by the game loop thread only.
+ *
+ * @version 0.3
+ */
+public class EntityQueue {
+    private static final byte ADD = 0;
+    private static final byte REMOVE = 1;
+
+    private GameObject[] objects;
+    private byte[] ops;
+    private int count;
+
+    /**
+     * The default constructor. Reserves room for 64 changes.
+     */
+    public EntityQueue() {
+        objects = new GameObject[64];
+        ops = new byte[64];
+    }
+
+    /**
+     * Method queues a game object to be added to the map.
+     *
+     * @param o - the object to add
+     */
+    public void add(GameObject o) {
+        push(ADD, o);
+    }
+
+    /**
+     * Method queues a game object to be removed from the map.
+     *
+     * @param o - the object to remove
+     */
+    public void remove(GameObject o) {
+        push(REMOVE, o);
+    }
+
+    /**
+     * Method applies the queued changes to the store and the grid and
+     * empties the queue. Objects removed twice or added while already in
+     * the store are only changed once.
+     *
+     * @param store - store of the map
+     * @param grid - spatial grid of the map, may be null
+     * @return number of changes applied
+     */
+    public int apply(EntityStore store, SpatialGrid grid) {
+        return apply(store, grid, null);
+    }
+
+    /**
+     * Method applies the queued changes like apply(store, grid) and gives
+     * the removed objects back to their pools.
+     *
+     * @param store - store of the map
+     * @param grid - spatial grid of the map, may be null
+     * @param pools - pools of the removed objects, may be null
+     * @return number of changes applied
+     */
+    public int apply(EntityStore store, SpatialGrid grid, EntityPools pools) {
+        int applied = 0;
+        for(int i = 0; i < count; i++) {
+            GameObject o = objects[i];
+            objects[i] = null;
+            if(ops[i] == ADD) {
+                if(o.store != store) {
+                    store.add(o);
+                    if(grid != null) {
+                        grid.add(o);
+                    }
+                    applied++;
+                }
+            }
+            else if(store.remove(o)) {
+                if(grid != null) {
+                    grid.remove(o);
+                }
+                if(pools != null) {
+                    pools.release(o);
+                }
+                applied++;
+            }
+        }
+        count = 0;
+        return applied;
+    }
+
+    /**
+     * Method throws away all queued changes.
+     */
+    public void clear() {
+        Arrays.fill(objects, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * Returns the number of queued changes.
+     *
+     * @return change count
+     */
+    public int size() { return count; }
+
+    private void push(byte op, GameObject o) {
+        if(count == objects.length) {
+            objects = Arrays.copyOf(objects, count * 2);
+            ops = Arrays.copyOf(ops, count * 2);
+        }
+        objects[count] = o;
+        ops[count] = op;
+        count++;
+    }
+}
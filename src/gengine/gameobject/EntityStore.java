@@ -0,0 +1,328 @@
+package gengine.gameobject;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This is the storage for the attributes of game objects. Instead of every
+ * object keeping its own fields, coordinates, sizes, speeds, directions,
+ * types and flags of all objects are kept in parallel arrays, one slot per
+ * object. Game objects added to the store become handles to their slot, so
+ * going through every object reads the arrays from start to end.
+ *
+ * Objects which are not in a store keep using their own fields.
+ *
+ * @version 0.3
+ */
+public class EntityStore {
+    static final int COLLIDABLE = 1;
+    static final int VISIBLE = 2;
+    static final int MOVING = 4;
+
+    private static final ObjectType[] TYPES = ObjectType.values();
+
+    private int size;
+    private GameObject[] handles;
+    double[] x;
+    double[] y;
+    double[] width;
+    double[] height;
+    double[] previousX;
+    double[] previousY;
+    double[] speed;
+    byte[] direction;
+    byte[] type;
+    int[] flags;
+    int[] spriteId;
+
+    private final List<GameObject> view = new AbstractList<GameObject>() {
+        @Override
+        public GameObject get(int i) {
+            if(i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+            }
+            return handles[i];
+        }
+
+        @Override
+        public GameObject remove(int i) {
+            GameObject o = get(i);
+            EntityStore.this.remove(o);
+            return o;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    /**
+     * The default constructor. Reserves room for 64 objects.
+     */
+    public EntityStore() {
+        this(64);
+    }
+
+    /**
+     * The constructor taking the initial capacity as parameter.
+     *
+     * @param capacity - number of objects there is room for at first
+     */
+    public EntityStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        handles = new GameObject[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        width = new double[capacity];
+        height = new double[capacity];
+        previousX = new double[capacity];
+        previousY = new double[capacity];
+        speed = new double[capacity];
+        direction = new byte[capacity];
+        type = new byte[capacity];
+        flags = new int[capacity];
+        spriteId = new int[capacity];
+    }
+
+    /**
+     * Method adds a game object to the store. The current attributes of the
+     * object are copied to the arrays and from then on the object reads and
+     * writes them there.
+     *
+     * @param o - the object to add
+     * @return index of the object in the store
+     */
+    public int add(GameObject o) {
+        if(o.store == this) {
+            return o.index;
+        }
+        if(o.store != null) {
+            o.store.remove(o);
+        }
+        if(size == handles.length) {
+            grow(size * 2);
+        }
+        int i = size;
+        handles[i] = o;
+        x[i] = o.getX();
+        y[i] = o.getY();
+        width[i] = o.getWidth();
+        height[i] = o.getHeight();
+        previousX[i] = o.getPreviousX();
+        previousY[i] = o.getPreviousY();
+        type[i] = (byte) o.getType().ordinal();
+        spriteId[i] = o.getSpriteId();
+        flags[i] = (o.isCollidable() ? COLLIDABLE : 0) | (o.isVisible() ? VISIBLE : 0);
+        speed[i] = 0.0;
+        direction[i] = 0;
+        if(o instanceof MovableObject) {
+            MovableObject m = (MovableObject) o;
+            speed[i] = m.getSpeed();
+            direction[i] = (byte) m.getDirection().ordinal();
+            flags[i] |= m.isMoving() ? MOVING : 0;
+        }
+        size++;
+        o.attach(this, i);
+        return i;
+    }
+
+    /**
+     * Method removes a game object from the store. The attributes are copied
+     * back to the object, so it keeps working on its own. The last object of
+     * the store is moved into the freed slot, so removing takes the same time
+     * no matter how many objects there are, but the order of objects changes.
+     *
+     * @param o - the object to remove
+     * @return true if the object was in the store
+     */
+    public boolean remove(GameObject o) {
+        if(o.store != this) {
+            return false;
+        }
+        int i = o.index;
+        int last = size - 1;
+        o.detach();
+        if(i != last) {
+            handles[i] = handles[last];
+            x[i] = x[last];
+            y[i] = y[last];
+            width[i] = width[last];
+            height[i] = height[last];
+            previousX[i] = previousX[last];
+            previousY[i] = previousY[last];
+            speed[i] = speed[last];
+            direction[i] = direction[last];
+            type[i] = type[last];
+            flags[i] = flags[last];
+            spriteId[i] = spriteId[last];
+            handles[i].index = i;
+        }
+        size = last;
+        handles[last] = null;
+        return true;
+    }
+
+    /**
+     * Method sets or clears a flag of the object in given slot.
+     *
+     * @param i - index of the slot
+     * @param flag - the flag bit
+     * @param state - true to set, false to clear
+     */
+    void setFlag(int i, int flag, boolean state) {
+        if(state) {
+            flags[i] |= flag;
+        }
+        else {
+            flags[i] &= ~flag;
+        }
+    }
+
+    /**
+     * Method stores the current coordinates of every object as their
+     * previous position, like GameObject.savePosition does for one object.
+     */
+    public void savePositions() {
+        System.arraycopy(x, 0, previousX, 0, size);
+        System.arraycopy(y, 0, previousY, 0, size);
+    }
+
+    /**
+     * Method returns a checksum of the objects in the store. It covers the
+     * position, speed, direction, type and flags of every object in slot
+     * order, so two stores with the same objects in the same state give the
+     * same checksum. Used for finding out when two runs of the same game
+     * stop playing out the same way.
+     *
+     * @return 64-bit checksum
+     */
+    public long checksum() {
+        long h = 0xCBF29CE484222325L ^ size;
+        for(int i = 0; i < size; i++) {
+            h = (h ^ Double.doubleToLongBits(x[i])) * 0x100000001B3L;
+            h = (h ^ Double.doubleToLongBits(y[i])) * 0x100000001B3L;
+            h = (h ^ Double.doubleToLongBits(speed[i])) * 0x100000001B3L;
+            h = (h ^ ((long) direction[i] << 40 | (long) type[i] << 32 | flags[i] & 0xFFFFFFFFL)) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    /**
+     * Method counts the objects of every type. The count of a type is put
+     * at the ordinal of the ObjectType.
+     *
+     * @param counts - array for the counts, as long as ObjectType.values()
+     */
+    public void countTypes(int[] counts) {
+        Arrays.fill(counts, 0);
+        for(int i = 0; i < size; i++) {
+            counts[type[i]]++;
+        }
+    }
+
+    /**
+     * Returns the game object in given slot.
+     *
+     * @param i - index of the slot
+     * @return handle of the object
+     */
+    public GameObject get(int i) { return handles[i]; }
+
+    /**
+     * Returns the type of the object in given slot without going through
+     * the handle.
+     *
+     * @param i - index of the slot
+     * @return type of the object
+     */
+    public ObjectType getType(int i) { return TYPES[type[i]]; }
+
+    /**
+     * Returns x coordinate of the object in given slot.
+     *
+     * @param i - index of the slot
+     * @return x coordinate
+     */
+    public double getX(int i) { return x[i]; }
+    /**
+     * Returns y coordinate of the object in given slot.
+     *
+     * @param i - index of the slot
+     * @return y coordinate
+     */
+    public double getY(int i) { return y[i]; }
+    /**
+     * Returns width of the object in given slot.
+     *
+     * @param i - index of the slot
+     * @return width
+     */
+    public double getWidth(int i) { return width[i]; }
+    /**
+     * Returns height of the object in given slot.
+     *
+     * @param i - index of the slot
+     * @return height
+     */
+    public double getHeight(int i) { return height[i]; }
+    /**
+     * Returns previous x coordinate of the object in given slot.
+     *
+     * @param i - index of the slot
+     * @return previous x coordinate
+     */
+    public double getPreviousX(int i) { return previousX[i]; }
+    /**
+     * Returns previous y coordinate of the object in given slot.
+     *
+     * @param i - index of the slot
+     * @return previous y coordinate
+     */
+    public double getPreviousY(int i) { return previousY[i]; }
+    /**
+     * Returns sprite id of the object in given slot.
+     *
+     * @param i - index of the slot
+     * @return sprite id
+     */
+    public int getSpriteId(int i) { return spriteId[i]; }
+    /**
+     * Returns whether the object in given slot is drawn.
+     *
+     * @param i - index of the slot
+     * @return true if visible
+     */
+    public boolean isVisible(int i) { return (flags[i] & VISIBLE) != 0; }
+
+    /**
+     * Returns the number of objects in the store.
+     *
+     * @return object count
+     */
+    public int size() { return size; }
+
+    /**
+     * Returns a List view of the objects in the store. The view is not
+     * a copy, so it changes along with the store.
+     *
+     * @return objects as a List
+     */
+    public List<GameObject> asList() { return view; }
+
+    private void grow(int capacity) {
+        handles = Arrays.copyOf(handles, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        previousX = Arrays.copyOf(previousX, capacity);
+        previousY = Arrays.copyOf(previousY, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        type = Arrays.copyOf(type, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        spriteId = Arrays.copyOf(spriteId, capacity);
+    }
+}
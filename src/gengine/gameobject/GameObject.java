@@ -1,34 +1,50 @@
 package gengine.gameobject;
 
-import java.util.Observable;
-import java.util.Optional;
 import java.util.List;
-import javafx.scene.image.Image;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.geometry.Rectangle2D;
-import gengine.graphics.Sprite;
+import java.util.ArrayList;
+import gengine.event.EventBus;
+import gengine.event.EventType;
 
 
 /**
  * This is the base class for game objects.
  * It contains basic attributes and methods for coordinates, size and collision.
- * Also has attributes and methods for Sprite of a game object.
+ * Drawing is left to the renderer, which only needs the sprite id of the
+ * game object, so game objects don't depend on JavaFX.
  * 
  * @author Lauri Pirttimaki
  * @version 0.2
  */
-public class GameObject extends Observable{
+public class GameObject {
     private double x;
     private double y;
     private double width;
     private double height;
+    private double previousX;
+    private double previousY;
     private boolean collidable;
-    private Optional<Sprite> sprite;    
+    private int spriteId;
+    private boolean visible;
     private ObjectType type;
+
+    // Spatial index bookkeeping, maintained by SpatialGrid
+    SpatialGrid grid;
+    int minCol;
+    int minRow;
+    int maxCol;
+    int maxRow;
+    private List<GameObject> nearby;
+    private Bounds bounds;
+
+    // Slot of the object when its attributes live in an EntityStore
+    EntityStore store;
+    int index;
+
+    private EventBus events;
     
     /**
      * The default constructor. The type of object is set to UNDEFINED and
-     * sprite needs to be set separately. The sprite is also stored in an Optional.
+     * sprite id needs to be set separately.
      * The default size for game object is 32x32 pixels and it has collidable set to true.
      */
     public GameObject() {
@@ -37,13 +53,14 @@ public class GameObject extends Observable{
         setWidth(32);
         setHeight(32);
         setCollision(true);
-        sprite = Optional.empty();
+        setSpriteId(-1);
+        setVisible(true);
         setType(ObjectType.UNDEFINED);
+        savePosition();
     }
     /**
      * The constructor taking coordinates and size as parameters. 
-     * The type of object is set to UNDEFINED and sprite needs to be set separately.
-     * The sprite is also stored in an Optional.
+     * The type of object is set to UNDEFINED and sprite id needs to be set separately.
      * 
      * @param x - the x coordinate
      * @param y - the y coordinate
@@ -56,37 +73,43 @@ public class GameObject extends Observable{
         setWidth(w);
         setHeight(h);
         setCollision(true);
-        sprite = Optional.empty();
+        setSpriteId(-1);
+        setVisible(true);
         setType(ObjectType.UNDEFINED);
+        savePosition();
     }
 
     /**
      * Sets the x coordinate, as long as it is on positive values.
-     * This method also updates the coordinate for the sprite.
      *
      * @param n - the new x coordinate
      */
     public void setX(double n) {
-        if( n >= 0.0) {
-            x = n;
+        if( n < 0.0) {
+            n = 0.0;
+        }
+        if(store != null) {
+            store.x[index] = n;
         }
         else {
-            x = 0.0;
+            x = n;
         }
     }
 
     /**
      * Sets the y coordinate, as long as it is on positive values.
-     * This method also updates the coordinate for the sprite.
      *
      * @param n - the new y coordinate
      */
     public void setY(double n) {
-        if( n >= 0.0) {
-            y = n;
+        if( n < 0.0) {
+            n = 0.0;
+        }
+        if(store != null) {
+            store.y[index] = n;
         }
         else {
-            y = 0.0;
+            y = n;
         }
     } 
 
@@ -96,11 +119,14 @@ public class GameObject extends Observable{
      * @param n - the new width
      */
     public void setWidth(double n) {
-        if( n > 32) {
-            width = n;
+        if( n < 32) {
+            n = 32;
+        }
+        if(store != null) {
+            store.width[index] = n;
         }
         else {
-            width = 32;
+            width = n;
         }
     }
 
@@ -110,11 +136,14 @@ public class GameObject extends Observable{
      * @param n - the new height
      */
     public void setHeight(double n) {
-        if( n > 32) {
-            height = n;
+        if( n < 32) {
+            n = 32;
+        }
+        if(store != null) {
+            store.height[index] = n;
         }
         else {
-            height = 32;
+            height = n;
         }
     }
 
@@ -124,7 +153,12 @@ public class GameObject extends Observable{
      * @param doesHaveCollision - new state of collision.
      */
     public void setCollision(boolean doesHaveCollision) {
-        collidable = doesHaveCollision;
+        if(store != null) {
+            store.setFlag(index, EntityStore.COLLIDABLE, doesHaveCollision);
+        }
+        else {
+            collidable = doesHaveCollision;
+        }
     }
 
     /**
@@ -133,17 +167,41 @@ public class GameObject extends Observable{
      * @param t - the new type of game object
      */
     public void setType(ObjectType t) {
-        type = t;
+        if(store != null) {
+            store.type[index] = (byte) t.ordinal();
+        }
+        else {
+            type = t;
+        }
     }
 
     /**
-     * Sets the sprite for game object. Takes the coordinates and dimensions
-     * from the game object.
-     * 
-     * @param img - the Image for the sprite
+     * Sets the sprite id, which is the index of the image used when drawing
+     * the game object from a RenderSnapshot.
+     *
+     * @param id - index of the image, -1 for none
      */
-    public void setSprite(Image img) {
-        sprite = Optional.ofNullable(new Sprite(img, getX(), getY(), getWidth(), getHeight()));
+    public void setSpriteId(int id) {
+        if(store != null) {
+            store.spriteId[index] = id;
+        }
+        else {
+            spriteId = id;
+        }
+    }
+
+    /**
+     * Sets whether the game object is drawn.
+     *
+     * @param isVisible - new state of visibility
+     */
+    public void setVisible(boolean isVisible) {
+        if(store != null) {
+            store.setFlag(index, EntityStore.VISIBLE, isVisible);
+        }
+        else {
+            visible = isVisible;
+        }
     }
 
     /**
@@ -151,44 +209,79 @@ public class GameObject extends Observable{
      * 
      * @return x coordinate
      */
-    public double getX() { return x; }
+    public double getX() { return store != null ? store.x[index] : x; }
     /**
      * Returns y coordinate
      * 
      * @return y coordinate
      */
-    public double getY() { return y; }
+    public double getY() { return store != null ? store.y[index] : y; }
     /**
      * Returns width of the game object
      * 
      * @return width of the game object
      */
-    public double getWidth() { return width; }
+    public double getWidth() { return store != null ? store.width[index] : width; }
     /**
      * Returns height of the game object
      * 
      * @return height of the game object
      */
-    public double getHeight() { return height; }
+    public double getHeight() { return store != null ? store.height[index] : height; }
     /**
      * Returns boolean for whether game object has collision
      * 
      * @return collidable boolean
      */
-    public boolean isCollidable() { return collidable; }
+    public boolean isCollidable() { return store != null ? (store.flags[index] & EntityStore.COLLIDABLE) != 0 : collidable; }
     /**
      * Returns game objects type
      * 
      * @return x coordinate
      */
-    public ObjectType getType() { return type; }
+    public ObjectType getType() { return store != null ? store.getType(index) : type; }
+    /**
+     * Returns the sprite id of the game object
+     * 
+     * @return index of the image used for drawing, -1 for none
+     */
+    public int getSpriteId() { return store != null ? store.spriteId[index] : spriteId; }
     /**
-     * Returns the sprite of the game object
+     * Returns boolean for whether game object is drawn
      * 
-     * @return the Sprite object of game object
+     * @return visible boolean
      */
-    public Sprite getSprite() { return sprite.get(); }
+    public boolean isVisible() { return store != null ? (store.flags[index] & EntityStore.VISIBLE) != 0 : visible; }
     
+    /**
+     * Sets the bus the game object posts its events to.
+     *
+     * @param bus - the EventBus, null for none
+     */
+    public void setEventBus(EventBus bus) {
+        events = bus;
+    }
+
+    /**
+     * Returns the bus the game object posts its events to.
+     *
+     * @return EventBus or null
+     */
+    public EventBus getEventBus() { return events; }
+
+    /**
+     * Method posts an event about this game object, if it has a bus.
+     *
+     * @param type - type of the event
+     * @param target - other object taking part, may be null
+     * @param value - number value of the event
+     */
+    protected void post(EventType type, GameObject target, int value) {
+        if(events != null) {
+            events.post(type, this, target, value);
+        }
+    }
+
     /**
      * Base method for handling game logic. Empty by default.
      *
@@ -205,11 +298,25 @@ public class GameObject extends Observable{
      */
     public boolean collides(GameObject o) {
         /* Debug code
-        if(o.getBounds().intersects(this.getBounds())) {
+        if(intersects(o.getX(), o.getY(), o.getWidth(), o.getHeight())) {
             System.out.println("Is " + this.getType() + " is colliding with " + o.getType());
         }*/
 
-        return o.getBounds().intersects(this.getBounds());
+        return intersects(o.getX(), o.getY(), o.getWidth(), o.getHeight());
+    }
+
+    /**
+     * Method returns whether game object overlaps with given area.
+     * Areas only touching the object with their edges do not overlap.
+     *
+     * @param x - x coordinate of the area
+     * @param y - y coordinate of the area
+     * @param w - width of the area
+     * @param h - height of the area
+     * @return true if the area overlaps with the object
+     */
+    public boolean intersects(double x, double y, double w, double h) {
+        return Bounds.intersects(getX(), getY(), getWidth(), getHeight(), x, y, w, h);
     }
 
     /**
@@ -222,6 +329,10 @@ public class GameObject extends Observable{
     public boolean collides(List<GameObject> objects, long time) {
         boolean doesCollide = false;
 
+        // Only check the neighbourhood when the object is in a spatial grid
+        if(grid != null) {
+            objects = findNearby();
+        }
         for(GameObject o : objects) {    
             if(o.isCollidable() && this != o){
                 if(collides(o)) {
@@ -232,30 +343,196 @@ public class GameObject extends Observable{
         return doesCollide;
     }
     /**
-     * Sets the coordinates of the sprite of the game object to coordinates
-     * of the game object, ensuring both classes are in the same position.
+     * Method returns the objects near this game object from the spatial grid
+     * the object is in. The returned list is reused on every call.
+     *
+     * @return list of nearby objects, empty if object is not in a grid
+     */
+    protected List<GameObject> findNearby() {
+        return findNearby(getX(), getY());
+    }
+
+    /**
+     * Method returns the objects near the given position from the spatial grid
+     * the object is in, as if the object was moved there. The returned list is
+     * reused on every call.
+     *
+     * @param x - x coordinate of the position
+     * @param y - y coordinate of the position
+     * @return list of nearby objects, empty if object is not in a grid
+     */
+    protected List<GameObject> findNearby(double x, double y) {
+        if(nearby == null) {
+            nearby = new ArrayList<>();
+        }
+        if(grid == null) {
+            nearby.clear();
+            return nearby;
+        }
+        return grid.query(x, y, getWidth(), getHeight(), this, nearby);
+    }
+
+    /**
+     * Method returns the non-BLOCK objects near the given position from the
+     * spatial grid the object is in. Walls are left out, as they are checked
+     * from the passability bitmap of the TileLayer instead. The returned list
+     * is the same one findNearby uses.
+     *
+     * @param x - x coordinate of the position
+     * @param y - y coordinate of the position
+     * @return list of nearby objects, empty if object is not in a grid
+     */
+    protected List<GameObject> findNearbyDynamic(double x, double y) {
+        return findNearbyDynamic(x, y, getWidth(), getHeight());
+    }
+
+    /**
+     * Method returns the non-BLOCK objects near the given area from the
+     * spatial grid the object is in, like findNearbyDynamic for a position.
+     *
+     * @param x - x coordinate of the area
+     * @param y - y coordinate of the area
+     * @param w - width of the area
+     * @param h - height of the area
+     * @return list of nearby objects, empty if object is not in a grid
      */
-    public void updateSpriteCoords() {
-        this.getSprite().setX(this.getX());
-        this.getSprite().setY(this.getY());  
+    protected List<GameObject> findNearbyDynamic(double x, double y, double w, double h) {
+        if(nearby == null) {
+            nearby = new ArrayList<>();
+        }
+        if(grid == null) {
+            nearby.clear();
+            return nearby;
+        }
+        return grid.queryDynamic(x, y, w, h, this, nearby);
     }
 
     /**
-     * Method calls for the draw method in Sprite.
+     * Returns the EntityStore holding the attributes of the object.
+     *
+     * @return the EntityStore or null if object keeps its own attributes
+     */
+    public EntityStore getStore() { return store; }
+
+    /**
+     * Returns the slot of the game object in its EntityStore.
+     *
+     * @return index in the store, -1 if not in a store
+     */
+    public int getIndex() { return store != null ? index : -1; }
+
+    /**
+     * Method is called by EntityStore when the object gets a slot in it.
      *
-     * @param gc - the GraphicsContext which handles drawing in Canvas
+     * @param s - the store
+     * @param i - index of the slot
+     */
+    void attach(EntityStore s, int i) {
+        store = s;
+        index = i;
+    }
+
+    /**
+     * Method is called by EntityStore when the object is removed from it.
+     * The attributes are copied back to the fields of the object.
+     * Subclasses with attributes in the store override it to copy them too.
+     */
+    void detach() {
+        x = store.x[index];
+        y = store.y[index];
+        width = store.width[index];
+        height = store.height[index];
+        previousX = store.previousX[index];
+        previousY = store.previousY[index];
+        type = store.getType(index);
+        spriteId = store.spriteId[index];
+        collidable = (store.flags[index] & EntityStore.COLLIDABLE) != 0;
+        visible = (store.flags[index] & EntityStore.VISIBLE) != 0;
+        store = null;
+    }
+
+    /**
+     * Method puts the object back to the state of a new one made with the
+     * default constructor. Called by ObjectPool when the object is given
+     * back, after it has been removed from its store and grid. Subclasses
+     * with attributes of their own override it and call it first.
      */
-    public void draw(GraphicsContext gc) {
-        sprite.get().draw(gc);
+    protected void reset() {
+        setX(0);
+        setY(0);
+        setWidth(32);
+        setHeight(32);
+        setCollision(true);
+        setSpriteId(-1);
+        setVisible(true);
+        setType(ObjectType.UNDEFINED);
+        savePosition();
+        grid = null;
+        events = null;
+        if(nearby != null) {
+            nearby.clear();
+        }
+    }
+
+    /**
+     * Returns the spatial grid the object is in.
+     *
+     * @return the SpatialGrid or null if object is not in one
+     */
+    public SpatialGrid getGrid() { return grid; }
+
+    /**
+     * Method stores the current coordinates as the previous position.
+     * GameManager calls this before every update so that drawing can
+     * interpolate between the previous and the current position.
+     */
+    public void savePosition() {
+        if(store != null) {
+            store.previousX[index] = store.x[index];
+            store.previousY[index] = store.y[index];
+        }
+        else {
+            previousX = x;
+            previousY = y;
+        }
+    }
+
+    /**
+     * Returns the x coordinate stored by savePosition.
+     *
+     * @return previous x coordinate
+     */
+    public double getPreviousX() { return store != null ? store.previousX[index] : previousX; }
+
+    /**
+     * Returns the y coordinate stored by savePosition.
+     *
+     * @return previous y coordinate
+     */
+    public double getPreviousY() { return store != null ? store.previousY[index] : previousY; }
+
+    /**
+     * Method returns the area of game object as a Bounds object.
+     * The same Bounds object is reused and refreshed on every call,
+     * so copy the values if they need to be kept.
+     *
+     * @return Bounds object representing "hit box" of game object
+     */
+    public Bounds getBounds() {
+        if(bounds == null) {
+            bounds = new Bounds();
+        }
+        return getBounds(bounds);
     }
 
     /**
-     * Method returns the area of game object as a Rectangle2D object.
+     * Method fills the given Bounds object with the area of game object.
      *
-     * @return Rectangle2D object representing "hit box" of game object
+     * @param out - the Bounds object to fill
+     * @return the given Bounds object
      */
-    public Rectangle2D getBounds() {
-        return new Rectangle2D(getX(), getY(), getWidth(), getHeight());
+    public Bounds getBounds(Bounds out) {
+        return out.set(getX(), getY(), getWidth(), getHeight());
     }
 
     /**
@@ -266,6 +543,6 @@ public class GameObject extends Observable{
      * @return true if coordinates are within bounds
      */
     public boolean contains(double x, double y) {
-        return getBounds().contains(x, y);
+        return Bounds.contains(getX(), getY(), getWidth(), getHeight(), x, y);
     }
 }
\ No newline at end of file
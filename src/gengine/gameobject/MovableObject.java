@@ -2,8 +2,8 @@ package gengine.gameobject;
 
 import java.util.List;
 import gengine.Direction;
-import javafx.geometry.Rectangle2D;
-import java.util.Optional;
+import gengine.log.Log;
+import gengine.log.Logger;
 /**
  * This is the base class for moving game objects.
  * Has new attributes like speed and direction for movement and methods for them.
@@ -12,12 +12,29 @@ import java.util.Optional;
  * @version 0.2
  */
 public class MovableObject extends GameObject {
+    private static final Logger LOG = Log.getLogger("objects");
+
+    /**
+     * The time speed is measured in. Speed tells how many pixels
+     * the object moves in 1/60 of a second.
+     */
+    public static final long SPEED_TIME = 1000000000L / 60;
+
     private double speed;
     private boolean isMoving;
     private boolean[] movableDirections;
+    private boolean[] freeDirections; // Reused result of canMove
+    private Contact contact;          // Reused result of sweep
+    private long waitTime = -1;       // Time since the latest decide, kept by AiScheduler
 
     private Direction direction;
 
+    // Position worked out by decide and applied by commit
+    private double nextX;
+    private double nextY;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
     /**
      * The default constructor. Speed is set to 0 by default.
      * Also intializes movableDirections, which stores directions
@@ -28,6 +45,8 @@ public class MovableObject extends GameObject {
         super();
         setSpeed(0);
         movableDirections = new boolean[4];
+        freeDirections = new boolean[4];
+        contact = new Contact();
         setMovableDirections(true, true, true, true);
         setDirection(Direction.NONE);
     }
@@ -47,6 +66,8 @@ public class MovableObject extends GameObject {
         super(x, y, w, h);
         setSpeed(0);
         movableDirections = new boolean[4];
+        freeDirections = new boolean[4];
+        contact = new Contact();
         setMovableDirections(true, true, true, true);
         setDirection(Direction.NONE);
     }
@@ -57,7 +78,12 @@ public class MovableObject extends GameObject {
      * @param s - new speed value
      */
     public void setSpeed(double s) {
-        speed = s;
+        if(store != null) {
+            store.speed[index] = s;
+        }
+        else {
+            speed = s;
+        }
     }
 
     /**
@@ -66,7 +92,12 @@ public class MovableObject extends GameObject {
      * @param d - new direction of movement
      */
     public void setDirection(Direction d) {
-        direction = d;
+        if(store != null) {
+            store.direction[index] = (byte) d.ordinal();
+        }
+        else {
+            direction = d;
+        }
     }
 
     /**
@@ -75,7 +106,12 @@ public class MovableObject extends GameObject {
      * @param isMoving - boolean whether game object is moving.
      */
     public void setMoving(boolean isMoving) {
-        this.isMoving = isMoving;
+        if(store != null) {
+            store.setFlag(index, EntityStore.MOVING, isMoving);
+        }
+        else {
+            this.isMoving = isMoving;
+        }
     }
 
     public void setMovableDirections(boolean up, boolean down, boolean left, boolean right) {
@@ -112,19 +148,19 @@ public class MovableObject extends GameObject {
      *
      * @return speed attribute.
      */
-    public double getSpeed() { return speed; }
+    public double getSpeed() { return store != null ? store.speed[index] : speed; }
     /**
      * Returns isMoving attribute
      *
      * @return isMoving attribute.
      */
-    public boolean isMoving() { return isMoving; }
+    public boolean isMoving() { return store != null ? (store.flags[index] & EntityStore.MOVING) != 0 : isMoving; }
     /**
      * Returns direction attribute
      *
      * @return direction attribute.
      */
-    public Direction getDirection() { return direction; }
+    public Direction getDirection() { return store != null ? DIRECTIONS[store.direction[index]] : direction; }
     
     /**
      * Method returns states of free movement of all directions
@@ -173,45 +209,162 @@ public class MovableObject extends GameObject {
         }
     }
 
+    @Override
+    void detach() {
+        speed = store.speed[index];
+        direction = DIRECTIONS[store.direction[index]];
+        isMoving = (store.flags[index] & EntityStore.MOVING) != 0;
+        super.detach();
+    }
+
     /**
      * Base method for handling logic. This includes collision, movement and other actions.
      * The logic follows:
      *      1. check where object can move
-     *      2. move to direction
-     *      3. check for collision
-     *          a. if there is collision specifically to BLOCK type object, move next to it.
+     *      2. sweep along the movement for collision
+     *          a. if there is collision specifically to BLOCK type object, stop next to it.
      *             so there won't be overlapping.
+     *          b. otherwise move until the next wall, if any
+     * The movement is swept instead of checked at its end, so fast objects
+     * can't pass through walls.
      *
      * @param objects - all of the related objects
      * @param delta - the time between frames 
      */
     @Override
     public void update(List<GameObject> objects, long delta) {
-        GameObject hitObj = null;
         // Check which directions are available
-        movableDirections = canMove(objects);
-        move(getDirection(), delta);
-       
-        hitObj = collides(getDirection(), objects, delta);
-        if(hitObj != null){
-            if(hitObj.getType() == ObjectType.BLOCK) {
-                moveNextTo(hitObj);
-            }
-            else {
-                System.out.println("Something hit after moving, adjusting...");
-            }
+        setMovableDirections(canMove(objects));
+        Direction d = getDirection();
+        double distance = this.getSpeed() * delta / SPEED_TIME;
+
+        Contact c = sweep(d, getX(), getY(), distance, objects);
+        if(c.isHit() && c.getObject().getType() != ObjectType.BLOCK) {
+            LOG.debug("Something hit after moving, adjusting...");
+            c = sweepWalls(d, getX(), getY(), distance);
         }
+        setX(c.getX());
+        setY(c.getY());
+    }
+
+    /**
+     * The first half of a two phase update. The object works out what it wants
+     * to do this update without changing anything other objects can see, so
+     * several objects can decide at the same time in different threads.
+     * By default the object just plans to stay where it is.
+     *
+     * @param objects - all of the related objects
+     * @param delta - the length of the update in nanoseconds
+     */
+    public void decide(List<GameObject> objects, long delta) {
+        setNextPosition(getX(), getY());
+    }
+
+    /**
+     * The second half of a two phase update. Applies what was decided.
+     * Objects commit one at a time, in the same order on every run.
+     * By default the normal update is run here, so objects that don't
+     * split their logic into two phases behave as before.
+     *
+     * @param objects - all of the related objects
+     * @param delta - the length of the update in nanoseconds
+     */
+    public void commit(List<GameObject> objects, long delta) {
+        update(objects, delta);
+    }
+
+    /**
+     * Sets the position the object moves to when committing.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     */
+    protected void setNextPosition(double x, double y) {
+        nextX = x < 0.0 ? 0.0 : x;
+        nextY = y < 0.0 ? 0.0 : y;
+    }
+
+    /**
+     * Method puts the object back to the state of a new one, standing still
+     * with every direction free.
+     */
+    @Override
+    protected void reset() {
+        super.reset();
+        setSpeed(0);
+        setMoving(false);
+        setMovableDirections(true, true, true, true);
+        setDirection(Direction.NONE);
+        contact.miss(0.0, 0.0);
+        waitTime = -1;
+        nextX = 0.0;
+        nextY = 0.0;
+    }
+
+    /**
+     * Sets the time the object has waited since it last decided, when it
+     * doesn't decide every update. Negative while it decides every update
+     * or not at all, which is also the state of a new object.
+     *
+     * @param nanos - time waited in nanoseconds, or negative
+     */
+    public void setWaitTime(long nanos) {
+        waitTime = nanos;
     }
 
+    /**
+     * Returns the time the object has waited since it last decided.
+     *
+     * @return time waited in nanoseconds, negative if not waiting
+     */
+    public long getWaitTime() { return waitTime; }
+
+    /**
+     * Returns the x coordinate the object moves to when committing.
+     *
+     * @return next x coordinate
+     */
+    public double getNextX() { return nextX; }
+
+    /**
+     * Returns the y coordinate the object moves to when committing.
+     *
+     * @return next y coordinate
+     */
+    public double getNextY() { return nextY; }
+
     /**
      * Method checks if game object can move to any of the four directions and returns array containing
-     * their states.
+     * their states. The returned array is reused by the next call, so copy it with
+     * setMovableDirections instead of keeping it.
      *
      * @param objects - all the related objects
      * @return a boolean array for movableDirection
      */
     public boolean[] canMove(List<GameObject> objects) {
-        boolean[] dirs = {true, true, true, true};
+        boolean[] dirs = freeDirections;
+        dirs[0] = true;
+        dirs[1] = true;
+        dirs[2] = true;
+        dirs[3] = true;
+
+        // With a spatial grid only the touched point needs to be looked up
+        SpatialGrid grid = getGrid();
+        if(grid != null) {
+            if(getDirection() == Direction.UP) {
+                dirs[0] = isFree(grid, this.getX() + this.getWidth()/2, this.getY() - 1);
+            }
+            else if(getDirection() == Direction.DOWN) {
+                dirs[1] = isFree(grid, this.getX() + this.getWidth()/2, this.getY() + 1);
+            }
+            else if(getDirection() == Direction.LEFT) {
+                dirs[2] = isFree(grid, this.getX() - 1, this.getY() + this.getHeight()/2);
+            }
+            else if(getDirection() == Direction.RIGHT) {
+                dirs[3] = isFree(grid, this.getX() + 1, this.getY() + this.getHeight()/2);
+            }
+            return dirs;
+        }
 
         for(GameObject o : objects) {
             if(o != this) {
@@ -241,47 +394,87 @@ public class MovableObject extends GameObject {
     }
 
     /**
-     * Moves the game object.
+     * Returns whether no other object contains the point. Walls are looked
+     * up from the passability bitmap and only moving objects from the grid.
+     */
+    private boolean isFree(SpatialGrid grid, double x, double y) {
+        return !grid.getTiles().isSolidAt(x, y) && grid.dynamicAt(x, y, this) == null;
+    }
+
+    /**
+     * Moves the game object. The distance is the speed scaled by the
+     * given time, so the object moves equally fast at any update rate.
      * 
      * @param d - direction to move
-     * @param time - time between frames
+     * @param time - length of the update in nanoseconds
      */
     public void move(Direction d, long time) {
+        double distance = this.getSpeed() * time / SPEED_TIME;
         setDirection(d);
         //This is taken from the statements && getMovableDirection(d)
         if(d == Direction.UP ) {
-            this.setY(this.getY() - this.getSpeed());
+            this.setY(this.getY() - distance);
         }
         else if(d == Direction.DOWN) {
-            this.setY(this.getY() + this.getSpeed());
+            this.setY(this.getY() + distance);
         }
         else if(d == Direction.LEFT) {
-            this.setX(this.getX() - this.getSpeed());
+            this.setX(this.getX() - distance);
         }
         else if(d == Direction.RIGHT) {
-            this.setX(this.getX() + this.getSpeed());
+            this.setX(this.getX() + distance);
         }
     }
 
     /**
      * Method moves game object to side of other game object accordingly to direction.
+     * The object is usually a wall found through the passability bitmap by
+     * collidesAt, and the object ends up on the edge of its tile.
      * 
      * @param obj - object you want to move next to
      */
     public void moveNextTo(GameObject obj) {
         Direction dir = this.getDirection();
-        if(dir == Direction.UP) {
-           this.setY(obj.getY() + obj.getHeight());
+        this.setX(nextToX(obj, dir, this.getX()));
+        this.setY(nextToY(obj, dir, this.getY()));
+    }
+
+    /**
+     * Returns the x coordinate next to other game object when heading
+     * to given direction.
+     *
+     * @param obj - object you want to be next to
+     * @param dir - direction of movement
+     * @param x - x coordinate to use if the direction is not horizontal
+     * @return x coordinate next to the object
+     */
+    protected double nextToX(GameObject obj, Direction dir, double x) {
+        if(dir == Direction.LEFT) {
+            return obj.getX() + obj.getWidth();
         }
-        else if(dir == Direction.DOWN) {
-            this.setY(obj.getY() - this.getHeight());
+        else if(dir == Direction.RIGHT) {
+            return obj.getX() - this.getWidth();
         }
-        else if(dir == Direction.LEFT) {
-            this.setX(obj.getX() + obj.getWidth());
+        return x;
+    }
+
+    /**
+     * Returns the y coordinate next to other game object when heading
+     * to given direction.
+     *
+     * @param obj - object you want to be next to
+     * @param dir - direction of movement
+     * @param y - y coordinate to use if the direction is not vertical
+     * @return y coordinate next to the object
+     */
+    protected double nextToY(GameObject obj, Direction dir, double y) {
+        if(dir == Direction.UP) {
+            return obj.getY() + obj.getHeight();
         }
-        else if(dir == Direction.RIGHT) {
-            this.setX(obj.getX() - this.getWidth());
+        else if(dir == Direction.DOWN) {
+            return obj.getY() - this.getHeight();
         }
+        return y;
     }
 
     /**
@@ -294,30 +487,250 @@ public class MovableObject extends GameObject {
      * @return collided game object and null if there was no collision
      */
     public GameObject collides(Direction d, List<GameObject> objects, long time) {
+        return collidesAt(d, this.getX(), this.getY(), objects);
+    }
+
+    /**
+     * Method checks whether game object would collide with other game object in
+     * specific direction if it was at the given position. The object itself is not moved.
+     *
+     * @param d - direction you want to check
+     * @param x - x coordinate of the position
+     * @param y - y coordinate of the position
+     * @param objects - all related objects
+     * @return collided game object and null if there was no collision
+     */
+    public GameObject collidesAt(Direction d, double x, double y, List<GameObject> objects) {
+        if(getGrid() != null) {
+            // Walls first, from the bitmap, then the moving objects near by
+            GameObject wall = wallAt(d, x, y);
+            if(wall != null) {
+                return wall;
+            }
+            objects = findNearbyDynamic(x, y);
+        }
+        double w = this.getWidth();
+        double h = this.getHeight();
         for(GameObject o : objects) {
-            if(o != this) {    
-                if(d == Direction.UP) {
-                    if(this.collides(o) && o.getY() < this.getY()){
-                        return o;
-                    }
-                }
-                else if(d == Direction.DOWN) {
-                    if(this.collides(o) && o.getY() > this.getY()){
+            if(o != this && o.intersects(x, y, w, h) && isAhead(o, d, x, y)) {
+                return o;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method returns the wall the game object would collide with in specific
+     * direction if it was at the given position. Only the tiles under the
+     * object are checked, from the passability bitmap of the TileLayer, so
+     * the check takes the same time on any size of map.
+     *
+     * @param d - direction you want to check
+     * @param x - x coordinate of the position
+     * @param y - y coordinate of the position
+     * @return the wall or null if there was no collision or no grid
+     */
+    public GameObject wallAt(Direction d, double x, double y) {
+        SpatialGrid grid = getGrid();
+        if(grid == null) {
+            return null;
+        }
+        TileLayer tiles = grid.getTiles();
+        double w = this.getWidth();
+        double h = this.getHeight();
+        int maxCol = tiles.colOf(Math.nextDown(x + w));
+        int maxRow = tiles.rowOf(Math.nextDown(y + h));
+        for(int r = tiles.rowOf(y); r <= maxRow; r++) {
+            for(int c = tiles.colOf(x); c <= maxCol; c++) {
+                if(tiles.isSolid(c, r)) {
+                    GameObject o = tiles.blockAt(c, r);
+                    if(o.intersects(x, y, w, h) && isAhead(o, d, x, y)) {
                         return o;
                     }
                 }
-                else if(d == Direction.LEFT) {
-                    if(this.collides(o) && o.getX() < this.getX()){
-                        return o;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method checks whether the game object would overlap a wall at the
+     * given position which it doesn't overlap at its current position.
+     *
+     * @param x - x coordinate of the position
+     * @param y - y coordinate of the position
+     * @return true if a new wall would be overlapped
+     */
+    protected boolean entersWall(double x, double y) {
+        SpatialGrid grid = getGrid();
+        if(grid == null) {
+            return false;
+        }
+        TileLayer tiles = grid.getTiles();
+        double w = this.getWidth();
+        double h = this.getHeight();
+        int maxCol = tiles.colOf(Math.nextDown(x + w));
+        int maxRow = tiles.rowOf(Math.nextDown(y + h));
+        for(int r = tiles.rowOf(y); r <= maxRow; r++) {
+            for(int c = tiles.colOf(x); c <= maxCol; c++) {
+                if(tiles.isSolid(c, r)) {
+                    GameObject o = tiles.blockAt(c, r);
+                    if(o.isCollidable() && o.intersects(x, y, w, h)
+                            && !o.intersects(getX(), getY(), w, h)) {
+                        return true;
                     }
                 }
-                else if(d == Direction.RIGHT) {
-                    if(this.collides(o) && o.getX() > this.getX()){
-                        return o;
-                    }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method sweeps the game object from the given position along a movement
+     * and finds the first object it would run into, wall or not. Walls are
+     * found by walking the tiles in the direction of the movement, see
+     * sweepWalls, and other objects from the area the movement covers, so
+     * nothing is passed through however long the movement is. Objects which
+     * the game object already overlaps and which are ahead of it are hit at
+     * time 0, like collidesAt finds them. A wall wins over another object
+     * hit at the same time.
+     *
+     * @param d - direction of the movement
+     * @param x - x coordinate to start from
+     * @param y - y coordinate to start from
+     * @param distance - length of the movement
+     * @param objects - all related objects, used when not in a grid
+     * @return the Contact, reused by the next sweep
+     */
+    public Contact sweep(Direction d, double x, double y, double distance, List<GameObject> objects) {
+        Contact c = sweepWalls(d, x, y, distance);
+        double w = this.getWidth();
+        double h = this.getHeight();
+        double nearest = c.isHit() ? gapTo(c.getObject(), d, x, y) : Double.POSITIVE_INFINITY;
+
+        // Area covered by the movement
+        double left = d == Direction.LEFT ? x - distance : x;
+        double top = d == Direction.UP ? y - distance : y;
+        double width = d == Direction.LEFT || d == Direction.RIGHT ? w + distance : w;
+        double height = d == Direction.UP || d == Direction.DOWN ? h + distance : h;
+        if(getGrid() != null) {
+            objects = findNearbyDynamic(left, top, width, height);
+        }
+        GameObject hit = null;
+        for(GameObject o : objects) {
+            if(o != this && o.intersects(left, top, width, height) && isAhead(o, d, x, y)) {
+                double gap = gapTo(o, d, x, y);
+                if(gap < nearest) {
+                    nearest = gap;
+                    hit = o;
                 }
             }
         }
-        return null;
+        if(hit != null) {
+            setContact(c, hit, d, x, y, distance);
+        }
+        return c;
+    }
+
+    /**
+     * Method sweeps the game object from the given position along a movement
+     * and finds the first wall it would run into. The tiles are walked one
+     * column or row at a time in the direction of the movement and checked
+     * from the passability bitmap of the TileLayer, so the work depends on
+     * the length of the movement only. Without a grid nothing is hit.
+     *
+     * @param d - direction of the movement
+     * @param x - x coordinate to start from
+     * @param y - y coordinate to start from
+     * @param distance - length of the movement
+     * @return the Contact, reused by the next sweep
+     */
+    public Contact sweepWalls(Direction d, double x, double y, double distance) {
+        Contact c = contact;
+        c.miss(d == Direction.LEFT ? x - distance : d == Direction.RIGHT ? x + distance : x,
+            d == Direction.UP ? y - distance : d == Direction.DOWN ? y + distance : y);
+        SpatialGrid grid = getGrid();
+        if(grid == null) {
+            return c;
+        }
+        TileLayer tiles = grid.getTiles();
+        double size = tiles.getTileSize();
+        // Tiles as fractions, tile i covering [i, i + 1)
+        double minX = (x - tiles.getOriginX()) / size;
+        double maxX = (x + this.getWidth() - tiles.getOriginX()) / size;
+        double minY = (y - tiles.getOriginY()) / size;
+        double maxY = (y + this.getHeight() - tiles.getOriginY()) / size;
+        double length = distance / size;
+        GameObject wall = null;
+        if(d == Direction.RIGHT) {
+            wall = tiles.firstBlockInCols((int) Math.floor(minX) + 1, (int) Math.ceil(maxX + length) - 1,
+                (int) Math.floor(minY), (int) Math.ceil(maxY) - 1);
+        }
+        else if(d == Direction.LEFT) {
+            wall = tiles.firstBlockInCols((int) Math.ceil(minX) - 1, (int) Math.floor(minX - length),
+                (int) Math.floor(minY), (int) Math.ceil(maxY) - 1);
+        }
+        else if(d == Direction.DOWN) {
+            wall = tiles.firstBlockInRows((int) Math.floor(minY) + 1, (int) Math.ceil(maxY + length) - 1,
+                (int) Math.floor(minX), (int) Math.ceil(maxX) - 1);
+        }
+        else if(d == Direction.UP) {
+            wall = tiles.firstBlockInRows((int) Math.ceil(minY) - 1, (int) Math.floor(minY - length),
+                (int) Math.floor(minX), (int) Math.ceil(maxX) - 1);
+        }
+        if(wall != null) {
+            setContact(c, wall, d, x, y, distance);
+        }
+        return c;
+    }
+
+    /**
+     * Method fills a contact with an object hit when moving to a direction.
+     */
+    private void setContact(Contact c, GameObject o, Direction d, double x, double y, double distance) {
+        double gap = gapTo(o, d, x, y);
+        double time = distance > 0 ? Math.min(Math.max(gap / distance, 0.0), 1.0) : 0.0;
+        int nx = d == Direction.LEFT ? 1 : d == Direction.RIGHT ? -1 : 0;
+        int ny = d == Direction.UP ? 1 : d == Direction.DOWN ? -1 : 0;
+        c.set(o, time, nx, ny, nextToX(o, d, x), nextToY(o, d, y));
+    }
+
+    /**
+     * Returns the distance from the position to an object ahead in given
+     * direction, negative if they overlap.
+     */
+    private double gapTo(GameObject o, Direction d, double x, double y) {
+        if(d == Direction.RIGHT) {
+            return o.getX() - (x + this.getWidth());
+        }
+        else if(d == Direction.LEFT) {
+            return x - (o.getX() + o.getWidth());
+        }
+        else if(d == Direction.DOWN) {
+            return o.getY() - (y + this.getHeight());
+        }
+        else {
+            return y - (o.getY() + o.getHeight());
+        }
+    }
+
+    /**
+     * Returns whether an object is ahead of the position in given direction,
+     * e.g. above it when moving up.
+     */
+    private static boolean isAhead(GameObject o, Direction d, double x, double y) {
+        if(d == Direction.UP) {
+            return o.getY() < y;
+        }
+        else if(d == Direction.DOWN) {
+            return o.getY() > y;
+        }
+        else if(d == Direction.LEFT) {
+            return o.getX() < x;
+        }
+        else if(d == Direction.RIGHT) {
+            return o.getX() > x;
+        }
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package gengine.gameobject;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * This is a pool of game objects of one type. Objects taken from the pool
+ * are reused ones when there are any and new ones only when the pool is
+ * empty, so loading levels and spawning objects again and again doesn't
+ * keep the garbage collector busy.
+ *
+ * Objects are reset when they are given back, through the reset hook of
+ * GameObject which subclasses extend, so a pooled object holds no
+ * references to the map it was on and comes out like a new one.
+ *
+ * Takes that found an object are counted as hits and takes that had to
+ * make one as misses. Objects given back to a full pool are dropped.
+ *
+ * The pool is not thread safe. It is used by the game loop thread only.
+ *
+ * @param <T> - type of the pooled objects
+ * @version 0.3
+ */
+public class ObjectPool<T extends GameObject> {
+    private final String name;
+    private final Supplier<T> factory;
+    private final int maxSize;
+    private GameObject[] free;
+    private int count;
+
+    private long hits;
+    private long misses;
+    private long dropped;
+
+    /**
+     * The constructor taking a name for the metrics, how to make new
+     * objects and how many objects the pool keeps at most.
+     *
+     * @param name - name of the pool
+     * @param factory - makes a new object when the pool is empty
+     * @param maxSize - number of free objects kept at most
+     */
+    public ObjectPool(String name, Supplier<T> factory, int maxSize) {
+        this.name = name;
+        this.factory = factory;
+        this.maxSize = Math.max(maxSize, 0);
+        free = new GameObject[Math.min(this.maxSize, 64)];
+    }
+
+    /**
+     * Method takes an object from the pool, or makes a new one if the pool
+     * is empty.
+     *
+     * @return the object, reset to its defaults
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if(count == 0) {
+            misses++;
+            return factory.get();
+        }
+        hits++;
+        T o = (T) free[--count];
+        free[count] = null;
+        return o;
+    }
+
+    /**
+     * Method resets an object and gives it back to the pool. The object
+     * must already be removed from its store and grid, and must not be
+     * used by the caller afterwards.
+     *
+     * @param o - the object
+     * @return true if the object was kept, false if the pool was full
+     */
+    public boolean release(T o) {
+        if(o.store != null) {
+            throw new IllegalStateException("Object is still in a store");
+        }
+        if(count == maxSize) {
+            dropped++;
+            return false;
+        }
+        o.reset();
+        if(count == free.length) {
+            free = Arrays.copyOf(free, Math.min(count * 2, maxSize));
+        }
+        free[count++] = o;
+        return true;
+    }
+
+    /**
+     * Method sets the metrics back to zero.
+     */
+    public void resetMetrics() {
+        hits = 0;
+        misses = 0;
+        dropped = 0;
+    }
+
+    /**
+     * Returns the name of the pool.
+     *
+     * @return name
+     */
+    public String getName() { return name; }
+    /**
+     * Returns the number of objects waiting in the pool.
+     *
+     * @return free object count
+     */
+    public int getFree() { return count; }
+    /**
+     * Returns how many takes got a reused object.
+     *
+     * @return hit count
+     */
+    public long getHits() { return hits; }
+    /**
+     * Returns how many takes had to make a new object.
+     *
+     * @return miss count
+     */
+    public long getMisses() { return misses; }
+    /**
+     * Returns how many objects were given back to a full pool.
+     *
+     * @return dropped count
+     */
+    public long getDropped() { return dropped; }
+
+    /**
+     * Returns the share of takes which got a reused object.
+     *
+     * @return hit rate from 0.0 to 1.0, 0.0 before the first take
+     */
+    public double getHitRate() {
+        long takes = hits + misses;
+        return takes == 0 ? 0.0 : (double) hits / takes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: hits %d misses %d (%.1f%%) free %d dropped %d",
+            name, hits, misses, getHitRate() * 100.0, count, dropped);
+    }
+}
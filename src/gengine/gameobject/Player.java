@@ -0,0 +1,113 @@
+package gengine.gameobject;
+
+import gengine.Direction;
+import java.util.List;
+import gengine.log.Log;
+import gengine.log.Logger;
+
+/**
+ * This is the base class for player object.
+ * Has new attribute and methods for it, health.
+ *
+ * @author Lauri Pirttimaki
+ * @version 0.2
+ */
+public class Player extends MovableObject {
+    private static final Logger LOG = Log.getLogger("objects");
+
+    private int health;
+    
+
+    /**
+     * Default constructor. Sets the object type to PLAYER
+     */
+    public Player() {
+        super();
+        setHealth(1);
+        setType(ObjectType.PLAYER);
+    }
+
+    /**
+     * Default constructor. Sets the object type to PLAYER
+     * Takes coordinates and dimensions as parameters.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @param w - width of player object
+     * @param h - height of player object
+     */
+    public Player(int x, int y, int w, int h) {
+        super(x, y, w, h);
+        setHealth(1);
+        this.setType(ObjectType.PLAYER);
+    }
+
+    /**
+     * Sets the health of player object.
+     * Health cannot go under 0.
+     *
+     * @param h - the new health
+     */
+    public void setHealth(int h) {
+        if( h < 0) {
+            health = 0;
+        }
+        else {
+            health = h;
+        }
+    }
+
+    /**
+     * Returns health attribute.
+     *
+     * @return health attribute.
+     */
+    public int getHealth() { return health; }
+
+    /**
+     * Method handles logic. Checks for collision and movement.
+     * Player object behaves differently depending what it collides with.
+     *      1. Move next to BLOCK object
+     *      2. Reduce health by one when ENEMY object hits you
+     *      3. Pick up COLLECTABLE object
+     * The movement is swept, so the player stops at the first wall on its
+     * way even when moving further than a tile in one update.
+     *
+     * @param objects - objects need to be checked for collision
+     * @param delta - time between frames
+     */
+    @Override
+    public void update(List<GameObject> objects, long delta) {
+        //Check which directions are available
+        setMovableDirections(canMove(objects));
+        Direction d = getDirection();
+        double distance = getSpeed() * delta / SPEED_TIME;
+
+        Contact c = sweep(d, getX(), getY(), distance, objects);
+        GameObject hitObj = c.getObject();
+        if(hitObj != null && hitObj.getType() != ObjectType.BLOCK) {
+            // Other objects don't stop the player, walls further on do
+            c = sweepWalls(d, getX(), getY(), distance);
+        }
+        setX(c.getX());
+        setY(c.getY());
+
+        if(hitObj != null){
+            if(hitObj.getType() == ObjectType.BLOCK) {
+                LOG.debug("Block hit after moving, adjusting...");
+            }
+            else if(hitObj.getType() == ObjectType.ENEMY) {
+                LOG.debug("Enemy hit! Reducing health...");
+                setHealth(getHealth() - 1);
+            }
+            else if(hitObj.getType() == ObjectType.COLLECTABLE) {
+                Collectable obj = (Collectable) hitObj;
+                LOG.debug(() -> "Picked up " + obj.collectType);
+                obj.pickUp(this);
+            }
+            else {
+                LOG.debug("Something hit after moving, adjusting...");
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package gengine.gameobject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is the uniform grid used for collision queries. The grid uses the
+ * tile size of the map as its cell size. Moving and other non-BLOCK objects
+ * are stored in every cell they cover, and static blocks are looked up from
+ * the TileLayer given to the grid. Queries only look at the cells near the
+ * asked area instead of every object in the game.
+ *
+ * GameManager keeps the grid up to date by calling update after an object
+ * has moved.
+ *
+ * Walls can also be left to the passability bitmap of the TileLayer, which
+ * is faster to check, and only the moving objects asked from the grid with
+ * queryDynamic and dynamicAt.
+ *
+ * Cells are allocated one chunk of the TileLayer at a time when an object
+ * first enters the chunk, so a big map only uses memory where objects are.
+ *
+ * @version 0.3
+ */
+public class SpatialGrid {
+    // Queries are widened by this much so that objects touching the area
+    // with their edge are found, as Rectangle2D style contains is inclusive.
+    private static final double MARGIN = 1.0;
+
+    private final TileLayer tiles;
+    private final int chunkSize;
+    private final Cell[][] cells; // Cells of every chunk, row by row
+
+    /**
+     * The constructor. Takes the static layer of the map, whose geometry
+     * is also used for the grid.
+     *
+     * @param tiles - static BLOCK layer of the current map
+     */
+    public SpatialGrid(TileLayer tiles) {
+        this.tiles = tiles;
+        chunkSize = tiles.getChunkSize();
+        cells = new Cell[tiles.getChunkCols() * tiles.getChunkRows()][];
+    }
+
+    /**
+     * Method adds a game object to the grid. BLOCK objects are ignored
+     * as they are already in the static layer.
+     *
+     * @param o - the object to add
+     */
+    public void add(GameObject o) {
+        if(o.getType() == ObjectType.BLOCK || o.grid == this) {
+            return;
+        }
+        o.grid = this;
+        o.minCol = tiles.colOf(o.getX());
+        o.maxCol = tiles.colOf(Math.nextDown(o.getX() + o.getWidth()));
+        o.minRow = tiles.rowOf(o.getY());
+        o.maxRow = tiles.rowOf(Math.nextDown(o.getY() + o.getHeight()));
+        insert(o);
+    }
+
+    /**
+     * Method removes a game object from the grid.
+     *
+     * @param o - the object to remove
+     */
+    public void remove(GameObject o) {
+        if(o.grid != this) {
+            return;
+        }
+        erase(o);
+        o.grid = null;
+    }
+
+    /**
+     * Method moves the object to the cells matching its current position.
+     * Nothing is done if the object still covers the same cells.
+     *
+     * @param o - the object which may have moved
+     */
+    public void update(GameObject o) {
+        if(o.grid != this) {
+            return;
+        }
+        int minCol = tiles.colOf(o.getX());
+        int maxCol = tiles.colOf(Math.nextDown(o.getX() + o.getWidth()));
+        int minRow = tiles.rowOf(o.getY());
+        int maxRow = tiles.rowOf(Math.nextDown(o.getY() + o.getHeight()));
+        if(minCol == o.minCol && maxCol == o.maxCol && minRow == o.minRow && maxRow == o.maxRow) {
+            return;
+        }
+        erase(o);
+        o.minCol = minCol;
+        o.maxCol = maxCol;
+        o.minRow = minRow;
+        o.maxRow = maxRow;
+        insert(o);
+    }
+
+    /**
+     * Method collects every object near the given area, static blocks included,
+     * into the given list. Each object is listed once. The result is a broad
+     * phase only, so callers still need to test the actual overlap.
+     *
+     * @param x - x coordinate of the area
+     * @param y - y coordinate of the area
+     * @param w - width of the area
+     * @param h - height of the area
+     * @param exclude - object left out of the result, usually the one asking
+     * @param out - list which is cleared and filled with the found objects
+     * @return the given list
+     */
+    public List<GameObject> query(double x, double y, double w, double h, GameObject exclude, List<GameObject> out) {
+        return collect(x, y, w, h, exclude, out, true);
+    }
+
+    /**
+     * Method collects every non-BLOCK object near the given area into the
+     * given list, like query but without the static blocks.
+     *
+     * @param x - x coordinate of the area
+     * @param y - y coordinate of the area
+     * @param w - width of the area
+     * @param h - height of the area
+     * @param exclude - object left out of the result, usually the one asking
+     * @param out - list which is cleared and filled with the found objects
+     * @return the given list
+     */
+    public List<GameObject> queryDynamic(double x, double y, double w, double h, GameObject exclude, List<GameObject> out) {
+        return collect(x, y, w, h, exclude, out, false);
+    }
+
+    private List<GameObject> collect(double x, double y, double w, double h, GameObject exclude,
+            List<GameObject> out, boolean blocks) {
+        out.clear();
+        int minCol = tiles.colOf(x - MARGIN);
+        int maxCol = tiles.colOf(x + w + MARGIN);
+        int minRow = tiles.rowOf(y - MARGIN);
+        int maxRow = tiles.rowOf(y + h + MARGIN);
+
+        for(int r = minRow; r <= maxRow; r++) {
+            for(int c = minCol; c <= maxCol; c++) {
+                if(blocks) {
+                    GameObject b = tiles.blockAt(c, r);
+                    if(b != null && b != exclude
+                            && c == Math.max(tiles.colOf(b.getX()), minCol)
+                            && r == Math.max(tiles.rowOf(b.getY()), minRow)) {
+                        out.add(b);
+                    }
+                }
+                List<GameObject> cell = cellAt(c, r);
+                if(cell == null) {
+                    continue;
+                }
+                for(int i = 0; i < cell.size(); i++) {
+                    GameObject o = cell.get(i);
+                    // Report an object only in the first queried cell it covers
+                    if(o != exclude && c == Math.max(o.minCol, minCol) && r == Math.max(o.minRow, minRow)) {
+                        out.add(o);
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Method returns an object whose bounds contain the given point.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @param exclude - object which is not checked, usually the one asking
+     * @return an object containing the point or null if there is none
+     */
+    public GameObject objectAt(double x, double y, GameObject exclude) {
+        return find(x, y, exclude, true);
+    }
+
+    /**
+     * Method returns a non-BLOCK object whose bounds contain the given point,
+     * like objectAt but without the static blocks.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @param exclude - object which is not checked, usually the one asking
+     * @return an object containing the point or null if there is none
+     */
+    public GameObject dynamicAt(double x, double y, GameObject exclude) {
+        return find(x, y, exclude, false);
+    }
+
+    private GameObject find(double x, double y, GameObject exclude, boolean blocks) {
+        int minCol = tiles.colOf(x - MARGIN);
+        int maxCol = tiles.colOf(x + MARGIN);
+        int minRow = tiles.rowOf(y - MARGIN);
+        int maxRow = tiles.rowOf(y + MARGIN);
+
+        for(int r = minRow; r <= maxRow; r++) {
+            for(int c = minCol; c <= maxCol; c++) {
+                if(blocks) {
+                    GameObject b = tiles.blockAt(c, r);
+                    if(b != null && b != exclude && b.contains(x, y)) {
+                        return b;
+                    }
+                }
+                List<GameObject> cell = cellAt(c, r);
+                if(cell == null) {
+                    continue;
+                }
+                for(int i = 0; i < cell.size(); i++) {
+                    GameObject o = cell.get(i);
+                    if(o != exclude && o.contains(x, y)) {
+                        return o;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the static layer used by the grid.
+     *
+     * @return the TileLayer of the current map
+     */
+    public TileLayer getTiles() { return tiles; }
+
+    private void insert(GameObject o) {
+        for(int r = o.minRow; r <= o.maxRow; r++) {
+            for(int c = o.minCol; c <= o.maxCol; c++) {
+                Cell[] chunk = cells[tiles.chunkOf(c, r)];
+                if(chunk == null) {
+                    chunk = new Cell[chunkSize * chunkSize];
+                    cells[tiles.chunkOf(c, r)] = chunk;
+                }
+                int i = (r % chunkSize) * chunkSize + c % chunkSize;
+                if(chunk[i] == null) {
+                    chunk[i] = new Cell();
+                }
+                chunk[i].add(o);
+            }
+        }
+    }
+
+    private void erase(GameObject o) {
+        for(int r = o.minRow; r <= o.maxRow; r++) {
+            for(int c = o.minCol; c <= o.maxCol; c++) {
+                List<GameObject> cell = cellAt(c, r);
+                if(cell != null) {
+                    cell.remove(o);
+                }
+            }
+        }
+    }
+
+    private List<GameObject> cellAt(int c, int r) {
+        Cell[] chunk = cells[tiles.chunkOf(c, r)];
+        return chunk == null ? null : chunk[(r % chunkSize) * chunkSize + c % chunkSize];
+    }
+
+    /**
+     * Objects of one cell. A class of its own so chunks can be plain arrays.
+     */
+    private static class Cell extends ArrayList<GameObject> {
+        private static final long serialVersionUID = 1L;
+
+        Cell() {
+            super(4);
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package gengine.gameobject;
+
+import java.util.List;
+
+/**
+ * This is the static layer of the spatial index. It holds the BLOCK tiles
+ * of a map split into square chunks, each chunk being a flat array indexed
+ * by tile, so looking up the wall in a cell is two array accesses. Chunks
+ * can be loaded and unloaded one at a time, which lets big maps keep only
+ * the area around the player in memory. Every chunk has a version which
+ * changes whenever its tiles change, so anything built from the tiles of a
+ * chunk, like its cached image, knows when to be built again.
+ *
+ * Next to the blocks every loaded chunk has a passability bitmap with one
+ * bit per tile, set for tiles with a block. Collision checks against walls
+ * test the bits instead of the blocks, so checking a tile is a few array
+ * accesses into a few longs per chunk, however big the map is.
+ *
+ * Tiles are only changed by the game loop thread.
+ *
+ * @version 0.3
+ */
+public class TileLayer {
+    public static final int DEFAULT_CHUNK_SIZE = 32;
+
+    private final double originX;
+    private final double originY;
+    private final double tileSize;
+    private final int cols;
+    private final int rows;
+    private final int chunkSize;
+    private final int chunkCols;
+    private final int chunkRows;
+    private final GameObject[][] chunks;
+    private final long[][] solid; // Passability bitmap of every chunk, one bit per tile
+    private final int[] versions;
+
+    // Indexes of the loaded chunks, in no particular order
+    private final int[] loaded;
+    private final int[] loadedPosition;
+    private int loadedCount;
+
+    /**
+     * The constructor takes the grid geometry and the static objects of the map.
+     * Every block is stored in each tile it covers. Blocks are expected to be
+     * aligned to the tile grid like the ones GameManager.getMap creates, so
+     * one tile holds at most one block. Every chunk of the layer is loaded.
+     *
+     * @param originX - x coordinate of the top left corner of the grid
+     * @param originY - y coordinate of the top left corner of the grid
+     * @param tileSize - width and height of a single tile
+     * @param cols - number of tile columns
+     * @param rows - number of tile rows
+     * @param blocks - static objects placed on the layer
+     */
+    public TileLayer(double originX, double originY, double tileSize, int cols, int rows, List<GameObject> blocks) {
+        this(originX, originY, tileSize, cols, rows, DEFAULT_CHUNK_SIZE);
+        for(int i = 0; i < chunks.length; i++) {
+            setChunk(i, new GameObject[chunkSize * chunkSize]);
+        }
+
+        for(GameObject b : blocks) {
+            int minCol = colOf(b.getX());
+            int maxCol = colOf(Math.nextDown(b.getX() + b.getWidth()));
+            int minRow = rowOf(b.getY());
+            int maxRow = rowOf(Math.nextDown(b.getY() + b.getHeight()));
+            for(int r = minRow; r <= maxRow; r++) {
+                for(int c = minCol; c <= maxCol; c++) {
+                    int chunk = chunkOf(c, r);
+                    int i = tileOf(c, r);
+                    if(chunks[chunk][i] == null) {
+                        chunks[chunk][i] = b;
+                        solid[chunk][i >>> 6] |= 1L << i;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The constructor takes the grid geometry and the chunk size. No chunks
+     * are loaded, they are added with setChunk.
+     *
+     * @param originX - x coordinate of the top left corner of the grid
+     * @param originY - y coordinate of the top left corner of the grid
+     * @param tileSize - width and height of a single tile
+     * @param cols - number of tile columns
+     * @param rows - number of tile rows
+     * @param chunkSize - width and height of a chunk in tiles
+     */
+    public TileLayer(double originX, double originY, double tileSize, int cols, int rows, int chunkSize) {
+        this.originX = originX;
+        this.originY = originY;
+        this.tileSize = tileSize;
+        this.cols = Math.max(cols, 1);
+        this.rows = Math.max(rows, 1);
+        this.chunkSize = Math.max(chunkSize, 1);
+        chunkCols = (this.cols + this.chunkSize - 1) / this.chunkSize;
+        chunkRows = (this.rows + this.chunkSize - 1) / this.chunkSize;
+        chunks = new GameObject[chunkCols * chunkRows][];
+        solid = new long[chunks.length][];
+        versions = new int[chunks.length];
+        loaded = new int[chunks.length];
+        loadedPosition = new int[chunks.length];
+    }
+
+    /**
+     * Returns the column of the tile containing given x coordinate.
+     * Coordinates outside the layer are clamped to the nearest edge column.
+     *
+     * @param x - x coordinate
+     * @return column index
+     */
+    public int colOf(double x) {
+        int c = (int) Math.floor((x - originX) / tileSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    /**
+     * Returns the row of the tile containing given y coordinate.
+     * Coordinates outside the layer are clamped to the nearest edge row.
+     *
+     * @param y - y coordinate
+     * @return row index
+     */
+    public int rowOf(double y) {
+        int r = (int) Math.floor((y - originY) / tileSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    /**
+     * Returns the index of the chunk containing given tile.
+     *
+     * @param col - column index
+     * @param row - row index
+     * @return chunk index, row by row
+     */
+    public int chunkOf(int col, int row) {
+        return (row / chunkSize) * chunkCols + col / chunkSize;
+    }
+
+    /**
+     * Returns the block occupying given tile.
+     *
+     * @param col - column index
+     * @param row - row index
+     * @return the block in the tile or null if the tile is free or not loaded
+     */
+    public GameObject blockAt(int col, int row) {
+        GameObject[] chunk = chunks[chunkOf(col, row)];
+        return chunk == null ? null : chunk[tileOf(col, row)];
+    }
+
+    /**
+     * Returns whether a tile has a block, from the passability bitmap.
+     * Tiles outside the layer are solid, so nothing walks off the map.
+     *
+     * @param col - column index
+     * @param row - row index
+     * @return true if the tile is solid or outside the layer, false if it is free or not loaded
+     */
+    public boolean isSolid(int col, int row) {
+        if(col < 0 || row < 0 || col >= cols || row >= rows) {
+            return true;
+        }
+        long[] bits = solid[chunkOf(col, row)];
+        int i = tileOf(col, row);
+        return bits != null && (bits[i >>> 6] & 1L << i) != 0;
+    }
+
+    /**
+     * Returns whether a point is within a solid tile. Like the bounds of a
+     * block, a tile contains the points on its edges, so a point on the
+     * edge between two tiles is within both. Points outside the layer are
+     * never within a solid tile.
+     *
+     * @param x - x coordinate
+     * @param y - y coordinate
+     * @return true if the point is within a solid tile
+     */
+    public boolean isSolidAt(double x, double y) {
+        double fx = (x - originX) / tileSize;
+        double fy = (y - originY) / tileSize;
+        int maxCol = (int) Math.floor(fx);
+        int maxRow = (int) Math.floor(fy);
+        int minCol = fx == maxCol ? maxCol - 1 : maxCol;
+        int minRow = fy == maxRow ? maxRow - 1 : maxRow;
+        for(int r = Math.max(minRow, 0); r <= maxRow && r < rows; r++) {
+            for(int c = Math.max(minCol, 0); c <= maxCol && c < cols; c++) {
+                if(isSolid(c, r)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method walks columns of tiles one at a time, from one column towards
+     * another, and returns the first block found between the given rows.
+     * Used for sweeping objects along the x axis, so the work depends on
+     * how far the object moves and not on the size of the map. Columns
+     * and rows outside the layer are skipped.
+     *
+     * @param from - first column
+     * @param to - last column, on either side of from
+     * @param minRow - top row
+     * @param maxRow - bottom row
+     * @return the block in the first solid tile or null if there is none
+     */
+    public GameObject firstBlockInCols(int from, int to, int minRow, int maxRow) {
+        minRow = Math.max(minRow, 0);
+        maxRow = Math.min(maxRow, rows - 1);
+        int step = to >= from ? 1 : -1;
+        int start = step > 0 ? Math.max(from, 0) : Math.min(from, cols - 1);
+        int end = step > 0 ? Math.min(to, cols - 1) : Math.max(to, 0);
+        for(int c = start; (end - c) * step >= 0; c += step) {
+            for(int r = minRow; r <= maxRow; r++) {
+                if(isSolid(c, r)) {
+                    return blockAt(c, r);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method walks rows of tiles one at a time, from one row towards
+     * another, and returns the first block found between the given columns.
+     * Used for sweeping objects along the y axis. Columns and rows outside
+     * the layer are skipped.
+     *
+     * @param from - first row
+     * @param to - last row, on either side of from
+     * @param minCol - left column
+     * @param maxCol - right column
+     * @return the block in the first solid tile or null if there is none
+     */
+    public GameObject firstBlockInRows(int from, int to, int minCol, int maxCol) {
+        minCol = Math.max(minCol, 0);
+        maxCol = Math.min(maxCol, cols - 1);
+        int step = to >= from ? 1 : -1;
+        int start = step > 0 ? Math.max(from, 0) : Math.min(from, rows - 1);
+        int end = step > 0 ? Math.min(to, rows - 1) : Math.max(to, 0);
+        for(int r = start; (end - r) * step >= 0; r += step) {
+            for(int c = minCol; c <= maxCol; c++) {
+                if(isSolid(c, r)) {
+                    return blockAt(c, r);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method loads a chunk. The array holds the block of every tile of the
+     * chunk row by row, null for free tiles, and is used as it is.
+     *
+     * @param chunk - index of the chunk
+     * @param blocks - blocks of the chunk, chunkSize * chunkSize of them
+     */
+    public void setChunk(int chunk, GameObject[] blocks) {
+        if(blocks.length != chunkSize * chunkSize) {
+            throw new IllegalArgumentException("Chunk needs " + chunkSize * chunkSize + " tiles");
+        }
+        if(chunks[chunk] == null) {
+            loadedPosition[chunk] = loadedCount;
+            loaded[loadedCount++] = chunk;
+        }
+        chunks[chunk] = blocks;
+        long[] bits = new long[(blocks.length + 63) >>> 6];
+        for(int i = 0; i < blocks.length; i++) {
+            if(blocks[i] != null) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        solid[chunk] = bits;
+        versions[chunk]++;
+    }
+
+    /**
+     * Method unloads a chunk. Its tiles are free until it is loaded again.
+     *
+     * @param chunk - index of the chunk
+     * @return blocks of the chunk or null if it was not loaded
+     */
+    public GameObject[] clearChunk(int chunk) {
+        GameObject[] blocks = chunks[chunk];
+        if(blocks != null) {
+            int last = loaded[--loadedCount];
+            loaded[loadedPosition[chunk]] = last;
+            loadedPosition[last] = loadedPosition[chunk];
+            chunks[chunk] = null;
+            solid[chunk] = null;
+            versions[chunk]++;
+        }
+        return blocks;
+    }
+
+    /**
+     * Method changes the block of a single tile. The chunk of the tile
+     * must be loaded, and its array is changed in place.
+     *
+     * @param col - column index
+     * @param row - row index
+     * @param block - the new block, null to free the tile
+     */
+    public void setBlock(int col, int row, GameObject block) {
+        int chunk = chunkOf(col, row);
+        if(chunks[chunk] == null) {
+            throw new IllegalStateException("Chunk " + chunk + " is not loaded");
+        }
+        int i = tileOf(col, row);
+        chunks[chunk][i] = block;
+        if(block != null) {
+            solid[chunk][i >>> 6] |= 1L << i;
+        }
+        else {
+            solid[chunk][i >>> 6] &= ~(1L << i);
+        }
+        versions[chunk]++;
+    }
+
+    /**
+     * Returns the version of a chunk. The version changes every time
+     * the chunk is loaded, unloaded or one of its tiles changes.
+     *
+     * @param chunk - index of the chunk
+     * @return version number
+     */
+    public int getVersion(int chunk) {
+        return versions[chunk];
+    }
+
+    /**
+     * Returns whether a chunk is loaded.
+     *
+     * @param chunk - index of the chunk
+     * @return true if loaded
+     */
+    public boolean isLoaded(int chunk) {
+        return chunks[chunk] != null;
+    }
+
+    /**
+     * Returns the blocks of a chunk, row by row. The array must not be changed.
+     *
+     * @param chunk - index of the chunk
+     * @return blocks of the chunk or null if it is not loaded
+     */
+    public GameObject[] getChunk(int chunk) {
+        return chunks[chunk];
+    }
+
+    /**
+     * Returns the number of loaded chunks.
+     *
+     * @return loaded chunk count
+     */
+    public int getLoadedCount() { return loadedCount; }
+
+    /**
+     * Returns the index of the i:th loaded chunk. The order changes when
+     * chunks are loaded and unloaded.
+     *
+     * @param i - from 0 to getLoadedCount() - 1
+     * @return chunk index
+     */
+    public int getLoaded(int i) { return loaded[i]; }
+
+    /**
+     * Returns x coordinate of the top left corner of the layer.
+     *
+     * @return x coordinate
+     */
+    public double getOriginX() { return originX; }
+    /**
+     * Returns y coordinate of the top left corner of the layer.
+     *
+     * @return y coordinate
+     */
+    public double getOriginY() { return originY; }
+    /**
+     * Returns the width and height of a single tile.
+     *
+     * @return tile size
+     */
+    public double getTileSize() { return tileSize; }
+    /**
+     * Returns the number of tile columns.
+     *
+     * @return column count
+     */
+    public int getCols() { return cols; }
+    /**
+     * Returns the number of tile rows.
+     *
+     * @return row count
+     */
+    public int getRows() { return rows; }
+    /**
+     * Returns the width and height of a chunk in tiles.
+     *
+     * @return chunk size
+     */
+    public int getChunkSize() { return chunkSize; }
+    /**
+     * Returns the number of chunk columns.
+     *
+     * @return chunk column count
+     */
+    public int getChunkCols() { return chunkCols; }
+    /**
+     * Returns the number of chunk rows.
+     *
+     * @return chunk row count
+     */
+    public int getChunkRows() { return chunkRows; }
+
+    private int tileOf(int col, int row) {
+        return (row % chunkSize) * chunkSize + col % chunkSize;
+    }
+}
@@ -0,0 +1,63 @@
+package gengine.graphics;
+
+/**
+ * This is a sprite drawn from regions of a TextureAtlas. A still sprite has
+ * a single frame, an animated one has a table of frames shown one after
+ * another, each for the same time, looping forever.
+ *
+ * @version 0.3
+ */
+public class AtlasSprite {
+    private final int[] frames;
+    private final long frameTime;
+
+    /**
+     * The constructor for a still sprite.
+     *
+     * @param region - index of the region in the atlas
+     */
+    public AtlasSprite(int region) {
+        this(new int[] { region }, 1);
+    }
+
+    /**
+     * The constructor for an animated sprite.
+     *
+     * @param frames - indexes of the regions in the atlas, in the order shown
+     * @param frameTime - how long each frame is shown in nanoseconds
+     */
+    public AtlasSprite(int[] frames, long frameTime) {
+        if(frames.length == 0) {
+            throw new IllegalArgumentException("Sprite needs at least one frame");
+        }
+        this.frames = frames.clone();
+        this.frameTime = Math.max(frameTime, 1);
+    }
+
+    /**
+     * Returns the region shown at the given time.
+     *
+     * @param time - time since the start of the game in nanoseconds
+     * @return index of the region in the atlas
+     */
+    public int getRegion(long time) {
+        if(frames.length == 1) {
+            return frames[0];
+        }
+        return frames[(int) ((time / frameTime) % frames.length)];
+    }
+
+    /**
+     * Returns the number of frames.
+     *
+     * @return frame count
+     */
+    public int getFrameCount() { return frames.length; }
+
+    /**
+     * Returns how long each frame is shown.
+     *
+     * @return frame time in nanoseconds
+     */
+    public long getFrameTime() { return frameTime; }
+}
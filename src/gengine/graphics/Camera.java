@@ -0,0 +1,158 @@
+package gengine.graphics;
+
+/**
+ * This is the camera deciding which part of the map is drawn. It has a
+ * position, which is the point of the map in the middle of the screen,
+ * a zoom and the size of the viewport in pixels. The game loop moves the
+ * camera after the player and only puts what the camera sees into the
+ * RenderSnapshot.
+ *
+ * The position is changed by the game loop thread. Zoom and viewport size
+ * may be set from any thread and are picked up on the next snapshot.
+ *
+ * @version 0.3
+ */
+public class Camera {
+    private double x;
+    private double y;
+    private volatile double zoom;
+    private volatile double viewportWidth;
+    private volatile double viewportHeight;
+
+    /**
+     * The constructor taking the viewport size as parameter.
+     * Zoom is set to 1.
+     *
+     * @param width - width of the viewport in pixels
+     * @param height - height of the viewport in pixels
+     */
+    public Camera(double width, double height) {
+        setViewport(width, height);
+        setZoom(1.0);
+    }
+
+    /**
+     * Method centers the camera on the given point, keeping the view within
+     * the given area. If the area is smaller than the view, the area is
+     * centered instead.
+     *
+     * @param cx - x coordinate to center on
+     * @param cy - y coordinate to center on
+     * @param minX - left edge of the area
+     * @param minY - top edge of the area
+     * @param maxX - right edge of the area
+     * @param maxY - bottom edge of the area
+     */
+    public void follow(double cx, double cy, double minX, double minY, double maxX, double maxY) {
+        x = clamp(cx, minX, maxX, getViewWidth());
+        y = clamp(cy, minY, maxY, getViewHeight());
+    }
+
+    /**
+     * Sets the point of the map in the middle of the screen.
+     *
+     * @param cx - x coordinate
+     * @param cy - y coordinate
+     */
+    public void setPosition(double cx, double cy) {
+        x = cx;
+        y = cy;
+    }
+
+    /**
+     * Sets the zoom. 2 draws everything twice as big. Kept between 0.1 and 10.
+     *
+     * @param z - the zoom
+     */
+    public void setZoom(double z) {
+        zoom = Math.max(0.1, Math.min(z, 10.0));
+    }
+
+    /**
+     * Sets the size of the area the map is drawn to.
+     *
+     * @param width - width in pixels
+     * @param height - height in pixels
+     */
+    public void setViewport(double width, double height) {
+        viewportWidth = Math.max(width, 1);
+        viewportHeight = Math.max(height, 1);
+    }
+
+    /**
+     * Method returns whether a rectangle of the map is in view.
+     *
+     * @param rx - x coordinate of the rectangle
+     * @param ry - y coordinate of the rectangle
+     * @param rw - width of the rectangle
+     * @param rh - height of the rectangle
+     * @return true if any part of the rectangle is in view
+     */
+    public boolean isVisible(double rx, double ry, double rw, double rh) {
+        double left = getViewX();
+        double top = getViewY();
+        return rx + rw > left && ry + rh > top && rx < left + getViewWidth() && ry < top + getViewHeight();
+    }
+
+    /**
+     * Returns x coordinate of the point in the middle of the screen.
+     *
+     * @return x coordinate
+     */
+    public double getX() { return x; }
+    /**
+     * Returns y coordinate of the point in the middle of the screen.
+     *
+     * @return y coordinate
+     */
+    public double getY() { return y; }
+    /**
+     * Returns the zoom.
+     *
+     * @return zoom, 1 for no zoom
+     */
+    public double getZoom() { return zoom; }
+    /**
+     * Returns the width of the viewport.
+     *
+     * @return width in pixels
+     */
+    public double getViewportWidth() { return viewportWidth; }
+    /**
+     * Returns the height of the viewport.
+     *
+     * @return height in pixels
+     */
+    public double getViewportHeight() { return viewportHeight; }
+    /**
+     * Returns x coordinate of the left edge of the view on the map.
+     *
+     * @return x coordinate
+     */
+    public double getViewX() { return x - getViewWidth() / 2; }
+    /**
+     * Returns y coordinate of the top edge of the view on the map.
+     *
+     * @return y coordinate
+     */
+    public double getViewY() { return y - getViewHeight() / 2; }
+    /**
+     * Returns how wide part of the map is in view.
+     *
+     * @return width on the map
+     */
+    public double getViewWidth() { return viewportWidth / zoom; }
+    /**
+     * Returns how high part of the map is in view.
+     *
+     * @return height on the map
+     */
+    public double getViewHeight() { return viewportHeight / zoom; }
+
+    private static double clamp(double center, double min, double max, double size) {
+        if(max - min <= size) {
+            return (min + max) / 2;
+        }
+        return Math.max(min + size / 2, Math.min(center, max - size / 2));
+    }
+}
@@ -0,0 +1,130 @@
+package gengine.graphics;
+
+import gengine.gameobject.GameObject;
+import gengine.gameobject.TileLayer;
+
+/**
+ * This keeps copies of the sprite ids of the chunks of a TileLayer, so the
+ * walls can be drawn without touching the wall objects or the arrays of
+ * the layer, which the game loop changes while drawing goes on.
+ *
+ * A chunk is copied when it is first asked for and again only when its
+ * version changes. A copy is never changed after it is made, so the same
+ * copy is handed to drawing through the RenderSnapshots for as long as the
+ * chunk stays the same, and TileCache knows a chunk has changed when its
+ * copy is a different array. Copies of chunks not asked for between two
+ * calls of begin are let go.
+ *
+ * Every tile takes one byte, the sprite id of its wall plus one, or EMPTY
+ * when there is no wall. Walls use the first 255 sprites of the atlas.
+ *
+ * Used by the game loop thread only.
+ *
+ * @version 0.3
+ */
+public class ChunkCopies {
+    public static final byte EMPTY = 0;
+
+    private final TileLayer tiles;
+    private final byte[][] copies;
+    private final int[] versions;
+    private final long[] usedRound;
+    private final int[] kept;         // Indexes of chunks with a copy, in no particular order
+    private final int[] keptPosition;
+    private int keptCount;
+    private long round;
+
+    /**
+     * The constructor taking the tile layer to copy as parameter.
+     *
+     * @param tiles - the static layer of the map
+     */
+    public ChunkCopies(TileLayer tiles) {
+        this.tiles = tiles;
+        int chunks = tiles.getChunkCols() * tiles.getChunkRows();
+        copies = new byte[chunks][];
+        versions = new int[chunks];
+        usedRound = new long[chunks];
+        kept = new int[chunks];
+        keptPosition = new int[chunks];
+    }
+
+    /**
+     * Method starts a new round of copies and lets go of the copies of
+     * chunks not asked for during the previous round.
+     */
+    public void begin() {
+        for(int i = keptCount - 1; i >= 0; i--) {
+            if(usedRound[kept[i]] != round) {
+                release(kept[i]);
+            }
+        }
+        round++;
+    }
+
+    /**
+     * Returns the copy of a loaded chunk, copying the chunk first if it
+     * has changed since the last copy.
+     *
+     * @param chunk - index of the chunk
+     * @return sprite ids of the tiles, row by row, or null if the chunk is not loaded
+     */
+    public byte[] get(int chunk) {
+        GameObject[] blocks = tiles.getChunk(chunk);
+        if(blocks == null) {
+            release(chunk);
+            return null;
+        }
+        usedRound[chunk] = round;
+        if(copies[chunk] != null && versions[chunk] == tiles.getVersion(chunk)) {
+            return copies[chunk];
+        }
+        byte[] copy = new byte[blocks.length];
+        for(int i = 0; i < blocks.length; i++) {
+            if(blocks[i] != null) {
+                copy[i] = (byte) (blocks[i].getSpriteId() + 1);
+            }
+        }
+        if(copies[chunk] == null) {
+            keptPosition[chunk] = keptCount;
+            kept[keptCount++] = chunk;
+        }
+        copies[chunk] = copy;
+        versions[chunk] = tiles.getVersion(chunk);
+        return copy;
+    }
+
+    /**
+     * Returns the tile layer copied.
+     *
+     * @return the TileLayer
+     */
+    public TileLayer getTiles() { return tiles; }
+
+    /**
+     * Returns the number of chunks with a copy.
+     *
+     * @return copy count
+     */
+    public int getCopyCount() { return keptCount; }
+
+    /**
+     * Returns the sprite id of a tile of a copy.
+     *
+     * @param tile - value of the tile in the copy
+     * @return sprite id of the wall or -1 if there is none
+     */
+    public static int spriteOf(byte tile) {
+        return (tile & 0xFF) - 1;
+    }
+
+    private void release(int chunk) {
+        if(copies[chunk] == null) {
+            return;
+        }
+        int last = kept[--keptCount];
+        kept[keptPosition[chunk]] = last;
+        keptPosition[last] = keptPosition[chunk];
+        copies[chunk] = null;
+    }
+}
@@ -0,0 +1,46 @@
+package gengine.graphics;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import gengine.profile.ProfileReport;
+
+/**
+ * This draws the latest ProfileReport of a TickProfiler on top of the
+ * game, one line of text per line of the report on a dark background.
+ *
+ * The overlay is used by the JavaFX thread only.
+ *
+ * @version 0.3
+ */
+public class ProfileOverlay {
+    private static final double LINE_HEIGHT = 14;
+    private static final double MARGIN = 6;
+
+    private final Font font = Font.font("Monospaced", 12);
+    private ProfileReport drawn;
+    private String[] lines = new String[0];
+
+    /**
+     * Method draws the report to the top left corner of the canvas. The
+     * text is only made again when the report has changed.
+     *
+     * @param gc - object used for drawing to canvas
+     * @param report - the report to show
+     */
+    public void draw(GraphicsContext gc, ProfileReport report) {
+        if(report != drawn) {
+            drawn = report;
+            lines = report.toString().split("\\R");
+        }
+        gc.save();
+        gc.setFill(Color.rgb(0, 0, 0, 0.6));
+        gc.fillRect(0, 0, 440, lines.length * LINE_HEIGHT + 2 * MARGIN);
+        gc.setFont(font);
+        gc.setFill(Color.LIME);
+        for(int i = 0; i < lines.length; i++) {
+            gc.fillText(lines[i], MARGIN, MARGIN + (i + 1) * LINE_HEIGHT - 3);
+        }
+        gc.restore();
+    }
+}
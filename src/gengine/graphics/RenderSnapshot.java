@@ -0,0 +1,397 @@
+package gengine.graphics;
+
+import java.util.Arrays;
+import gengine.gameobject.TileLayer;
+
+/**
+ * This is a copy of everything needed to draw one game state.
+ * The game loop fills it with positions, sprite ids and visibility of the
+ * objects, stored in plain arrays, and the drawing side only reads it.
+ * That way drawing never touches the game objects the game loop is updating.
+ * Only objects and chunks in view of the camera are stored, along with
+ * the camera position. Walls are not stored one by one. The snapshot lists the chunks of the
+ * TileLayer to draw with the geometry of the layer and a ChunkCopies copy
+ * of the sprite ids of every chunk, and TileCache draws them.
+ *
+ * Snapshots are reused through SnapshotBuffer, so the arrays only grow
+ * when there are more objects than before.
+ *
+ * @version 0.3
+ */
+public class RenderSnapshot {
+    private int count;
+    private double[] x;
+    private double[] y;
+    private double[] previousX;
+    private double[] previousY;
+    private double[] width;
+    private double[] height;
+    private int[] spriteIds;
+    private boolean[] visible;
+
+    private int culled;
+
+    // Geometry of the tile layer, tileSize 0 when there is none
+    private double tileOriginX;
+    private double tileOriginY;
+    private double tileSize;
+    private int tileCols;
+    private int tileRows;
+    private int chunkSize;
+
+    // Camera
+    private double previousCameraX;
+    private double previousCameraY;
+    private double cameraX;
+    private double cameraY;
+    private double zoom;
+    private double viewportWidth;
+    private double viewportHeight;
+    private int chunkCount;
+    private int[] chunks;
+    private byte[][] chunkTiles;
+
+    private long tick;
+    private long tickTime;
+    private long stepTime;
+
+    /**
+     * The default constructor. Reserves room for 64 objects.
+     */
+    public RenderSnapshot() {
+        this(64);
+    }
+
+    /**
+     * The constructor taking the initial capacity as parameter.
+     *
+     * @param capacity - number of objects there is room for at first
+     */
+    public RenderSnapshot(int capacity) {
+        capacity = Math.max(capacity, 1);
+        x = new double[capacity];
+        y = new double[capacity];
+        previousX = new double[capacity];
+        previousY = new double[capacity];
+        width = new double[capacity];
+        height = new double[capacity];
+        spriteIds = new int[capacity];
+        visible = new boolean[capacity];
+        chunks = new int[16];
+        chunkTiles = new byte[16][];
+    }
+
+    /**
+     * Method empties the snapshot and sets the timing of the game state
+     * that is going to be stored in it.
+     *
+     * @param tick - number of the update the state is from
+     * @param tickTime - System.nanoTime when the state was current
+     * @param stepTime - length of an update in nanoseconds
+     */
+    public void begin(long tick, long tickTime, long stepTime) {
+        count = 0;
+        Arrays.fill(chunkTiles, 0, chunkCount, null);
+        chunkCount = 0;
+        culled = 0;
+        tileSize = 0.0;
+        zoom = 1.0;
+        this.tick = tick;
+        this.tickTime = tickTime;
+        this.stepTime = stepTime;
+    }
+
+    /**
+     * Method adds one object to the snapshot.
+     *
+     * @param px - previous x coordinate
+     * @param py - previous y coordinate
+     * @param cx - current x coordinate
+     * @param cy - current y coordinate
+     * @param w - width of the object
+     * @param h - height of the object
+     * @param spriteId - index of the image used for the object
+     * @param isVisible - whether the object is drawn
+     */
+    public void add(double px, double py, double cx, double cy, double w, double h, int spriteId, boolean isVisible) {
+        if(count == x.length) {
+            grow();
+        }
+        previousX[count] = px;
+        previousY[count] = py;
+        x[count] = cx;
+        y[count] = cy;
+        width[count] = w;
+        height[count] = h;
+        spriteIds[count] = spriteId;
+        visible[count] = isVisible;
+        count++;
+    }
+
+    /**
+     * Sets the camera of the snapshot. The camera is moved between its
+     * previous and current position like the objects.
+     *
+     * @param px - previous x coordinate of the middle of the view
+     * @param py - previous y coordinate of the middle of the view
+     * @param cx - current x coordinate of the middle of the view
+     * @param cy - current y coordinate of the middle of the view
+     * @param z - zoom
+     * @param width - width of the viewport in pixels
+     * @param height - height of the viewport in pixels
+     */
+    public void setCamera(double px, double py, double cx, double cy, double z, double width, double height) {
+        previousCameraX = px;
+        previousCameraY = py;
+        cameraX = cx;
+        cameraY = cy;
+        zoom = z;
+        viewportWidth = width;
+        viewportHeight = height;
+    }
+
+    /**
+     * Sets the number of objects left out of the snapshot as not in view.
+     *
+     * @param n - culled object count
+     */
+    public void setCulled(int n) {
+        culled = n;
+    }
+
+    /**
+     * Sets the geometry of the tile layer whose chunks are drawn. Only the
+     * geometry is kept, the layer itself is not.
+     *
+     * @param layer - the TileLayer of the map
+     */
+    public void setTiles(TileLayer layer) {
+        tileOriginX = layer.getOriginX();
+        tileOriginY = layer.getOriginY();
+        tileSize = layer.getTileSize();
+        tileCols = layer.getCols();
+        tileRows = layer.getRows();
+        chunkSize = layer.getChunkSize();
+    }
+
+    /**
+     * Method adds a chunk of the tile layer to be drawn.
+     *
+     * @param chunk - index of the chunk
+     * @param tiles - copy of the sprite ids of the chunk from ChunkCopies, not changed afterwards
+     */
+    public void addChunk(int chunk, byte[] tiles) {
+        if(chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            chunkTiles = Arrays.copyOf(chunkTiles, chunkCount * 2);
+        }
+        chunks[chunkCount] = chunk;
+        chunkTiles[chunkCount] = tiles;
+        chunkCount++;
+    }
+
+    /**
+     * Returns how far the given moment is between the previous and the
+     * stored game state, as a value from 0 to 1.
+     *
+     * @param now - System.nanoTime of the moment
+     * @return interpolation alpha
+     */
+    public double getInterpolation(long now) {
+        if(stepTime <= 0) {
+            return 1.0;
+        }
+        double alpha = (double) (now - tickTime) / stepTime;
+        if(alpha < 0.0) {
+            return 0.0;
+        }
+        else if(alpha > 1.0) {
+            return 1.0;
+        }
+        return alpha;
+    }
+
+    /**
+     * Returns the x coordinate of an object between its previous and current position.
+     *
+     * @param i - index of the object
+     * @param alpha - 0 for previous position, 1 for current position
+     * @return interpolated x coordinate
+     */
+    public double getX(int i, double alpha) {
+        return previousX[i] + (x[i] - previousX[i]) * alpha;
+    }
+
+    /**
+     * Returns the y coordinate of an object between its previous and current position.
+     *
+     * @param i - index of the object
+     * @param alpha - 0 for previous position, 1 for current position
+     * @return interpolated y coordinate
+     */
+    public double getY(int i, double alpha) {
+        return previousY[i] + (y[i] - previousY[i]) * alpha;
+    }
+
+    /**
+     * Returns the number of objects in the snapshot.
+     *
+     * @return object count
+     */
+    public int size() { return count; }
+    /**
+     * Returns the width of an object.
+     *
+     * @param i - index of the object
+     * @return width
+     */
+    public double getWidth(int i) { return width[i]; }
+    /**
+     * Returns the height of an object.
+     *
+     * @param i - index of the object
+     * @return height
+     */
+    public double getHeight(int i) { return height[i]; }
+    /**
+     * Returns the sprite id of an object.
+     *
+     * @param i - index of the object
+     * @return index of the image used for the object
+     */
+    public int getSpriteId(int i) { return spriteIds[i]; }
+    /**
+     * Returns whether an object is drawn.
+     *
+     * @param i - index of the object
+     * @return true if the object is visible
+     */
+    public boolean isVisible(int i) { return visible[i]; }
+    /**
+     * Returns x coordinate of the left edge of the view between the
+     * previous and current camera position.
+     *
+     * @param alpha - 0 for previous position, 1 for current position
+     * @return x coordinate on the map
+     */
+    public double getViewX(double alpha) {
+        return previousCameraX + (cameraX - previousCameraX) * alpha - viewportWidth / zoom / 2;
+    }
+
+    /**
+     * Returns y coordinate of the top edge of the view between the
+     * previous and current camera position.
+     *
+     * @param alpha - 0 for previous position, 1 for current position
+     * @return y coordinate on the map
+     */
+    public double getViewY(double alpha) {
+        return previousCameraY + (cameraY - previousCameraY) * alpha - viewportHeight / zoom / 2;
+    }
+
+    /**
+     * Returns the zoom of the camera.
+     *
+     * @return zoom
+     */
+    public double getZoom() { return zoom; }
+    /**
+     * Returns the number of objects left out as not in view.
+     *
+     * @return culled object count
+     */
+    public int getCulled() { return culled; }
+    /**
+     * Returns whether the snapshot has a tile layer to draw.
+     *
+     * @return true if setTiles was called
+     */
+    public boolean hasTiles() { return tileSize > 0.0; }
+    /**
+     * Returns the x coordinate of the top left corner of the tile layer.
+     *
+     * @return x coordinate
+     */
+    public double getTileOriginX() { return tileOriginX; }
+    /**
+     * Returns the y coordinate of the top left corner of the tile layer.
+     *
+     * @return y coordinate
+     */
+    public double getTileOriginY() { return tileOriginY; }
+    /**
+     * Returns the width and height of a tile.
+     *
+     * @return tile size
+     */
+    public double getTileSize() { return tileSize; }
+    /**
+     * Returns the number of tile columns of the layer.
+     *
+     * @return columns
+     */
+    public int getTileCols() { return tileCols; }
+    /**
+     * Returns the number of tile rows of the layer.
+     *
+     * @return rows
+     */
+    public int getTileRows() { return tileRows; }
+    /**
+     * Returns the width and height of a chunk.
+     *
+     * @return chunk size in tiles
+     */
+    public int getChunkSize() { return chunkSize; }
+    /**
+     * Returns the number of chunks to draw.
+     *
+     * @return chunk count
+     */
+    public int getChunkCount() { return chunkCount; }
+    /**
+     * Returns the index of a chunk to draw.
+     *
+     * @param i - from 0 to getChunkCount() - 1
+     * @return chunk index in the TileLayer
+     */
+    public int getChunk(int i) { return chunks[i]; }
+    /**
+     * Returns the copy of the sprite ids of a chunk to draw. The same array
+     * is handed over for as long as the chunk doesn't change.
+     *
+     * @param i - from 0 to getChunkCount() - 1
+     * @return sprite ids of the tiles, see ChunkCopies
+     */
+    public byte[] getChunkTiles(int i) { return chunkTiles[i]; }
+    /**
+     * Returns the number of the update the state is from.
+     *
+     * @return update number
+     */
+    public long getTick() { return tick; }
+    /**
+     * Returns the time when the stored state was current.
+     *
+     * @return System.nanoTime of the state
+     */
+    public long getTickTime() { return tickTime; }
+    /**
+     * Returns the length of an update.
+     *
+     * @return step time in nanoseconds
+     */
+    public long getStepTime() { return stepTime; }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        previousX = Arrays.copyOf(previousX, capacity);
+        previousY = Arrays.copyOf(previousY, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        spriteIds = Arrays.copyOf(spriteIds, capacity);
+        visible = Arrays.copyOf(visible, capacity);
+    }
+}
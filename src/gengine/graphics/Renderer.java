@@ -0,0 +1,115 @@
+package gengine.graphics;
+
+import java.util.List;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+
+/**
+ * This is the JavaFX side of drawing. It draws RenderSnapshots published by
+ * GameManager to a canvas, so the game itself never touches JavaFX and runs
+ * the same with or without a window. Everything is drawn from the sprites
+ * of a TextureAtlas, where the sprite id of an object is its sprite.
+ *
+ * The renderer is used by the JavaFX thread only.
+ *
+ * @version 0.3
+ */
+public class Renderer {
+    private TextureAtlas atlas;
+    private TileCache tileCache;
+    private int drawnCount;
+    private int culledCount;
+
+    /**
+     * The constructor taking the images used as parameter. The images are
+     * packed into a TextureAtlas, where the sprite id of each image is its
+     * index in the list.
+     *
+     * @param images - list of Image objects used
+     */
+    public Renderer(List<Image> images) {
+        this(TextureAtlas.pack(images));
+    }
+
+    /**
+     * The constructor taking the atlas everything is drawn from as parameter.
+     *
+     * @param atlas - the packed TextureAtlas
+     */
+    public Renderer(TextureAtlas atlas) {
+        setAtlas(atlas);
+    }
+
+    /**
+     * Method sets the atlas everything is drawn from. Sprite ids of the
+     * objects refer to the sprites of the atlas.
+     *
+     * @param a - the packed TextureAtlas
+     */
+    public void setAtlas(TextureAtlas a) {
+        atlas = a;
+        tileCache = new TileCache(a);
+    }
+
+    /**
+     * Returns the atlas everything is drawn from.
+     *
+     * @return the TextureAtlas
+     */
+    public TextureAtlas getAtlas() { return atlas; }
+
+    /**
+     * Returns the cache of pre-drawn wall chunks.
+     *
+     * @return TileCache used when drawing
+     */
+    public TileCache getTileCache() { return tileCache; }
+
+    /**
+     * Returns the number of objects drawn in the latest frame.
+     *
+     * @return drawn object count
+     */
+    public int getDrawnCount() { return drawnCount; }
+
+    /**
+     * Returns the number of objects left out of the latest frame as not in view.
+     *
+     * @return culled object count
+     */
+    public int getCulledCount() { return culledCount; }
+
+    /**
+     * Root drawing method for game objects. The view of the camera stored
+     * in the snapshot is drawn, zoomed, and everything is drawn from
+     * regions of the TextureAtlas. Walls are drawn first from the
+     * images cached by TileCache, one call per chunk. Objects are drawn
+     * between their previous and current position according to the
+     * interpolation alpha. Only the snapshot is read, walls included, so
+     * drawing never waits for the game loop.
+     *
+     * @param gc - object used for drawing to canvas.
+     * @param snapshot - game state to draw
+     * @param alpha - interpolation alpha from RenderSnapshot.getInterpolation
+     */
+    public void draw(GraphicsContext gc, RenderSnapshot snapshot, double alpha) {
+        double zoom = snapshot.getZoom();
+        gc.save();
+        gc.scale(zoom, zoom);
+        // Whole screen pixels keep the cached wall images sharp
+        gc.translate(-Math.round(snapshot.getViewX(alpha) * zoom) / zoom, -Math.round(snapshot.getViewY(alpha) * zoom) / zoom);
+        tileCache.draw(gc, snapshot);
+        int drawn = 0;
+        long time = snapshot.getTick() * snapshot.getStepTime(); // Animations follow game time
+        for(int i = 0; i < snapshot.size(); i++) {
+            int id = snapshot.getSpriteId(i);
+            if(snapshot.isVisible(i) && atlas.hasSprite(id)) {
+                atlas.draw(gc, id, time, snapshot.getX(i, alpha), snapshot.getY(i, alpha));
+                drawn++;
+            }
+        }
+        gc.restore();
+        drawnCount = drawn;
+        culledCount = snapshot.getCulled();
+    }
+}
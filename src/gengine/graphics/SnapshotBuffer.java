@@ -0,0 +1,69 @@
+package gengine.graphics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is a lock free triple buffer of RenderSnapshot objects between the
+ * game loop and the JavaFX thread. The game loop writes into its own
+ * snapshot and publishes it, the drawing side picks up the latest published
+ * one. The third snapshot sits in between, so neither side ever waits for
+ * the other and neither sees a snapshot the other one is using.
+ *
+ * The snapshot in between is handed over through a single atomic value
+ * holding its index and a flag telling whether it is newer than the one
+ * being drawn.
+ *
+ * Only one thread may call getWriteBuffer and publish, and only one thread
+ * may call acquire.
+ *
+ * @version 0.3
+ */
+public class SnapshotBuffer {
+    private static final int INDEX = 3;
+    private static final int FRESH = 4;
+
+    private final RenderSnapshot[] snapshots;
+    private final AtomicInteger middle;
+    private int writeIndex;
+    private int readIndex;
+
+    /**
+     * The default constructor. Creates the three snapshots.
+     */
+    public SnapshotBuffer() {
+        snapshots = new RenderSnapshot[] { new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot() };
+        writeIndex = 0;
+        middle = new AtomicInteger(1);
+        readIndex = 2;
+    }
+
+    /**
+     * Returns the snapshot the game loop should fill next.
+     *
+     * @return snapshot owned by the writing thread
+     */
+    public RenderSnapshot getWriteBuffer() {
+        return snapshots[writeIndex];
+    }
+
+    /**
+     * Method hands the filled write buffer over to the drawing side and
+     * takes the snapshot in between as the next write buffer.
+     */
+    public void publish() {
+        writeIndex = middle.getAndSet(writeIndex | FRESH) & INDEX;
+    }
+
+    /**
+     * Returns the latest published snapshot. If nothing new has been
+     * published since the last call, the same snapshot is returned again.
+     *
+     * @return snapshot owned by the reading thread
+     */
+    public RenderSnapshot acquire() {
+        if((middle.get() & FRESH) != 0) {
+            readIndex = middle.getAndSet(readIndex) & INDEX;
+        }
+        return snapshots[readIndex];
+    }
+}
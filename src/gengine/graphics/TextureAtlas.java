@@ -0,0 +1,280 @@
+package gengine.graphics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+/**
+ * This is a texture atlas, a single image holding all the sprite images of
+ * the game. Every source image, or every frame of a sprite sheet, becomes a
+ * region of the atlas, and everything is drawn from the one image with the
+ * region version of drawImage. The sprites of the game are kept in the
+ * atlas too, so a sprite id is all that is needed for drawing.
+ *
+ * Images are added with addImage and addSheet and packed into the atlas
+ * with pack. Regions are packed in rows, tallest first, with a pixel of
+ * space between them.
+ *
+ * @version 0.3
+ */
+public class TextureAtlas {
+    private static final int PADDING = 1;
+
+    private final List<Image> sources;
+    private final List<AtlasSprite> sprites;
+    private int[] sourceX; // Position of the region in its source image
+    private int[] sourceY;
+    private int[] sourceIndex;
+    private int[] x;       // Position of the region in the atlas
+    private int[] y;
+    private int[] width;
+    private int[] height;
+    private int regions;
+    private WritableImage image;
+
+    /**
+     * The default constructor. Creates an empty atlas.
+     */
+    public TextureAtlas() {
+        sources = new ArrayList<>();
+        sprites = new ArrayList<>();
+        sourceX = new int[16];
+        sourceY = new int[16];
+        sourceIndex = new int[16];
+        x = new int[16];
+        y = new int[16];
+        width = new int[16];
+        height = new int[16];
+    }
+
+    /**
+     * Method builds an atlas with one still sprite per image. The sprite
+     * id of every image is its index in the list.
+     *
+     * @param images - the images
+     * @return the packed atlas
+     */
+    public static TextureAtlas pack(List<Image> images) {
+        TextureAtlas atlas = new TextureAtlas();
+        for(Image i : images) {
+            atlas.addSprite(new AtlasSprite(atlas.addImage(i)));
+        }
+        atlas.pack();
+        return atlas;
+    }
+
+    /**
+     * Method adds a whole image as a region.
+     *
+     * @param source - the image
+     * @return index of the region
+     */
+    public int addImage(Image source) {
+        return addRegion(source, 0, 0, (int) source.getWidth(), (int) source.getHeight());
+    }
+
+    /**
+     * Method adds the frames of a sprite sheet as regions. Frames are read
+     * row by row from the top left corner.
+     *
+     * @param sheet - the sprite sheet
+     * @param frameWidth - width of a frame
+     * @param frameHeight - height of a frame
+     * @return indexes of the regions, in order
+     */
+    public int[] addSheet(Image sheet, int frameWidth, int frameHeight) {
+        int cols = (int) sheet.getWidth() / frameWidth;
+        int rows = (int) sheet.getHeight() / frameHeight;
+        int[] frames = new int[cols * rows];
+        for(int r = 0; r < rows; r++) {
+            for(int c = 0; c < cols; c++) {
+                frames[r * cols + c] = addRegion(sheet, c * frameWidth, r * frameHeight, frameWidth, frameHeight);
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Method adds a sprite drawn from the regions of this atlas.
+     *
+     * @param sprite - the sprite
+     * @return sprite id
+     */
+    public int addSprite(AtlasSprite sprite) {
+        sprites.add(sprite);
+        return sprites.size() - 1;
+    }
+
+    /**
+     * Method packs all the regions into the atlas image. Regions added
+     * later are only in the atlas after packing again.
+     */
+    public void pack() {
+        Integer[] order = new Integer[regions];
+        for(int i = 0; i < regions; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> height[b] - height[a]);
+
+        // Rows about as wide as the atlas is high
+        long area = 0;
+        int widest = 1;
+        for(int i = 0; i < regions; i++) {
+            area += (long) (width[i] + PADDING) * (height[i] + PADDING);
+            widest = Math.max(widest, width[i] + PADDING);
+        }
+        int maxWidth = Math.max(widest, (int) Math.ceil(Math.sqrt(area)));
+
+        int rowX = 0;
+        int rowY = 0;
+        int rowHeight = 0;
+        int atlasWidth = 1;
+        for(int i : order) {
+            if(rowX + width[i] > maxWidth) {
+                rowY += rowHeight + PADDING;
+                rowX = 0;
+                rowHeight = 0;
+            }
+            x[i] = rowX;
+            y[i] = rowY;
+            rowX += width[i] + PADDING;
+            rowHeight = Math.max(rowHeight, height[i]);
+            atlasWidth = Math.max(atlasWidth, x[i] + width[i]);
+        }
+        int atlasHeight = Math.max(rowY + rowHeight, 1);
+
+        image = new WritableImage(atlasWidth, atlasHeight);
+        PixelWriter writer = image.getPixelWriter();
+        for(int i = 0; i < regions; i++) {
+            PixelReader reader = sources.get(sourceIndex[i]).getPixelReader();
+            if(reader != null && width[i] > 0 && height[i] > 0) {
+                writer.setPixels(x[i], y[i], width[i], height[i], reader, sourceX[i], sourceY[i]);
+            }
+        }
+    }
+
+    /**
+     * Method draws a sprite.
+     *
+     * @param gc - object used for drawing to canvas
+     * @param spriteId - id of the sprite
+     * @param time - time used for picking the animation frame, in nanoseconds
+     * @param dx - x coordinate to draw to
+     * @param dy - y coordinate to draw to
+     */
+    public void draw(GraphicsContext gc, int spriteId, long time, double dx, double dy) {
+        int r = sprites.get(spriteId).getRegion(time);
+        gc.drawImage(image, x[r], y[r], width[r], height[r], dx, dy, width[r], height[r]);
+    }
+
+    /**
+     * Method copies the pixels of a sprite to an image, as drawn at time 0.
+     *
+     * @param writer - writer of the image
+     * @param spriteId - id of the sprite
+     * @param dx - x coordinate to copy to
+     * @param dy - y coordinate to copy to
+     * @param maxWidth - widest area copied
+     * @param maxHeight - highest area copied
+     */
+    public void copy(PixelWriter writer, int spriteId, int dx, int dy, int maxWidth, int maxHeight) {
+        int r = sprites.get(spriteId).getRegion(0);
+        PixelReader reader = image.getPixelReader();
+        if(reader != null) {
+            writer.setPixels(dx, dy, Math.min(width[r], maxWidth), Math.min(height[r], maxHeight), reader, x[r], y[r]);
+        }
+    }
+
+    /**
+     * Returns whether there is a sprite with given id.
+     *
+     * @param spriteId - id of the sprite
+     * @return true if the sprite exists
+     */
+    public boolean hasSprite(int spriteId) {
+        return spriteId >= 0 && spriteId < sprites.size();
+    }
+
+    /**
+     * Returns the sprite with given id.
+     *
+     * @param spriteId - id of the sprite
+     * @return the sprite
+     */
+    public AtlasSprite getSprite(int spriteId) { return sprites.get(spriteId); }
+    /**
+     * Returns the packed atlas image.
+     *
+     * @return atlas image, null before packing
+     */
+    public Image getImage() { return image; }
+    /**
+     * Returns the number of regions.
+     *
+     * @return region count
+     */
+    public int getRegionCount() { return regions; }
+    /**
+     * Returns the number of sprites.
+     *
+     * @return sprite count
+     */
+    public int getSpriteCount() { return sprites.size(); }
+    /**
+     * Returns x coordinate of a region in the atlas.
+     *
+     * @param region - index of the region
+     * @return x coordinate
+     */
+    public int getRegionX(int region) { return x[region]; }
+    /**
+     * Returns y coordinate of a region in the atlas.
+     *
+     * @param region - index of the region
+     * @return y coordinate
+     */
+    public int getRegionY(int region) { return y[region]; }
+    /**
+     * Returns the width of a region.
+     *
+     * @param region - index of the region
+     * @return width
+     */
+    public int getRegionWidth(int region) { return width[region]; }
+    /**
+     * Returns the height of a region.
+     *
+     * @param region - index of the region
+     * @return height
+     */
+    public int getRegionHeight(int region) { return height[region]; }
+
+    private int addRegion(Image source, int sx, int sy, int w, int h) {
+        int s = sources.indexOf(source);
+        if(s < 0) {
+            sources.add(source);
+            s = sources.size() - 1;
+        }
+        if(regions == x.length) {
+            int capacity = regions * 2;
+            sourceX = Arrays.copyOf(sourceX, capacity);
+            sourceY = Arrays.copyOf(sourceY, capacity);
+            sourceIndex = Arrays.copyOf(sourceIndex, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            width = Arrays.copyOf(width, capacity);
+            height = Arrays.copyOf(height, capacity);
+        }
+        sourceX[regions] = sx;
+        sourceY[regions] = sy;
+        sourceIndex[regions] = s;
+        width[regions] = Math.max(w, 0);
+        height[regions] = Math.max(h, 0);
+        return regions++;
+    }
+}
@@ -0,0 +1,166 @@
+package gengine.graphics;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+/**
+ * This is the cache of pre-drawn chunks of the tile layer. Walls never move,
+ * so instead of drawing every wall every frame each chunk is drawn once
+ * into an image from the TextureAtlas, and the image is drawn with a single call per chunk. The
+ * images are drawn from the copies of the chunks in the RenderSnapshot, never
+ * from the tile layer, which belongs to the game loop. The image of a chunk
+ * is drawn again only when the snapshot has a new copy of the chunk. Images
+ * of chunks that are no longer drawn are let go.
+ *
+ * The cache is used by the JavaFX thread only.
+ *
+ * @version 0.3
+ */
+public class TileCache {
+    private final TextureAtlas atlas;
+    private WritableImage[] cache;
+    private byte[][] sources;     // Copies the cached images were drawn from
+
+    // Geometry of the tile layer cached
+    private double originX;
+    private double originY;
+    private double tileSize;
+    private int cols;
+    private int rows;
+    private int chunkSize;
+    private int chunkCols;
+    private long[] drawnFrame;
+    private int[] cached;         // Indexes of cached chunks, in no particular order
+    private int[] cachedPosition;
+    private int cachedCount;
+    private long frame;
+    private int builds;
+
+    /**
+     * The constructor taking the atlas the walls are drawn from as parameter.
+     *
+     * @param atlas - atlas holding the sprites of the walls
+     */
+    public TileCache(TextureAtlas atlas) {
+        this.atlas = atlas;
+    }
+
+    /**
+     * Method draws the chunks listed in the snapshot, building the images
+     * of new and changed chunks first.
+     *
+     * @param gc - object used for drawing to canvas
+     * @param snapshot - game state to draw
+     */
+    public void draw(GraphicsContext gc, RenderSnapshot snapshot) {
+        if(!snapshot.hasTiles()) {
+            return;
+        }
+        if(snapshot.getTileOriginX() != originX || snapshot.getTileOriginY() != originY
+                || snapshot.getTileSize() != tileSize || snapshot.getTileCols() != cols
+                || snapshot.getTileRows() != rows || snapshot.getChunkSize() != chunkSize) {
+            reset(snapshot);
+        }
+        frame++;
+        double chunkWidth = chunkSize * tileSize;
+        for(int i = 0; i < snapshot.getChunkCount(); i++) {
+            int chunk = snapshot.getChunk(i);
+            WritableImage image = get(chunk, snapshot.getChunkTiles(i));
+            if(image != null) {
+                drawnFrame[chunk] = frame;
+                gc.drawImage(image,
+                    originX + (chunk % chunkCols) * chunkWidth,
+                    originY + (chunk / chunkCols) * chunkWidth);
+            }
+        }
+        for(int i = cachedCount - 1; i >= 0; i--) {
+            if(drawnFrame[cached[i]] != frame) {
+                release(cached[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of chunk images built so far.
+     *
+     * @return build count
+     */
+    public int getBuilds() { return builds; }
+
+    /**
+     * Returns the number of chunk images in the cache.
+     *
+     * @return cached image count
+     */
+    public int getCachedCount() { return cachedCount; }
+
+    private WritableImage get(int chunk, byte[] tiles) {
+        if(tiles == null) {
+            release(chunk);
+            return null;
+        }
+        if(cache[chunk] != null && sources[chunk] == tiles) {
+            return cache[chunk];
+        }
+        WritableImage image = build(chunk, tiles);
+        if(cache[chunk] == null) {
+            cachedPosition[chunk] = cachedCount;
+            cached[cachedCount++] = chunk;
+        }
+        cache[chunk] = image;
+        sources[chunk] = tiles;
+        return image;
+    }
+
+    private WritableImage build(int chunk, byte[] tiles) {
+        int tile = (int) tileSize;
+        int firstCol = (chunk % chunkCols) * chunkSize;
+        int firstRow = (chunk / chunkCols) * chunkSize;
+        int width = Math.min(chunkSize, cols - firstCol);
+        int height = Math.min(chunkSize, rows - firstRow);
+        WritableImage image = new WritableImage(width * tile, height * tile);
+        PixelWriter writer = image.getPixelWriter();
+        for(int i = 0; i < tiles.length; i++) {
+            int sprite = ChunkCopies.spriteOf(tiles[i]);
+            int col = i % chunkSize;
+            int row = i / chunkSize;
+            if(sprite < 0 || col >= width || row >= height) {
+                continue;
+            }
+            if(atlas.hasSprite(sprite)) {
+                atlas.copy(writer, sprite, col * tile, row * tile, tile, tile);
+            }
+        }
+        builds++;
+        return image;
+    }
+
+    private void release(int chunk) {
+        if(cache[chunk] == null) {
+            return;
+        }
+        int last = cached[--cachedCount];
+        cached[cachedPosition[chunk]] = last;
+        cachedPosition[last] = cachedPosition[chunk];
+        cache[chunk] = null;
+        sources[chunk] = null;
+    }
+
+    private void reset(RenderSnapshot snapshot) {
+        originX = snapshot.getTileOriginX();
+        originY = snapshot.getTileOriginY();
+        tileSize = snapshot.getTileSize();
+        cols = snapshot.getTileCols();
+        rows = snapshot.getTileRows();
+        chunkSize = snapshot.getChunkSize();
+        chunkCols = (cols + chunkSize - 1) / chunkSize;
+        int chunks = chunkCols * ((rows + chunkSize - 1) / chunkSize);
+        cache = new WritableImage[chunks];
+        sources = new byte[chunks][];
+        drawnFrame = new long[chunks];
+        cached = new int[chunks];
+        cachedPosition = new int[chunks];
+        cachedCount = 0;
+    }
+}
@@ -0,0 +1,233 @@
+package gengine.log;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This writes log messages in a background thread, so the threads logging
+ * never wait for the console or a file. Messages are put into a ring of
+ * entries which any number of threads can append to at the same time
+ * without locking. Every slot has a sequence number telling whether it is
+ * free for the appending thread or filled for the writer, in the manner of
+ * a bounded multi-producer queue.
+ *
+ * When the ring is full, because the writer can't keep up, messages are
+ * dropped instead of waiting. The number of dropped messages is written
+ * once the writer has caught up.
+ *
+ * Lines look like:
+ *      12:00:01.250 INFO  [game] game-loop: Starting game loop..
+ *
+ * @version 0.3
+ */
+public class AsyncAppender {
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final long IDLE_WAIT = 1000000L; // Writer sleeps this long when there is nothing to write
+
+    private final Entry[] entries;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();  // Next slot to append to
+    private final AtomicLong dropped = new AtomicLong();
+    private final PrintStream out;
+    private final Thread writer;
+    private volatile long written;                     // Next slot to write, writer thread only changes it
+    private volatile boolean running;
+
+    // Writer thread only
+    private final StringBuilder line = new StringBuilder(256);
+    private long droppedReported;
+
+    /**
+     * The constructor taking where to write and the size of the ring. The
+     * size is rounded up to a power of two. The writer thread is started
+     * right away as a daemon thread.
+     *
+     * @param out - stream the lines are written to
+     * @param capacity - number of messages waiting at most
+     */
+    public AsyncAppender(PrintStream out, int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        entries = new Entry[size];
+        sequences = new AtomicLongArray(size);
+        for(int i = 0; i < size; i++) {
+            entries[i] = new Entry();
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+        this.out = out;
+        running = true;
+        writer = new Thread(this::write, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Method hands a message to the writer. Called from any thread, never
+     * waits.
+     *
+     * @param level - level of the message
+     * @param category - category of the logger
+     * @param message - the message
+     * @param error - exception written after the message, may be null
+     * @return true if the message was added, false if it was dropped
+     */
+    public boolean append(LogLevel level, String category, String message, Throwable error) {
+        long time = System.currentTimeMillis();
+        long position = tail.get();
+        int i;
+        while(true) {
+            i = (int) position & mask;
+            long free = sequences.get(i) - position;
+            if(free == 0) {
+                if(tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            }
+            else if(free < 0) {
+                // The writer has not written this slot yet
+                dropped.incrementAndGet();
+                return false;
+            }
+            else {
+                position = tail.get();
+            }
+        }
+        Entry e = entries[i];
+        e.time = time;
+        e.level = level;
+        e.category = category;
+        e.thread = Thread.currentThread().getName();
+        e.message = message;
+        e.error = error;
+        sequences.lazySet(i, position + 1);
+        return true;
+    }
+
+    /**
+     * Method waits until the messages appended before the call have been
+     * written, or for at most a second.
+     */
+    public void flush() {
+        long target = tail.get();
+        long deadline = System.nanoTime() + 1000000000L;
+        while(written < target && writer.isAlive() && System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(IDLE_WAIT);
+        }
+        out.flush();
+    }
+
+    /**
+     * Method writes the messages still waiting and stops the writer thread.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(1000);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of messages dropped because the ring was full.
+     *
+     * @return dropped message count
+     */
+    public long getDropped() { return dropped.get(); }
+
+    /**
+     * The loop of the writer thread. Writes everything appended and sleeps
+     * a moment when there is nothing to write.
+     */
+    private void write() {
+        while(true) {
+            boolean stopping = !running;
+            int count = drain();
+            if(count > 0) {
+                out.flush();
+            }
+            else if(stopping) {
+                return;
+            }
+            else {
+                LockSupport.parkNanos(this, IDLE_WAIT);
+            }
+        }
+    }
+
+    /**
+     * Method writes the filled slots in order.
+     *
+     * @return number of messages written
+     */
+    private int drain() {
+        int count = 0;
+        long position = written;
+        while(true) {
+            int i = (int) position & mask;
+            if(sequences.get(i) != position + 1) {
+                break;
+            }
+            Entry e = entries[i];
+            format(e);
+            if(e.error != null) {
+                e.error.printStackTrace(out);
+            }
+            e.clear();
+            sequences.lazySet(i, position + entries.length);
+            position++;
+            written = position;
+            count++;
+        }
+        long d = dropped.get();
+        if(d != droppedReported && count == 0) {
+            out.println(TIME.format(Instant.now()) + " WARN  [log] " + (d - droppedReported) + " messages dropped");
+            droppedReported = d;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Method writes one line.
+     */
+    private void format(Entry e) {
+        line.setLength(0);
+        TIME.formatTo(Instant.ofEpochMilli(e.time), line);
+        line.append(' ').append(e.level);
+        for(int k = e.level.name().length(); k < 5; k++) {
+            line.append(' ');
+        }
+        line.append(" [").append(e.category).append("] ").append(e.thread).append(": ").append(e.message);
+        out.println(line);
+    }
+
+    /**
+     * A slot of the ring.
+     */
+    private static class Entry {
+        long time;
+        LogLevel level;
+        String category;
+        String thread;
+        String message;
+        Throwable error;
+
+        void clear() {
+            category = null;
+            thread = null;
+            message = null;
+            error = null;
+        }
+    }
+}
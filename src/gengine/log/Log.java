@@ -0,0 +1,104 @@
+package gengine.log;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This is where the loggers of the game are got and configured. There is
+ * one Logger per category, and all of them write through one
+ * AsyncAppender to the standard output.
+ *
+ * Levels are INFO by default and are set with system properties, for all
+ * categories or one at a time:
+ *      -Dgengine.log=WARN
+ *      -Dgengine.log.objects=DEBUG
+ * or with setLevel while the game is running.
+ *
+ * The categories used by the game are:
+ *      game    - GameManager, Game and HeadlessRunner
+ *      input   - Controls
+ *      objects - game objects
+ *      replay  - recording and playing back input
+ *      profile - TickProfiler
+ *
+ * @version 0.3
+ */
+public class Log {
+    public static final String PROPERTY = "gengine.log";
+
+    private static final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    private static final AsyncAppender appender = new AsyncAppender(System.out, 8192);
+    private static volatile LogLevel rootLevel = parse(System.getProperty(PROPERTY), LogLevel.INFO);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(appender::close, "log-shutdown"));
+    }
+
+    private Log() {
+    }
+
+    /**
+     * Returns the logger of a category. Calls with the same category return
+     * the same logger, so loggers are best kept in static fields.
+     *
+     * @param category - name of the subsystem
+     * @return the Logger
+     */
+    public static Logger getLogger(String category) {
+        return loggers.computeIfAbsent(category,
+            c -> new Logger(c, appender, parse(System.getProperty(PROPERTY + "." + c), rootLevel)));
+    }
+
+    /**
+     * Method sets the level of every category.
+     *
+     * @param level - the LogLevel
+     */
+    public static void setLevel(LogLevel level) {
+        rootLevel = level;
+        for(Logger l : loggers.values()) {
+            l.setLevel(level);
+        }
+    }
+
+    /**
+     * Method sets the level of one category.
+     *
+     * @param category - name of the subsystem
+     * @param level - the LogLevel
+     */
+    public static void setLevel(String category, LogLevel level) {
+        getLogger(category).setLevel(level);
+    }
+
+    /**
+     * Method waits until the messages logged so far have been written.
+     * Useful before writing to the standard output directly.
+     */
+    public static void flush() {
+        appender.flush();
+    }
+
+    /**
+     * Returns the appender all the loggers write through.
+     *
+     * @return the AsyncAppender
+     */
+    public static AsyncAppender getAppender() { return appender; }
+
+    /**
+     * Returns the level named by a string, or the default if there is none.
+     */
+    private static LogLevel parse(String name, LogLevel defaultLevel) {
+        if(name == null) {
+            return defaultLevel;
+        }
+        try {
+            return LogLevel.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+        catch(IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package gengine.log;
+
+/**
+ * The levels of log messages, from the most detailed to the most severe.
+ * A logger set to a level writes the messages of that level and the
+ * levels after it. OFF writes nothing.
+ *
+ * @version 0.3
+ */
+public enum LogLevel {
+    TRACE,
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF
+}
@@ -0,0 +1,112 @@
+package gengine.log;
+
+import java.util.function.Supplier;
+
+/**
+ * This is the logger of one subsystem of the game, like "objects" or
+ * "input". Loggers are got from Log, which also sets their levels.
+ *
+ * Checking the level is a single comparison, so a message of a level which
+ * is not written costs next to nothing. Messages which have to be put
+ * together are given as a Supplier, and only built when they are written:
+ *
+ *      LOG.debug(() -> this + " was picked up!");
+ *
+ * Written messages are handed to the AsyncAppender of Log, which never
+ * makes the calling thread wait.
+ *
+ * @version 0.3
+ */
+public class Logger {
+    private final String category;
+    private final AsyncAppender appender;
+    private volatile int threshold;
+
+    /**
+     * The constructor taking the category, the appender and the level.
+     */
+    Logger(String category, AsyncAppender appender, LogLevel level) {
+        this.category = category;
+        this.appender = appender;
+        setLevel(level);
+    }
+
+    /**
+     * Returns the category of the logger.
+     *
+     * @return name of the subsystem
+     */
+    public String getCategory() { return category; }
+
+    /**
+     * Method sets the lowest level written.
+     *
+     * @param level - the LogLevel
+     */
+    public void setLevel(LogLevel level) {
+        threshold = level.ordinal();
+    }
+
+    /**
+     * Returns the lowest level written.
+     *
+     * @return the LogLevel
+     */
+    public LogLevel getLevel() { return LogLevel.values()[threshold]; }
+
+    /**
+     * Method checks whether messages of a level are written.
+     *
+     * @param level - the LogLevel
+     * @return true if written
+     */
+    public boolean isEnabled(LogLevel level) {
+        return level.ordinal() >= threshold;
+    }
+
+    /**
+     * Method checks whether DEBUG messages are written.
+     *
+     * @return true if written
+     */
+    public boolean isDebugEnabled() {
+        return LogLevel.DEBUG.ordinal() >= threshold;
+    }
+
+    /**
+     * Method writes a message if its level is enabled.
+     *
+     * @param level - the LogLevel of the message
+     * @param message - the message
+     * @param error - exception written after the message, may be null
+     */
+    public void log(LogLevel level, String message, Throwable error) {
+        if(level.ordinal() >= threshold) {
+            appender.append(level, category, message, error);
+        }
+    }
+
+    /**
+     * Method builds and writes a message if its level is enabled.
+     *
+     * @param level - the LogLevel of the message
+     * @param message - builds the message
+     */
+    public void log(LogLevel level, Supplier<String> message) {
+        if(level.ordinal() >= threshold) {
+            appender.append(level, category, message.get(), null);
+        }
+    }
+
+    public void trace(String message) { log(LogLevel.TRACE, message, null); }
+    public void trace(Supplier<String> message) { log(LogLevel.TRACE, message); }
+    public void debug(String message) { log(LogLevel.DEBUG, message, null); }
+    public void debug(Supplier<String> message) { log(LogLevel.DEBUG, message); }
+    public void info(String message) { log(LogLevel.INFO, message, null); }
+    public void info(Supplier<String> message) { log(LogLevel.INFO, message); }
+    public void warn(String message) { log(LogLevel.WARN, message, null); }
+    public void warn(Supplier<String> message) { log(LogLevel.WARN, message); }
+    public void warn(String message, Throwable error) { log(LogLevel.WARN, message, error); }
+    public void error(String message) { log(LogLevel.ERROR, message, null); }
+    public void error(String message, Throwable error) { log(LogLevel.ERROR, message, error); }
+}
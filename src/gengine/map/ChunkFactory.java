@@ -0,0 +1,40 @@
+package gengine.map;
+
+import gengine.gameobject.GameObject;
+
+/**
+ * This is the interface ChunkStreamer uses to create the objects of a map.
+ *
+ * @version 0.3
+ */
+public interface ChunkFactory {
+    /**
+     * Creates a wall. Called from the background thread loading chunks, so
+     * the object must not be shared with anything else yet.
+     *
+     * @param x - x coordinate of the wall
+     * @param y - y coordinate of the wall
+     * @param size - width and height of the wall
+     * @return the wall object
+     */
+    GameObject createBlock(double x, double y, double size);
+
+    /**
+     * Places an object from the spawn table of the map. Called from the game
+     * loop thread the first time the chunk of the spawn is loaded.
+     *
+     * @param type - spawn type, one of the MapFile spawn types
+     * @param x - x coordinate of the spawn
+     * @param y - y coordinate of the spawn
+     */
+    void spawn(byte type, double x, double y);
+
+    /**
+     * Puts an object back on the map when its chunk is loaded again after
+     * the object was parked with ChunkStreamer.park. Called from the game
+     * loop thread.
+     *
+     * @param o - the parked object
+     */
+    void restore(GameObject o);
+}
@@ -0,0 +1,548 @@
+package gengine.map;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import gengine.gameobject.GameObject;
+import gengine.gameobject.TileLayer;
+import gengine.log.Log;
+import gengine.log.Logger;
+
+/**
+ * This is the streamer keeping the walls of a big map loaded around the
+ * player. The map is split into the chunks of its MapFile. Chunks within
+ * the stream radius of the player are loaded on a background thread before
+ * the player gets to them, and when the loaded chunks take more memory than
+ * the budget, the least recently used chunks away from the player are
+ * unloaded. Memory and the work done per update stay the same no matter
+ * how big the map is.
+ *
+ * Objects in the spawn table are placed the first time their chunk is
+ * loaded. Objects left on a chunk that is unloaded are parked with the
+ * chunk until it is loaded again, so only the objects of loaded chunks are
+ * on the map and updated.
+ *
+ * Chunks are installed on the first update after the background thread
+ * has loaded them, so which update that is depends on how fast the thread
+ * was. In deterministic mode, used while recording and replaying, every
+ * chunk is installed a fixed number of updates after it was asked for,
+ * and the game loop waits for the chunk if it isn't loaded by then. The
+ * same input then always plays out the same way.
+ *
+ * A chunk that fails to load, for example because its data is corrupted,
+ * is logged and left unloaded. It is tried again the next time the player
+ * comes near it.
+ *
+ * Everything except the loading itself happens in the game loop thread.
+ *
+ * @version 0.3
+ */
+public class ChunkStreamer {
+    private static final Logger LOG = Log.getLogger("map");
+
+    // Rough memory use of a loaded chunk, used against the budget
+    private static final long TILE_BYTES = 8;
+    private static final long BLOCK_BYTES = 160;
+
+    public static final int DEFAULT_INSTALL_DELAY = 2;
+
+    // How often a wait for a chunk checks whether the loader is still running
+    private static final long AWAIT_CHECK_MILLIS = 50;
+
+    private final MapFile file;
+    private final TileLayer tiles;
+    private final ChunkFactory factory;
+    private final int chunkSize;
+    private final ExecutorService loader;
+    private final LinkedBlockingQueue<Loaded> ready;
+
+    private final boolean[] pending;
+    private final boolean[] spawned;
+    private final long[] bytes;
+    private final long[] lastUsed;
+    private long useCounter;
+    private long residentBytes;
+
+    // Objects taken off the map with their chunk, waiting for it to be loaded again
+    private final GameObject[][] parked;
+    private final int[] parkedCount;
+    private int parkedTotal;
+
+    // Spawns of chunk i are spawnIndex[spawnStart[i]] to spawnIndex[spawnStart[i + 1] - 1]
+    private final int[] spawnStart;
+    private final int[] spawnIndex;
+
+    // Deterministic mode, chunks installed installDelay updates after they are asked for
+    private boolean deterministic;
+    private int installDelay;
+    private long updates;
+    private final long[] dueUpdate;
+    private final ArrayDeque<Integer> waiting;  // Chunks asked for, in the order asked
+    private final Loaded[] arrived;             // Chunks loaded before their update
+
+    private int radius;
+    private long memoryBudget;
+    private int centerCol;
+    private int centerRow;
+
+    private int loads;
+    private int evictions;
+    private int failures;
+
+    /**
+     * A chunk loaded by the background thread, waiting to be installed,
+     * or the error that kept it from loading.
+     */
+    private static class Loaded {
+        final int chunk;
+        final GameObject[] blocks;
+        final long bytes;
+        final RuntimeException error;
+
+        Loaded(int chunk, GameObject[] blocks, long bytes) {
+            this.chunk = chunk;
+            this.blocks = blocks;
+            this.bytes = bytes;
+            this.error = null;
+        }
+
+        Loaded(int chunk, RuntimeException error) {
+            this.chunk = chunk;
+            this.blocks = null;
+            this.bytes = 0;
+            this.error = error;
+        }
+    }
+
+    /**
+     * The constructor takes the map and the geometry of its tiles. No chunks
+     * are loaded until update or loadAround is called.
+     *
+     * @param file - the map file
+     * @param originX - x coordinate of the top left corner of the map
+     * @param originY - y coordinate of the top left corner of the map
+     * @param tileSize - width and height of a single tile
+     * @param factory - creates the objects of the map
+     */
+    public ChunkStreamer(MapFile file, double originX, double originY, double tileSize, ChunkFactory factory) {
+        this.file = file;
+        this.factory = factory;
+        chunkSize = file.getChunkSize();
+        tiles = new TileLayer(originX, originY, tileSize, file.getWidth(), file.getHeight(), chunkSize);
+        int chunks = tiles.getChunkCols() * tiles.getChunkRows();
+        pending = new boolean[chunks];
+        spawned = new boolean[chunks];
+        bytes = new long[chunks];
+        lastUsed = new long[chunks];
+        parked = new GameObject[chunks][];
+        parkedCount = new int[chunks];
+        ready = new LinkedBlockingQueue<>();
+        dueUpdate = new long[chunks];
+        waiting = new ArrayDeque<>();
+        arrived = new Loaded[chunks];
+        installDelay = DEFAULT_INSTALL_DELAY;
+        loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "chunk-loader");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // Group the spawn table by chunk
+        spawnStart = new int[chunks + 1];
+        spawnIndex = new int[file.getSpawnCount()];
+        for(int i = 0; i < spawnIndex.length; i++) {
+            spawnStart[spawnChunk(i) + 1]++;
+        }
+        for(int i = 0; i < chunks; i++) {
+            spawnStart[i + 1] += spawnStart[i];
+        }
+        int[] next = new int[chunks];
+        for(int i = 0; i < spawnIndex.length; i++) {
+            int chunk = spawnChunk(i);
+            spawnIndex[spawnStart[chunk] + next[chunk]++] = i;
+        }
+
+        setRadius(1);
+        setMemoryBudget(64L * 1024 * 1024);
+        centerCol = -1;
+        centerRow = -1;
+    }
+
+    /**
+     * Sets how many chunks around the chunk of the player are kept loaded.
+     *
+     * @param chunks - radius in chunks, at least 0
+     */
+    public void setRadius(int chunks) {
+        radius = Math.max(chunks, 0);
+        centerCol = -1;
+    }
+
+    /**
+     * Sets how much memory loaded chunks may take before the least recently
+     * used ones are unloaded. Chunks within the radius are never unloaded,
+     * even if they alone go over the budget.
+     *
+     * @param budget - memory budget in bytes
+     */
+    public void setMemoryBudget(long budget) {
+        memoryBudget = Math.max(budget, 0);
+    }
+
+    /**
+     * Sets whether chunks are installed a fixed number of updates after
+     * they are asked for, waiting for the background thread if needed,
+     * instead of as soon as they are loaded. Chunks already asked for are
+     * installed on the next update when turned on.
+     *
+     * @param on - true for deterministic installs
+     */
+    public void setDeterministic(boolean on) {
+        if(on == deterministic) {
+            return;
+        }
+        deterministic = on;
+        if(on) {
+            for(int chunk = 0; chunk < pending.length; chunk++) {
+                if(pending[chunk]) {
+                    dueUpdate[chunk] = updates + 1;
+                    waiting.add(chunk);
+                }
+            }
+        }
+        else {
+            waiting.clear();
+            for(int chunk = 0; chunk < arrived.length; chunk++) {
+                if(arrived[chunk] != null) {
+                    ready.add(arrived[chunk]);
+                    arrived[chunk] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether chunks are installed deterministically.
+     *
+     * @return true in deterministic mode
+     */
+    public boolean isDeterministic() { return deterministic; }
+
+    /**
+     * Sets how many updates after being asked for a chunk is installed in
+     * deterministic mode. A recording must be played back with the delay
+     * it was recorded with.
+     *
+     * @param delay - updates, at least 1
+     */
+    public void setInstallDelay(int delay) {
+        installDelay = Math.max(delay, 1);
+    }
+
+    /**
+     * Method installs chunks finished by the background thread, asks for
+     * chunks around the given position and unloads chunks over the budget.
+     * Called by the game loop at the start of every update.
+     *
+     * @param x - x coordinate of the player
+     * @param y - y coordinate of the player
+     */
+    public void update(double x, double y) {
+        updates++;
+        if(deterministic) {
+            while(!waiting.isEmpty() && dueUpdate[waiting.peekFirst()] <= updates) {
+                install(await(waiting.pollFirst()));
+            }
+        }
+        else {
+            Loaded l;
+            while((l = ready.poll()) != null) {
+                install(l);
+            }
+        }
+
+        int col = tiles.colOf(x) / chunkSize;
+        int row = tiles.rowOf(y) / chunkSize;
+        if(col != centerCol || row != centerRow) {
+            centerCol = col;
+            centerRow = row;
+            for(int r = Math.max(row - radius, 0); r <= Math.min(row + radius, tiles.getChunkRows() - 1); r++) {
+                for(int c = Math.max(col - radius, 0); c <= Math.min(col + radius, tiles.getChunkCols() - 1); c++) {
+                    request(r * tiles.getChunkCols() + c);
+                }
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Method loads the chunks around the given position right away in the
+     * calling thread. Used when a map is started, so the player never
+     * stands on an unloaded chunk.
+     *
+     * @param x - x coordinate of the player
+     * @param y - y coordinate of the player
+     */
+    public void loadAround(double x, double y) {
+        int col = tiles.colOf(x) / chunkSize;
+        int row = tiles.rowOf(y) / chunkSize;
+        for(int r = Math.max(row - radius, 0); r <= Math.min(row + radius, tiles.getChunkRows() - 1); r++) {
+            for(int c = Math.max(col - radius, 0); c <= Math.min(col + radius, tiles.getChunkCols() - 1); c++) {
+                int chunk = r * tiles.getChunkCols() + c;
+                if(!tiles.isLoaded(chunk) && !pending[chunk]) {
+                    install(load(chunk));
+                }
+            }
+        }
+        update(x, y);
+    }
+
+    /**
+     * Method keeps an object standing on an unloaded chunk until the chunk
+     * is loaded again, when it is given back through ChunkFactory.restore.
+     * The object must already be taken off the map. An object on a loaded
+     * chunk is given back right away.
+     *
+     * @param o - the object
+     */
+    public void park(GameObject o) {
+        int chunk = tiles.chunkOf(tiles.colOf(o.getX()), tiles.rowOf(o.getY()));
+        if(tiles.isLoaded(chunk)) {
+            factory.restore(o);
+            return;
+        }
+        GameObject[] waiting = parked[chunk];
+        int n = parkedCount[chunk];
+        if(waiting == null) {
+            waiting = new GameObject[4];
+            parked[chunk] = waiting;
+        }
+        else if(n == waiting.length) {
+            waiting = Arrays.copyOf(waiting, n * 2);
+            parked[chunk] = waiting;
+        }
+        waiting[n] = o;
+        parkedCount[chunk] = n + 1;
+        parkedTotal++;
+    }
+
+    /**
+     * Method finds the first spawn of given type in the map.
+     *
+     * @param type - spawn type
+     * @return index in the spawn table or -1 if there is none
+     */
+    public int findSpawn(byte type) {
+        for(int i = 0; i < file.getSpawnCount(); i++) {
+            if(file.getSpawnType(i) == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Method stops the background thread. Chunks being loaded are dropped.
+     */
+    public void shutdown() {
+        loader.shutdownNow();
+        ready.clear();
+        waiting.clear();
+        Arrays.fill(arrived, null);
+    }
+
+    /**
+     * Returns the tile layer the chunks are loaded to.
+     *
+     * @return TileLayer of the map
+     */
+    public TileLayer getTiles() { return tiles; }
+    /**
+     * Returns the map file streamed.
+     *
+     * @return the MapFile
+     */
+    public MapFile getFile() { return file; }
+    /**
+     * Returns the estimated memory used by loaded chunks.
+     *
+     * @return bytes
+     */
+    public long getResidentBytes() { return residentBytes; }
+    /**
+     * Returns the number of chunks loaded so far.
+     *
+     * @return load count
+     */
+    public int getLoads() { return loads; }
+    /**
+     * Returns the number of chunks unloaded so far.
+     *
+     * @return eviction count
+     */
+    public int getEvictions() { return evictions; }
+    /**
+     * Returns the number of chunks that failed to load so far.
+     *
+     * @return failure count
+     */
+    public int getFailures() { return failures; }
+    /**
+     * Returns the number of objects parked on unloaded chunks.
+     *
+     * @return parked object count
+     */
+    public int getParkedCount() { return parkedTotal; }
+
+    private void request(int chunk) {
+        lastUsed[chunk] = ++useCounter;
+        if(tiles.isLoaded(chunk) || pending[chunk]) {
+            return;
+        }
+        pending[chunk] = true;
+        try {
+            loader.execute(() -> ready.add(load(chunk)));
+        }
+        catch(RejectedExecutionException e) {
+            pending[chunk] = false;
+            return;
+        }
+        if(deterministic) {
+            dueUpdate[chunk] = updates + installDelay;
+            waiting.add(chunk);
+        }
+    }
+
+    /**
+     * Method waits until the background thread has loaded a chunk. Chunks
+     * loaded meanwhile are kept until their update. If the background
+     * thread has been stopped, or the wait is interrupted, the chunk is
+     * loaded in the calling thread instead.
+     */
+    private Loaded await(int chunk) {
+        try {
+            while(arrived[chunk] == null) {
+                Loaded l = ready.poll(AWAIT_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                if(l != null) {
+                    arrived[l.chunk] = l;
+                }
+                else if(loader.isShutdown()) {
+                    // A stopped loader drops the chunks it hasn't started
+                    return load(chunk);
+                }
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return load(chunk);
+        }
+        Loaded l = arrived[chunk];
+        arrived[chunk] = null;
+        return l;
+    }
+
+    /**
+     * Method loads a chunk, catching what goes wrong so that the failure
+     * reaches the game loop thread instead of ending in the loader thread.
+     */
+    private Loaded load(int chunk) {
+        try {
+            return build(chunk);
+        }
+        catch(RuntimeException e) {
+            return new Loaded(chunk, e);
+        }
+    }
+
+    private Loaded build(int chunk) {
+        byte[] tileData = file.readChunk(chunk, new byte[chunkSize * chunkSize]);
+        GameObject[] blocks = new GameObject[chunkSize * chunkSize];
+        int firstCol = (chunk % tiles.getChunkCols()) * chunkSize;
+        int firstRow = (chunk / tiles.getChunkCols()) * chunkSize;
+        double size = tiles.getTileSize();
+        long walls = 0;
+        for(int i = 0; i < tileData.length; i++) {
+            int col = firstCol + i % chunkSize;
+            int row = firstRow + i / chunkSize;
+            if(tileData[i] == MapFile.WALL && col < tiles.getCols() && row < tiles.getRows()) {
+                blocks[i] = factory.createBlock(tiles.getOriginX() + col * size, tiles.getOriginY() + row * size, size);
+                walls++;
+            }
+        }
+        return new Loaded(chunk, blocks, TILE_BYTES * blocks.length + BLOCK_BYTES * walls);
+    }
+
+    private void install(Loaded l) {
+        int chunk = l.chunk;
+        pending[chunk] = false;
+        if(l.error != null) {
+            failures++;
+            LOG.warn("Chunk " + chunk + " failed to load", l.error);
+            return;
+        }
+        if(tiles.isLoaded(chunk)) {
+            return;
+        }
+        tiles.setChunk(chunk, l.blocks);
+        bytes[chunk] = l.bytes;
+        residentBytes += l.bytes;
+        loads++;
+        if(!isNear(chunk)) {
+            lastUsed[chunk] = 0; // Player has moved away already, unload first
+        }
+        if(!spawned[chunk]) {
+            spawned[chunk] = true;
+            for(int k = spawnStart[chunk]; k < spawnStart[chunk + 1]; k++) {
+                int i = spawnIndex[k];
+                factory.spawn(file.getSpawnType(i),
+                    tiles.getOriginX() + file.getSpawnCol(i) * tiles.getTileSize(),
+                    tiles.getOriginY() + file.getSpawnRow(i) * tiles.getTileSize());
+            }
+        }
+        int n = parkedCount[chunk];
+        if(n > 0) {
+            GameObject[] waiting = parked[chunk];
+            parked[chunk] = null;
+            parkedCount[chunk] = 0;
+            parkedTotal -= n;
+            for(int k = 0; k < n; k++) {
+                factory.restore(waiting[k]);
+            }
+        }
+    }
+
+    private void evict() {
+        while(residentBytes > memoryBudget) {
+            int oldest = -1;
+            for(int i = 0; i < tiles.getLoadedCount(); i++) {
+                int chunk = tiles.getLoaded(i);
+                if(!isNear(chunk) && (oldest < 0 || lastUsed[chunk] < lastUsed[oldest])) {
+                    oldest = chunk;
+                }
+            }
+            if(oldest < 0) {
+                return;
+            }
+            tiles.clearChunk(oldest);
+            residentBytes -= bytes[oldest];
+            bytes[oldest] = 0;
+            evictions++;
+        }
+    }
+
+    private boolean isNear(int chunk) {
+        int col = chunk % tiles.getChunkCols();
+        int row = chunk / tiles.getChunkCols();
+        return Math.abs(col - centerCol) <= radius && Math.abs(row - centerRow) <= radius;
+    }
+
+    private int spawnChunk(int i) {
+        int col = Math.min(Math.max(file.getSpawnCol(i), 0), tiles.getCols() - 1);
+        int row = Math.min(Math.max(file.getSpawnRow(i), 0), tiles.getRows() - 1);
+        return tiles.chunkOf(col, row);
+    }
+}
@@ -0,0 +1,81 @@
+package gengine.map;
+
+import java.util.ArrayList;
+import java.util.List;
+import gengine.Map;
+
+/**
+ * This class holds the maps built into the game. They are used when no map
+ * files are given, both by the game and by the headless runner.
+ *
+ * @version 0.3
+ */
+public class DefaultMaps {
+    private static final char[][] MAP_1 = {
+        {'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x'},
+        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x', '-', '-', '-', 'x'},
+        {'x', '-', '-', 'e', '-', '-', '-', '-', '-', '-', 'o', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', 'x', '-', '-', '-', 'x', 'x', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', 'e', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', 'P', '-', '-', 'x', 'x', 'x', 'x', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', 's', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', 'x', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', 'x', '-', '-', '-', 'x', 'x', 'x', 'x', 'x', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', 'o', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x', 'x'},
+        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x'}
+        };
+
+    private static final char[][] MAP_2 = {
+        {'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x'},
+        {'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', 'x', '-', 'P', 'x'},
+        {'x', '-', '-', 'x', '-', '-', '-', '-', '-', 'e', '-', 'x', '-', '-', '-', '-', 'x', '-', '-', 'x'},
+        {'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', 'x', 'x', '-', 'x'},
+        {'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', 'x', 'x', '-', '-', 'x', 'x', '-', '-', '-', 'x', 'x', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', 'x', '-', '-', '-', '-', 'x'},
+        {'x', 'x', 'x', 'x', '-', 'x', 'x', '-', '-', '-', '-', '-', 'x', '-', 'x', 'x', 'x', 'x', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', 'x', '-', '-', 'x'},
+        {'x', '-', 'x', '-', 'x', '-', 'x', 'x', 'x', 'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', 'x', '-', 'x', '-', 'x', '-', '-', 'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', 'x', '-', 'x', '-', 'x', 's', '-', 'x', '-', '-', 'x', 'x', 'x', 'x', '-', 'x', 'x', 'x'},
+        {'x', '-', 'x', '-', 'x', 'x', 'x', '-', '-', 'x', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', 'x', '-', '-', '-', 'x', 'x', '-', 'x', '-', 'x', 'x', '-', '-', '-', '-', '-', '-', 'x'},
+        {'x', '-', 'x', '-', '-', '-', 'x', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', 'x', 'x', '-', 'x'},
+        {'x', '-', 'x', '-', 'x', 'x', 'x', '-', '-', 'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', 'x'},
+        {'x', '-', '-', '-', 'x', '-', '-', '-', '-', 'x', 'x', 'x', 'x', 'x', '-', 'x', '-', '-', '-', 'x'},
+        {'x', '-', 'x', 'x', 'x', '-', '-', 'e', '-', 'x', '-', 'x', '-', '-', '-', 'x', '-', 'x', '-', 'x'},
+        {'x', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', '-', 'x', '-', '-', '-', '-', '-', 'x'},
+        {'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x', 'x'}
+        };
+
+    private DefaultMaps() {}
+
+    /**
+     * Returns new Map objects of the built in maps, in the order they are played.
+     *
+     * @return list of the built in maps
+     */
+    public static List<Map> create() {
+        List<Map> maps = new ArrayList<>();
+        maps.add(new Map(copy(MAP_1)));
+        maps.add(new Map(copy(MAP_2)));
+        return maps;
+    }
+
+    private static char[][] copy(char[][] map) {
+        char[][] c = new char[map.length][];
+        for(int i = 0; i < map.length; i++) {
+            c[i] = map[i].clone();
+        }
+        return c;
+    }
+}
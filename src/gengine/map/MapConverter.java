@@ -0,0 +1,224 @@
+package gengine.map;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * This is the converter from maps made of marks, as used by
+ * GameManager.getMap, to the binary map format read by MapFile.
+ * Marks are:
+ *      x - wall
+ *      P - player
+ *      e - enemy
+ *      o - collectable
+ *      s - portal to next level
+ * Anything else is an empty tile.
+ *
+ * Usage: java gengine.map.MapConverter input.txt output.gmap [chunk size] [-z]
+ * where input.txt has one row of marks per line and -z compresses the chunks.
+ *
+ * @version 0.3
+ */
+public class MapConverter {
+    public static final int DEFAULT_CHUNK_SIZE = 32;
+
+    /**
+     * Converts a text map to a map file.
+     *
+     * @param args - input file, output file, optional chunk size and -z
+     * @throws IOException if reading or writing fails
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.out.println("Usage: java gengine.map.MapConverter input.txt output.gmap [chunk size] [-z]");
+            return;
+        }
+        int chunkSize = DEFAULT_CHUNK_SIZE;
+        boolean compress = false;
+        for(int i = 2; i < args.length; i++) {
+            if(args[i].equals("-z")) {
+                compress = true;
+            }
+            else {
+                chunkSize = Integer.parseInt(args[i]);
+            }
+        }
+        char[][] marks = readText(Paths.get(args[0]));
+        write(marks, Paths.get(args[1]), chunkSize, compress);
+        System.out.println("Wrote " + marks[0].length + "x" + marks.length + " map to " + args[1]);
+    }
+
+    /**
+     * Method reads a text map with one row of marks per line. Shorter
+     * lines are padded with empty tiles.
+     *
+     * @param path - path of the text file
+     * @return the marks, row by row
+     * @throws IOException if the file can't be read or is empty
+     */
+    public static char[][] readText(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        while(!lines.isEmpty() && lines.get(lines.size() - 1).trim().isEmpty()) {
+            lines.remove(lines.size() - 1);
+        }
+        if(lines.isEmpty()) {
+            throw new IOException("Empty map " + path);
+        }
+        int width = 0;
+        for(String line : lines) {
+            width = Math.max(width, line.length());
+        }
+        char[][] marks = new char[lines.size()][width];
+        for(int row = 0; row < marks.length; row++) {
+            Arrays.fill(marks[row], '-');
+            String line = lines.get(row);
+            line.getChars(0, line.length(), marks[row], 0);
+        }
+        return marks;
+    }
+
+    /**
+     * Method writes marks to a map file.
+     *
+     * @param marks - the marks, row by row, all rows of the same length
+     * @param path - path of the map file
+     * @param chunkSize - width and height of a chunk in tiles
+     * @param compress - true to deflate chunks which get smaller by it
+     * @throws IOException if writing fails
+     */
+    public static void write(char[][] marks, Path path, int chunkSize, boolean compress) throws IOException {
+        if(chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        int height = marks.length;
+        int width = marks[0].length;
+        int chunksX = (width + chunkSize - 1) / chunkSize;
+        int chunksY = (height + chunkSize - 1) / chunkSize;
+        int chunks = chunksX * chunksY;
+
+        ByteBuffer table = ByteBuffer.allocate(MapFile.HEADER_SIZE + chunks * MapFile.CHUNK_ENTRY_SIZE);
+        byte[] tiles = new byte[chunkSize * chunkSize];
+        byte[] packed = new byte[tiles.length + 64];
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long offset = table.capacity();
+            table.position(MapFile.HEADER_SIZE);
+            for(int cy = 0; cy < chunksY; cy++) {
+                for(int cx = 0; cx < chunksX; cx++) {
+                    Arrays.fill(tiles, MapFile.EMPTY);
+                    for(int r = 0; r < chunkSize && cy * chunkSize + r < height; r++) {
+                        char[] line = marks[cy * chunkSize + r];
+                        for(int c = 0; c < chunkSize && cx * chunkSize + c < width; c++) {
+                            tiles[r * chunkSize + c] = line[cx * chunkSize + c] == 'x' ? MapFile.WALL : MapFile.EMPTY;
+                        }
+                    }
+                    byte compression = MapFile.STORED;
+                    ByteBuffer out = ByteBuffer.wrap(tiles);
+                    if(compress) {
+                        deflater.reset();
+                        deflater.setInput(tiles);
+                        deflater.finish();
+                        int length = deflater.deflate(packed);
+                        if(deflater.finished() && length < tiles.length) {
+                            compression = MapFile.DEFLATED;
+                            out = ByteBuffer.wrap(packed, 0, length);
+                        }
+                    }
+                    table.putLong(offset);
+                    table.putInt(out.remaining());
+                    table.put(compression);
+                    table.position(table.position() + 3);
+                    int length = out.remaining();
+                    writeFully(channel, out, offset);
+                    offset += length;
+                }
+            }
+
+            int spawnCount = 0;
+            long spawnOffset = offset;
+            ByteBuffer spawns = ByteBuffer.allocate(MapFile.SPAWN_ENTRY_SIZE * 4096);
+            for(int row = 0; row < height; row++) {
+                for(int col = 0; col < width; col++) {
+                    byte type = toSpawnType(marks[row][col]);
+                    if(type != 0) {
+                        if(!spawns.hasRemaining()) {
+                            spawns.flip();
+                            writeFully(channel, spawns, offset);
+                            offset += spawns.limit();
+                            spawns.clear();
+                        }
+                        spawns.put(type).position(spawns.position() + 3);
+                        spawns.putInt(col).putInt(row);
+                        spawnCount++;
+                    }
+                }
+            }
+            spawns.flip();
+            writeFully(channel, spawns, offset);
+
+            table.position(0);
+            table.putInt(MapFile.MAGIC);
+            table.putShort(MapFile.VERSION);
+            table.putShort((short) (compress ? 1 : 0));
+            table.putInt(width);
+            table.putInt(height);
+            table.putInt(chunkSize);
+            table.putInt(spawnCount);
+            table.putLong(spawnOffset);
+            table.position(0);
+            writeFully(channel, table, 0);
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns the spawn type of a mark.
+     *
+     * @param mark - map mark
+     * @return spawn type, or 0 if the mark is not a spawn
+     */
+    public static byte toSpawnType(char mark) {
+        switch(mark) {
+            case 'P': return MapFile.PLAYER;
+            case 'e': return MapFile.ENEMY;
+            case 'o': return MapFile.COLLECTABLE;
+            case 's': return MapFile.PORTAL;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Returns the mark of a spawn type.
+     *
+     * @param type - spawn type
+     * @return map mark, '-' for unknown types
+     */
+    public static char toMark(byte type) {
+        switch(type) {
+            case MapFile.PLAYER: return 'P';
+            case MapFile.ENEMY: return 'e';
+            case MapFile.COLLECTABLE: return 'o';
+            case MapFile.PORTAL: return 's';
+            default: return '-';
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package gengine.map;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import gengine.Map;
+
+/**
+ * This is a map stored in the binary map format. The file is memory mapped
+ * and only the parts that are read are loaded from disk, so opening even a
+ * very large map is fast. Tiles are stored in square chunks which can be
+ * compressed one by one. A compressed chunk is inflated the first time one
+ * of its tiles is read.
+ *
+ * The format, all values big endian:
+ *      header      - magic "GMAP", version (short), flags (short),
+ *                    width, height, chunk size and spawn count (int),
+ *                    offset of the spawn table (long)
+ *      chunk table - for every chunk, row by row: offset (long),
+ *                    stored length (int), compression (byte), 3 bytes padding
+ *      chunks      - one byte per tile, row by row within the chunk
+ *      spawn table - for every spawn: type (byte), 3 bytes padding,
+ *                    column and row (int)
+ *
+ * A single mapping can't be larger than 2 GB, which limits the file size.
+ *
+ * @version 0.3
+ */
+public class MapFile {
+    public static final int MAGIC = 0x474D4150; // "GMAP"
+    public static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 32;
+    static final int CHUNK_ENTRY_SIZE = 16;
+    static final int SPAWN_ENTRY_SIZE = 12;
+
+    // Chunk compression
+    static final byte STORED = 0;
+    static final byte DEFLATED = 1;
+
+    // Tile values
+    public static final byte EMPTY = 0;
+    public static final byte WALL = 1;
+
+    // Spawn types
+    public static final byte PLAYER = 1;
+    public static final byte ENEMY = 2;
+    public static final byte COLLECTABLE = 3;
+    public static final byte PORTAL = 4;
+
+    private final ByteBuffer data;
+    private final int width;
+    private final int height;
+    private final int chunkSize;
+    private final int chunksX;
+    private final int chunksY;
+    private final int spawnCount;
+    private final int spawnOffset;
+    private final byte[][] inflated;
+
+    /**
+     * The constructor taking the contents of a map file as parameter.
+     *
+     * @param data - contents of the file
+     * @throws IOException if the data is not a supported map file
+     */
+    public MapFile(ByteBuffer data) throws IOException {
+        this.data = data;
+        if(data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a map file");
+        }
+        if(data.getShort(4) != VERSION) {
+            throw new IOException("Unsupported map version " + data.getShort(4));
+        }
+        width = data.getInt(8);
+        height = data.getInt(12);
+        chunkSize = data.getInt(16);
+        spawnCount = data.getInt(20);
+        long offset = data.getLong(24);
+        if(width <= 0 || height <= 0 || chunkSize <= 0 || spawnCount < 0
+                || offset < 0 || offset + (long) spawnCount * SPAWN_ENTRY_SIZE > data.capacity()) {
+            throw new IOException("Corrupted map header");
+        }
+        spawnOffset = (int) offset;
+        chunksX = (width + chunkSize - 1) / chunkSize;
+        chunksY = (height + chunkSize - 1) / chunkSize;
+        if((long) chunkSize * chunkSize > Integer.MAX_VALUE
+                || HEADER_SIZE + (long) chunksX * chunksY * CHUNK_ENTRY_SIZE > data.capacity()) {
+            throw new IOException("Corrupted chunk table");
+        }
+        // Every chunk must lie within the file, stored ones holding all their tiles
+        for(int chunk = 0; chunk < chunksX * chunksY; chunk++) {
+            int entry = HEADER_SIZE + chunk * CHUNK_ENTRY_SIZE;
+            long chunkOffset = data.getLong(entry);
+            int length = data.getInt(entry + 8);
+            byte compression = data.get(entry + 12);
+            if(chunkOffset < 0 || length < 0 || chunkOffset + length > data.capacity()
+                    || (compression != STORED && compression != DEFLATED)
+                    || (compression == STORED && length < chunkSize * chunkSize)) {
+                throw new IOException("Corrupted chunk " + chunk);
+            }
+        }
+        inflated = new byte[chunksX * chunksY][];
+    }
+
+    /**
+     * Method opens a map file. The file is memory mapped, so only the
+     * header is read here.
+     *
+     * @param path - path of the file
+     * @return the opened map
+     * @throws IOException if the file can't be read or is not a map file
+     */
+    public static MapFile open(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MapFile(buffer);
+        }
+    }
+
+    /**
+     * Returns the tile at given column and row. Tiles outside of the map
+     * are EMPTY.
+     *
+     * @param col - column of the tile
+     * @param row - row of the tile
+     * @return tile value
+     */
+    public byte getTile(int col, int row) {
+        if(col < 0 || row < 0 || col >= width || row >= height) {
+            return EMPTY;
+        }
+        int chunk = (row / chunkSize) * chunksX + col / chunkSize;
+        int i = (row % chunkSize) * chunkSize + col % chunkSize;
+        int entry = HEADER_SIZE + chunk * CHUNK_ENTRY_SIZE;
+        if(data.get(entry + 12) == STORED) {
+            return data.get((int) data.getLong(entry) + i);
+        }
+        return getChunk(chunk)[i];
+    }
+
+    /**
+     * Returns the tiles of a chunk, one byte per tile row by row.
+     * A compressed chunk is inflated on the first call and kept.
+     *
+     * @param chunk - index of the chunk, row by row
+     * @return tiles of the chunk
+     */
+    public byte[] getChunk(int chunk) {
+        if(inflated[chunk] == null) {
+            inflated[chunk] = readChunk(chunk, new byte[chunkSize * chunkSize]);
+        }
+        return inflated[chunk];
+    }
+
+    /**
+     * Method reads the tiles of a chunk into the given array without keeping
+     * them. Unlike the other methods this can be called from several threads
+     * at the same time.
+     *
+     * @param chunk - index of the chunk, row by row
+     * @param tiles - array of at least chunkSize * chunkSize bytes to fill
+     * @return the given array
+     */
+    public byte[] readChunk(int chunk, byte[] tiles) {
+        int entry = HEADER_SIZE + chunk * CHUNK_ENTRY_SIZE;
+        int offset = (int) data.getLong(entry);
+        int length = data.getInt(entry + 8);
+        ByteBuffer stored = data.duplicate();
+        stored.position(offset);
+        stored.limit(offset + length);
+        if(data.get(entry + 12) == STORED) {
+            stored.get(tiles, 0, Math.min(length, chunkSize * chunkSize));
+        }
+        else {
+            byte[] packed = new byte[length];
+            stored.get(packed);
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(packed);
+                inflater.inflate(tiles, 0, chunkSize * chunkSize);
+            }
+            catch(DataFormatException e) {
+                throw new IllegalStateException("Corrupted chunk " + chunk, e);
+            }
+            finally {
+                inflater.end();
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns whether a chunk is compressed.
+     *
+     * @param chunk - index of the chunk, row by row
+     * @return true if the chunk is deflated
+     */
+    public boolean isCompressed(int chunk) {
+        return data.get(HEADER_SIZE + chunk * CHUNK_ENTRY_SIZE + 12) == DEFLATED;
+    }
+
+    /**
+     * Returns the type of a spawn.
+     *
+     * @param i - index of the spawn
+     * @return spawn type
+     */
+    public byte getSpawnType(int i) { return data.get(spawnOffset + i * SPAWN_ENTRY_SIZE); }
+    /**
+     * Returns the column of a spawn.
+     *
+     * @param i - index of the spawn
+     * @return column
+     */
+    public int getSpawnCol(int i) { return data.getInt(spawnOffset + i * SPAWN_ENTRY_SIZE + 4); }
+    /**
+     * Returns the row of a spawn.
+     *
+     * @param i - index of the spawn
+     * @return row
+     */
+    public int getSpawnRow(int i) { return data.getInt(spawnOffset + i * SPAWN_ENTRY_SIZE + 8); }
+
+    /**
+     * Returns the number of spawns.
+     *
+     * @return spawn count
+     */
+    public int getSpawnCount() { return spawnCount; }
+    /**
+     * Returns the width of the map.
+     *
+     * @return width in tiles
+     */
+    public int getWidth() { return width; }
+    /**
+     * Returns the height of the map.
+     *
+     * @return height in tiles
+     */
+    public int getHeight() { return height; }
+    /**
+     * Returns the width and height of a chunk.
+     *
+     * @return chunk size in tiles
+     */
+    public int getChunkSize() { return chunkSize; }
+    /**
+     * Returns the number of chunks per row.
+     *
+     * @return chunk columns
+     */
+    public int getChunksX() { return chunksX; }
+    /**
+     * Returns the number of chunk rows.
+     *
+     * @return chunk rows
+     */
+    public int getChunksY() { return chunksY; }
+
+    /**
+     * Method builds a Map with the marks used by GameManager.getMap. Every
+     * tile of the map is read, so this is meant for small maps.
+     *
+     * @return the map as a Map object
+     */
+    public Map toMap() {
+        char[][] marks = new char[height][width];
+        for(int row = 0; row < height; row++) {
+            for(int col = 0; col < width; col++) {
+                marks[row][col] = getTile(col, row) == WALL ? 'x' : '-';
+            }
+        }
+        for(int i = 0; i < spawnCount; i++) {
+            int col = getSpawnCol(i);
+            int row = getSpawnRow(i);
+            if(col >= 0 && row >= 0 && col < width && row < height) {
+                marks[row][col] = MapConverter.toMark(getSpawnType(i));
+            }
+        }
+        return new Map(marks);
+    }
+}
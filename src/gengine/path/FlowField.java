@@ -0,0 +1,232 @@
+package gengine.path;
+
+import java.util.Arrays;
+import gengine.Direction;
+import gengine.gameobject.TileLayer;
+
+/**
+ * This is a flow field towards one target tile. It holds the walking
+ * distance to the target from every tile within a radius of it, found by
+ * a breadth first search over the passability bitmap of the TileLayer,
+ * moving up, down, left and right like the objects of the game. Any number
+ * of objects can then find their way to the target by looking up the
+ * neighbour tile closer to it, without searching on their own.
+ *
+ * The field is only searched again when the target moves to another tile
+ * or the walls within the radius change, so a target standing still or
+ * moving within its tile costs nothing.
+ *
+ * The field is updated by the game loop thread and can be read by the
+ * threads of the decide phase between updates.
+ *
+ * @version 0.3
+ */
+public class FlowField {
+    public static final int UNREACHABLE = -1;
+
+    private final TileLayer tiles;
+    private final int radius;
+    private final int size;      // Width and height of the field in tiles
+    private final int[] distance;
+    private final int[] queue;
+
+    private int originCol;       // Tile of the top left corner of the field
+    private int originRow;
+    private int targetCol = -1;
+    private int targetRow = -1;
+    private long wallVersion;
+    private int searches;
+
+    /**
+     * The constructor taking the tiles and how far from the target the
+     * field reaches.
+     *
+     * @param tiles - the static layer of the map
+     * @param radius - reach of the field in tiles
+     */
+    public FlowField(TileLayer tiles, int radius) {
+        this.tiles = tiles;
+        this.radius = Math.max(radius, 1);
+        size = 2 * this.radius + 1;
+        distance = new int[size * size];
+        queue = new int[size * size];
+        Arrays.fill(distance, UNREACHABLE);
+    }
+
+    /**
+     * Method moves the target of the field. The field is searched again if
+     * the target is on another tile than before or walls near it have
+     * changed.
+     *
+     * @param col - column of the target tile
+     * @param row - row of the target tile
+     * @return true if the field was searched again
+     */
+    public boolean setTarget(int col, int row) {
+        long version = wallVersion(col, row);
+        if(col == targetCol && row == targetRow && version == wallVersion) {
+            return false;
+        }
+        targetCol = col;
+        targetRow = row;
+        wallVersion = version;
+        search();
+        return true;
+    }
+
+    /**
+     * Returns the walking distance from a tile to the target.
+     *
+     * @param col - column of the tile
+     * @param row - row of the tile
+     * @return distance in tiles, UNREACHABLE if the tile is outside the
+     *         field or the target can't be reached from it
+     */
+    public int getDistance(int col, int row) {
+        int c = col - originCol;
+        int r = row - originRow;
+        if(c < 0 || r < 0 || c >= size || r >= size) {
+            return UNREACHABLE;
+        }
+        return distance[r * size + c];
+    }
+
+    /**
+     * Returns the direction of the neighbour tile closer to the target.
+     * Neighbours are tried in the order up, down, left and right, so the
+     * result is the same on every run.
+     *
+     * @param col - column of the tile
+     * @param row - row of the tile
+     * @return direction to go, NONE on the target and null if the target
+     *         can't be reached from the tile
+     */
+    public Direction getDirection(int col, int row) {
+        int d = getDistance(col, row);
+        if(d == UNREACHABLE) {
+            return null;
+        }
+        if(d == 0) {
+            return Direction.NONE;
+        }
+        if(getDistance(col, row - 1) == d - 1) {
+            return Direction.UP;
+        }
+        else if(getDistance(col, row + 1) == d - 1) {
+            return Direction.DOWN;
+        }
+        else if(getDistance(col - 1, row) == d - 1) {
+            return Direction.LEFT;
+        }
+        return Direction.RIGHT;
+    }
+
+    /**
+     * Returns whether a tile is within the reach of the field.
+     *
+     * @param col - column of the tile
+     * @param row - row of the tile
+     * @return true if within the radius of the target
+     */
+    public boolean covers(int col, int row) {
+        return Math.abs(col - targetCol) <= radius && Math.abs(row - targetRow) <= radius;
+    }
+
+    /**
+     * Returns the column of the target tile.
+     *
+     * @return column index, -1 before the first target
+     */
+    public int getTargetCol() { return targetCol; }
+    /**
+     * Returns the row of the target tile.
+     *
+     * @return row index, -1 before the first target
+     */
+    public int getTargetRow() { return targetRow; }
+    /**
+     * Returns the reach of the field.
+     *
+     * @return radius in tiles
+     */
+    public int getRadius() { return radius; }
+    /**
+     * Returns how many times the field has been searched.
+     *
+     * @return search count
+     */
+    public int getSearches() { return searches; }
+
+    /**
+     * Method searches the distances from the target outwards.
+     */
+    private void search() {
+        searches++;
+        originCol = targetCol - radius;
+        originRow = targetRow - radius;
+        Arrays.fill(distance, UNREACHABLE);
+        if(!isFree(targetCol, targetRow)) {
+            return;
+        }
+        int head = 0;
+        int tail = 0;
+        int start = radius * size + radius;
+        distance[start] = 0;
+        queue[tail++] = start;
+        while(head < tail) {
+            int i = queue[head++];
+            int c = i % size;
+            int r = i / size;
+            int next = distance[i] + 1;
+            if(r > 0 && visit(i - size, c, r - 1, next)) {
+                queue[tail++] = i - size;
+            }
+            if(r < size - 1 && visit(i + size, c, r + 1, next)) {
+                queue[tail++] = i + size;
+            }
+            if(c > 0 && visit(i - 1, c - 1, r, next)) {
+                queue[tail++] = i - 1;
+            }
+            if(c < size - 1 && visit(i + 1, c + 1, r, next)) {
+                queue[tail++] = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Method sets the distance of a tile not reached before, if it is free.
+     */
+    private boolean visit(int i, int c, int r, int d) {
+        if(distance[i] != UNREACHABLE || !isFree(originCol + c, originRow + r)) {
+            return false;
+        }
+        distance[i] = d;
+        return true;
+    }
+
+    /**
+     * Returns whether a tile is on the map and has no wall.
+     */
+    private boolean isFree(int col, int row) {
+        return col >= 0 && row >= 0 && col < tiles.getCols() && row < tiles.getRows() && !tiles.isSolid(col, row);
+    }
+
+    /**
+     * Returns a hash of the versions of the chunks within the radius of a
+     * tile, which changes when their walls change.
+     */
+    private long wallVersion(int col, int row) {
+        int chunkSize = tiles.getChunkSize();
+        int minCol = Math.max(col - radius, 0) / chunkSize;
+        int maxCol = Math.min(col + radius, tiles.getCols() - 1) / chunkSize;
+        int minRow = Math.max(row - radius, 0) / chunkSize;
+        int maxRow = Math.min(row + radius, tiles.getRows() - 1) / chunkSize;
+        long version = 0;
+        for(int r = minRow; r <= maxRow; r++) {
+            for(int c = minCol; c <= maxCol; c++) {
+                version = version * 31 + tiles.getVersion(r * tiles.getChunkCols() + c);
+            }
+        }
+        return version;
+    }
+}
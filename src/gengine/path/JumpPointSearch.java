@@ -0,0 +1,395 @@
+package gengine.path;
+
+import java.util.Arrays;
+import gengine.gameobject.TileLayer;
+
+/**
+ * This finds paths between two tiles with Jump Point Search, an A* search
+ * which instead of adding every neighbour of a tile to the open list jumps
+ * along straight and diagonal lines until something interesting, a wall
+ * corner or the goal, is found. On open maps only a handful of tiles end
+ * up in the open list however long the path is.
+ *
+ * The search moves diagonally only when both tiles beside the diagonal
+ * step are free, so every diagonal step of a path can be walked as one
+ * horizontal and one vertical step by objects moving in four directions.
+ *
+ * The search is limited to the box around the start and the goal grown by
+ * a margin, so a goal that can't be reached costs at most the tiles of the
+ * box. Tiles of unloaded chunks count as free.
+ *
+ * An instance reuses its arrays between searches and must be used by one
+ * thread at a time.
+ *
+ * @version 0.3
+ */
+public class JumpPointSearch {
+    private static final int STRAIGHT = 10;  // Costs of a step, diagonal about 10 * sqrt(2)
+    private static final int DIAGONAL = 14;
+
+    private TileLayer tiles;
+    private int margin;
+
+    // Search window
+    private int minCol;
+    private int minRow;
+    private int width;
+    private int height;
+    private int goalCol;
+    private int goalRow;
+
+    // Per tile of the window, valid where stamp equals the search number
+    private int[] stamp = new int[0];
+    private int[] cost = new int[0];
+    private int[] parent = new int[0];
+    private boolean[] closed = new boolean[0];
+    private int search;
+
+    // Open list, a binary heap of estimated total costs in the high and tile
+    // indexes in the low half, so equal costs are taken in tile order
+    private long[] heap = new long[64];
+    private int heapSize;
+
+    private final int[] neighbours = new int[16];
+
+    /**
+     * The constructor taking the tiles to search and the margin of the
+     * search window.
+     *
+     * @param tiles - the static layer of the map
+     * @param margin - tiles searched beyond the box of the start and the goal
+     */
+    public JumpPointSearch(TileLayer tiles, int margin) {
+        this.tiles = tiles;
+        this.margin = Math.max(margin, 0);
+    }
+
+    /**
+     * Method finds a path from one tile to another. The path is returned as
+     * the jump points along it, the start first and the goal last, each as
+     * a column and a row. Between two jump points the path is a straight or
+     * a diagonal line.
+     *
+     * @param startCol - column of the start tile
+     * @param startRow - row of the start tile
+     * @param goalCol - column of the goal tile
+     * @param goalRow - row of the goal tile
+     * @return columns and rows of the jump points, or null if there is no path
+     */
+    public int[] findPath(int startCol, int startRow, int goalCol, int goalRow) {
+        this.goalCol = goalCol;
+        this.goalRow = goalRow;
+        minCol = Math.max(Math.min(startCol, goalCol) - margin, 0);
+        minRow = Math.max(Math.min(startRow, goalRow) - margin, 0);
+        width = Math.min(Math.max(startCol, goalCol) + margin, tiles.getCols() - 1) - minCol + 1;
+        height = Math.min(Math.max(startRow, goalRow) + margin, tiles.getRows() - 1) - minRow + 1;
+        if(!isFree(startCol, startRow) || !isFree(goalCol, goalRow)) {
+            return null;
+        }
+        prepare(width * height);
+
+        int start = indexOf(startCol, startRow);
+        open(start, -1, 0);
+        while(heapSize > 0) {
+            int i = pop();
+            if(closed[i]) {
+                continue;
+            }
+            closed[i] = true;
+            int col = minCol + i % width;
+            int row = minRow + i / width;
+            if(col == goalCol && row == goalRow) {
+                return trace(i);
+            }
+            int n = findNeighbours(i, col, row);
+            for(int k = 0; k < n; k += 2) {
+                int dc = neighbours[k];
+                int dr = neighbours[k + 1];
+                int j = jump(col + dc, row + dr, dc, dr);
+                if(j >= 0 && !(stamp[j] == search && closed[j])) {
+                    int jc = minCol + j % width;
+                    int jr = minRow + j / width;
+                    int g = cost[i] + distance(col, row, jc, jr);
+                    if(stamp[j] != search || g < cost[j]) {
+                        open(j, i, g);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method sets the tiles searched from now on.
+     *
+     * @param tiles - the static layer of the map
+     */
+    public void setTiles(TileLayer tiles) {
+        this.tiles = tiles;
+    }
+
+    /**
+     * Returns the tiles searched.
+     *
+     * @return the TileLayer
+     */
+    public TileLayer getTiles() { return tiles; }
+
+    /**
+     * Method readies the arrays for a search over the given number of tiles.
+     */
+    private void prepare(int area) {
+        if(stamp.length < area) {
+            int size = Math.max(area, stamp.length * 2);
+            stamp = new int[size];
+            cost = new int[size];
+            parent = new int[size];
+            closed = new boolean[size];
+            search = 0;
+        }
+        search++;
+        if(search == 0) {
+            Arrays.fill(stamp, 0);
+            search = 1;
+        }
+        heapSize = 0;
+    }
+
+    /**
+     * Method puts a tile to the open list or lowers its cost there.
+     */
+    private void open(int i, int from, int g) {
+        if(stamp[i] != search) {
+            stamp[i] = search;
+            closed[i] = false;
+        }
+        cost[i] = g;
+        parent[i] = from;
+        int col = minCol + i % width;
+        int row = minRow + i / width;
+        long entry = (long) (g + distance(col, row, goalCol, goalRow)) << 32 | i;
+        // A tile may be in the heap more than once, the cheapest is popped first
+        if(heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        int k = heapSize++;
+        while(k > 0) {
+            int up = (k - 1) >>> 1;
+            if(heap[up] <= entry) {
+                break;
+            }
+            heap[k] = heap[up];
+            k = up;
+        }
+        heap[k] = entry;
+    }
+
+    /**
+     * Method takes the tile with the lowest estimated total cost off the
+     * open list.
+     */
+    private int pop() {
+        int top = (int) heap[0];
+        long last = heap[--heapSize];
+        int k = 0;
+        while(true) {
+            int child = 2 * k + 1;
+            if(child >= heapSize) {
+                break;
+            }
+            if(child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if(last <= heap[child]) {
+                break;
+            }
+            heap[k] = heap[child];
+            k = child;
+        }
+        if(heapSize > 0) {
+            heap[k] = last;
+        }
+        return top;
+    }
+
+    /**
+     * Method lists the directions worth jumping to from a tile, as column
+     * and row steps. From the start every free direction is listed, from
+     * other tiles only the ones the direction of arrival can't skip.
+     *
+     * @return number of values put into neighbours
+     */
+    private int findNeighbours(int i, int col, int row) {
+        int n = 0;
+        int from = parent[i];
+        if(from < 0) {
+            for(int dr = -1; dr <= 1; dr++) {
+                for(int dc = -1; dc <= 1; dc++) {
+                    if((dc != 0 || dr != 0) && canStep(col, row, dc, dr)) {
+                        neighbours[n++] = dc;
+                        neighbours[n++] = dr;
+                    }
+                }
+            }
+            return n;
+        }
+        int dc = Integer.signum(col - (minCol + from % width));
+        int dr = Integer.signum(row - (minRow + from / width));
+        if(dc != 0 && dr != 0) {
+            boolean vertical = isFree(col, row + dr);
+            boolean horizontal = isFree(col + dc, row);
+            if(vertical) {
+                neighbours[n++] = 0;
+                neighbours[n++] = dr;
+            }
+            if(horizontal) {
+                neighbours[n++] = dc;
+                neighbours[n++] = 0;
+            }
+            if(vertical && horizontal) {
+                neighbours[n++] = dc;
+                neighbours[n++] = dr;
+            }
+        }
+        else if(dc != 0) {
+            boolean ahead = isFree(col + dc, row);
+            boolean below = isFree(col, row + 1);
+            boolean above = isFree(col, row - 1);
+            if(ahead) {
+                neighbours[n++] = dc;
+                neighbours[n++] = 0;
+                if(below) {
+                    neighbours[n++] = dc;
+                    neighbours[n++] = 1;
+                }
+                if(above) {
+                    neighbours[n++] = dc;
+                    neighbours[n++] = -1;
+                }
+            }
+            if(below) {
+                neighbours[n++] = 0;
+                neighbours[n++] = 1;
+            }
+            if(above) {
+                neighbours[n++] = 0;
+                neighbours[n++] = -1;
+            }
+        }
+        else {
+            boolean ahead = isFree(col, row + dr);
+            boolean right = isFree(col + 1, row);
+            boolean left = isFree(col - 1, row);
+            if(ahead) {
+                neighbours[n++] = 0;
+                neighbours[n++] = dr;
+                if(right) {
+                    neighbours[n++] = 1;
+                    neighbours[n++] = dr;
+                }
+                if(left) {
+                    neighbours[n++] = -1;
+                    neighbours[n++] = dr;
+                }
+            }
+            if(right) {
+                neighbours[n++] = 1;
+                neighbours[n++] = 0;
+            }
+            if(left) {
+                neighbours[n++] = -1;
+                neighbours[n++] = 0;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Method jumps from a tile in a direction until it finds the goal or a
+     * tile with a neighbour that can't be reached as cheaply any other way.
+     * Straight runs are walked in a loop, and a diagonal run tries the two
+     * straight runs from each of its tiles.
+     *
+     * @return index of the tile found or -1 if the jump runs into a wall
+     */
+    private int jump(int col, int row, int dc, int dr) {
+        while(true) {
+            if(!isFree(col, row)) {
+                return -1;
+            }
+            if(col == goalCol && row == goalRow) {
+                return indexOf(col, row);
+            }
+            if(dc != 0 && dr != 0) {
+                if(jump(col + dc, row, dc, 0) >= 0 || jump(col, row + dr, 0, dr) >= 0) {
+                    return indexOf(col, row);
+                }
+            }
+            else if(dc != 0) {
+                if((isFree(col, row - 1) && !isFree(col - dc, row - 1))
+                        || (isFree(col, row + 1) && !isFree(col - dc, row + 1))) {
+                    return indexOf(col, row);
+                }
+            }
+            else {
+                if((isFree(col - 1, row) && !isFree(col - 1, row - dr))
+                        || (isFree(col + 1, row) && !isFree(col + 1, row - dr))) {
+                    return indexOf(col, row);
+                }
+            }
+            if(!canStep(col, row, dc, dr)) {
+                return -1;
+            }
+            col += dc;
+            row += dr;
+        }
+    }
+
+    /**
+     * Returns whether one step can be taken from a tile. A diagonal step
+     * needs both tiles beside it free.
+     */
+    private boolean canStep(int col, int row, int dc, int dr) {
+        return isFree(col + dc, row + dr) && isFree(col + dc, row) && isFree(col, row + dr);
+    }
+
+    /**
+     * Returns whether a tile is within the search window and has no wall.
+     */
+    private boolean isFree(int col, int row) {
+        return col >= minCol && row >= minRow && col < minCol + width && row < minRow + height
+            && !tiles.isSolid(col, row);
+    }
+
+    /**
+     * Method lists the jump points from the start to the given tile.
+     */
+    private int[] trace(int i) {
+        int count = 0;
+        for(int k = i; k >= 0; k = parent[k]) {
+            count++;
+        }
+        int[] path = new int[count * 2];
+        for(int k = i, n = count - 1; k >= 0; k = parent[k], n--) {
+            path[2 * n] = minCol + k % width;
+            path[2 * n + 1] = minRow + k / width;
+        }
+        return path;
+    }
+
+    /**
+     * Returns the index of a tile within the search window.
+     */
+    private int indexOf(int col, int row) {
+        return (row - minRow) * width + col - minCol;
+    }
+
+    /**
+     * Returns the cost of moving between two tiles with no walls between.
+     */
+    private static int distance(int c0, int r0, int c1, int r1) {
+        int dc = Math.abs(c1 - c0);
+        int dr = Math.abs(r1 - r0);
+        return STRAIGHT * Math.max(dc, dr) + (DIAGONAL - STRAIGHT) * Math.min(dc, dr);
+    }
+}
@@ -0,0 +1,191 @@
+package gengine.path;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import gengine.gameobject.GameObject;
+import gengine.gameobject.TileLayer;
+
+/**
+ * This is the pathfinding of a map, shared by all the objects on it.
+ *
+ * Objects near a target find their way with a FlowField towards it. There
+ * is one field per target, kept between updates and searched again only
+ * when the target changes tile, so any number of objects chasing the same
+ * target cost one search of the field.
+ *
+ * Objects farther away, up to the chase range, find a path of their own
+ * with JumpPointSearch and keep it until it runs out or the target has
+ * moved away from its end. Every thread searching has its own
+ * JumpPointSearch, so objects can search while deciding in parallel.
+ *
+ * GameManager calls update on the game loop thread before the decide
+ * phase. Fields are not changed at other times, so objects deciding in
+ * parallel read them without locking.
+ *
+ * @version 0.3
+ */
+public class PathService {
+    public static final int DEFAULT_FIELD_RADIUS = 32;
+    public static final int DEFAULT_CHASE_RANGE = 64;
+    private static final int SEARCH_MARGIN = 16;
+
+    private TileLayer tiles;
+    private GameObject target;
+    private final Map<GameObject, FlowField> fields;
+    private final ThreadLocal<JumpPointSearch> searches;
+    private int fieldRadius;
+    private int chaseRange;
+
+    /**
+     * The default constructor. There are no tiles to search until setTiles
+     * is called.
+     */
+    public PathService() {
+        fields = new IdentityHashMap<>();
+        searches = new ThreadLocal<>();
+        fieldRadius = DEFAULT_FIELD_RADIUS;
+        chaseRange = DEFAULT_CHASE_RANGE;
+    }
+
+    /**
+     * Method sets the tiles of a new map. Fields of the previous map are
+     * thrown away.
+     *
+     * @param tiles - the static layer of the map
+     */
+    public void setTiles(TileLayer tiles) {
+        this.tiles = tiles;
+        fields.clear();
+    }
+
+    /**
+     * Returns the tiles searched.
+     *
+     * @return the TileLayer or null before the first map
+     */
+    public TileLayer getTiles() { return tiles; }
+
+    /**
+     * Method sets the object chased, usually the player. The field of the
+     * target is made on the next update.
+     *
+     * @param target - the object chased or null to chase nothing
+     */
+    public void setTarget(GameObject target) {
+        if(this.target != target && this.target != null) {
+            fields.remove(this.target);
+        }
+        this.target = target;
+    }
+
+    /**
+     * Returns the object chased.
+     *
+     * @return the target or null
+     */
+    public GameObject getTarget() { return target; }
+
+    /**
+     * Method moves the fields to the tiles of their targets. Called by the
+     * game loop thread before the decide phase.
+     */
+    public void update() {
+        if(tiles == null) {
+            return;
+        }
+        if(target != null && !fields.containsKey(target)) {
+            fields.put(target, new FlowField(tiles, fieldRadius));
+        }
+        for(Map.Entry<GameObject, FlowField> e : fields.entrySet()) {
+            GameObject o = e.getKey();
+            e.getValue().setTarget(colOf(o), rowOf(o));
+        }
+    }
+
+    /**
+     * Returns the field towards a target.
+     *
+     * @param target - the target
+     * @return the FlowField or null if the target has none
+     */
+    public FlowField getField(GameObject target) {
+        return fields.get(target);
+    }
+
+    /**
+     * Method finds a path between two tiles with the JumpPointSearch of the
+     * calling thread.
+     *
+     * @param startCol - column of the start tile
+     * @param startRow - row of the start tile
+     * @param goalCol - column of the goal tile
+     * @param goalRow - row of the goal tile
+     * @return columns and rows of the jump points, or null if there is no path
+     */
+    public int[] findPath(int startCol, int startRow, int goalCol, int goalRow) {
+        JumpPointSearch s = searches.get();
+        if(s == null) {
+            s = new JumpPointSearch(tiles, SEARCH_MARGIN);
+            searches.set(s);
+        }
+        else if(s.getTiles() != tiles) {
+            s.setTiles(tiles);
+        }
+        return s.findPath(startCol, startRow, goalCol, goalRow);
+    }
+
+    /**
+     * Returns the column of the tile under the centre of an object.
+     *
+     * @param o - the object
+     * @return column index
+     */
+    public int colOf(GameObject o) {
+        return tiles.colOf(o.getX() + o.getWidth() / 2);
+    }
+
+    /**
+     * Returns the row of the tile under the centre of an object.
+     *
+     * @param o - the object
+     * @return row index
+     */
+    public int rowOf(GameObject o) {
+        return tiles.rowOf(o.getY() + o.getHeight() / 2);
+    }
+
+    /**
+     * Method sets how far from their targets fields reach. The fields are
+     * made again on the next update.
+     *
+     * @param radius - reach in tiles
+     */
+    public void setFieldRadius(int radius) {
+        fieldRadius = Math.max(radius, 1);
+        fields.clear();
+    }
+
+    /**
+     * Returns how far from their targets fields reach.
+     *
+     * @return reach in tiles
+     */
+    public int getFieldRadius() { return fieldRadius; }
+
+    /**
+     * Method sets how far from the target objects search paths of their
+     * own. Objects farther away don't chase.
+     *
+     * @param range - range in tiles
+     */
+    public void setChaseRange(int range) {
+        chaseRange = Math.max(range, 0);
+    }
+
+    /**
+     * Returns how far from the target objects search paths of their own.
+     *
+     * @return range in tiles
+     */
+    public int getChaseRange() { return chaseRange; }
+}
@@ -0,0 +1,132 @@
+package gengine.profile;
+
+import java.util.Arrays;
+
+/**
+ * This is a histogram of latencies in the style of HdrHistogram. Values
+ * are counted in buckets whose width grows with the value, so every value
+ * is kept with a precision of about one percent, from nanoseconds to
+ * hours, in a fixed array of a few thousand counters. Recording a value
+ * is a few bit operations and one increment, and never allocates.
+ *
+ * A histogram is used by one thread at a time.
+ *
+ * @version 0.3
+ */
+public class Histogram {
+    private static final int SUB_BITS = 7;                  // 128 buckets per power of two
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT / 2;
+    private static final int BUCKETS = SUB_COUNT + (64 - SUB_BITS) * HALF_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Method counts a value. Negative values are counted as 0.
+     *
+     * @param value - the value, usually nanoseconds
+     */
+    public void record(long value) {
+        if(value < 0) {
+            value = 0;
+        }
+        counts[indexOf(value)]++;
+        count++;
+        total += value;
+        if(value < min) {
+            min = value;
+        }
+        if(value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Method returns the value below which the given percentage of the
+     * counted values are. The value is the upper edge of its bucket, so
+     * it is never smaller than the real value.
+     *
+     * @param percentile - from 0 to 100
+     * @return value at the percentile, 0 if nothing is counted
+     */
+    public long getValueAtPercentile(double percentile) {
+        if(count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0.0), 100.0) / 100.0 * count);
+        rank = Math.max(rank, 1);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if(seen >= rank) {
+                return Math.min(highestOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Method empties the histogram.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Returns the number of counted values.
+     *
+     * @return value count
+     */
+    public long getCount() { return count; }
+    /**
+     * Returns the mean of the counted values.
+     *
+     * @return mean, 0 if nothing is counted
+     */
+    public double getMean() { return count == 0 ? 0.0 : (double) total / count; }
+    /**
+     * Returns the smallest counted value.
+     *
+     * @return minimum, 0 if nothing is counted
+     */
+    public long getMin() { return count == 0 ? 0 : min; }
+    /**
+     * Returns the largest counted value.
+     *
+     * @return maximum
+     */
+    public long getMax() { return max; }
+
+    /**
+     * Returns the bucket of a value. Values below SUB_COUNT have a bucket
+     * each. Above that, every power of two is split into HALF_COUNT buckets
+     * by the bits right below the highest one.
+     */
+    static int indexOf(long value) {
+        if(value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return SUB_COUNT + (shift - 1) * HALF_COUNT + (int) (value >>> shift) - HALF_COUNT;
+    }
+
+    /**
+     * Returns the largest value in a bucket.
+     */
+    static long highestOf(int index) {
+        if(index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_COUNT) / HALF_COUNT + 1;
+        long sub = (index - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,21 @@
+package gengine.profile;
+
+/**
+ * The phases of a game update timed by TickProfiler, in the order they run.
+ *      INPUT       - polling the InputSource
+ *      STREAMING   - loading and unloading chunks of a streamed map
+ *      AI          - the decide phase, where enemies work out their moves
+ *      COLLISION   - the commit phase, where objects move and collisions are resolved
+ *      EVENTS      - portals, the events of the update and spawned or despawned objects
+ *      RENDER_PREP - copying the state into a RenderSnapshot, once per round of updates
+ *
+ * @version 0.3
+ */
+public enum Phase {
+    INPUT,
+    STREAMING,
+    AI,
+    COLLISION,
+    EVENTS,
+    RENDER_PREP
+}
@@ -0,0 +1,189 @@
+package gengine.profile;
+
+import gengine.gameobject.ObjectType;
+
+/**
+ * This is a summary of the updates of one report window of TickProfiler.
+ * Reports don't change after they are made, so they can be read from any
+ * thread. Times are in nanoseconds.
+ *
+ * @version 0.3
+ */
+public class ProfileReport {
+    /** Report of a profiler which has not finished a window yet. */
+    public static final ProfileReport EMPTY = new ProfileReport(0, 0, 0.0, 0.0, new long[5], 0.0,
+        new double[Phase.values().length], new long[Phase.values().length], new long[4],
+        new int[ObjectType.values().length], 0);
+
+    private final long totalTicks;
+    private final long ticks;
+    private final double ticksPerSecond;
+    private final double framesPerSecond;
+    private final long[] tickTimes; // p50, p99, p99.9, max, min
+    private final double tickMean;
+    private final double[] phaseMeans;
+    private final long[] phaseP99s;
+    private final long[] inputLatencies; // count, p50, p99, max
+    private final int[] entityCounts;
+    private final long allocatedPerTick;
+
+    /**
+     * The constructor taking all the values of the report. The arrays are
+     * kept as they are, so they must not be changed afterwards.
+     */
+    ProfileReport(long totalTicks, long ticks, double ticksPerSecond, double framesPerSecond,
+            long[] tickTimes, double tickMean, double[] phaseMeans, long[] phaseP99s,
+            long[] inputLatencies, int[] entityCounts, long allocatedPerTick) {
+        this.totalTicks = totalTicks;
+        this.ticks = ticks;
+        this.ticksPerSecond = ticksPerSecond;
+        this.framesPerSecond = framesPerSecond;
+        this.tickTimes = tickTimes;
+        this.tickMean = tickMean;
+        this.phaseMeans = phaseMeans;
+        this.phaseP99s = phaseP99s;
+        this.inputLatencies = inputLatencies;
+        this.entityCounts = entityCounts;
+        this.allocatedPerTick = allocatedPerTick;
+    }
+
+    /**
+     * Returns the number of updates profiled since the profiler was reset.
+     *
+     * @return update count
+     */
+    public long getTotalTicks() { return totalTicks; }
+    /**
+     * Returns the number of updates in the window of the report.
+     *
+     * @return update count
+     */
+    public long getTicks() { return ticks; }
+    /**
+     * Returns the simulated updates per second of wall clock time.
+     *
+     * @return ticks per second
+     */
+    public double getTicksPerSecond() { return ticksPerSecond; }
+    /**
+     * Returns the frames drawn per second.
+     *
+     * @return frames per second, 0 without a window
+     */
+    public double getFramesPerSecond() { return framesPerSecond; }
+    /**
+     * Returns the mean time of an update.
+     *
+     * @return mean in nanoseconds
+     */
+    public double getTickMean() { return tickMean; }
+    /**
+     * Returns the median time of an update.
+     *
+     * @return median in nanoseconds
+     */
+    public long getTickP50() { return tickTimes[0]; }
+    /**
+     * Returns the time 99 percent of the updates took at most.
+     *
+     * @return 99th percentile in nanoseconds
+     */
+    public long getTickP99() { return tickTimes[1]; }
+    /**
+     * Returns the time 99.9 percent of the updates took at most.
+     *
+     * @return 99.9th percentile in nanoseconds
+     */
+    public long getTickP999() { return tickTimes[2]; }
+    /**
+     * Returns the time of the slowest update.
+     *
+     * @return maximum in nanoseconds
+     */
+    public long getTickMax() { return tickTimes[3]; }
+    /**
+     * Returns the time of the fastest update.
+     *
+     * @return minimum in nanoseconds
+     */
+    public long getTickMin() { return tickTimes[4]; }
+    /**
+     * Returns the mean time of a phase. RENDER_PREP is timed once per
+     * snapshot, the other phases once per update.
+     *
+     * @param phase - the phase
+     * @return mean in nanoseconds
+     */
+    public double getPhaseMean(Phase phase) { return phaseMeans[phase.ordinal()]; }
+    /**
+     * Returns the time 99 percent of the runs of a phase took at most.
+     *
+     * @param phase - the phase
+     * @return 99th percentile in nanoseconds
+     */
+    public long getPhaseP99(Phase phase) { return phaseP99s[phase.ordinal()]; }
+    /**
+     * Returns the number of input events handled in the window.
+     *
+     * @return event count
+     */
+    public long getInputEvents() { return inputLatencies[0]; }
+    /**
+     * Returns the median time an input event waited before the update it
+     * was handled in.
+     *
+     * @return median in nanoseconds
+     */
+    public long getInputLatencyP50() { return inputLatencies[1]; }
+    /**
+     * Returns the time 99 percent of the input events waited at most.
+     *
+     * @return 99th percentile in nanoseconds
+     */
+    public long getInputLatencyP99() { return inputLatencies[2]; }
+    /**
+     * Returns the longest time an input event waited.
+     *
+     * @return maximum in nanoseconds
+     */
+    public long getInputLatencyMax() { return inputLatencies[3]; }
+    /**
+     * Returns the number of objects of a type at the end of the window.
+     *
+     * @param type - the object type
+     * @return object count
+     */
+    public int getEntityCount(ObjectType type) { return entityCounts[type.ordinal()]; }
+    /**
+     * Returns the mean number of bytes allocated by the game loop thread
+     * during an update.
+     *
+     * @return bytes per update, -1 if the JVM can't tell
+     */
+    public long getAllocatedPerTick() { return allocatedPerTick; }
+
+    /**
+     * Returns the report as lines of text, as shown by the overlay.
+     *
+     * @return the report
+     */
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append(String.format("TPS %.1f | FPS %.1f | ticks %d%n", ticksPerSecond, framesPerSecond, totalTicks));
+        s.append(String.format("tick us mean %.1f p50 %.1f p99 %.1f p99.9 %.1f max %.1f%n",
+            tickMean / 1e3, tickTimes[0] / 1e3, tickTimes[1] / 1e3, tickTimes[2] / 1e3, tickTimes[3] / 1e3));
+        for(Phase p : Phase.values()) {
+            s.append(String.format("%-11s mean %.1f p99 %.1f%n", p, phaseMeans[p.ordinal()] / 1e3, phaseP99s[p.ordinal()] / 1e3));
+        }
+        s.append(String.format("input us p50 %.1f p99 %.1f max %.1f events %d%n",
+            inputLatencies[1] / 1e3, inputLatencies[2] / 1e3, inputLatencies[3] / 1e3, inputLatencies[0]));
+        s.append("alloc B/tick ").append(allocatedPerTick).append(String.format("%n"));
+        for(ObjectType t : ObjectType.values()) {
+            if(entityCounts[t.ordinal()] > 0) {
+                s.append(t).append(' ').append(entityCounts[t.ordinal()]).append(' ');
+            }
+        }
+        return s.toString().trim();
+    }
+}
@@ -0,0 +1,342 @@
+package gengine.profile;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import gengine.gameobject.EntityStore;
+import gengine.gameobject.ObjectType;
+import gengine.log.Log;
+import gengine.log.Logger;
+
+/**
+ * This is the profiler of the game loop. GameManager times every phase
+ * of its updates with it, and the times are collected into Histograms.
+ * Once per report window, a second by default, the histograms are summed
+ * up into a ProfileReport with percentiles of the update and phase times,
+ * updates and frames per second, object counts by type and the bytes
+ * allocated per update, and emptied for the next window. The time key
+ * events wait before the update handling them is collected the same way.
+ *
+ * Nothing is timed while the profiler is disabled. GameManager then only
+ * reads the enabled flag once per update, so a disabled profiler costs
+ * next to nothing.
+ *
+ * The timing methods are called by the game loop thread only. Frames are
+ * counted by the drawing thread, and reports can be read from any thread,
+ * also through JMX once the profiler is registered.
+ *
+ * Allocations are counted for the game loop thread, so objects allocated
+ * by the threads of a parallel decide phase are left out.
+ *
+ * @version 0.3
+ */
+public class TickProfiler implements TickProfilerMXBean {
+    public static final String OBJECT_NAME = "gengine:type=TickProfiler";
+
+    private static final Logger LOG = Log.getLogger("profile");
+    private static final Phase[] PHASES = Phase.values();
+    private static final ObjectType[] TYPES = ObjectType.values();
+
+    private volatile boolean enabled;
+    private volatile ProfileReport report;
+    private volatile boolean resetPending;
+    private final AtomicLong frames = new AtomicLong();
+    private final com.sun.management.ThreadMXBean threads;
+
+    // Game loop thread only
+    private final Histogram tickTimes;
+    private final Histogram[] phaseTimes;
+    private final Histogram inputLatencies;
+    private final int[] entityCounts;
+    private long window;
+    private long windowStart;
+    private long windowFrames;
+    private long totalTicks;
+    private long tickStart;
+    private long phaseStart;
+    private long allocStart;
+    private long allocated;
+
+    /**
+     * The default constructor. The profiler starts disabled with a report
+     * window of one second.
+     */
+    public TickProfiler() {
+        tickTimes = new Histogram();
+        phaseTimes = new Histogram[PHASES.length];
+        for(int i = 0; i < PHASES.length; i++) {
+            phaseTimes[i] = new Histogram();
+        }
+        inputLatencies = new Histogram();
+        entityCounts = new int[TYPES.length];
+        ThreadMXBean t = ManagementFactory.getThreadMXBean();
+        if(t instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) t).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) t;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        else {
+            threads = null;
+        }
+        report = ProfileReport.EMPTY;
+        setWindow(1000000000L);
+    }
+
+    /**
+     * Method registers the profiler with the platform MBeanServer under
+     * OBJECT_NAME, so it can be read and switched on and off with JMX
+     * tools like JConsole.
+     *
+     * @return true if the profiler was registered
+     */
+    public boolean register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+            return true;
+        }
+        catch(JMException e) {
+            LOG.warn("Could not register profiler: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Method sets whether updates are timed.
+     *
+     * @param enabled - true to time updates
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns whether updates are timed.
+     *
+     * @return true if enabled
+     */
+    @Override
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Method sets the length of the report window. Long.MAX_VALUE makes
+     * one report out of everything until publish is called.
+     *
+     * @param nanos - window length in nanoseconds
+     */
+    public void setWindow(long nanos) {
+        window = Math.max(nanos, 1);
+    }
+
+    /**
+     * Returns the length of the report window.
+     *
+     * @return window length in nanoseconds
+     */
+    public long getWindow() { return window; }
+
+    /**
+     * Method empties the profiler. Called from any thread, the game loop
+     * thread empties it at the start of its next update.
+     */
+    @Override
+    public void reset() {
+        resetPending = true;
+        report = ProfileReport.EMPTY;
+    }
+
+    /**
+     * Method starts timing an update. Called by the game loop thread.
+     */
+    public void beginTick() {
+        if(resetPending) {
+            resetPending = false;
+            clear();
+            totalTicks = 0;
+        }
+        if(threads != null) {
+            allocStart = threads.getCurrentThreadAllocatedBytes();
+        }
+        tickStart = System.nanoTime();
+        phaseStart = tickStart;
+        if(windowStart == 0) {
+            windowStart = tickStart;
+            windowFrames = frames.get();
+        }
+    }
+
+    /**
+     * Method ends a phase of the update. The time since the previous phase
+     * ended, or the update began, is counted for the phase.
+     *
+     * @param phase - the phase just ended
+     */
+    public void mark(Phase phase) {
+        long now = System.nanoTime();
+        phaseTimes[phase.ordinal()].record(now - phaseStart);
+        phaseStart = now;
+    }
+
+    /**
+     * Method ends timing an update. When the report window is over a new
+     * report is made, with the object counts of the store at that moment.
+     *
+     * @param store - the objects of the game
+     */
+    public void endTick(EntityStore store) {
+        long now = System.nanoTime();
+        tickTimes.record(now - tickStart);
+        if(threads != null) {
+            allocated += threads.getCurrentThreadAllocatedBytes() - allocStart;
+        }
+        totalTicks++;
+        if(now - windowStart >= window) {
+            publish(store);
+        }
+    }
+
+    /**
+     * Method counts a phase timed outside of an update, like RENDER_PREP.
+     *
+     * @param phase - the phase
+     * @param nanos - time the phase took
+     */
+    public void record(Phase phase, long nanos) {
+        phaseTimes[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * Method counts the time an input event waited before the update it
+     * was handled in. Called by the game loop thread while polling input.
+     *
+     * @param nanos - time from the event to its handling
+     */
+    public void recordInputLatency(long nanos) {
+        inputLatencies.record(nanos);
+    }
+
+    /**
+     * Method counts a drawn frame. Called by the drawing thread.
+     */
+    public void frameRendered() {
+        frames.incrementAndGet();
+    }
+
+    /**
+     * Method makes a report out of the current window and starts a new
+     * one. Called by the game loop thread, or by any thread after the game
+     * loop has stopped.
+     *
+     * @param store - the objects of the game, or null to leave out counts
+     * @return the new report
+     */
+    public ProfileReport publish(EntityStore store) {
+        long now = System.nanoTime();
+        double seconds = windowStart == 0 ? 0.0 : (now - windowStart) / 1e9;
+        long f = frames.get();
+        long ticks = tickTimes.getCount();
+
+        long[] times = {
+            tickTimes.getValueAtPercentile(50.0), tickTimes.getValueAtPercentile(99.0),
+            tickTimes.getValueAtPercentile(99.9), tickTimes.getMax(), tickTimes.getMin()
+        };
+        double[] means = new double[PHASES.length];
+        long[] p99s = new long[PHASES.length];
+        for(int i = 0; i < PHASES.length; i++) {
+            means[i] = phaseTimes[i].getMean();
+            p99s[i] = phaseTimes[i].getValueAtPercentile(99.0);
+        }
+        long[] latencies = {
+            inputLatencies.getCount(), inputLatencies.getValueAtPercentile(50.0),
+            inputLatencies.getValueAtPercentile(99.0), inputLatencies.getMax()
+        };
+        if(store != null) {
+            store.countTypes(entityCounts);
+        }
+        ProfileReport r = new ProfileReport(totalTicks, ticks,
+            seconds > 0 ? ticks / seconds : 0.0, seconds > 0 ? (f - windowFrames) / seconds : 0.0,
+            times, tickTimes.getMean(), means, p99s, latencies, entityCounts.clone(),
+            threads == null ? -1 : ticks == 0 ? 0 : allocated / ticks);
+        report = r;
+        clear();
+        windowStart = now;
+        windowFrames = f;
+        return r;
+    }
+
+    /**
+     * Method empties the histograms for the next window.
+     */
+    private void clear() {
+        tickTimes.reset();
+        for(Histogram h : phaseTimes) {
+            h.reset();
+        }
+        inputLatencies.reset();
+        allocated = 0;
+        windowStart = 0;
+    }
+
+    /**
+     * Returns the latest report.
+     *
+     * @return the latest ProfileReport, EMPTY before the first one
+     */
+    public ProfileReport getReport() { return report; }
+
+    @Override
+    public long getTickCount() { return report.getTotalTicks(); }
+    @Override
+    public double getTicksPerSecond() { return report.getTicksPerSecond(); }
+    @Override
+    public double getFramesPerSecond() { return report.getFramesPerSecond(); }
+    @Override
+    public double getTickMeanMicros() { return report.getTickMean() / 1e3; }
+    @Override
+    public double getTickP50Micros() { return report.getTickP50() / 1e3; }
+    @Override
+    public double getTickP99Micros() { return report.getTickP99() / 1e3; }
+    @Override
+    public double getTickP999Micros() { return report.getTickP999() / 1e3; }
+    @Override
+    public double getTickMaxMicros() { return report.getTickMax() / 1e3; }
+    @Override
+    public long getAllocatedBytesPerTick() { return report.getAllocatedPerTick(); }
+    @Override
+    public double getInputLatencyP99Micros() { return report.getInputLatencyP99() / 1e3; }
+    @Override
+    public double getInputLatencyMaxMicros() { return report.getInputLatencyMax() / 1e3; }
+
+    @Override
+    public Map<String, Double> getPhaseMeanMicros() {
+        ProfileReport r = report;
+        Map<String, Double> m = new LinkedHashMap<>();
+        for(Phase p : PHASES) {
+            m.put(p.name(), r.getPhaseMean(p) / 1e3);
+        }
+        return m;
+    }
+
+    @Override
+    public Map<String, Double> getPhaseP99Micros() {
+        ProfileReport r = report;
+        Map<String, Double> m = new LinkedHashMap<>();
+        for(Phase p : PHASES) {
+            m.put(p.name(), r.getPhaseP99(p) / 1e3);
+        }
+        return m;
+    }
+
+    @Override
+    public Map<String, Integer> getEntityCounts() {
+        ProfileReport r = report;
+        Map<String, Integer> m = new LinkedHashMap<>();
+        for(ObjectType t : TYPES) {
+            m.put(t.name(), r.getEntityCount(t));
+        }
+        return m;
+    }
+}
@@ -0,0 +1,31 @@
+package gengine.profile;
+
+import java.util.Map;
+
+/**
+ * This is the JMX interface of TickProfiler. The values are those of the
+ * latest ProfileReport, so they change once per report window. Times are
+ * in microseconds.
+ *
+ * @version 0.3
+ */
+public interface TickProfilerMXBean {
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+    void reset();
+
+    long getTickCount();
+    double getTicksPerSecond();
+    double getFramesPerSecond();
+    double getTickMeanMicros();
+    double getTickP50Micros();
+    double getTickP99Micros();
+    double getTickP999Micros();
+    double getTickMaxMicros();
+    Map<String, Double> getPhaseMeanMicros();
+    Map<String, Double> getPhaseP99Micros();
+    Map<String, Integer> getEntityCounts();
+    long getAllocatedBytesPerTick();
+    double getInputLatencyP99Micros();
+    double getInputLatencyMaxMicros();
+}
@@ -0,0 +1,58 @@
+package gengine.random;
+
+/**
+ * This is the source of random numbers for one world. Everything random in
+ * the world, like enemy directions and speeds, comes from streams handed
+ * out by it. The stream of an object depends only on the seed of the world
+ * and the key of the stream, not on how many streams were handed out
+ * before or in which order, so the objects of a streamed map get the same
+ * streams whichever order their chunks load in. Which update a chunk is
+ * installed on is up to ChunkStreamer, deterministic while recording and
+ * replaying.
+ *
+ * @version 0.3
+ */
+public class WorldRandom {
+    private static final long KEY_GAMMA = 0xD1B54A32D192ED03L;
+
+    private final long seed;
+
+    /**
+     * The constructor taking the seed of the world as parameter.
+     *
+     * @param seed - the seed
+     */
+    public WorldRandom(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns a new stream for the given key. The same key always gives
+     * a stream with the same numbers.
+     *
+     * @param key - key of the stream, for example the id of an object
+     * @return the RandomStream
+     */
+    public RandomStream stream(long key) {
+        return new RandomStream(RandomStream.mix(seed + key * KEY_GAMMA));
+    }
+
+    /**
+     * Returns a new stream for a key made of two numbers, for example the
+     * coordinates an object was spawned at.
+     *
+     * @param a - first part of the key
+     * @param b - second part of the key
+     * @return the RandomStream
+     */
+    public RandomStream stream(long a, long b) {
+        return stream(RandomStream.mix(a * KEY_GAMMA) ^ b);
+    }
+
+    /**
+     * Returns the seed of the world.
+     *
+     * @return the seed
+     */
+    public long getSeed() { return seed; }
+}
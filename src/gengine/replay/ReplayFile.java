@@ -0,0 +1,230 @@
+package gengine.replay;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * This is a recording of the input of a game, read into memory. The
+ * recording holds the state of the controls at every update they changed,
+ * and checksums of the game state every few updates. Played back with the
+ * same maps, the game goes through the same states, which the checksums
+ * confirm.
+ *
+ * The format, all values big endian:
+ *      header  - magic "GREP", version (short), flags (short), seed (long),
+ *                tick rate and checksum interval (int), 8 bytes reserved
+ *      records - type (byte) and number of updates since the previous
+ *                record (unsigned LEB128 varint), then
+ *                    INPUT    - state of the controls (byte), see encode
+ *                    CHECKSUM - state checksum before the update (long)
+ *                    END      - nothing, the update count is the length
+ *
+ * Records are a few bytes long, so even a long session makes a small file.
+ *
+ * @version 0.3
+ */
+public class ReplayFile {
+    public static final int MAGIC = 0x47524550; // "GREP"
+    public static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 32;
+
+    // Record types
+    static final byte END = 0;
+    static final byte INPUT = 1;
+    static final byte CHECKSUM = 2;
+
+    private final long seed;
+    private final int tickRate;
+    private final int checksumInterval;
+    private final long length;
+
+    private int inputCount;
+    private long[] inputTicks;
+    private byte[] inputStates;
+    private int checksumCount;
+    private long[] checksumTicks;
+    private long[] checksums;
+
+    /**
+     * The constructor taking the contents of a replay file as parameter.
+     *
+     * @param data - contents of the file
+     * @throws IOException if the data is not a supported replay file
+     */
+    public ReplayFile(ByteBuffer data) throws IOException {
+        if(data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+            throw new IOException("Not a replay file");
+        }
+        short version = data.getShort();
+        if(version != VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+        data.getShort();
+        seed = data.getLong();
+        tickRate = data.getInt();
+        checksumInterval = data.getInt();
+        data.getLong();
+
+        inputTicks = new long[64];
+        inputStates = new byte[64];
+        checksumTicks = new long[64];
+        checksums = new long[64];
+        try {
+            length = readRecords(data);
+        }
+        catch(BufferUnderflowException e) {
+            throw new IOException("Replay ends in the middle of a record");
+        }
+    }
+
+    private long readRecords(ByteBuffer data) throws IOException {
+        long tick = 0;
+        while(true) {
+            if(!data.hasRemaining()) {
+                throw new IOException("Replay ends without END record");
+            }
+            byte type = data.get();
+            tick += readVarLong(data);
+            if(tick < 0) {
+                throw new IOException("Corrupted replay record");
+            }
+            if(type == END) {
+                break;
+            }
+            else if(type == INPUT) {
+                if(inputCount == inputTicks.length) {
+                    inputTicks = Arrays.copyOf(inputTicks, inputCount * 2);
+                    inputStates = Arrays.copyOf(inputStates, inputCount * 2);
+                }
+                inputTicks[inputCount] = tick;
+                inputStates[inputCount] = data.get();
+                inputCount++;
+            }
+            else if(type == CHECKSUM) {
+                if(checksumCount == checksumTicks.length) {
+                    checksumTicks = Arrays.copyOf(checksumTicks, checksumCount * 2);
+                    checksums = Arrays.copyOf(checksums, checksumCount * 2);
+                }
+                checksumTicks[checksumCount] = tick;
+                checksums[checksumCount] = data.getLong();
+                checksumCount++;
+            }
+            else {
+                throw new IOException("Unknown replay record " + type);
+            }
+        }
+        return tick;
+    }
+
+    /**
+     * Method reads a replay file.
+     *
+     * @param path - path of the file
+     * @return the recording
+     * @throws IOException if the file can't be read or is not a replay file
+     */
+    public static ReplayFile open(Path path) throws IOException {
+        return new ReplayFile(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    /**
+     * Method packs the state of the controls into a byte: the ordinal of
+     * the direction in the low three bits and the moving flag above them.
+     *
+     * @param direction - ordinal of the direction
+     * @param moving - whether the player is moving
+     * @return the state byte
+     */
+    static byte encode(int direction, boolean moving) {
+        return (byte) (direction | (moving ? 8 : 0));
+    }
+
+    static long readVarLong(ByteBuffer data) throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            byte b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupted replay record");
+    }
+
+    /**
+     * Returns the seed the recorded game was played with.
+     *
+     * @return the seed
+     */
+    public long getSeed() { return seed; }
+    /**
+     * Returns the number of updates per second of the recorded game.
+     *
+     * @return tick rate in hertz
+     */
+    public int getTickRate() { return tickRate; }
+    /**
+     * Returns the number of updates between checksums.
+     *
+     * @return checksum interval
+     */
+    public int getChecksumInterval() { return checksumInterval; }
+    /**
+     * Returns the number of updates recorded.
+     *
+     * @return recording length in updates
+     */
+    public long getLength() { return length; }
+    /**
+     * Returns the number of input records.
+     *
+     * @return input count
+     */
+    public int getInputCount() { return inputCount; }
+    /**
+     * Returns the update an input record applies from.
+     *
+     * @param i - from 0 to getInputCount() - 1
+     * @return update number
+     */
+    public long getInputTick(int i) { return inputTicks[i]; }
+    /**
+     * Returns the direction ordinal of an input record.
+     *
+     * @param i - from 0 to getInputCount() - 1
+     * @return ordinal of the Direction
+     */
+    public int getInputDirection(int i) { return inputStates[i] & 7; }
+    /**
+     * Returns whether the player moves from an input record on.
+     *
+     * @param i - from 0 to getInputCount() - 1
+     * @return true if moving
+     */
+    public boolean isInputMoving(int i) { return (inputStates[i] & 8) != 0; }
+    /**
+     * Returns the number of checksum records.
+     *
+     * @return checksum count
+     */
+    public int getChecksumCount() { return checksumCount; }
+    /**
+     * Returns the update a checksum was taken before.
+     *
+     * @param i - from 0 to getChecksumCount() - 1
+     * @return update number
+     */
+    public long getChecksumTick(int i) { return checksumTicks[i]; }
+    /**
+     * Returns a recorded checksum.
+     *
+     * @param i - from 0 to getChecksumCount() - 1
+     * @return state checksum
+     */
+    public long getChecksum(int i) { return checksums[i]; }
+}
@@ -0,0 +1,121 @@
+package gengine.replay;
+
+import gengine.Direction;
+import gengine.GameManager;
+import gengine.InputSource;
+import gengine.gameobject.Player;
+
+/**
+ * This is an input source playing back a recording. Every update the
+ * player gets the state of the controls recorded for it, and the recorded
+ * checksums are compared with the game state. The first update where they
+ * differ is kept, as the game has diverged from the recording by then.
+ *
+ * The game must be started with the seed and tick rate of the recording
+ * and the same maps it was recorded on. Streamed maps are switched to
+ * deterministic chunk installs like when recording.
+ *
+ * @version 0.3
+ */
+public class ReplayPlayer implements InputSource {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final ReplayFile replay;
+    private final GameManager manager;
+    private int nextInput;
+    private int nextChecksum;
+    private Direction direction;
+    private boolean moving;
+    private int checked;
+    private long mismatchTick;
+    private long expected;
+    private long actual;
+
+    /**
+     * The constructor taking the recording and the game it is played in.
+     *
+     * @param replay - the recording
+     * @param manager - the game manager playing it back
+     */
+    public ReplayPlayer(ReplayFile replay, GameManager manager) {
+        this.replay = replay;
+        this.manager = manager;
+        manager.setDeterministicStreaming(true);
+        direction = Direction.NONE;
+        mismatchTick = -1;
+    }
+
+    /**
+     * Method checks the checksum recorded before this update, if any,
+     * and applies the recorded controls to the player.
+     *
+     * @param player - the player of the current map
+     * @param tick - number of the update about to run
+     */
+    @Override
+    public void poll(Player player, long tick) {
+        check(tick);
+        while(nextInput < replay.getInputCount() && replay.getInputTick(nextInput) <= tick) {
+            direction = DIRECTIONS[replay.getInputDirection(nextInput)];
+            moving = replay.isInputMoving(nextInput);
+            nextInput++;
+        }
+        player.setDirection(direction);
+        player.setMoving(moving);
+    }
+
+    /**
+     * Method checks the checksum of the final state. Called after the
+     * whole recording has been played.
+     */
+    public void finish() {
+        check(manager.getTick());
+    }
+
+    private void check(long tick) {
+        while(nextChecksum < replay.getChecksumCount() && replay.getChecksumTick(nextChecksum) <= tick) {
+            if(replay.getChecksumTick(nextChecksum) == tick) {
+                long state = manager.getStateChecksum();
+                checked++;
+                if(mismatchTick < 0 && state != replay.getChecksum(nextChecksum)) {
+                    mismatchTick = tick;
+                    expected = replay.getChecksum(nextChecksum);
+                    actual = state;
+                }
+            }
+            nextChecksum++;
+        }
+    }
+
+    /**
+     * Returns whether every update of the recording has been played.
+     *
+     * @return true when the game has reached the end of the recording
+     */
+    public boolean isFinished() { return manager.getTick() >= replay.getLength(); }
+    /**
+     * Returns the number of checksums compared so far.
+     *
+     * @return compared checksum count
+     */
+    public int getChecked() { return checked; }
+    /**
+     * Returns the first update before which the game state differed from
+     * the recording.
+     *
+     * @return update number, -1 if every checksum has matched
+     */
+    public long getMismatchTick() { return mismatchTick; }
+    /**
+     * Returns the recorded checksum of the first mismatch.
+     *
+     * @return expected checksum
+     */
+    public long getExpectedChecksum() { return expected; }
+    /**
+     * Returns the checksum of the game state at the first mismatch.
+     *
+     * @return actual checksum
+     */
+    public long getActualChecksum() { return actual; }
+}
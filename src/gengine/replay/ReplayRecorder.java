@@ -0,0 +1,157 @@
+package gengine.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import gengine.GameManager;
+import gengine.InputSource;
+import gengine.gameobject.Player;
+import gengine.log.Log;
+import gengine.log.Logger;
+
+/**
+ * This is an input source recording the input of another one into a
+ * replay file, see ReplayFile for the format. After the wrapped source
+ * has been polled, the state of the player's controls is written whenever
+ * it differs from the previous update, along with a checksum of the game
+ * state every few updates. The recorder must be closed to finish the file.
+ * Streamed maps are switched to deterministic chunk installs, so the
+ * recording plays back the same way.
+ *
+ * The recorder is used by the game loop thread only.
+ *
+ * @version 0.3
+ */
+public class ReplayRecorder implements InputSource {
+    private static final Logger LOG = Log.getLogger("replay");
+
+    private final GameManager manager;
+    private final InputSource source;
+    private final int checksumInterval;
+    private DataOutputStream out;
+    private long lastTick;   // Update of the previous record
+    private long nextTick;   // Update after the latest polled one
+    private int lastState;
+
+    /**
+     * The constructor taking the game, the recorded source and the file.
+     * The header is written right away with the seed and tick rate of
+     * the game, so they must be set before.
+     *
+     * @param manager - the game manager being recorded
+     * @param source - the input source to record, null for none
+     * @param path - path of the replay file
+     * @param checksumInterval - number of updates between checksums
+     * @throws IOException if the file can't be written
+     */
+    public ReplayRecorder(GameManager manager, InputSource source, Path path, int checksumInterval) throws IOException {
+        this.manager = manager;
+        this.source = source;
+        this.checksumInterval = Math.max(checksumInterval, 1);
+        manager.setDeterministicStreaming(true);
+        lastState = -1;
+        lastTick = 0;
+        nextTick = manager.getTick();
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        out.writeInt(ReplayFile.MAGIC);
+        out.writeShort(ReplayFile.VERSION);
+        out.writeShort(0);
+        out.writeLong(manager.getSeed());
+        out.writeInt(manager.getTickRate());
+        out.writeInt(this.checksumInterval);
+        out.writeLong(0);
+    }
+
+    /**
+     * Method takes the checksum of the state left by the previous update
+     * when one is due, polls the recorded source and writes the state of
+     * the controls if it changed.
+     *
+     * @param player - the player of the current map
+     * @param tick - number of the update about to run
+     */
+    @Override
+    public void poll(Player player, long tick) {
+        if(out != null && tick % checksumInterval == 0) {
+            writeChecksum(tick);
+        }
+        if(source != null) {
+            source.poll(player, tick);
+        }
+        int state = ReplayFile.encode(player.getDirection().ordinal(), player.isMoving());
+        if(out != null && state != lastState) {
+            try {
+                writeRecord(ReplayFile.INPUT, tick);
+                out.writeByte(state);
+                lastState = state;
+            }
+            catch(IOException e) {
+                fail(e);
+            }
+        }
+        nextTick = tick + 1;
+    }
+
+    /**
+     * Method finishes the file. The checksum of the final state is written
+     * so playing back can check the end as well. Must be called from the
+     * game loop thread, or after the game loop has stopped.
+     */
+    public void close() {
+        if(out == null) {
+            return;
+        }
+        writeChecksum(nextTick);
+        try {
+            writeRecord(ReplayFile.END, nextTick);
+            out.close();
+        }
+        catch(IOException e) {
+            fail(e);
+        }
+        out = null;
+    }
+
+    /**
+     * Returns whether the recorder is still writing.
+     *
+     * @return true until closed or a write fails
+     */
+    public boolean isRecording() { return out != null; }
+
+    private void writeChecksum(long tick) {
+        try {
+            writeRecord(ReplayFile.CHECKSUM, tick);
+            out.writeLong(manager.getStateChecksum());
+        }
+        catch(IOException e) {
+            fail(e);
+        }
+    }
+
+    private void writeRecord(byte type, long tick) throws IOException {
+        out.writeByte(type);
+        long delta = tick - lastTick;
+        while((delta & ~0x7FL) != 0) {
+            out.writeByte((int) (delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        out.writeByte((int) delta);
+        lastTick = tick;
+    }
+
+    /**
+     * Method stops recording after a failed write. The game keeps going.
+     */
+    private void fail(IOException e) {
+        LOG.warn("Recording stopped: " + e.getMessage());
+        try {
+            out.close();
+        }
+        catch(IOException ignored) {
+        }
+        out = null;
+    }
+}
@@ -0,0 +1,54 @@
+package gengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the ring of InputQueue, which must keep the order of events as
+ * its indexes wrap around.
+ *
+ * @version 0.3
+ */
+class InputQueueTest {
+    @Test
+    void keepsOrderAcrossWraparound() {
+        InputQueue queue = new InputQueue(4);
+        int next = 0;
+        int expected = 0;
+        for(int round = 0; round < 100; round++) {
+            // Three in, two out, and the queue emptied every few rounds
+            for(int i = 0; i < 3 && queue.size() < 4; i++) {
+                assertTrue(queue.offer(next, 1000L + next));
+                next++;
+            }
+            int polls = round % 5 == 4 ? queue.size() : 2;
+            for(int i = 0; i < polls; i++) {
+                assertEquals(expected, queue.poll());
+                assertEquals(1000L + expected, queue.getPolledTime());
+                expected++;
+            }
+        }
+        assertEquals(next - expected, queue.size());
+        assertEquals(0, queue.getDropped());
+    }
+
+    @Test
+    void dropsEventsWhenFull() {
+        InputQueue queue = new InputQueue(5); // Rounded up to 8
+        for(int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(i, i));
+        }
+        assertFalse(queue.offer(8, 8));
+        assertEquals(1, queue.getDropped());
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(9, 9));
+        for(int i = 1; i < 8; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertEquals(9, queue.poll());
+        assertEquals(InputQueue.EMPTY, queue.poll());
+    }
+}
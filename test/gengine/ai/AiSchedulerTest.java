@@ -0,0 +1,216 @@
+package gengine.ai;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import gengine.gameobject.EntityStore;
+import gengine.gameobject.MovableObject;
+
+/**
+ * Tests AiScheduler: the split of enemies into near, far and dormant by
+ * their distance, far decides spread evenly over the updates, the budget
+ * going round the slots, and the cap on the time a far enemy decides for.
+ *
+ * The player stands at 0, 0 and every enemy is a candidate.
+ *
+ * @version 0.3
+ */
+class AiSchedulerTest {
+    private static final long DELTA = 1000;
+    private static final int NEAR = 500;
+    private static final int FAR = 1000;
+    private static final int DORMANT = 5000;
+
+    private AiScheduler scheduler;
+    private EntityStore store;
+    private int[] deciding;
+    private long[] times;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new AiScheduler();
+        store = new EntityStore();
+    }
+
+    @Test
+    void splitsByDistance() {
+        MovableObject near = add(NEAR - 10);
+        MovableObject far = add(FAR);
+        MovableObject dormant = add(DORMANT);
+        for(int update = 0; update < 3 * AiScheduler.DEFAULT_FAR_PERIOD; update++) {
+            int n = schedule();
+            assertEquals(1, scheduler.getNearCount());
+            assertEquals(1, scheduler.getFarCount());
+            assertEquals(1, scheduler.getDormantCount());
+            assertEquals(0, deciding[0]);
+            assertEquals(DELTA, times[0]);
+            for(int k = 0; k < n; k++) {
+                assertTrue(deciding[k] != 2);
+            }
+        }
+        assertEquals(-1, near.getWaitTime());
+        assertEquals(-1, dormant.getWaitTime());
+        assertTrue(far.getWaitTime() >= 0);
+    }
+
+    @Test
+    void spreadsFarDecidesOverPeriod() {
+        int period = AiScheduler.DEFAULT_FAR_PERIOD;
+        int count = 8 * period;
+        for(int i = 0; i < count; i++) {
+            add(FAR + i);
+        }
+        int[] decides = new int[count];
+        for(int update = 0; update < 5 * period; update++) {
+            int n = schedule();
+            // Enemies spawned together don't decide together
+            assertEquals(count / period, n);
+            for(int k = 0; k < n; k++) {
+                int slot = deciding[k];
+                decides[slot]++;
+                if(update < period) {
+                    assertEquals(period - 1 - update, slot % period);
+                }
+                assertEquals(period * DELTA, times[k]);
+            }
+        }
+        for(int d : decides) {
+            assertEquals(5, d);
+        }
+    }
+
+    @Test
+    void spreadsEnemiesLeavingNearArea() {
+        int period = AiScheduler.DEFAULT_FAR_PERIOD;
+        MovableObject[] enemies = new MovableObject[4 * period];
+        for(int i = 0; i < enemies.length; i++) {
+            enemies[i] = add(NEAR - 1 - i);
+        }
+        assertEquals(enemies.length, schedule());
+
+        // The player runs off and the whole group is left behind at once
+        for(MovableObject o : enemies) {
+            o.setX(o.getX() + FAR);
+        }
+        for(int update = 0; update < 2 * period; update++) {
+            assertEquals(4, schedule());
+        }
+    }
+
+    @Test
+    void budgetGoesRoundSlots() {
+        scheduler.setFarPeriod(1);
+        scheduler.setBudget(6);
+        for(int i = 0; i < 20; i++) {
+            add(FAR);
+        }
+        int[][] expected = {
+            {0, 1, 2, 3, 4, 5},
+            {6, 7, 8, 9, 10, 11},
+            {12, 13, 14, 15, 16, 17},
+            {0, 1, 2, 3, 18, 19},      // The cursor wraps round
+            {4, 5, 6, 7, 8, 9}};
+        for(int[] slots : expected) {
+            int n = schedule();
+            assertEquals(6, n);
+            assertEquals(14, scheduler.getDeferredCount());
+            assertArrayEquals(slots, Arrays.copyOf(deciding, n));
+        }
+    }
+
+    @Test
+    void deferredEnemiesDecideForTimeWaited() {
+        scheduler.setFarPeriod(1);
+        scheduler.setBudget(6);
+        for(int i = 0; i < 20; i++) {
+            add(FAR);
+        }
+        schedule();
+        assertArrayEquals(new long[] {DELTA, DELTA, DELTA, DELTA, DELTA, DELTA}, Arrays.copyOf(times, 6));
+        schedule(); // Slots 6 to 11 waited one update more
+        assertArrayEquals(new long[] {2 * DELTA, 2 * DELTA, 2 * DELTA, 2 * DELTA, 2 * DELTA, 2 * DELTA},
+            Arrays.copyOf(times, 6));
+        schedule(); // Slots 12 to 17 waited two, but the cap is two periods
+        assertArrayEquals(new long[] {2 * DELTA, 2 * DELTA, 2 * DELTA, 2 * DELTA, 2 * DELTA, 2 * DELTA},
+            Arrays.copyOf(times, 6));
+    }
+
+    @Test
+    void capsTimeWaitedAtTwoPeriods() {
+        int period = AiScheduler.DEFAULT_FAR_PERIOD;
+        MovableObject far = add(FAR);
+        MovableObject near = add(0);
+
+        // Both were left out for long, like on an unloaded chunk
+        far.setWaitTime(100 * period * DELTA);
+        near.setWaitTime(100 * period * DELTA);
+        assertEquals(2, schedule());
+        assertArrayEquals(new long[] {2 * period * DELTA, 2 * period * DELTA}, Arrays.copyOf(times, 2));
+
+        // A far enemy coming near catches up the time it waited
+        for(int update = 0; update < 3; update++) {
+            schedule();
+        }
+        assertEquals(3 * DELTA, far.getWaitTime());
+        far.setX(0);
+        assertEquals(2, schedule());
+        assertEquals(4 * DELTA, times[0]);
+        assertEquals(DELTA, times[1]);
+    }
+
+    @Test
+    void dormantEnemiesDontWait() {
+        int period = AiScheduler.DEFAULT_FAR_PERIOD;
+        MovableObject[] enemies = new MovableObject[2 * period];
+        for(int i = 0; i < enemies.length; i++) {
+            enemies[i] = add(DORMANT + i);
+        }
+        for(int update = 0; update < 10 * period; update++) {
+            assertEquals(0, schedule());
+        }
+        assertEquals(enemies.length, scheduler.getDormantCount());
+
+        // Coming into the far area they decide within a period, for no more than one
+        for(MovableObject o : enemies) {
+            o.setX(FAR);
+        }
+        int decided = 0;
+        for(int update = 0; update < period; update++) {
+            int n = schedule();
+            assertEquals(2, n);
+            for(int k = 0; k < n; k++) {
+                assertTrue(times[k] <= period * DELTA);
+            }
+            decided += n;
+        }
+        assertEquals(enemies.length, decided);
+    }
+
+    /**
+     * Method adds an enemy whose centre is at the given distance right of
+     * the player.
+     */
+    private MovableObject add(int distance) {
+        MovableObject o = new MovableObject(distance - 16, -16, 32, 32);
+        store.add(o);
+        return o;
+    }
+
+    /**
+     * Method schedules an update with every enemy as a candidate.
+     *
+     * @return number of enemies deciding
+     */
+    private int schedule() {
+        deciding = new int[store.size()];
+        times = new long[store.size()];
+        for(int i = 0; i < deciding.length; i++) {
+            deciding[i] = i;
+        }
+        return scheduler.schedule(store, deciding, deciding.length, times, 0, 0, DELTA);
+    }
+}
@@ -0,0 +1,64 @@
+package gengine.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the EventBus dispatches events in the order they were posted,
+ * also when listeners post so many events during a drain that the ring
+ * grows.
+ *
+ * @version 0.3
+ */
+class EventBusTest {
+    @Test
+    void dispatchesInPostOrder() {
+        EventBus bus = new EventBus(4);
+        List<Integer> seen = new ArrayList<>();
+        bus.subscribe(EventType.PICKUP, e -> seen.add(e.getValue()));
+        bus.subscribe(EventType.DAMAGE, e -> seen.add(-e.getValue()));
+        bus.setTick(7);
+        bus.post(EventType.PICKUP, null, null, 1);
+        bus.post(EventType.DAMAGE, null, null, 2);
+        bus.post(EventType.LEVEL_CHANGE, null, null, 3);
+        bus.post(EventType.PICKUP, null, null, 4);
+        assertEquals(4, bus.drain());
+        assertEquals(List.of(1, -2, 4), seen);
+        assertEquals(0, bus.size());
+    }
+
+    @Test
+    void growsDuringDrain() {
+        EventBus bus = new EventBus(4);
+        List<Integer> seen = new ArrayList<>();
+        List<Long> ticks = new ArrayList<>();
+        // Every pickup below 100 posts two more, so the ring has to grow
+        // while the slot being dispatched is still taken
+        bus.subscribe(EventType.PICKUP, e -> {
+            seen.add(e.getValue());
+            ticks.add(e.getTick());
+            if(e.getValue() < 100) {
+                bus.post(EventType.PICKUP, null, null, e.getValue() * 2);
+                bus.post(EventType.PICKUP, null, null, e.getValue() * 2 + 1);
+            }
+        });
+        bus.setTick(3);
+        bus.post(EventType.PICKUP, null, null, 1);
+        int dispatched = bus.drain();
+
+        // Posted breadth first, so the values come out counting up
+        assertEquals(seen.size(), dispatched);
+        for(int i = 0; i < seen.size(); i++) {
+            assertEquals(i + 1, seen.get(i));
+            assertEquals(3L, ticks.get(i));
+        }
+        assertEquals(199, dispatched);
+        assertEquals(199, bus.getPosted());
+        assertEquals(0, bus.size());
+        assertTrue(bus.getAllocated() > 4);
+    }
+}
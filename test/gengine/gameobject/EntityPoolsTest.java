@@ -0,0 +1,202 @@
+package gengine.gameobject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import gengine.Direction;
+import gengine.GameManager;
+import gengine.Map;
+import gengine.event.EventBus;
+import gengine.path.PathService;
+
+/**
+ * Tests EntityPools: enemies and collectables come back from the pools like
+ * new ones, objects are given back to the pool of their class only when
+ * off the map, and the counts of the pools across a level change of
+ * GameManager.
+ *
+ * @version 0.3
+ */
+class EntityPoolsTest {
+    @Test
+    void releasedEnemyComesBackReset() {
+        EntityPools pools = new EntityPools();
+        EntityStore store = new EntityStore();
+        SpatialGrid grid = new SpatialGrid(new TileLayer(0, 0, 32, 10, 10, new ArrayList<>()));
+        Enemy enemy = pools.acquireEnemy();
+        enemy.setX(100);
+        enemy.setY(60);
+        enemy.setWidth(20);
+        enemy.setSpeed(3.0);
+        enemy.setDirection(Direction.LEFT);
+        enemy.setMoving(true);
+        enemy.setMovableDirections(false, false, true, false);
+        enemy.setSpriteId(2);
+        enemy.setVisible(false);
+        enemy.setEventBus(new EventBus());
+        enemy.setPaths(new PathService());
+        enemy.setWaitTime(5000);
+        store.add(enemy);
+        grid.add(enemy);
+        enemy.savePosition();
+
+        store.remove(enemy);
+        grid.remove(enemy);
+        assertTrue(pools.release(enemy));
+        Enemy again = pools.acquireEnemy();
+        assertSame(enemy, again);
+        assertEquals(0.0, again.getX());
+        assertEquals(0.0, again.getY());
+        assertEquals(0.0, again.getPreviousX());
+        assertEquals(32.0, again.getWidth());
+        assertEquals(32.0, again.getHeight());
+        assertEquals(ObjectType.ENEMY, again.getType());
+        assertEquals(0.0, again.getSpeed());
+        assertEquals(Direction.NONE, again.getDirection());
+        assertFalse(again.isMoving());
+        assertTrue(Arrays.equals(new boolean[] {true, true, true, true}, again.getMovableDirections()));
+        assertEquals(-1, again.getSpriteId());
+        assertTrue(again.isVisible());
+        assertTrue(again.isCollidable());
+        assertEquals(-1, again.getWaitTime());
+        assertNull(again.getEventBus());
+        assertNull(again.getPaths());
+        assertNull(again.getGrid());
+        assertNull(again.getStore());
+    }
+
+    @Test
+    void releasedCollectableComesBackReset() {
+        EntityPools pools = new EntityPools();
+        Collectable c = pools.acquireCollectable();
+        c.collectType = Collectable.Type.SCORE;
+        c.setValue(100);
+        c.setX(64);
+        c.setSpriteId(3);
+        c.pickUp();
+        assertTrue(c.isPickedUp());
+
+        assertTrue(pools.release(c));
+        Collectable again = pools.acquireCollectable();
+        assertSame(c, again);
+        assertEquals(ObjectType.COLLECTABLE, again.getType());
+        assertEquals(Collectable.Type.NONE, again.collectType);
+        assertEquals(0, again.getValue());
+        assertFalse(again.isPickedUp());
+        assertEquals(0.0, again.getX());
+        assertEquals(-1, again.getSpriteId());
+    }
+
+    @Test
+    void releasesToPoolOfClass() {
+        EntityPools pools = new EntityPools();
+        GameObject tile = new GameObject();
+        tile.setType(ObjectType.PORTAL);
+        assertTrue(pools.release(tile));
+        assertTrue(pools.release(new Enemy()));
+        assertFalse(pools.release(new Player()));
+        assertFalse(pools.release(new MovableObject()));
+        assertEquals(1, pool(pools, "tiles").getFree());
+        assertEquals(1, pool(pools, "enemies").getFree());
+        assertEquals(0, pool(pools, "collectables").getFree());
+        assertSame(tile, pools.acquireTile());
+        assertEquals(ObjectType.UNDEFINED, tile.getType());
+    }
+
+    @Test
+    void releasingObjectInStoreThrows() {
+        EntityPools pools = new EntityPools();
+        EntityStore store = new EntityStore();
+        Enemy enemy = pools.acquireEnemy();
+        Collectable c = pools.acquireCollectable();
+        store.add(enemy);
+        store.add(c);
+        assertThrows(IllegalStateException.class, () -> pools.release(enemy));
+        assertThrows(IllegalStateException.class, () -> pools.release(c));
+        assertEquals(0, pool(pools, "enemies").getFree());
+
+        // Leaving the level takes them off the store first
+        assertEquals(2, pools.releaseAll(store));
+        assertEquals(0, store.size());
+        assertEquals(1, pool(pools, "enemies").getFree());
+        assertEquals(1, pool(pools, "collectables").getFree());
+    }
+
+    @Test
+    void fullPoolsDropObjectsOfLevel() {
+        EntityPools pools = new EntityPools(2);
+        EntityStore store = new EntityStore();
+        for(int i = 0; i < 5; i++) {
+            store.add(pools.acquireEnemy());
+        }
+        store.add(new Player());
+        assertEquals(2, pools.releaseAll(store));
+        assertEquals(0, store.size());
+        ObjectPool<?> enemies = pool(pools, "enemies");
+        assertEquals(2, enemies.getFree());
+        assertEquals(3, enemies.getDropped());
+        assertEquals(5, enemies.getMisses());
+    }
+
+    @Test
+    void countsAcrossLevelChange() {
+        // Walls and portals come from the tile pool
+        List<Map> maps = new ArrayList<>();
+        maps.add(new Map(new char[][] {
+            "P.ee.o".toCharArray(),
+            "xx.xs.".toCharArray()}));
+        maps.add(new Map(new char[][] {
+            "P.e.oo".toCharArray(),
+            "xxxxx.".toCharArray()}));
+        GameManager manager = new GameManager();
+        manager.setSeed(1);
+        manager.setMaps(maps);
+        EntityPools pools = manager.getPools();
+
+        manager.setCurrentMap(0);
+        manager.getMap();
+        check(pools, "enemies", 0, 2, 0);
+        check(pools, "collectables", 0, 1, 0);
+        check(pools, "tiles", 0, 4, 0);
+
+        // The objects of the first level are reused by the second
+        manager.setCurrentMap(1);
+        manager.getMap();
+        check(pools, "enemies", 1, 2, 1);
+        check(pools, "collectables", 1, 2, 0);
+        check(pools, "tiles", 4, 5, 0);
+
+        manager.setCurrentMap(0);
+        manager.getMap();
+        check(pools, "enemies", 3, 2, 0);
+        check(pools, "collectables", 2, 2, 1);
+        check(pools, "tiles", 8, 5, 1);
+        for(ObjectPool<?> p : pools.getPools()) {
+            assertEquals(0, p.getDropped());
+        }
+    }
+
+    private static void check(EntityPools pools, String name, long hits, long misses, int free) {
+        ObjectPool<?> p = pool(pools, name);
+        assertEquals(hits, p.getHits(), name + " hits");
+        assertEquals(misses, p.getMisses(), name + " misses");
+        assertEquals(free, p.getFree(), name + " free");
+    }
+
+    private static ObjectPool<?> pool(EntityPools pools, String name) {
+        for(ObjectPool<?> p : pools.getPools()) {
+            if(p.getName().equals(name)) {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+}
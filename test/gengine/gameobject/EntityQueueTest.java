@@ -0,0 +1,97 @@
+package gengine.gameobject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the changes queued in an EntityQueue are applied to the store
+ * and the grid in the order they were made, and only once.
+ *
+ * @version 0.3
+ */
+class EntityQueueTest {
+    private EntityStore store;
+    private SpatialGrid grid;
+    private EntityQueue queue;
+    private final List<GameObject> out = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        store = new EntityStore();
+        grid = new SpatialGrid(new TileLayer(0, 0, 32, 8, 8, new ArrayList<>()));
+        queue = new EntityQueue();
+    }
+
+    @Test
+    void appliesInOrder() {
+        MovableObject a = new MovableObject(0, 0, 32, 32);
+        MovableObject b = new MovableObject(64, 0, 32, 32);
+        queue.add(a);
+        queue.add(b);
+        assertEquals(0, store.size());
+        assertEquals(2, queue.apply(store, grid));
+        assertSame(a, store.get(0));
+        assertSame(b, store.get(1));
+        assertSame(grid, a.getGrid());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void addThenRemoveLeavesNothing() {
+        MovableObject o = new MovableObject(0, 0, 32, 32);
+        queue.add(o);
+        queue.remove(o);
+        assertEquals(2, queue.apply(store, grid));
+        assertEquals(0, store.size());
+        assertNull(o.store);
+        assertNull(o.getGrid());
+        assertTrue(grid.queryDynamic(0, 0, 256, 256, null, out).isEmpty());
+    }
+
+    @Test
+    void removeThenAddKeepsObject() {
+        MovableObject o = new MovableObject(0, 0, 32, 32);
+        MovableObject other = new MovableObject(64, 0, 32, 32);
+        store.add(o);
+        store.add(other);
+        grid.add(o);
+        grid.add(other);
+        queue.remove(o);
+        queue.add(o);
+        assertEquals(2, queue.apply(store, grid));
+        assertEquals(2, store.size());
+        assertSame(other, store.get(0));
+        assertSame(o, store.get(1));
+        assertSame(grid, o.getGrid());
+    }
+
+    @Test
+    void changesObjectsOnce() {
+        MovableObject o = new MovableObject(0, 0, 32, 32);
+        queue.add(o);
+        queue.add(o);
+        assertEquals(1, queue.apply(store, grid));
+        queue.remove(o);
+        queue.remove(o);
+        assertEquals(1, queue.apply(store, grid));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void clearDropsChanges() {
+        for(int i = 0; i < 100; i++) {
+            queue.add(new MovableObject(0, 0, 32, 32));
+        }
+        assertEquals(100, queue.size());
+        queue.clear();
+        assertEquals(0, queue.apply(store, grid));
+        assertEquals(0, store.size());
+    }
+}
@@ -0,0 +1,107 @@
+package gengine.gameobject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests adding and removing objects of an EntityStore. Removing moves the
+ * last object into the freed slot, so the handle of the moved object must
+ * follow it, and a removed object must keep its attributes.
+ *
+ * @version 0.3
+ */
+class EntityStoreTest {
+    private EntityStore store;
+    private MovableObject a;
+    private MovableObject b;
+    private MovableObject c;
+
+    @BeforeEach
+    void setUp() {
+        store = new EntityStore(2); // Grows on the third add
+        a = new MovableObject(10, 11, 32, 32);
+        b = new MovableObject(20, 21, 32, 32);
+        c = new MovableObject(30, 31, 32, 32);
+        c.setSpeed(3.0);
+        assertEquals(0, store.add(a));
+        assertEquals(1, store.add(b));
+        assertEquals(2, store.add(c));
+    }
+
+    @Test
+    void keepsAttributesInSlots() {
+        assertEquals(3, store.size());
+        assertEquals(30.0, store.getX(2));
+        assertEquals(31.0, store.getY(2));
+        c.setX(35);
+        assertEquals(35.0, store.getX(2));
+        assertEquals(3.0, c.getSpeed());
+        assertEquals(1, store.add(b)); // Already in the store
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void removesLastSlot() {
+        assertTrue(store.remove(c));
+        assertEquals(2, store.size());
+        assertSame(a, store.get(0));
+        assertSame(b, store.get(1));
+        assertEquals(10.0, a.getX());
+        assertEquals(20.0, b.getX());
+        assertNull(c.store);
+    }
+
+    @Test
+    void movesLastObjectIntoRemovedSlot() {
+        assertTrue(store.remove(a));
+        assertEquals(2, store.size());
+        assertSame(c, store.get(0));
+        assertSame(b, store.get(1));
+
+        // The moved handle reads and writes its new slot
+        assertEquals(0, c.index);
+        assertEquals(30.0, c.getX());
+        assertEquals(31.0, c.getY());
+        assertEquals(3.0, c.getSpeed());
+        c.setX(40);
+        assertEquals(40.0, store.getX(0));
+        assertEquals(20.0, b.getX());
+    }
+
+    @Test
+    void removedObjectKeepsItsAttributes() {
+        b.setX(25);
+        store.remove(b);
+        assertEquals(25.0, b.getX());
+        assertEquals(21.0, b.getY());
+        b.setX(50);
+        assertEquals(50.0, b.getX());
+        assertEquals(30.0, store.getX(1)); // c moved into the slot of b
+        assertFalse(store.remove(b));
+    }
+
+    @Test
+    void removesEverySlot() {
+        store.remove(b);
+        store.remove(c);
+        store.remove(a);
+        assertEquals(0, store.size());
+        assertTrue(store.asList().isEmpty());
+        assertEquals(0, store.add(c));
+        assertEquals(30.0, store.getX(0));
+    }
+
+    @Test
+    void listViewFollowsStore() {
+        assertEquals(3, store.asList().size());
+        store.asList().remove(1);
+        assertNull(b.store);
+        assertSame(c, store.asList().get(1));
+    }
+}
@@ -0,0 +1,81 @@
+package gengine.gameobject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests ObjectPool: reusing released objects, counting hits, misses and
+ * objects dropped by a full pool, and refusing objects still in a store.
+ *
+ * @version 0.3
+ */
+class ObjectPoolTest {
+    @Test
+    void reusesReleasedObjects() {
+        ObjectPool<GameObject> pool = new ObjectPool<>("tiles", GameObject::new, 8);
+        GameObject a = pool.acquire();
+        GameObject b = pool.acquire();
+        assertNotSame(a, b);
+        assertEquals(2, pool.getMisses());
+        assertEquals(0, pool.getHits());
+
+        assertTrue(pool.release(a));
+        assertTrue(pool.release(b));
+        assertEquals(2, pool.getFree());
+        assertSame(b, pool.acquire());
+        assertSame(a, pool.acquire());
+        assertEquals(2, pool.getHits());
+        assertEquals(0, pool.getFree());
+        assertEquals(0.5, pool.getHitRate());
+
+        pool.acquire();
+        assertEquals(3, pool.getMisses());
+    }
+
+    @Test
+    void dropsObjectsOverMaxSize() {
+        ObjectPool<GameObject> pool = new ObjectPool<>("tiles", GameObject::new, 100);
+        for(int i = 0; i < 150; i++) {
+            pool.release(new GameObject());
+        }
+        assertEquals(100, pool.getFree());
+        assertEquals(50, pool.getDropped());
+
+        ObjectPool<GameObject> none = new ObjectPool<>("none", GameObject::new, 0);
+        assertFalse(none.release(new GameObject()));
+        assertEquals(1, none.getDropped());
+    }
+
+    @Test
+    void refusesObjectStillInStore() {
+        ObjectPool<GameObject> pool = new ObjectPool<>("tiles", GameObject::new, 8);
+        EntityStore store = new EntityStore();
+        GameObject o = pool.acquire();
+        store.add(o);
+        assertThrows(IllegalStateException.class, () -> pool.release(o));
+        assertEquals(0, pool.getFree());
+        assertSame(store, o.getStore());
+
+        store.remove(o);
+        assertTrue(pool.release(o));
+    }
+
+    @Test
+    void resetsMetrics() {
+        ObjectPool<GameObject> pool = new ObjectPool<>("tiles", GameObject::new, 1);
+        pool.release(pool.acquire());
+        pool.release(new GameObject());
+        pool.acquire();
+        pool.resetMetrics();
+        assertEquals(0, pool.getHits());
+        assertEquals(0, pool.getMisses());
+        assertEquals(0, pool.getDropped());
+        assertEquals(0.0, pool.getHitRate());
+    }
+}
@@ -0,0 +1,116 @@
+package gengine.gameobject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the queries of SpatialGrid: every object is listed once however
+ * many cells it covers, objects touching the area with their edge are
+ * found, and the static blocks come from the TileLayer.
+ *
+ * @version 0.3
+ */
+class SpatialGridTest {
+    private static final int TILE = 32;
+
+    private GameObject block;
+    private SpatialGrid grid;
+    private final List<GameObject> out = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        block = new GameObject(3 * TILE, 3 * TILE, TILE, TILE);
+        block.setType(ObjectType.BLOCK);
+        List<GameObject> blocks = new ArrayList<>();
+        blocks.add(block);
+        grid = new SpatialGrid(new TileLayer(0, 0, TILE, 10, 10, blocks));
+    }
+
+    @Test
+    void listsObjectOnceAcrossCells() {
+        // Covers columns and rows 3 to 5
+        MovableObject big = new MovableObject(100, 100, 64, 64);
+        grid.add(big);
+        grid.query(0, 0, 10 * TILE, 10 * TILE, null, out);
+        assertEquals(2, out.size());
+        assertEquals(1, count(out, big));
+        assertEquals(1, count(out, block));
+
+        // The first covered cell is left of the area, the object is listed
+        // in the first cell of the area instead
+        grid.queryDynamic(150, 150, 10, 10, null, out);
+        assertEquals(List.of(big), out);
+    }
+
+    @Test
+    void findsObjectTouchingTheEdge() {
+        MovableObject left = new MovableObject(2 * TILE, TILE, TILE, TILE);
+        MovableObject far = new MovableObject(5 * TILE, TILE, TILE, TILE);
+        grid.add(left);
+        grid.add(far);
+        // Starts where left ends
+        grid.queryDynamic(3 * TILE, TILE, TILE, TILE, null, out);
+        assertEquals(List.of(left), out);
+    }
+
+    @Test
+    void leavesOutExcludedAndBlocks() {
+        MovableObject a = new MovableObject(TILE, TILE, TILE, TILE);
+        MovableObject b = new MovableObject(2 * TILE, TILE, TILE, TILE);
+        grid.add(a);
+        grid.add(b);
+        grid.add(block); // Blocks stay in the TileLayer only
+        assertNull(block.getGrid());
+
+        grid.query(0, 0, 5 * TILE, 5 * TILE, a, out);
+        assertEquals(2, out.size());
+        assertTrue(out.contains(b) && out.contains(block));
+        grid.queryDynamic(0, 0, 5 * TILE, 5 * TILE, a, out);
+        assertEquals(List.of(b), out);
+    }
+
+    @Test
+    void followsMovedAndRemovedObjects() {
+        MovableObject o = new MovableObject(TILE, TILE, TILE, TILE);
+        grid.add(o);
+        o.setX(7 * TILE);
+        o.setY(7 * TILE);
+        grid.update(o);
+        grid.queryDynamic(0, 0, 3 * TILE, 3 * TILE, null, out);
+        assertTrue(out.isEmpty());
+        grid.queryDynamic(6 * TILE, 6 * TILE, 3 * TILE, 3 * TILE, null, out);
+        assertEquals(List.of(o), out);
+
+        grid.remove(o);
+        assertNull(o.getGrid());
+        grid.queryDynamic(0, 0, 10 * TILE, 10 * TILE, null, out);
+        assertTrue(out.isEmpty());
+    }
+
+    @Test
+    void findsObjectsAtPoints() {
+        MovableObject o = new MovableObject(TILE, TILE, TILE, TILE);
+        grid.add(o);
+        assertSame(o, grid.objectAt(TILE + 5, TILE + 5, null));
+        assertSame(block, grid.objectAt(3 * TILE + 5, 3 * TILE + 5, null));
+        assertNull(grid.dynamicAt(3 * TILE + 5, 3 * TILE + 5, null));
+        assertNull(grid.objectAt(TILE + 5, TILE + 5, o));
+    }
+
+    private static int count(List<GameObject> list, GameObject o) {
+        int n = 0;
+        for(GameObject g : list) {
+            if(g == o) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,140 @@
+package gengine.gameobject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import gengine.Direction;
+
+/**
+ * Tests sweeping movers along their movement: long movements stop at the
+ * first wall instead of passing through it, the nearest of walls and other
+ * objects is hit, and the contact tells where the mover stops.
+ *
+ * @version 0.3
+ */
+class SweepTest {
+    private static final int TILE = 32;
+
+    private GameObject wall;    // Column 6 of row 1
+    private SpatialGrid grid;
+    private MovableObject mover;
+    private final List<GameObject> none = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        wall = new GameObject(6 * TILE, TILE, TILE, TILE);
+        wall.setType(ObjectType.BLOCK);
+        List<GameObject> blocks = new ArrayList<>();
+        blocks.add(wall);
+        grid = new SpatialGrid(new TileLayer(0, 0, TILE, 12, 4, blocks));
+        mover = new MovableObject(TILE, TILE, TILE, TILE);
+        grid.add(mover);
+    }
+
+    @Test
+    void stopsAtWallHoweverFar() {
+        for(double distance : new double[] {200, 1000, 1e6}) {
+            Contact c = mover.sweepWalls(Direction.RIGHT, TILE, TILE, distance);
+            assertSame(wall, c.getObject());
+            assertEquals(5 * TILE, c.getX());
+            assertEquals(TILE, c.getY());
+            assertEquals(-1, c.getNormalX());
+            assertEquals(0, c.getNormalY());
+            assertEquals(4 * TILE / distance, c.getTime(), 1e-9);
+        }
+    }
+
+    @Test
+    void missesWallOutOfReach() {
+        Contact c = mover.sweepWalls(Direction.RIGHT, TILE, TILE, 4 * TILE - 1);
+        assertFalse(c.isHit());
+        assertEquals(5 * TILE - 1, c.getX());
+        assertEquals(1.0, c.getTime());
+
+        // Touching the wall is not running into it
+        c = mover.sweepWalls(Direction.RIGHT, TILE, TILE, 4 * TILE);
+        assertFalse(c.isHit());
+        assertEquals(5 * TILE, c.getX());
+    }
+
+    @Test
+    void stopsAtWallFromEverySide() {
+        Contact c = mover.sweepWalls(Direction.LEFT, 10 * TILE, TILE, 500);
+        assertSame(wall, c.getObject());
+        assertEquals(7 * TILE, c.getX());
+        assertEquals(1, c.getNormalX());
+
+        c = mover.sweepWalls(Direction.DOWN, 6 * TILE, -TILE, 500);
+        assertSame(wall, c.getObject());
+        assertEquals(0, c.getY());
+        assertEquals(-1, c.getNormalY());
+
+        c = mover.sweepWalls(Direction.UP, 6 * TILE, 3 * TILE, 500);
+        assertSame(wall, c.getObject());
+        assertEquals(2 * TILE, c.getY());
+        assertEquals(1, c.getNormalY());
+
+        // A mover overlapping the wall row by a part of a tile still hits it
+        c = mover.sweepWalls(Direction.RIGHT, TILE, 2 * TILE - 1, 500);
+        assertSame(wall, c.getObject());
+        c = mover.sweepWalls(Direction.RIGHT, TILE, 2 * TILE, 500);
+        assertFalse(c.isHit());
+    }
+
+    @Test
+    void hitsNearestObject() {
+        MovableObject near = new MovableObject(4 * TILE, TILE, TILE, TILE);
+        grid.add(near);
+        Contact c = mover.sweep(Direction.RIGHT, TILE, TILE, 500, none);
+        assertSame(near, c.getObject());
+        assertEquals(3 * TILE, c.getX());
+        assertEquals(2 * TILE / 500.0, c.getTime(), 1e-9);
+
+        // Behind the wall the object is not reached
+        near.setX(8 * TILE);
+        grid.update(near);
+        c = mover.sweep(Direction.RIGHT, TILE, TILE, 500, none);
+        assertSame(wall, c.getObject());
+    }
+
+    @Test
+    void wallWinsATie() {
+        MovableObject beside = new MovableObject(6 * TILE, TILE + 8, TILE, TILE);
+        grid.add(beside);
+        Contact c = mover.sweep(Direction.RIGHT, TILE, TILE, 500, none);
+        assertSame(wall, c.getObject());
+    }
+
+    @Test
+    void overlappedObjectAheadIsHitAtOnce() {
+        MovableObject overlapped = new MovableObject(TILE + 10, TILE, TILE, TILE);
+        grid.add(overlapped);
+        Contact c = mover.sweep(Direction.RIGHT, TILE, TILE, 500, none);
+        assertSame(overlapped, c.getObject());
+        assertEquals(0.0, c.getTime());
+
+        // Behind the mover it is left alone
+        c = mover.sweep(Direction.LEFT, TILE, TILE, 10, none);
+        assertFalse(c.isHit());
+    }
+
+    @Test
+    void withoutGridOnlyListedObjectsAreHit() {
+        MovableObject loose = new MovableObject(TILE, TILE, TILE, TILE);
+        MovableObject other = new MovableObject(4 * TILE, TILE, TILE, TILE);
+        List<GameObject> objects = new ArrayList<>();
+        objects.add(loose);
+        objects.add(other);
+        assertFalse(loose.sweepWalls(Direction.RIGHT, TILE, TILE, 1000).isHit());
+        Contact c = loose.sweep(Direction.RIGHT, TILE, TILE, 1000, objects);
+        assertSame(other, c.getObject());
+        assertEquals(3 * TILE, c.getX());
+        assertTrue(c.isHit());
+    }
+}
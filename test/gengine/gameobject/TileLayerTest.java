@@ -0,0 +1,117 @@
+package gengine.gameobject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the passability bitmap of TileLayer and the column and row walks
+ * used for sweeping, on the edges of the layer and of its chunks.
+ *
+ * @version 0.3
+ */
+class TileLayerTest {
+    private static final int TILE = 32;
+    private static final int COLS = 12;
+    private static final int ROWS = 10;
+
+    private TileLayer tiles;
+    private GameObject[][] blocks;
+
+    // Walls at columns 2 and 9 of row 4, and at row 7 of column 5
+    @BeforeEach
+    void setUp() {
+        blocks = new GameObject[COLS][ROWS];
+        List<GameObject> list = new ArrayList<>();
+        int[][] walls = {{2, 4}, {9, 4}, {5, 7}};
+        for(int[] w : walls) {
+            GameObject b = new GameObject(w[0] * TILE, w[1] * TILE, TILE, TILE);
+            b.setType(ObjectType.BLOCK);
+            blocks[w[0]][w[1]] = b;
+            list.add(b);
+        }
+        tiles = new TileLayer(0, 0, TILE, COLS, ROWS, list);
+    }
+
+    @Test
+    void tilesOutsideAreSolid() {
+        assertTrue(tiles.isSolid(-1, 0));
+        assertTrue(tiles.isSolid(0, -1));
+        assertTrue(tiles.isSolid(COLS, 0));
+        assertTrue(tiles.isSolid(0, ROWS));
+        assertTrue(tiles.isSolid(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertFalse(tiles.isSolid(0, 0));
+        assertFalse(tiles.isSolid(COLS - 1, ROWS - 1));
+        assertTrue(tiles.isSolid(2, 4));
+    }
+
+    @Test
+    void unloadedTilesAreFree() {
+        TileLayer streamed = new TileLayer(0, 0, TILE, 64, 64, 16);
+        assertFalse(streamed.isSolid(20, 20));
+        GameObject[] chunk = new GameObject[16 * 16];
+        GameObject b = new GameObject(20 * TILE, 20 * TILE, TILE, TILE);
+        chunk[4 * 16 + 4] = b;
+        streamed.setChunk(streamed.chunkOf(20, 20), chunk);
+        assertTrue(streamed.isSolid(20, 20));
+        assertSame(b, streamed.blockAt(20, 20));
+        streamed.clearChunk(streamed.chunkOf(20, 20));
+        assertFalse(streamed.isSolid(20, 20));
+    }
+
+    @Test
+    void pointsOnEdgesAreInBothTiles() {
+        assertTrue(tiles.isSolidAt(2 * TILE + 1, 4 * TILE + 1));
+        assertTrue(tiles.isSolidAt(3 * TILE, 4 * TILE)); // Right edge of the wall
+        assertTrue(tiles.isSolidAt(2 * TILE, 5 * TILE)); // Bottom left corner
+        assertFalse(tiles.isSolidAt(3 * TILE + 1, 4 * TILE + 1));
+        assertFalse(tiles.isSolidAt(-TILE, -TILE));
+        assertFalse(tiles.isSolidAt(COLS * TILE + 5, 0));
+    }
+
+    @Test
+    void walksColumnsBothWays() {
+        assertSame(blocks[2][4], tiles.firstBlockInCols(0, COLS - 1, 4, 4));
+        assertSame(blocks[9][4], tiles.firstBlockInCols(COLS - 1, 0, 4, 4));
+        assertSame(blocks[5][7], tiles.firstBlockInCols(3, 20, 0, ROWS - 1));
+        assertSame(blocks[2][4], tiles.firstBlockInCols(4, -5, 3, 5));
+        assertNull(tiles.firstBlockInCols(3, 8, 4, 4));
+        assertNull(tiles.firstBlockInCols(0, COLS - 1, 5, 6));
+        // Columns and rows outside the layer are skipped
+        assertNull(tiles.firstBlockInCols(-10, -1, 0, ROWS - 1));
+        assertNull(tiles.firstBlockInCols(COLS, COLS + 10, 0, ROWS - 1));
+        assertSame(blocks[2][4], tiles.firstBlockInCols(-10, 2, -5, 50));
+    }
+
+    @Test
+    void walksRowsBothWays() {
+        assertSame(blocks[5][7], tiles.firstBlockInRows(0, ROWS - 1, 5, 5));
+        assertSame(blocks[2][4], tiles.firstBlockInRows(ROWS - 1, 0, 0, 3));
+        assertSame(blocks[5][7], tiles.firstBlockInRows(ROWS - 1, 0, 0, 5));
+        assertNull(tiles.firstBlockInRows(0, 6, 5, 5));
+        assertNull(tiles.firstBlockInRows(-3, -1, 0, COLS - 1));
+        assertSame(blocks[5][7], tiles.firstBlockInRows(50, 0, 5, 50));
+    }
+
+    @Test
+    void changingTilesChangesVersion() {
+        int chunk = tiles.chunkOf(6, 6);
+        int version = tiles.getVersion(chunk);
+        GameObject b = new GameObject(6 * TILE, 6 * TILE, TILE, TILE);
+        tiles.setBlock(6, 6, b);
+        assertTrue(tiles.isSolid(6, 6));
+        assertNotEquals(version, tiles.getVersion(chunk));
+        assertSame(b, tiles.firstBlockInCols(6, 6, 0, ROWS - 1));
+        tiles.setBlock(6, 6, null);
+        assertFalse(tiles.isSolid(6, 6));
+        assertEquals(version + 2, tiles.getVersion(chunk));
+    }
+}
@@ -0,0 +1,69 @@
+package gengine.graphics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the hand over of SnapshotBuffer: drawing never gets the snapshot
+ * the game loop is writing, gets the latest published one, and keeps the
+ * previous one when nothing new has been published.
+ *
+ * @version 0.3
+ */
+class SnapshotBufferTest {
+    @Test
+    void acquiresLatestPublished() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        write(buffer, 1);
+        write(buffer, 2);
+        write(buffer, 3);
+        RenderSnapshot read = buffer.acquire();
+        assertEquals(3, read.getTick());
+        assertNotSame(read, buffer.getWriteBuffer());
+    }
+
+    @Test
+    void staleAcquireKeepsPreviousFrame() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        write(buffer, 1);
+        RenderSnapshot first = buffer.acquire();
+        assertEquals(1, first.getTick());
+        assertSame(first, buffer.acquire());
+        assertEquals(1, buffer.acquire().getTick());
+
+        // A frame being written but not published is not handed over
+        buffer.getWriteBuffer().begin(2, 0, 1);
+        assertSame(first, buffer.acquire());
+        assertEquals(1, first.getTick());
+        buffer.publish();
+        assertEquals(2, buffer.acquire().getTick());
+    }
+
+    @Test
+    void readerNeverGetsWriteBuffer() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        Random random = new Random(7);
+        long published = 0;
+        long tick = 0;
+        for(int i = 0; i < 10000; i++) {
+            if(random.nextBoolean()) {
+                write(buffer, ++tick);
+                published = tick;
+            }
+            else {
+                RenderSnapshot read = buffer.acquire();
+                assertNotSame(buffer.getWriteBuffer(), read);
+                assertEquals(published, read.getTick());
+            }
+        }
+    }
+
+    private static void write(SnapshotBuffer buffer, long tick) {
+        buffer.getWriteBuffer().begin(tick, 0, 1);
+        buffer.publish();
+    }
+}
@@ -0,0 +1,237 @@
+package gengine.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import gengine.gameobject.GameObject;
+import gengine.gameobject.ObjectType;
+import gengine.gameobject.TileLayer;
+
+/**
+ * Tests ChunkStreamer on a small map of 4 x 4 chunks with a stub factory:
+ * chunks load around the player, chunks over the memory budget are
+ * unloaded oldest first, objects parked with an unloaded chunk come back
+ * with it, and a chunk that fails to load is tried again.
+ *
+ * The streamer runs in deterministic mode, so every chunk asked for is
+ * installed on the next update.
+ *
+ * @version 0.3
+ */
+class ChunkStreamerTest {
+    private static final int TILE = 32;
+    private static final int CHUNK = 16;
+    private static final int SIZE = 4 * CHUNK;
+
+    // Rough size of a chunk without walls, as ChunkStreamer counts it
+    private static final long EMPTY_CHUNK_BYTES = 8L * CHUNK * CHUNK;
+
+    @TempDir
+    Path dir;
+
+    private StubFactory factory;
+    private ChunkStreamer streamer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        factory = new StubFactory();
+        streamer = new ChunkStreamer(MapFile.open(writeMap()), 0, 0, TILE, factory);
+        streamer.setDeterministic(true);
+        streamer.setInstallDelay(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamer.shutdown();
+    }
+
+    @Test
+    void loadsChunksAroundPlayer() {
+        streamer.loadAround(center(0), center(0));
+        TileLayer tiles = streamer.getTiles();
+        assertEquals(4, tiles.getLoadedCount());
+        assertTrue(tiles.isLoaded(chunk(0, 0)) && tiles.isLoaded(chunk(1, 1)));
+        assertFalse(tiles.isLoaded(chunk(2, 0)));
+        assertTrue(tiles.isSolid(CHUNK + 3, 3)); // Wall of chunk 1
+
+        // Moving right asks for the next column, installed an update later
+        streamer.update(center(1), center(0));
+        assertFalse(tiles.isLoaded(chunk(2, 0)));
+        streamer.update(center(1), center(0));
+        assertTrue(tiles.isLoaded(chunk(2, 0)) && tiles.isLoaded(chunk(2, 1)));
+        assertEquals(6, streamer.getLoads());
+    }
+
+    @Test
+    void spawnsOnceOnFirstLoad() {
+        streamer.setRadius(0);
+        streamer.setMemoryBudget(EMPTY_CHUNK_BYTES);
+        streamer.loadAround(center(0), center(0));
+        walk(3, 0);
+        assertEquals(1, factory.spawned.size());
+        walk(0, 0);
+        walk(3, 0);
+        assertEquals(1, factory.spawned.size());
+    }
+
+    @Test
+    void evictsOldestChunksOverBudget() {
+        streamer.setRadius(0);
+        streamer.setMemoryBudget(2 * EMPTY_CHUNK_BYTES + 1000);
+        streamer.loadAround(center(0), center(2));
+        walk(1, 2);
+        walk(2, 2);
+        TileLayer tiles = streamer.getTiles();
+        assertEquals(2, tiles.getLoadedCount());
+        assertFalse(tiles.isLoaded(chunk(0, 2)));
+        assertTrue(tiles.isLoaded(chunk(1, 2)) && tiles.isLoaded(chunk(2, 2)));
+        assertEquals(1, streamer.getEvictions());
+        assertTrue(streamer.getResidentBytes() <= 2 * EMPTY_CHUNK_BYTES + 1000);
+
+        // Chunk 1 was used last, so chunk 2 goes when the player comes back
+        walk(1, 2);
+        walk(0, 2);
+        assertTrue(tiles.isLoaded(chunk(0, 2)) && tiles.isLoaded(chunk(1, 2)));
+        assertFalse(tiles.isLoaded(chunk(2, 2)));
+    }
+
+    @Test
+    void keepsChunksWithinRadiusOverBudget() {
+        streamer.setMemoryBudget(0);
+        streamer.loadAround(center(1), center(1));
+        assertEquals(9, streamer.getTiles().getLoadedCount());
+        assertEquals(0, streamer.getEvictions());
+    }
+
+    @Test
+    void parksObjectsUntilTheirChunkIsBack() {
+        streamer.setRadius(0);
+        streamer.setMemoryBudget(EMPTY_CHUNK_BYTES);
+        streamer.loadAround(center(3), center(0));
+        GameObject enemy = factory.spawned.get(0);
+
+        // The player leaves and the chunk of the enemy is unloaded with it
+        walk(2, 0);
+        assertFalse(streamer.getTiles().isLoaded(chunk(3, 0)));
+        streamer.park(enemy);
+        assertEquals(1, streamer.getParkedCount());
+        assertTrue(factory.restored.isEmpty());
+
+        walk(3, 0);
+        assertEquals(List.of(enemy), factory.restored);
+        assertEquals(0, streamer.getParkedCount());
+        assertEquals(1, factory.spawned.size());
+    }
+
+    @Test
+    void restoresObjectOnLoadedChunkAtOnce() {
+        streamer.loadAround(center(0), center(0));
+        GameObject o = new GameObject(center(0), center(0), TILE, TILE);
+        streamer.park(o);
+        assertEquals(List.of(o), factory.restored);
+        assertEquals(0, streamer.getParkedCount());
+    }
+
+    @Test
+    void triesFailedChunkAgain() {
+        streamer.setRadius(0);
+        streamer.setMemoryBudget(EMPTY_CHUNK_BYTES * 16);
+        factory.failing.add(chunk(1, 0));
+        streamer.loadAround(center(0), center(0));
+        walk(1, 0);
+        TileLayer tiles = streamer.getTiles();
+        assertEquals(1, streamer.getFailures());
+        assertFalse(tiles.isLoaded(chunk(1, 0)));
+
+        walk(0, 0);
+        walk(1, 0);
+        assertTrue(tiles.isLoaded(chunk(1, 0)));
+        assertEquals(1, streamer.getFailures());
+        assertTrue(tiles.isSolid(CHUNK + 3, 3));
+    }
+
+    @Test
+    void loadsInGameLoopAfterShutdown() {
+        streamer.loadAround(center(0), center(0));
+        streamer.update(center(1), center(1)); // Asks for the chunks of column and row 2
+        streamer.shutdown();
+
+        // Chunks still waiting are asked for again and have to come from
+        // somewhere other than the stopped loader
+        streamer.setDeterministic(false);
+        streamer.setDeterministic(true);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> streamer.update(center(1), center(1)));
+        assertTrue(streamer.getTiles().isLoaded(chunk(2, 2)));
+    }
+
+    /**
+     * Method moves the player to the center of a chunk and runs the update
+     * asking for it and the one installing it.
+     */
+    private void walk(int chunkCol, int chunkRow) {
+        streamer.update(center(chunkCol), center(chunkRow));
+        streamer.update(center(chunkCol), center(chunkRow));
+    }
+
+    private static double center(int chunk) {
+        return (chunk * CHUNK + CHUNK / 2) * TILE;
+    }
+
+    private static int chunk(int chunkCol, int chunkRow) {
+        return chunkRow * 4 + chunkCol;
+    }
+
+    // A wall in the 4th tile of the top row of chunk 1, and an enemy in chunk 3
+    private Path writeMap() throws IOException {
+        char[][] marks = new char[SIZE][SIZE];
+        for(char[] row : marks) {
+            Arrays.fill(row, '-');
+        }
+        marks[3][CHUNK + 3] = 'x';
+        marks[5][3 * CHUNK + 5] = 'e';
+        Path path = dir.resolve("chunks.gmap");
+        MapConverter.write(marks, path, CHUNK, false);
+        return path;
+    }
+
+    private static class StubFactory implements ChunkFactory {
+        final List<GameObject> spawned = new ArrayList<>();
+        final List<GameObject> restored = new ArrayList<>();
+        final Set<Integer> failing = new HashSet<>(); // Chunks failing once
+
+        @Override
+        public GameObject createBlock(double x, double y, double size) {
+            int chunk = chunk((int) (x / TILE) / CHUNK, (int) (y / TILE) / CHUNK);
+            if(failing.remove(chunk)) {
+                throw new IllegalStateException("Chunk " + chunk + " is broken");
+            }
+            GameObject b = new GameObject(x, y, size, size);
+            b.setType(ObjectType.BLOCK);
+            return b;
+        }
+
+        @Override
+        public void spawn(byte type, double x, double y) {
+            spawned.add(new GameObject(x, y, TILE, TILE));
+        }
+
+        @Override
+        public void restore(GameObject o) {
+            restored.add(o);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package gengine.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests writing maps with MapConverter and reading them back, and that
+ * MapFile rejects files whose header or chunk table is corrupted.
+ *
+ * @version 0.3
+ */
+class MapFileTest {
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 24;
+    private static final int CHUNK_SIZE = 16;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackStoredChunks() throws IOException {
+        checkTiles(MapFile.open(write(false)), false);
+    }
+
+    @Test
+    void readsBackDeflatedChunks() throws IOException {
+        checkTiles(MapFile.open(write(true)), true);
+    }
+
+    @Test
+    void readsSpawns() throws IOException {
+        MapFile map = MapFile.open(write(true));
+        assertEquals(2, map.getSpawnCount());
+        assertEquals(MapFile.PLAYER, map.getSpawnType(0));
+        assertEquals(1, map.getSpawnCol(0));
+        assertEquals(1, map.getSpawnRow(0));
+        assertEquals(MapFile.ENEMY, map.getSpawnType(1));
+        assertEquals(WIDTH - 2, map.getSpawnCol(1));
+        assertEquals(HEIGHT - 2, map.getSpawnRow(1));
+    }
+
+    @Test
+    void rejectsShortOrForeignFile() throws IOException {
+        byte[] data = read(write(false));
+        assertRejected(Arrays.copyOf(data, MapFile.HEADER_SIZE - 1), "Not a map file");
+        data[0] = 'X';
+        assertRejected(data, "Not a map file");
+    }
+
+    @Test
+    void rejectsOtherVersion() throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(read(write(false)));
+        data.putShort(4, (short) (MapFile.VERSION + 1));
+        assertRejected(data.array(), "Unsupported map version 2");
+    }
+
+    @Test
+    void rejectsCorruptedHeader() throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(read(write(false)));
+        data.putInt(16, 0); // Chunk size
+        assertRejected(data.array(), "Corrupted map header");
+
+        data = ByteBuffer.wrap(read(write(false)));
+        data.putLong(24, data.capacity()); // Spawn table past the end
+        assertRejected(data.array(), "Corrupted map header");
+    }
+
+    @Test
+    void rejectsMissingChunkTable() throws IOException {
+        byte[] data = read(write(false));
+        // A header asking for more chunks than the table holds
+        ByteBuffer.wrap(data).putInt(8, WIDTH * 1000);
+        assertRejected(data, "Corrupted chunk table");
+    }
+
+    @Test
+    void rejectsChunkOutsideFile() throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(read(write(false)));
+        data.putLong(MapFile.HEADER_SIZE + MapFile.CHUNK_ENTRY_SIZE, data.capacity() - 10);
+        assertRejected(data.array(), "Corrupted chunk 1");
+
+        data = ByteBuffer.wrap(read(write(true)));
+        data.putInt(MapFile.HEADER_SIZE + 2 * MapFile.CHUNK_ENTRY_SIZE + 8, -1);
+        assertRejected(data.array(), "Corrupted chunk 2");
+    }
+
+    @Test
+    void rejectsBadChunkEntry() throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(read(write(false)));
+        data.put(MapFile.HEADER_SIZE + 12, (byte) 5); // Unknown compression
+        assertRejected(data.array(), "Corrupted chunk 0");
+
+        data = ByteBuffer.wrap(read(write(false)));
+        data.putInt(MapFile.HEADER_SIZE + 8, CHUNK_SIZE * CHUNK_SIZE - 1); // Stored chunk too short
+        assertRejected(data.array(), "Corrupted chunk 0");
+    }
+
+    private void checkTiles(MapFile map, boolean compressed) {
+        assertEquals(WIDTH, map.getWidth());
+        assertEquals(HEIGHT, map.getHeight());
+        assertEquals(CHUNK_SIZE, map.getChunkSize());
+        assertEquals(3, map.getChunksX());
+        assertEquals(2, map.getChunksY());
+        assertEquals(compressed, map.isCompressed(0));
+        char[][] marks = marks();
+        for(int row = 0; row < HEIGHT; row++) {
+            for(int col = 0; col < WIDTH; col++) {
+                byte expected = marks[row][col] == 'x' ? MapFile.WALL : MapFile.EMPTY;
+                assertEquals(expected, map.getTile(col, row), "tile " + col + "," + row);
+            }
+        }
+        assertEquals(MapFile.EMPTY, map.getTile(-1, 0));
+        assertEquals(MapFile.EMPTY, map.getTile(WIDTH, 0));
+        assertEquals(CHUNK_SIZE * CHUNK_SIZE, map.getChunk(5).length);
+    }
+
+    private Path write(boolean compress) throws IOException {
+        Path path = dir.resolve(compress ? "deflated.gmap" : "stored.gmap");
+        MapConverter.write(marks(), path, CHUNK_SIZE, compress);
+        assertTrue(Files.size(path) > MapFile.HEADER_SIZE);
+        return path;
+    }
+
+    // A walled room with a pillar every few tiles, the player in the top
+    // left and an enemy in the bottom right corner
+    private static char[][] marks() {
+        char[][] marks = new char[HEIGHT][WIDTH];
+        for(int row = 0; row < HEIGHT; row++) {
+            for(int col = 0; col < WIDTH; col++) {
+                boolean border = row == 0 || col == 0 || row == HEIGHT - 1 || col == WIDTH - 1;
+                marks[row][col] = border || (row % 5 == 2 && col % 7 == 3) ? 'x' : '-';
+            }
+        }
+        marks[1][1] = 'P';
+        marks[HEIGHT - 2][WIDTH - 2] = 'e';
+        return marks;
+    }
+
+    private static byte[] read(Path path) throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    private static void assertRejected(byte[] data, String message) {
+        IOException e = assertThrows(IOException.class, () -> new MapFile(ByteBuffer.wrap(data)));
+        assertEquals(message, e.getMessage());
+    }
+}
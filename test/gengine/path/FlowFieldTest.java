@@ -0,0 +1,161 @@
+package gengine.path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import gengine.Direction;
+import gengine.gameobject.GameObject;
+import gengine.gameobject.ObjectType;
+import gengine.gameobject.TileLayer;
+
+/**
+ * Tests FlowField on small grids: the distances and directions around
+ * walls, the reach of the field, and searching again only when the
+ * target changes tile or the walls near it change.
+ *
+ * Grids are given as rows of text, '#' for a wall and '.' for a free tile.
+ *
+ * @version 0.3
+ */
+class FlowFieldTest {
+    private static final int TILE = 32;
+
+    @Test
+    void leadsAroundWalls() {
+        TileLayer tiles = layer(
+            ".....",
+            "..#..",
+            ".....",
+            ".###.",
+            ".#.#.",
+            ".###.");
+        FlowField field = new FlowField(tiles, 5);
+        field.setTarget(2, 2);
+
+        int[][] expected = {
+            {4, 3, 4, 3, 4},
+            {3, 2, -1, 2, 3},
+            {2, 1, 0, 1, 2},
+            {3, -1, -1, -1, 3},
+            {4, -1, -1, -1, 4},
+            {5, -1, -1, -1, 5}};
+        for(int r = 0; r < expected.length; r++) {
+            for(int c = 0; c < expected[r].length; c++) {
+                assertEquals(expected[r][c], field.getDistance(c, r), "Distance at " + c + "," + r);
+            }
+        }
+
+        assertEquals(Direction.NONE, field.getDirection(2, 2));
+        assertEquals(Direction.LEFT, field.getDirection(2, 0));
+        assertEquals(Direction.DOWN, field.getDirection(1, 1));
+        assertEquals(Direction.DOWN, field.getDirection(3, 0));
+        assertEquals(Direction.LEFT, field.getDirection(3, 2));
+        assertEquals(Direction.RIGHT, field.getDirection(0, 2));
+        assertEquals(Direction.UP, field.getDirection(4, 5));
+        assertNull(field.getDirection(2, 4)); // Walled in
+        assertNull(field.getDirection(2, 1)); // On a wall
+    }
+
+    @Test
+    void reachesOnlyRadius() {
+        TileLayer tiles = layer(20, 20);
+        FlowField field = new FlowField(tiles, 3);
+        field.setTarget(10, 10);
+        assertEquals(3, field.getDistance(13, 10));
+        assertEquals(6, field.getDistance(13, 13));
+        assertEquals(6, field.getDistance(7, 7));
+        assertEquals(FlowField.UNREACHABLE, field.getDistance(14, 10));
+        assertEquals(FlowField.UNREACHABLE, field.getDistance(10, 6));
+        assertNull(field.getDirection(14, 10));
+        assertTrue(field.covers(13, 7));
+        assertFalse(field.covers(10, 14));
+
+        // Near the edge of the map the field stops at the edge
+        field.setTarget(0, 0);
+        assertEquals(0, field.getDistance(0, 0));
+        assertEquals(6, field.getDistance(3, 3));
+        assertEquals(FlowField.UNREACHABLE, field.getDistance(-1, 0));
+    }
+
+    @Test
+    void detourLongerThanRadiusIsUnreachable() {
+        TileLayer tiles = layer(
+            "...#...",
+            "...#...",
+            "...#...",
+            "...#...",
+            ".......");
+        // The way around the wall leaves the field of radius 3
+        FlowField field = new FlowField(tiles, 3);
+        field.setTarget(2, 0);
+        assertEquals(FlowField.UNREACHABLE, field.getDistance(4, 0));
+        field = new FlowField(tiles, 4);
+        field.setTarget(2, 0);
+        assertEquals(10, field.getDistance(4, 0));
+        assertEquals(Direction.DOWN, field.getDirection(4, 0));
+    }
+
+    @Test
+    void searchesAgainOnlyWhenNeeded() {
+        TileLayer tiles = layer(64, 8);
+        FlowField field = new FlowField(tiles, 4);
+        assertTrue(field.setTarget(5, 4));
+        assertFalse(field.setTarget(5, 4));
+        assertEquals(1, field.getSearches());
+
+        // A wall far away in another chunk changes nothing
+        tiles.setBlock(50, 4, block(50, 4));
+        assertFalse(field.setTarget(5, 4));
+
+        // A wall near the target does
+        assertEquals(2, field.getDistance(7, 4));
+        tiles.setBlock(6, 4, block(6, 4));
+        assertTrue(field.setTarget(5, 4));
+        assertEquals(2, field.getSearches());
+        assertEquals(FlowField.UNREACHABLE, field.getDistance(6, 4));
+        assertEquals(4, field.getDistance(7, 4));
+        assertFalse(field.setTarget(5, 4));
+
+        assertTrue(field.setTarget(6, 5));
+        assertEquals(3, field.getSearches());
+    }
+
+    @Test
+    void targetOnWallReachesNothing() {
+        TileLayer tiles = layer(
+            "...",
+            ".#.",
+            "...");
+        FlowField field = new FlowField(tiles, 2);
+        field.setTarget(1, 1);
+        assertEquals(FlowField.UNREACHABLE, field.getDistance(0, 0));
+        assertNull(field.getDirection(1, 1));
+    }
+
+    private static GameObject block(int col, int row) {
+        GameObject b = new GameObject(col * TILE, row * TILE, TILE, TILE);
+        b.setType(ObjectType.BLOCK);
+        return b;
+    }
+
+    private static TileLayer layer(int cols, int rows) {
+        return new TileLayer(0, 0, TILE, cols, rows, new ArrayList<>());
+    }
+
+    private static TileLayer layer(String... rows) {
+        List<GameObject> blocks = new ArrayList<>();
+        for(int r = 0; r < rows.length; r++) {
+            for(int c = 0; c < rows[r].length(); c++) {
+                if(rows[r].charAt(c) == '#') {
+                    blocks.add(block(c, r));
+                }
+            }
+        }
+        return new TileLayer(0, 0, TILE, rows[0].length(), rows.length, blocks);
+    }
+}
@@ -0,0 +1,186 @@
+package gengine.path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import gengine.gameobject.GameObject;
+import gengine.gameobject.ObjectType;
+import gengine.gameobject.TileLayer;
+
+/**
+ * Tests JumpPointSearch on small grids: the jump points of the paths
+ * found, diagonal steps never cutting the corner of a wall, and goals that
+ * can't be reached or are only reached outside the search window.
+ *
+ * Grids are given as rows of text, '#' for a wall and '.' for a free tile.
+ *
+ * @version 0.3
+ */
+class JumpPointSearchTest {
+    private static final int TILE = 32;
+
+    @Test
+    void jumpsOverOpenGround() {
+        TileLayer tiles = layer(
+            "........",
+            "........",
+            "........",
+            "........");
+        JumpPointSearch search = new JumpPointSearch(tiles, 2);
+        assertArrayEquals(new int[] {0, 0, 7, 0}, search.findPath(0, 0, 7, 0));
+        assertArrayEquals(new int[] {0, 0, 3, 3}, search.findPath(0, 0, 3, 3));
+        assertArrayEquals(new int[] {0, 0, 2, 2, 7, 2}, search.findPath(0, 0, 7, 2));
+        assertArrayEquals(new int[] {4, 1}, search.findPath(4, 1, 4, 1));
+        assertEquals(7 * 10 + 2 * 4, length(search.findPath(0, 0, 7, 2)));
+    }
+
+    @Test
+    void goesAroundWall() {
+        TileLayer tiles = layer(
+            "......",
+            "..#...",
+            "..#...",
+            "..#...",
+            "......");
+        JumpPointSearch search = new JumpPointSearch(tiles, 2);
+        int[] path = search.findPath(0, 2, 5, 2);
+        assertNotNull(path);
+        checkWalkable(tiles, path);
+        // Over the top of the wall, stepping straight past its corners
+        assertEquals(3 * 14 + 3 * 10, length(path));
+        assertArrayEquals(new int[] {0, 2, 1, 1, 1, 0, 3, 0, 5, 2}, path);
+    }
+
+    @Test
+    void neverCutsCorners() {
+        TileLayer tiles = layer(
+            ".....",
+            ".#...",
+            "..#..",
+            ".....",
+            ".....");
+        JumpPointSearch search = new JumpPointSearch(tiles, 2);
+        // The diagonal between the two walls is closed
+        int[] path = search.findPath(1, 2, 2, 1);
+        assertNotNull(path);
+        checkWalkable(tiles, path);
+        assertTrue(length(path) > 14);
+
+        path = search.findPath(0, 0, 4, 4);
+        assertNotNull(path);
+        checkWalkable(tiles, path);
+    }
+
+    @Test
+    void unreachableGoalHasNoPath() {
+        TileLayer tiles = layer(
+            "........",
+            ".....###",
+            ".....#..",
+            ".....###",
+            "........");
+        JumpPointSearch search = new JumpPointSearch(tiles, 8);
+        assertNull(search.findPath(0, 0, 6, 2));
+        assertNull(search.findPath(0, 0, 5, 2));  // Goal on a wall
+        assertNull(search.findPath(5, 1, 0, 0));  // Start on a wall
+        assertNull(search.findPath(0, 0, 20, 0)); // Goal off the layer
+        assertNotNull(search.findPath(0, 0, 4, 2));
+    }
+
+    @Test
+    void goalReachedOnlyOutsideWindowHasNoPath() {
+        TileLayer tiles = layer(
+            "....#....",
+            "....#....",
+            "....#....",
+            "....#....",
+            "....#....",
+            "....#....",
+            ".........");
+        // The gap under the wall is 6 rows below the start and the goal
+        assertNull(new JumpPointSearch(tiles, 0).findPath(2, 0, 6, 0));
+        assertNull(new JumpPointSearch(tiles, 5).findPath(2, 0, 6, 0));
+        int[] path = new JumpPointSearch(tiles, 6).findPath(2, 0, 6, 0);
+        assertNotNull(path);
+        checkWalkable(tiles, path);
+        int lowest = 0;
+        for(int k = 1; k < path.length; k += 2) {
+            lowest = Math.max(lowest, path[k]);
+        }
+        assertEquals(6, lowest); // Through the gap
+    }
+
+    @Test
+    void reusesArraysBetweenSearches() {
+        TileLayer tiles = layer(
+            "......",
+            "..#...",
+            "..#...",
+            "..#...",
+            "......");
+        JumpPointSearch search = new JumpPointSearch(tiles, 2);
+        int[] first = search.findPath(0, 2, 5, 2);
+        for(int i = 0; i < 100; i++) {
+            assertNull(search.findPath(0, 2, 2, 2));
+            assertArrayEquals(first, search.findPath(0, 2, 5, 2));
+        }
+    }
+
+    /**
+     * Method walks the path one tile at a time and checks that every tile
+     * is free and both tiles beside every diagonal step are free too.
+     */
+    private static void checkWalkable(TileLayer tiles, int[] path) {
+        for(int k = 0; k + 3 < path.length; k += 2) {
+            int col = path[k];
+            int row = path[k + 1];
+            int dc = Integer.signum(path[k + 2] - col);
+            int dr = Integer.signum(path[k + 3] - row);
+            assertTrue(Math.abs(path[k + 2] - col) == 0 || Math.abs(path[k + 3] - row) == 0
+                || Math.abs(path[k + 2] - col) == Math.abs(path[k + 3] - row), "Not a straight or diagonal line");
+            while(col != path[k + 2] || row != path[k + 3]) {
+                if(dc != 0 && dr != 0) {
+                    assertFalse(tiles.isSolid(col + dc, row), "Corner cut at " + col + "," + row);
+                    assertFalse(tiles.isSolid(col, row + dr), "Corner cut at " + col + "," + row);
+                }
+                col += dc;
+                row += dr;
+                assertFalse(tiles.isSolid(col, row), "Wall at " + col + "," + row);
+            }
+        }
+    }
+
+    /**
+     * Returns the cost of a path, 10 per straight and 14 per diagonal step.
+     */
+    private static int length(int[] path) {
+        int total = 0;
+        for(int k = 0; k + 3 < path.length; k += 2) {
+            int dc = Math.abs(path[k + 2] - path[k]);
+            int dr = Math.abs(path[k + 3] - path[k + 1]);
+            total += 10 * Math.max(dc, dr) + 4 * Math.min(dc, dr);
+        }
+        return total;
+    }
+
+    private static TileLayer layer(String... rows) {
+        List<GameObject> blocks = new ArrayList<>();
+        for(int r = 0; r < rows.length; r++) {
+            for(int c = 0; c < rows[r].length(); c++) {
+                if(rows[r].charAt(c) == '#') {
+                    GameObject b = new GameObject(c * TILE, r * TILE, TILE, TILE);
+                    b.setType(ObjectType.BLOCK);
+                    blocks.add(b);
+                }
+            }
+        }
+        return new TileLayer(0, 0, TILE, rows[0].length(), rows.length, blocks);
+    }
+}
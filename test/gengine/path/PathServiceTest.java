@@ -0,0 +1,106 @@
+package gengine.path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import gengine.gameobject.GameObject;
+import gengine.gameobject.ObjectType;
+import gengine.gameobject.TileLayer;
+
+/**
+ * Tests PathService: one field per target, searched again only when the
+ * target changes tile, and paths searched on the tiles of the current map
+ * from any thread.
+ *
+ * @version 0.3
+ */
+class PathServiceTest {
+    private static final int TILE = 32;
+
+    @Test
+    void keepsFieldOfTarget() {
+        PathService paths = new PathService();
+        paths.setTiles(new TileLayer(0, 0, TILE, 20, 20, new ArrayList<>()));
+        paths.setFieldRadius(4);
+        GameObject target = new GameObject(5 * TILE, 5 * TILE, TILE, TILE);
+        paths.setTarget(target);
+        assertNull(paths.getField(target));
+        paths.update();
+        FlowField field = paths.getField(target);
+        assertEquals(5, field.getTargetCol());
+        assertEquals(4, field.getRadius());
+
+        // Moving within the tile costs no search
+        target.setX(5 * TILE + 10);
+        paths.update();
+        assertSame(field, paths.getField(target));
+        assertEquals(1, field.getSearches());
+        target.setX(7 * TILE);
+        paths.update();
+        assertEquals(7, field.getTargetCol());
+        assertEquals(2, field.getSearches());
+
+        paths.setTarget(null);
+        paths.update();
+        assertNull(paths.getField(target));
+    }
+
+    @Test
+    void newMapDropsFields() {
+        PathService paths = new PathService();
+        paths.setTiles(new TileLayer(0, 0, TILE, 20, 20, new ArrayList<>()));
+        GameObject target = new GameObject(5 * TILE, 5 * TILE, TILE, TILE);
+        paths.setTarget(target);
+        paths.update();
+        FlowField old = paths.getField(target);
+        paths.setTiles(new TileLayer(0, 0, TILE, 20, 20, new ArrayList<>()));
+        assertNull(paths.getField(target));
+        paths.update();
+        assertNotSame(old, paths.getField(target));
+    }
+
+    @Test
+    void searchesTilesOfCurrentMap() throws Exception {
+        PathService paths = new PathService();
+        paths.setTiles(new TileLayer(0, 0, TILE, 10, 5, new ArrayList<>()));
+        assertArrayEquals(new int[] {0, 2, 9, 2}, paths.findPath(0, 2, 9, 2));
+
+        // A wall across the middle with a gap at the top
+        List<GameObject> blocks = new ArrayList<>();
+        for(int r = 1; r < 5; r++) {
+            GameObject b = new GameObject(5 * TILE, r * TILE, TILE, TILE);
+            b.setType(ObjectType.BLOCK);
+            blocks.add(b);
+        }
+        paths.setTiles(new TileLayer(0, 0, TILE, 10, 5, blocks));
+        int[] path = paths.findPath(0, 2, 9, 2);
+        assertEquals(0, minRow(path));
+
+        // Another thread searches with its own search and gets the same path
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<int[]> other = pool.submit(() -> paths.findPath(0, 2, 9, 2));
+            assertArrayEquals(path, other.get());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    private static int minRow(int[] path) {
+        int min = Integer.MAX_VALUE;
+        for(int k = 1; k < path.length; k += 2) {
+            min = Math.min(min, path[k]);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,39 @@
+package gengine.profile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the input latencies counted by TickProfiler reach the report
+ * of their window, and only that one.
+ *
+ * @version 0.3
+ */
+class TickProfilerTest {
+    @Test
+    void reportsInputLatency() {
+        TickProfiler profiler = new TickProfiler();
+        profiler.setWindow(Long.MAX_VALUE);
+        profiler.beginTick();
+        for(int i = 1; i <= 100; i++) {
+            profiler.recordInputLatency(i * 1000L);
+        }
+        profiler.mark(Phase.INPUT);
+        profiler.endTick(null);
+
+        ProfileReport report = profiler.publish(null);
+        assertEquals(100, report.getInputEvents());
+        assertEquals(100000, report.getInputLatencyMax());
+        assertTrue(Math.abs(report.getInputLatencyP50() - 50000) <= 1000);
+        assertTrue(report.getInputLatencyP99() >= 98000 && report.getInputLatencyP99() <= 100000);
+        assertEquals(100.0, profiler.getInputLatencyMaxMicros(), 1e-9);
+        assertTrue(report.toString().contains("input us p50"));
+
+        // The next window starts empty
+        report = profiler.publish(null);
+        assertEquals(0, report.getInputEvents());
+        assertEquals(0, report.getInputLatencyMax());
+    }
+}
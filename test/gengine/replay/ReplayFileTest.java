@@ -0,0 +1,165 @@
+package gengine.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests reading replay files, and that truncated and corrupted files are
+ * rejected with an IOException.
+ *
+ * @version 0.3
+ */
+class ReplayFileTest {
+    @Test
+    void readsHeaderAndRecords() throws IOException {
+        ReplayFile replay = new ReplayFile(ByteBuffer.wrap(sample()));
+        assertEquals(1234L, replay.getSeed());
+        assertEquals(60, replay.getTickRate());
+        assertEquals(60, replay.getChecksumInterval());
+        assertEquals(2, replay.getInputCount());
+        assertEquals(0, replay.getInputTick(0));
+        assertEquals(3, replay.getInputDirection(0));
+        assertTrue(replay.isInputMoving(0));
+        assertEquals(300, replay.getInputTick(1));
+        assertFalse(replay.isInputMoving(1));
+        assertEquals(2, replay.getChecksumCount());
+        assertEquals(0, replay.getChecksumTick(0));
+        assertEquals(0x0123456789ABCDEFL, replay.getChecksum(0));
+        assertEquals(360, replay.getChecksumTick(1));
+        assertEquals(-1L, replay.getChecksum(1));
+        assertEquals(360, replay.getLength());
+    }
+
+    @Test
+    void readsVarintsOfAnyLength() throws IOException {
+        long[] values = {0, 1, 127, 128, 300, 16384, Integer.MAX_VALUE, Long.MAX_VALUE};
+        for(long value : values) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeVarLong(out, value);
+            ByteBuffer data = ByteBuffer.wrap(out.toByteArray());
+            assertEquals(value, ReplayFile.readVarLong(data));
+            assertFalse(data.hasRemaining());
+        }
+    }
+
+    @Test
+    void rejectsEveryTruncation() {
+        byte[] data = sample();
+        for(int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(IOException.class, () -> new ReplayFile(ByteBuffer.wrap(truncated)),
+                "truncated to " + length + " bytes");
+        }
+    }
+
+    @Test
+    void rejectsWrongMagic() {
+        byte[] data = sample();
+        data[0] = 'X';
+        assertRejected(data, "Not a replay file");
+    }
+
+    @Test
+    void rejectsOtherVersion() {
+        byte[] data = sample();
+        data[5] = ReplayFile.VERSION + 1;
+        assertRejected(data, "Unsupported replay version 2");
+    }
+
+    @Test
+    void rejectsMissingEnd() {
+        byte[] data = sample();
+        assertRejected(Arrays.copyOf(data, data.length - 2), "Replay ends without END record");
+    }
+
+    @Test
+    void rejectsUnknownRecord() {
+        ByteArrayOutputStream out = header();
+        out.write(7);
+        out.write(0);
+        out.write(ReplayFile.END);
+        out.write(0);
+        assertRejected(out.toByteArray(), "Unknown replay record 7");
+    }
+
+    @Test
+    void rejectsOverlongVarint() {
+        ByteArrayOutputStream out = header();
+        out.write(ReplayFile.END);
+        for(int i = 0; i < 10; i++) {
+            out.write(0xFF);
+        }
+        out.write(0);
+        assertRejected(out.toByteArray(), "Corrupted replay record");
+    }
+
+    @Test
+    void rejectsOverflowingTick() {
+        ByteArrayOutputStream out = header();
+        out.write(ReplayFile.INPUT);
+        writeVarLong(out, Long.MAX_VALUE);
+        out.write(0);
+        out.write(ReplayFile.END);
+        writeVarLong(out, 1);
+        assertRejected(out.toByteArray(), "Corrupted replay record");
+    }
+
+    private static void assertRejected(byte[] data, String message) {
+        IOException e = assertThrows(IOException.class, () -> new ReplayFile(ByteBuffer.wrap(data)));
+        assertEquals(message, e.getMessage());
+    }
+
+    // Inputs at updates 0 and 300, checksums at 0 and 360, 360 updates long
+    private static byte[] sample() {
+        ByteArrayOutputStream out = header();
+        out.write(ReplayFile.CHECKSUM);
+        writeVarLong(out, 0);
+        writeLong(out, 0x0123456789ABCDEFL);
+        out.write(ReplayFile.INPUT);
+        writeVarLong(out, 0);
+        out.write(ReplayFile.encode(3, true));
+        out.write(ReplayFile.INPUT);
+        writeVarLong(out, 300);
+        out.write(ReplayFile.encode(0, false));
+        out.write(ReplayFile.CHECKSUM);
+        writeVarLong(out, 60);
+        writeLong(out, -1L);
+        out.write(ReplayFile.END);
+        writeVarLong(out, 0);
+        return out.toByteArray();
+    }
+
+    private static ByteArrayOutputStream header() {
+        ByteBuffer header = ByteBuffer.allocate(ReplayFile.HEADER_SIZE);
+        header.putInt(ReplayFile.MAGIC);
+        header.putShort(ReplayFile.VERSION);
+        header.putShort((short) 0);
+        header.putLong(1234L);
+        header.putInt(60);
+        header.putInt(60);
+        header.putLong(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(header.array(), 0, header.capacity());
+        return out;
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        out.write(ByteBuffer.allocate(8).putLong(value).array(), 0, 8);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,153 @@
+package gengine.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import gengine.GameManager;
+import gengine.ScriptedInput;
+import gengine.map.DefaultMaps;
+import gengine.map.MapConverter;
+import gengine.map.MapFile;
+
+/**
+ * Tests recording games and playing them back, on the default maps and on
+ * a streamed map, the way HeadlessRunner does.
+ *
+ * @version 0.3
+ */
+class ReplayTest {
+    private static final long SEED = 42;
+    private static final int TICKS = 600;
+    private static final int CHECKSUM_INTERVAL = 60;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayOfDefaultMapsMatches() throws IOException {
+        Path file = dir.resolve("default.grep");
+        record(newGame(1, null), file);
+
+        ReplayFile replay = ReplayFile.open(file);
+        assertEquals(SEED, replay.getSeed());
+        assertEquals(TICKS, replay.getLength());
+        assertTrue(replay.getInputCount() > 0);
+        assertEquals(TICKS / CHECKSUM_INTERVAL + 1, replay.getChecksumCount());
+
+        ReplayPlayer player = play(newGame(1, null), replay);
+        assertEquals(-1, player.getMismatchTick());
+        assertEquals(replay.getChecksumCount(), player.getChecked());
+        assertTrue(player.isFinished());
+    }
+
+    @Test
+    void replayMatchesWithMoreThreads() throws IOException {
+        Path file = dir.resolve("threads.grep");
+        record(newGame(1, null), file);
+
+        ReplayPlayer player = play(newGame(4, null), ReplayFile.open(file));
+        assertEquals(-1, player.getMismatchTick());
+        assertTrue(player.getChecked() > 0);
+    }
+
+    @Test
+    void replayOfStreamedMapMatches() throws IOException {
+        Path map = dir.resolve("world.gmap");
+        MapConverter.write(worldMarks(256, 256), map, 16, true);
+        Path file = dir.resolve("world.grep");
+        GameManager recording = newGame(1, MapFile.open(map));
+        int loads = recording.getStreamer().getLoads();
+        record(recording, file);
+        assertTrue(recording.getStreamer().getLoads() > loads, "no chunks streamed while recording");
+
+        ReplayPlayer player = play(newGame(1, MapFile.open(map)), ReplayFile.open(file));
+        assertEquals(-1, player.getMismatchTick());
+        assertTrue(player.getChecked() > 0);
+    }
+
+    @Test
+    void changedChecksumIsReported() throws IOException {
+        Path file = dir.resolve("changed.grep");
+        record(newGame(1, null), file);
+
+        // The file ends with the final checksum and an END record one byte
+        // long, so flip a bit of the final checksum
+        byte[] data = Files.readAllBytes(file);
+        data[data.length - 3] ^= 1;
+        Files.write(file, data);
+
+        ReplayPlayer player = play(newGame(1, null), ReplayFile.open(file));
+        assertEquals(TICKS, player.getMismatchTick());
+        assertTrue(player.getExpectedChecksum() != player.getActualChecksum());
+    }
+
+    private static GameManager newGame(int threads, MapFile world) {
+        GameManager manager = new GameManager();
+        manager.setSeed(SEED);
+        manager.setParallelism(threads);
+        manager.setMaps(DefaultMaps.create());
+        manager.setCurrentMap(0);
+        if(world != null) {
+            manager.loadWorld(world);
+        }
+        else {
+            manager.getMap();
+        }
+        manager.getPlayer().setSpeed(5.0);
+        return manager;
+    }
+
+    private static void record(GameManager manager, Path file) throws IOException {
+        ReplayRecorder recorder = new ReplayRecorder(manager, new ScriptedInput(SEED, 30), file, CHECKSUM_INTERVAL);
+        manager.setInput(recorder);
+        run(manager, TICKS);
+        recorder.close();
+        assertFalse(recorder.isRecording());
+        stop(manager);
+    }
+
+    private static ReplayPlayer play(GameManager manager, ReplayFile replay) {
+        manager.setTickRate(replay.getTickRate());
+        ReplayPlayer player = new ReplayPlayer(replay, manager);
+        manager.setInput(player);
+        run(manager, replay.getLength());
+        player.finish();
+        stop(manager);
+        return player;
+    }
+
+    private static void run(GameManager manager, long ticks) {
+        long step = manager.getStepTime();
+        for(long i = 0; i < ticks; i++) {
+            manager.updateGame(step);
+        }
+    }
+
+    private static void stop(GameManager manager) {
+        manager.setParallelism(1);
+        if(manager.getStreamer() != null) {
+            manager.getStreamer().shutdown();
+        }
+    }
+
+    private static char[][] worldMarks(int width, int height) {
+        Random random = new Random(SEED);
+        char[][] marks = new char[height][width];
+        for(int row = 0; row < height; row++) {
+            for(int col = 0; col < width; col++) {
+                boolean border = row == 0 || col == 0 || row == height - 1 || col == width - 1;
+                int r = random.nextInt(100);
+                marks[row][col] = border || r < 8 ? 'x' : r < 11 ? 'e' : r < 13 ? 'o' : '-';
+            }
+        }
+        marks[height / 2][width / 2] = 'P';
+        return marks;
+    }
+}